@@ -0,0 +1,114 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * DateTimeBenchmark compares the java.time based HDateTime paths
+ * against the original GregorianCalendar implementations over one day
+ * of 1-minute timestamps, as read by a hisRead:
+ *
+ *   gradle jmh -PjmhArgs="DateTime -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DateTimeBenchmark
+{
+  private static final int n = 1440;
+
+  private HTimeZone tz;
+  private long start;
+  private HDate[] dates;
+  private HTime[] times;
+  private int[] offsets;
+
+  @Setup
+  public void setup()
+  {
+    tz = HTimeZone.make("New_York");
+    start = HDateTime.make(2024, 3, 10, 0, 0, 0, tz, -5*3600).millis();
+    dates = new HDate[n];
+    times = new HTime[n];
+    offsets = new int[n];
+    for (int i=0; i<n; ++i)
+    {
+      HDateTime ts = HDateTime.make(start + i * 60000L, tz);
+      dates[i] = ts.date();
+      times[i] = ts.time();
+      offsets[i] = ts.tzOffset;
+    }
+  }
+
+  @Benchmark
+  public HDateTime makeMillis()
+  {
+    HDateTime last = null;
+    for (int i=0; i<n; ++i) last = HDateTime.make(start + i * 60000L, tz);
+    return last;
+  }
+
+  @Benchmark
+  public HDateTime makeMillisCalendar()
+  {
+    HDateTime last = null;
+    for (int i=0; i<n; ++i) last = HDateTime.calendarMake(start + i * 60000L, tz);
+    return last;
+  }
+
+  @Benchmark
+  public long fields()
+  {
+    long sum = 0;
+    for (int i=0; i<n; ++i)
+    {
+      HDateTime ts = HDateTime.make(start + i * 60000L, tz);
+      sum += ts.date().day + ts.time().min;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public HDateTime makeFields()
+  {
+    HDateTime last = null;
+    for (int i=0; i<n; ++i) last = HDateTime.make(dates[i], times[i], tz);
+    return last;
+  }
+
+  @Benchmark
+  public HDateTime makeFieldsCalendar()
+  {
+    HDateTime last = null;
+    for (int i=0; i<n; ++i) last = HDateTime.calendarMake(dates[i], times[i], tz);
+    return last;
+  }
+
+  @Benchmark
+  public long millis()
+  {
+    long sum = 0;
+    for (int i=0; i<n; ++i)
+      sum += HDateTime.make(dates[i], times[i], tz, offsets[i]).millis();
+    return sum;
+  }
+
+  @Benchmark
+  public long millisCalendar()
+  {
+    long sum = 0;
+    for (int i=0; i<n; ++i)
+      sum += HDateTime.make(dates[i], times[i], tz, offsets[i]).calendarMillis();
+    return sum;
+  }
+}
@@ -0,0 +1,156 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.Map.Entry;
+import org.openjdk.jmh.annotations.*;
+import org.projecthaystack.server.TestDatabase;
+
+/**
+ * DictFootprintBenchmark compares the compact HDict implementations
+ * made by HDictBuilder against the original HashMap based MapImpl on
+ * copies of the TestDatabase records.  Run with "-prof gc" to see the
+ * bytes allocated per copy of the database, or run main to print the
+ * retained heap per record of each:
+ *
+ *   gradle jmh -PjmhArgs="DictFootprint -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DictFootprintBenchmark
+{
+  private HDict[] recs;
+
+  @Setup
+  public void setup()
+  {
+    recs = testRecs();
+  }
+
+  @Benchmark
+  public HDict[] compact()
+  {
+    return copyCompact(recs);
+  }
+
+  @Benchmark
+  public HDict[] map()
+  {
+    return copyMap(recs);
+  }
+
+  @Benchmark
+  public int getCompact()
+  {
+    return lookups(recs);
+  }
+
+  @Benchmark
+  public int getMap()
+  {
+    return lookups(mapRecs == null ? mapRecs = copyMap(recs) : mapRecs);
+  }
+
+  private HDict[] mapRecs;
+
+  private static int lookups(HDict[] recs)
+  {
+    int n = 0;
+    for (int i=0; i<recs.length; ++i)
+    {
+      HDict rec = recs[i];
+      if (rec.has("point")) ++n;
+      if (rec.has("equipRef")) ++n;
+      if (rec.has("notThere")) ++n;
+    }
+    return n;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Records
+//////////////////////////////////////////////////////////////////////////
+
+  static HDict[] testRecs()
+  {
+    TestDatabase db = new TestDatabase();
+    HGrid grid = db.readAll("id");
+    HDict[] recs = new HDict[grid.numRows()];
+    for (int i=0; i<recs.length; ++i)
+      recs[i] = db.readById(grid.row(i).id());
+    return recs;
+  }
+
+  static HDict[] copyCompact(HDict[] recs)
+  {
+    HDict[] acc = new HDict[recs.length];
+    for (int i=0; i<recs.length; ++i)
+      acc[i] = new HDictBuilder().add(recs[i]).toDict();
+    return acc;
+  }
+
+  static HDict[] copyMap(HDict[] recs)
+  {
+    HDict[] acc = new HDict[recs.length];
+    for (int i=0; i<recs.length; ++i)
+    {
+      HashMap map = new HashMap(37);
+      for (Iterator it = recs[i].iterator(); it.hasNext(); )
+      {
+        Entry e = (Entry)it.next();
+        map.put(e.getKey(), e.getValue());
+      }
+      acc[i] = new HDict.MapImpl(map);
+    }
+    return acc;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Main
+//////////////////////////////////////////////////////////////////////////
+
+  /** Print retained heap per record for each implementation */
+  public static void main(String[] args)
+  {
+    int copies = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+    HDict[] recs = testRecs();
+    System.out.println("TestDatabase: " + recs.length + " recs x " + copies + " copies");
+    for (int pass=0; pass<2; ++pass)
+    {
+      long compact = retained(recs, copies, true);
+      long map = retained(recs, copies, false);
+      if (pass == 0) continue;
+      long n = (long)recs.length * copies;
+      System.out.println("  compact: " + (compact / n) + " bytes/rec");
+      System.out.println("  MapImpl: " + (map / n) + " bytes/rec");
+    }
+  }
+
+  private static long retained(HDict[] recs, int copies, boolean compact)
+  {
+    Object[] keep = new Object[copies];
+    long before = used();
+    for (int i=0; i<copies; ++i)
+      keep[i] = compact ? copyCompact(recs) : copyMap(recs);
+    long after = used();
+    if (keep[copies-1] == null) throw new IllegalStateException();
+    return after - before;
+  }
+
+  private static long used()
+  {
+    Runtime rt = Runtime.getRuntime();
+    for (int i=0; i<4; ++i) System.gc();
+    return rt.totalMemory() - rt.freeMemory();
+  }
+}
@@ -0,0 +1,76 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * TimeZoneBenchmark measures HTimeZone lookups from several threads,
+ * as done when parsing timestamps in parallel:
+ *
+ *   gradle jmh -PjmhArgs="TimeZone"
+ *
+ * Run main in a fresh JVM to print the cold start cost of loading
+ * HTimeZone and resolving the first name.
+ */
+public class TimeZoneBenchmark
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Contention
+//////////////////////////////////////////////////////////////////////////
+
+  @State(Scope.Benchmark)
+  public static class Names
+  {
+    final String[] names = { "New_York", "London", "Tokyo", "UTC", "Chicago", "Berlin", "Sydney", "Denver" };
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 3)
+  @Measurement(iterations = 5)
+  @Threads(8)
+  @Fork(1)
+  public int makeByName(Names s)
+  {
+    int n = 0;
+    for (int i=0; i<s.names.length; ++i) n += HTimeZone.make(s.names[i]).name.length();
+    return n;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 3)
+  @Measurement(iterations = 5)
+  @Threads(8)
+  @Fork(1)
+  public HDateTime parseDateTime()
+  {
+    return HDateTime.make("2024-07-04T13:45:30-04:00 New_York");
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Cold Start
+//////////////////////////////////////////////////////////////////////////
+
+  /** Print the time to load HTimeZone and resolve a name; run once per JVM */
+  public static void main(String[] args) throws Exception
+  {
+    long t0 = System.nanoTime();
+    Class.forName("org.projecthaystack.HTimeZone");
+    long t1 = System.nanoTime();
+    HTimeZone.make(args.length > 0 ? args[0] : "New_York");
+    long t2 = System.nanoTime();
+    System.out.println("HTimeZone load:  " + (t1 - t0) / 1000 + "us");
+    System.out.println("first make:      " + (t2 - t1) / 1000 + "us");
+  }
+}
@@ -0,0 +1,72 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * TokenizerBenchmark compares the block-buffered HaystackTokenizer
+ * against the original char-at-a-time implementation on a large Zinc
+ * payload read from a UTF-8 byte stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TokenizerBenchmark
+{
+  @Param({"10000"})
+  public int rows;
+
+  private byte[] zinc;
+
+  @Setup
+  public void setup() throws IOException
+  {
+    StringBuffer s = new StringBuffer();
+    s.append("ver:\"3.0\" hisStart:2026-01-01T00:00:00-05:00 New_York\n");
+    s.append("id,dis,ts,val,unit,site,enabled\n");
+    for (int i=0; i<rows; ++i)
+    {
+      s.append("@p:demo:r:").append(Integer.toHexString(i * 7919)).append(' ')
+       .append("\"Point ").append(i).append(" \\u00b0 \\\"quoted\\\"\",")
+       .append("2026-01-01T").append(pad(i / 60 % 24)).append(':').append(pad(i % 60))
+       .append(":00-05:00 New_York,")
+       .append(i * 0.125).append("kW,")
+       .append("\"kW\",")
+       .append("@p:demo:r:site,")
+       .append(i % 2 == 0 ? "T" : "F")
+       .append('\n');
+    }
+    zinc = s.toString().getBytes("UTF-8");
+  }
+
+  private static String pad(int x) { return x < 10 ? "0" + x : String.valueOf(x); }
+
+  @Benchmark
+  public int blockBuffered() throws IOException
+  {
+    HaystackTokenizer t = new HaystackTokenizer(new InputStreamReader(new ByteArrayInputStream(zinc), "UTF-8"));
+    int n = 0;
+    while (t.next() != HaystackToken.eof) ++n;
+    return n;
+  }
+
+  @Benchmark
+  public int legacy() throws IOException
+  {
+    LegacyHaystackTokenizer t = new LegacyHaystackTokenizer(new BufferedReader(new InputStreamReader(new ByteArrayInputStream(zinc), "UTF-8")));
+    int n = 0;
+    while (t.next() != HaystackToken.eof) ++n;
+    return n;
+  }
+}
@@ -0,0 +1,25 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack;
+
+/**
+ * HCellDecoder supplies the cells of a lazily decoded grid.  A grid
+ * built with {@link HGridBuilder#toLazyGrid} asks the decoder for a
+ * cell the first time it is read from a row and caches the result,
+ * so the decoder is called at most once per cell by a single thread.
+ * Decoders must be safe to call from multiple threads if the grid is
+ * shared.
+ */
+public abstract class HCellDecoder
+{
+  /** Number of rows in the grid */
+  public abstract int numRows();
+
+  /** Decode the cell at given row and column index or return null */
+  public abstract HVal decode(int row, int col);
+}
@@ -33,6 +33,12 @@ public class HCoord extends HVal
     return new HCoord((int)(lat * 1000000.0), (int)(lng * 1000000.0));
   }
 
+  /** Construct from lat and lng in micro-degrees as stored in ulat and ulng */
+  public static HCoord makeMicro(int ulat, int ulng)
+  {
+    return new HCoord(ulat, ulng);
+  }
+
   /** Package private constructor */
   HCoord(int ulat, int ulng)
   {
@@ -56,11 +56,11 @@ public class HDate extends HVal
   /** Get HDate for current time in default timezone */
   public static HDate today()
   {
-    return HDateTime.now().date;
+    return HDateTime.now().date();
   }
 
-  /** Private constructor */
-  private HDate(int year, int month, int day)
+  /** Package private constructor */
+  HDate(int year, int month, int day)
   {
     this.year  = year;
     this.month = month;
@@ -7,6 +7,10 @@
 //
 package org.projecthaystack;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.TimeZone;
@@ -16,6 +20,9 @@ import org.projecthaystack.io.HZincReader;
 /**
  * HDateTime models a timestamp with a specific timezone.
  *
+ * The timestamp is stored packed as Java millis and the offset, and
+ * the date and time are made from those when accessed.
+ *
  * @see <a href='http://project-haystack.org/doc/TagModel#tagKinds'>Project Haystack</a>
  */
 public class HDateTime extends HVal
@@ -24,11 +31,42 @@ public class HDateTime extends HVal
   public static HDateTime make(HDate date, HTime time, HTimeZone tz, int tzOffset)
   {
     if (date == null || time == null || tz == null) throw new IllegalArgumentException("null args");
-    return new HDateTime(date, time, tz, tzOffset);
+    if (date.year < minFastYear) return new HDateTime(calendarMillis(date, time, tzOffset), tz, tzOffset);
+    return new HDateTime(toMillis(date, time, tzOffset), tz, tzOffset);
   }
 
-  /** Constructor with date, time, tz, but no tzOffset */
+  /**
+   * Constructor with date, time, tz, but no tzOffset.  A local time
+   * skipped by a DST gap is taken in the offset before the gap, and
+   * an ambiguous local time in an overlap uses the later offset.
+   * Since the date and time are computed from the millis, a time in
+   * a gap comes back moved forward by the gap: 02:30 on a spring
+   * forward day in New_York is 03:30-04:00.
+   */
   public static HDateTime make(HDate date, HTime time, HTimeZone tz)
+  {
+    ZoneRules rules = tz.rules;
+    if (rules == null || date.year < minFastYear) return calendarMake(date, time, tz);
+
+    LocalDateTime local = LocalDateTime.of(date.year, date.month, 1, time.hour, time.min, time.sec)
+      .plusDays(date.day - 1);
+    ZoneOffsetTransition trans = rules.getTransition(local);
+    int before, after;
+    if (trans == null)
+      before = after = rules.getOffset(local).getTotalSeconds();
+    else if (trans.isGap())
+    {
+      before = trans.getOffsetBefore().getTotalSeconds();
+      after = trans.getOffsetAfter().getTotalSeconds();
+    }
+    else
+      before = after = trans.getOffsetAfter().getTotalSeconds();
+
+    return new HDateTime(toMillis(date, time, before), tz, after);
+  }
+
+  /** Calendar based implementation of make(date, time, tz) */
+  static HDateTime calendarMake(HDate date, HTime time, HTimeZone tz)
   {
     // use calendar to decode millis to fields
     GregorianCalendar c = new GregorianCalendar(date.year, date.month-1, date.day, time.hour, time.min, time.sec);
@@ -38,12 +76,7 @@ public class HDateTime extends HVal
     // tzOffset
     int tzOffset = c.get(Calendar.ZONE_OFFSET) / 1000 + c.get(Calendar.DST_OFFSET) / 1000;
 
-    // millis
-    long millis = c.getTimeInMillis();
-
-    HDateTime ts = new HDateTime(date, time, tz, tzOffset);
-    ts.millis = millis;
-    return ts;
+    return new HDateTime(c.getTimeInMillis(), tz, tzOffset);
   }
 
   /** Constructor with date and time (to sec) fields */
@@ -66,6 +99,23 @@ public class HDateTime extends HVal
 
   /** Constructor with Java millis and Java TimeZone instance */
   public static HDateTime make(long millis, HTimeZone tz)
+  {
+    ZoneRules rules = tz.rules;
+    if (rules == null || millis < minFastMillis) return calendarMake(millis, tz);
+
+    int tzOffset = rules.getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds();
+    return new HDateTime(millis, tz, tzOffset);
+  }
+
+  /** Constructor with Java millis, timezone, and offset in seconds */
+  public static HDateTime make(long millis, HTimeZone tz, int tzOffset)
+  {
+    if (tz == null) throw new IllegalArgumentException("null args");
+    return new HDateTime(millis, tz, tzOffset);
+  }
+
+  /** Calendar based implementation of make(millis, tz) */
+  static HDateTime calendarMake(long millis, HTimeZone tz)
   {
     // use calendar to decode millis to fields
     Calendar c = new GregorianCalendar(tz.java);
@@ -74,9 +124,7 @@ public class HDateTime extends HVal
     // tzOffset
     int tzOffset = c.get(Calendar.ZONE_OFFSET) / 1000 + c.get(Calendar.DST_OFFSET) / 1000;
 
-    HDateTime ts = new HDateTime(HDate.make(c), HTime.make(c), tz, tzOffset);
-    ts.millis = millis;
-    return ts;
+    return new HDateTime(millis, tz, tzOffset);
   }
 
   /** Parse from string fomat "YYYY-MM-DD'T'hh:mm:ss.FFFz zzzz"
@@ -138,19 +186,40 @@ public class HDateTime extends HVal
   }
 
   /** Private constructor */
-  private HDateTime(HDate date, HTime time, HTimeZone tz, int tzOffset)
+  private HDateTime(long millis, HTimeZone tz, int tzOffset)
   {
-    this.date     = date;
-    this.time     = time;
+    this.millis   = millis;
     this.tz       = tz;
     this.tzOffset = tzOffset;
   }
 
   /** Date component of the timestamp */
-  public final HDate date;
+  public HDate date()
+  {
+    long local = local();
+    if (local < minFastMillis) return HDate.make(calendarFields(local));
+    return toDate(Math.floorDiv(local, msPerDay));
+  }
 
   /** Time component of the timestamp */
-  public final HTime time;
+  public HTime time()
+  {
+    long local = local();
+    if (local < minFastMillis) return HTime.make(calendarFields(local));
+    int ms = (int)Math.floorMod(local, msPerDay);
+    return new HTime(ms / 3600000, (ms / 60000) % 60, (ms / 1000) % 60, ms % 1000);
+  }
+
+  /** Local millis since the epoch in the offset */
+  private long local() { return millis + tzOffset * 1000L; }
+
+  /** Calendar with UTC fields set to local millis */
+  private static Calendar calendarFields(long local)
+  {
+    Calendar c = new GregorianCalendar(utc);
+    c.setTimeInMillis(local);
+    return c;
+  }
 
   /** Offset in seconds from UTC including DST offset */
   public final int tzOffset;
@@ -159,33 +228,37 @@ public class HDateTime extends HVal
   public final HTimeZone tz;
 
   /** Get this date time as Java milliseconds since epoch */
-  public long millis()
+  public long millis() { return millis; }
+  private final long millis;
+
+  /** Calendar based implementation of millis() from date and time */
+  long calendarMillis()
   {
-    if (millis <= 0)
-    {
-      GregorianCalendar c = new GregorianCalendar(date.year, date.month-1, date.day, time.hour, time.min, time.sec);
-      c.setTimeZone(utc);
-      c.set(Calendar.MILLISECOND, time.ms);
-      c.set(Calendar.ZONE_OFFSET, tzOffset*1000);
-      millis = c.getTimeInMillis();
-    }
-    return millis;
+    return calendarMillis(date(), time(), tzOffset);
   }
-  private volatile long millis;
 
-  /** Hash is based on date, time, tzOffset, and tz */
+  private static long calendarMillis(HDate date, HTime time, int tzOffset)
+  {
+    GregorianCalendar c = new GregorianCalendar(date.year, date.month-1, date.day, time.hour, time.min, time.sec);
+    c.setTimeZone(utc);
+    c.set(Calendar.MILLISECOND, time.ms);
+    c.set(Calendar.ZONE_OFFSET, tzOffset*1000);
+    return c.getTimeInMillis();
+  }
+
+  /** Hash is based on millis, tzOffset, and tz */
   public int hashCode()
   {
-    return date.hashCode() ^ time.hashCode() ^ tzOffset ^ tz.hashCode();
+    return (int)(millis ^ (millis >>> 32)) ^ tzOffset ^ tz.hashCode();
   }
 
-  /** Equals is based on date, time, tzOffset, and tz */
+  /** Equals is based on millis, tzOffset, and tz which is the
+      same as date, time, tzOffset, and tz */
   public boolean equals(Object that)
   {
     if (!(that instanceof HDateTime)) return false;
     HDateTime x = (HDateTime)that;
-    return date.equals(x.date) && time.equals(x.time) &&
-           tzOffset == x.tzOffset && tz.equals(x.tz);
+    return millis == x.millis && tzOffset == x.tzOffset && tz.equals(x.tz);
   }
 
   /** Comparison based on millis. */
@@ -217,9 +290,9 @@ public class HDateTime extends HVal
 
   private void encode(StringBuffer s)
   {
-    date.encode(s);
+    date().encode(s);
     s.append('T');
-    time.encode(s);
+    time().encode(s);
     if (tzOffset == 0) s.append('Z');
     else
     {
@@ -234,6 +307,49 @@ public class HDateTime extends HVal
     s.append(' ').append(tz);
   }
 
+//////////////////////////////////////////////////////////////////////////
+// Epoch Arithmetic
+//////////////////////////////////////////////////////////////////////////
+
+  /** Millis for local date and time at given offset in seconds */
+  private static long toMillis(HDate date, HTime time, int offset)
+  {
+    long secs = toEpochDay(date.year, date.month, date.day) * 86400L +
+                time.hour * 3600 + time.min * 60 + time.sec - offset;
+    return secs * 1000L + time.ms;
+  }
+
+  /** Days since 1970-01-01 for a Gregorian date, day may overflow the month */
+  private static long toEpochDay(int year, int month, int day)
+  {
+    if (month <= 2) --year;
+    long era = year / 400;
+    long yoe = year - era * 400;
+    long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+    return era * 146097 + doe - 719468;
+  }
+
+  /** Gregorian date for days since 1970-01-01 */
+  private static HDate toDate(long epochDay)
+  {
+    long z = epochDay + 719468;
+    long era = Math.floorDiv(z, 146097);
+    long doe = z - era * 146097;
+    long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+    long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+    long mp = (5 * doy + 2) / 153;
+    int day = (int)(doy - (153 * mp + 2) / 5 + 1);
+    int month = (int)(mp < 10 ? mp + 3 : mp - 9);
+    int year = (int)(yoe + era * 400 + (month <= 2 ? 1 : 0));
+    return new HDate(year, month, day);
+  }
+
+  // earlier dates use Calendar to keep its Julian and LMT handling
+  private static final int minFastYear = 1901;
+  private static final long minFastMillis = -2177452800000L + 86400000L;  // 1901-01-02
+  private static final long msPerDay = 86400000L;
+
   private static final TimeZone utc = TimeZone.getTimeZone("Etc/UTC");
 
 }
\ No newline at end of file
@@ -9,9 +9,14 @@ package org.projecthaystack;
 
 import org.projecthaystack.io.HZincWriter;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * HDict is an immutable map of name/HVal pairs.  Use HDictBuilder
@@ -27,7 +32,69 @@ public abstract class HDict extends HVal
 //////////////////////////////////////////////////////////////////////////
 
   /** Singleton for empty set of tags. */
-  public static final HDict EMPTY = new MapImpl(new HashMap(11));
+  public static final HDict EMPTY = new ArrayImpl(new String[0], new HVal[0]);
+
+  /**
+   * Make a dict from the first n names and values in the order they
+   * were added, as HDictBuilder does.  The tags iterate in the order of
+   * the HashMap(37) which HDictBuilder has always used, since grids
+   * built from dicts take their column order from it.  Dicts with up
+   * to 8 tags keep their own key array; larger ones share a canonical
+   * Shape of keys with every other dict of the same tags.  Dicts with
+   * over 48 tags, or whose order cannot be computed without a real
+   * HashMap, fall back to MapImpl.
+   */
+  static HDict make(String[] names, HVal[] vals, int n)
+  {
+    if (n == 0) return EMPTY;
+    if (n > maxShapeTags) return toMapImpl(names, vals, n);
+
+    // stable insertion sort of indices by HashMap bucket
+    int[] order = new int[n];
+    int[] buckets = new int[n];
+    for (int i=0; i<n; ++i)
+    {
+      int h = names[i].hashCode();
+      int b = (h ^ (h >>> 16)) & 63;
+      int j = i;
+      while (j > 0 && buckets[j-1] > b)
+      {
+        buckets[j] = buckets[j-1];
+        order[j] = order[j-1];
+        --j;
+      }
+      buckets[j] = b;
+      order[j] = i;
+    }
+
+    // HashMap makes a tree of a bucket with 8 or more entries
+    int run = 1;
+    for (int i=1; i<n; ++i)
+    {
+      run = buckets[i] == buckets[i-1] ? run + 1 : 1;
+      if (run >= 8) return toMapImpl(names, vals, n);
+    }
+
+    String[] keys = new String[n];
+    HVal[] v = new HVal[n];
+    for (int i=0; i<n; ++i)
+    {
+      keys[i] = names[order[i]];
+      v[i] = vals[order[i]];
+    }
+    if (n <= maxArrayTags) return new ArrayImpl(keys, v);
+    return new ShapeImpl(Shape.intern(keys), v);
+  }
+
+  private static HDict toMapImpl(String[] names, HVal[] vals, int n)
+  {
+    HashMap map = new HashMap(37);
+    for (int i=0; i<n; ++i) map.put(names[i], vals[i]);
+    return new MapImpl(map);
+  }
+
+  private static final int maxArrayTags = 8;
+  private static final int maxShapeTags = 48;
 
 //////////////////////////////////////////////////////////////////////////
 // Access
@@ -90,6 +157,59 @@ public abstract class HDict extends HVal
   /** Get tag as HNum or raise UnknownNameException or ClassCastException. */
   public final double getDouble(String name) { return ((HNum)get(name)).val; }
 
+//////////////////////////////////////////////////////////////////////////
+// Updates
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Return a dict with the given tag added or replaced, or removed if
+   * val is null.  Small results are copied into a compact dict; larger
+   * ones are a persistent trie which shares all but O(log n) of its
+   * nodes with this dict on later updates.  Either way the tags iterate
+   * in the same order as a dict built by HDictBuilder with the tags of
+   * this dict followed by the new one.
+   */
+  public HDict with(String name, HVal val)
+  {
+    if (val == null) return without(name);
+    if (!isTagName(name)) throw new IllegalArgumentException("Invalid tag name: " + name);
+    if (size() < maxArrayTags) return copy(null, name, val);
+    return PersistentImpl.from(this).with(name, val);
+  }
+
+  /** Return a dict without the given tag, or this if it is missing */
+  public HDict without(String name)
+  {
+    if (missing(name)) return this;
+    if (size() <= maxArrayTags) return copy(name, null, null);
+    return PersistentImpl.from(this).without(name);
+  }
+
+  /** Return a dict with all the tags of this and the given dict,
+      where tags of the given dict replace those of this one */
+  public HDict merge(HDict dict)
+  {
+    if (dict.isEmpty()) return this;
+    if (isEmpty()) return dict;
+    if (size() + dict.size() <= maxArrayTags) return new HDictBuilder().add(this).add(dict).toDict();
+    return PersistentImpl.from(this).merge(dict);
+  }
+
+  /** Copy tags except for remove, then set add to val */
+  private HDict copy(String remove, String add, HVal val)
+  {
+    HDictBuilder b = new HDictBuilder();
+    for (Iterator it = iterator(); it.hasNext(); )
+    {
+      Entry e = (Entry)it.next();
+      String key = (String)e.getKey();
+      if (e.getValue() == null || key.equals(remove)) continue;
+      b.add(key, (HVal)e.getValue());
+    }
+    if (add != null) b.add(add, val);
+    return b.toDict();
+  }
+
 //////////////////////////////////////////////////////////////////////////
 // Identity
 //////////////////////////////////////////////////////////////////////////
@@ -120,6 +240,7 @@ public abstract class HDict extends HVal
   /** Equality is tags */
   public final boolean equals(Object that)
   {
+    if (this == that) return true;
     if (!(that instanceof HDict)) return false;
     HDict x = (HDict)that;
     if (this.size() != x.size()) return false;
@@ -129,7 +250,8 @@ public abstract class HDict extends HVal
       String key = (String)entry.getKey();
       Object val = entry.getValue();
       if (val == null) continue;
-      if (!val.equals(x.get(key,false))) return false;
+      Object other = x.get(key,false);
+      if (val != other && !val.equals(other)) return false;
     }
     return true;
   }
@@ -204,6 +326,539 @@ public abstract class HDict extends HVal
     private final HashMap map;
   }
 
+//////////////////////////////////////////////////////////////////////////
+// ArrayImpl
+//////////////////////////////////////////////////////////////////////////
+
+  /** Small dict with its own array of keys */
+  static final class ArrayImpl extends HDict
+  {
+    ArrayImpl(String[] keys, HVal[] vals) { this.keys = keys; this.vals = vals; }
+
+    public int size() { return keys.length; }
+
+    public HVal get(String name, boolean checked)
+    {
+      String[] keys = this.keys;
+      for (int i=0; i<keys.length; ++i)
+      {
+        String key = keys[i];
+        if (key == name || key.equals(name))
+        {
+          HVal val = vals[i];
+          if (val != null) return val;
+          break;
+        }
+      }
+      if (!checked) return null;
+      throw new UnknownNameException(name);
+    }
+
+    public Iterator iterator() { return new ArrayIterator(keys, vals); }
+
+    final String[] keys;
+    final HVal[] vals;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// ShapeImpl
+//////////////////////////////////////////////////////////////////////////
+
+  /** Dict whose keys are a shared Shape, so only the values are stored */
+  static final class ShapeImpl extends HDict
+  {
+    ShapeImpl(Shape shape, HVal[] vals) { this.shape = shape; this.vals = vals; }
+
+    public int size() { return vals.length; }
+
+    public HVal get(String name, boolean checked)
+    {
+      int i = shape.index(name);
+      if (i >= 0)
+      {
+        HVal val = vals[i];
+        if (val != null) return val;
+      }
+      if (!checked) return null;
+      throw new UnknownNameException(name);
+    }
+
+    public Iterator iterator() { return new ArrayIterator(shape.keys, vals); }
+
+    final Shape shape;
+    final HVal[] vals;
+  }
+
+  /**
+   * Shape is the canonical array of keys for all the dicts with the
+   * same tags in the same order, plus an open addressing table which
+   * maps a key to its index.  Shapes are held weakly so those no longer
+   * used by any dict are garbage collected.
+   */
+  static final class Shape
+  {
+    /** Get the canonical shape for the keys */
+    static Shape intern(String[] keys)
+    {
+      // lock-free lookup for the common case of an existing shape
+      Object key = Arrays.asList(keys);
+      ShapeRef ref = (ShapeRef)shapes.get(key);
+      Shape shape = ref == null ? null : (Shape)ref.get();
+      if (shape != null) return shape;
+
+      expunge();
+      Shape probe = new Shape(keys);
+      ShapeRef probeRef = new ShapeRef(probe, key);
+      while (true)
+      {
+        ref = (ShapeRef)shapes.putIfAbsent(key, probeRef);
+        if (ref == null) return probe;
+        shape = (Shape)ref.get();
+        if (shape != null) return shape;
+        if (shapes.replace(key, ref, probeRef)) return probe;
+      }
+    }
+
+    /** Remove the entries of shapes which have been collected */
+    private static void expunge()
+    {
+      ShapeRef ref;
+      while ((ref = (ShapeRef)queue.poll()) != null)
+        shapes.remove(ref.key, ref);
+    }
+
+    private Shape(String[] keys)
+    {
+      int size = 32;
+      while (size < keys.length * 2) size <<= 1;
+      int[] table = new int[size];
+      for (int i=0; i<keys.length; ++i)
+      {
+        int slot = keys[i].hashCode() & (size - 1);
+        while (table[slot] != 0) slot = (slot + 1) & (size - 1);
+        table[slot] = i + 1;
+      }
+      this.keys = keys;
+      this.table = table;
+    }
+
+    /** Index of key or -1 */
+    int index(String name)
+    {
+      int[] table = this.table;
+      int mask = table.length - 1;
+      int slot = name.hashCode() & mask;
+      while (true)
+      {
+        int i = table[slot] - 1;
+        if (i < 0) return -1;
+        String key = keys[i];
+        if (key == name || key.equals(name)) return i;
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    final String[] keys;
+    private final int[] table;
+  }
+
+  /** Weak reference to a shape which remembers its key in shapes */
+  private static final class ShapeRef extends WeakReference
+  {
+    ShapeRef(Shape shape, Object key) { super(shape, queue); this.key = key; }
+    final Object key;
+  }
+
+  private static final ConcurrentHashMap shapes = new ConcurrentHashMap();
+  private static final ReferenceQueue queue = new ReferenceQueue();
+
+  static final class ArrayIterator implements Iterator
+  {
+    ArrayIterator(String[] keys, HVal[] vals) { this.keys = keys; this.vals = vals; }
+    public boolean hasNext() { return i < keys.length; }
+    public Object next()
+    {
+      if (i >= keys.length) throw new NoSuchElementException();
+      Entry e = toEntry(keys[i], vals[i]);
+      ++i;
+      return e;
+    }
+    public void remove() { throw new UnsupportedOperationException(); }
+    private final String[] keys;
+    private final HVal[] vals;
+    private int i;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// PersistentImpl
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Dict stored as a hash array mapped trie.  Each update copies only
+   * the path from the root to the changed tag and shares every other
+   * node, so with, without, and merge are O(log n).  Each tag remembers
+   * when it was added so iteration can replay the tags in that order
+   * and match the order of the same dict made by HDictBuilder.
+   */
+  static final class PersistentImpl extends HDict
+  {
+    static PersistentImpl from(HDict dict)
+    {
+      if (dict instanceof PersistentImpl) return (PersistentImpl)dict;
+      Node root = BitmapNode.EMPTY;
+      int size = 0;
+      boolean[] added = new boolean[1];
+      for (Iterator it = dict.iterator(); it.hasNext(); )
+      {
+        Entry e = (Entry)it.next();
+        HVal val = (HVal)e.getValue();
+        if (val == null) continue;
+        String key = (String)e.getKey();
+        added[0] = false;
+        root = root.put(0, hash(key), key, new Tag(val, size), added);
+        if (added[0]) ++size;
+      }
+      return new PersistentImpl(root, size, size);
+    }
+
+    private PersistentImpl(Node root, int size, int nextSeq)
+    {
+      this.root = root;
+      this.size = size;
+      this.nextSeq = nextSeq;
+    }
+
+    public int size() { return size; }
+
+    public HVal get(String name, boolean checked)
+    {
+      Tag tag = root.find(0, hash(name), name);
+      if (tag != null) return tag.val;
+      if (!checked) return null;
+      throw new UnknownNameException(name);
+    }
+
+    /** Iterate the tags in the order HDictBuilder would give them */
+    public Iterator iterator()
+    {
+      // collect the tags from the trie
+      String[] keys = new String[size];
+      Tag[] tags = new Tag[size];
+      int n = 0;
+      for (NodeIterator it = new NodeIterator(root); it.hasNext(); ++n)
+      {
+        keys[n] = it.key();
+        tags[n] = it.tag();
+        it.next();
+      }
+
+      // sort by when each tag was added, then order them like HDictBuilder
+      long[] order = new long[n];
+      for (int i=0; i<n; ++i) order[i] = ((long)tags[i].seq << 32) | i;
+      Arrays.sort(order);
+      String[] names = new String[n];
+      HVal[] vals = new HVal[n];
+      for (int i=0; i<n; ++i)
+      {
+        int j = (int)order[i];
+        names[i] = keys[j];
+        vals[i] = tags[j].val;
+      }
+      return make(names, vals, n).iterator();
+    }
+
+    public HDict with(String name, HVal val)
+    {
+      if (val == null) return without(name);
+      if (!isTagName(name)) throw new IllegalArgumentException("Invalid tag name: " + name);
+      int hash = hash(name);
+      Tag old = root.find(0, hash, name);
+      if (old != null && old.val == val) return this;
+
+      // a replaced tag keeps its place
+      boolean[] added = new boolean[1];
+      Node r = root.put(0, hash, name, new Tag(val, old != null ? old.seq : nextSeq), added);
+      if (added[0]) return new PersistentImpl(r, size + 1, nextSeq + 1);
+      return new PersistentImpl(r, size, nextSeq);
+    }
+
+    public HDict without(String name)
+    {
+      Node r = root.remove(0, hash(name), name);
+      if (r == root) return this;
+      if (r == null) return EMPTY;
+      return new PersistentImpl(r, size - 1, nextSeq);
+    }
+
+    public HDict merge(HDict dict)
+    {
+      HDict acc = this;
+      for (Iterator it = dict.iterator(); it.hasNext(); )
+      {
+        Entry e = (Entry)it.next();
+        if (e.getValue() != null) acc = acc.with((String)e.getKey(), (HVal)e.getValue());
+      }
+      return acc;
+    }
+
+    private static int hash(String name)
+    {
+      int h = name.hashCode();
+      return h ^ (h >>> 16);
+    }
+
+    private final Node root;
+    private final int size;
+    private final int nextSeq;
+  }
+
+  /** Value of a trie entry with the sequence number of when it was added */
+  static final class Tag
+  {
+    Tag(HVal val, int seq) { this.val = val; this.seq = seq; }
+    final HVal val;
+    final int seq;
+  }
+
+  /**
+   * Node of the trie.  Its array holds pairs which are either a key
+   * and its value, or null and a child Node.
+   */
+  static abstract class Node
+  {
+    abstract Tag find(int shift, int hash, String key);
+    abstract Node put(int shift, int hash, String key, Tag val, boolean[] added);
+    abstract Node remove(int shift, int hash, String key);
+    abstract Object[] array();
+  }
+
+  /** Node with a slot for each 5 bits of hash set in its bitmap */
+  static final class BitmapNode extends Node
+  {
+    static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    BitmapNode(int bitmap, Object[] array) { this.bitmap = bitmap; this.array = array; }
+
+    Object[] array() { return array; }
+
+    Tag find(int shift, int hash, String key)
+    {
+      int bit = 1 << ((hash >>> shift) & 31);
+      if ((bitmap & bit) == 0) return null;
+      int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+      Object k = array[i];
+      if (k == null) return ((Node)array[i+1]).find(shift + 5, hash, key);
+      return k == key || k.equals(key) ? (Tag)array[i+1] : null;
+    }
+
+    Node put(int shift, int hash, String key, Tag val, boolean[] added)
+    {
+      int bit = 1 << ((hash >>> shift) & 31);
+      int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+
+      // empty slot
+      if ((bitmap & bit) == 0)
+      {
+        Object[] a = new Object[array.length + 2];
+        System.arraycopy(array, 0, a, 0, i);
+        a[i] = key;
+        a[i+1] = val;
+        System.arraycopy(array, i, a, i + 2, array.length - i);
+        added[0] = true;
+        return new BitmapNode(bitmap | bit, a);
+      }
+
+      // child node
+      Object k = array[i];
+      Object v = array[i+1];
+      if (k == null)
+      {
+        Node child = ((Node)v).put(shift + 5, hash, key, val, added);
+        return child == v ? this : set(i + 1, child);
+      }
+
+      // same key
+      if (k == key || k.equals(key))
+        return v == val ? this : set(i + 1, val);
+
+      // two keys in same slot move down a level
+      added[0] = true;
+      Node child = pair(shift + 5, PersistentImpl.hash((String)k), (String)k, (Tag)v, hash, key, val);
+      Object[] a = (Object[])array.clone();
+      a[i] = null;
+      a[i+1] = child;
+      return new BitmapNode(bitmap, a);
+    }
+
+    Node remove(int shift, int hash, String key)
+    {
+      int bit = 1 << ((hash >>> shift) & 31);
+      if ((bitmap & bit) == 0) return this;
+      int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+      Object k = array[i];
+      Object v = array[i+1];
+      if (k == null)
+      {
+        Node child = ((Node)v).remove(shift + 5, hash, key);
+        if (child == v) return this;
+        if (child == null) return without(i, bit);
+
+        // pull a lone key and value up into this node
+        Object[] ca = child.array();
+        if (ca.length == 2 && ca[0] != null)
+        {
+          Object[] a = (Object[])array.clone();
+          a[i] = ca[0];
+          a[i+1] = ca[1];
+          return new BitmapNode(bitmap, a);
+        }
+        return set(i + 1, child);
+      }
+      if (k == key || k.equals(key)) return without(i, bit);
+      return this;
+    }
+
+    private Node set(int i, Object v)
+    {
+      Object[] a = (Object[])array.clone();
+      a[i] = v;
+      return new BitmapNode(bitmap, a);
+    }
+
+    private Node without(int i, int bit)
+    {
+      if (bitmap == bit) return null;
+      Object[] a = new Object[array.length - 2];
+      System.arraycopy(array, 0, a, 0, i);
+      System.arraycopy(array, i + 2, a, i, a.length - i);
+      return new BitmapNode(bitmap & ~bit, a);
+    }
+
+    /** Node for two different keys at the given shift */
+    private static Node pair(int shift, int h1, String k1, Tag v1, int h2, String k2, Tag v2)
+    {
+      if (h1 == h2) return new CollisionNode(h1, new Object[] { k1, v1, k2, v2 });
+      boolean[] added = new boolean[1];
+      return EMPTY.put(shift, h1, k1, v1, added).put(shift, h2, k2, v2, added);
+    }
+
+    final int bitmap;
+    final Object[] array;
+  }
+
+  /** Node for keys which have the same hash */
+  static final class CollisionNode extends Node
+  {
+    CollisionNode(int hash, Object[] array) { this.hash = hash; this.array = array; }
+
+    Object[] array() { return array; }
+
+    Tag find(int shift, int hash, String key)
+    {
+      int i = indexOf(key);
+      return i < 0 ? null : (Tag)array[i+1];
+    }
+
+    Node put(int shift, int hash, String key, Tag val, boolean[] added)
+    {
+      if (hash != this.hash)
+      {
+        // split into a bitmap node holding this one and the new key
+        int bit = 1 << ((this.hash >>> shift) & 31);
+        Node node = new BitmapNode(bit, new Object[] { null, this });
+        return node.put(shift, hash, key, val, added);
+      }
+      int i = indexOf(key);
+      if (i >= 0)
+      {
+        if (array[i+1] == val) return this;
+        Object[] a = (Object[])array.clone();
+        a[i+1] = val;
+        return new CollisionNode(hash, a);
+      }
+      Object[] a = new Object[array.length + 2];
+      System.arraycopy(array, 0, a, 0, array.length);
+      a[array.length] = key;
+      a[array.length+1] = val;
+      added[0] = true;
+      return new CollisionNode(hash, a);
+    }
+
+    Node remove(int shift, int hash, String key)
+    {
+      int i = indexOf(key);
+      if (i < 0) return this;
+      if (array.length == 4)
+      {
+        // one key left becomes a plain entry of a bitmap node
+        int j = i == 0 ? 2 : 0;
+        int bit = 1 << ((hash >>> shift) & 31);
+        return new BitmapNode(bit, new Object[] { array[j], array[j+1] });
+      }
+      Object[] a = new Object[array.length - 2];
+      System.arraycopy(array, 0, a, 0, i);
+      System.arraycopy(array, i + 2, a, i, a.length - i);
+      return new CollisionNode(hash, a);
+    }
+
+    private int indexOf(String key)
+    {
+      for (int i=0; i<array.length; i += 2)
+        if (array[i] == key || array[i].equals(key)) return i;
+      return -1;
+    }
+
+    final int hash;
+    final Object[] array;
+  }
+
+  /** Depth first cursor over the keys and tags of a trie */
+  static final class NodeIterator
+  {
+    NodeIterator(Node root)
+    {
+      arrays[0] = root.array();
+      advance();
+    }
+
+    boolean hasNext() { return depth >= 0; }
+
+    /** Key at the cursor */
+    String key() { return (String)arrays[depth][pos[depth]]; }
+
+    /** Tag at the cursor */
+    Tag tag() { return (Tag)arrays[depth][pos[depth] + 1]; }
+
+    /** Move past the current key */
+    void next()
+    {
+      if (depth < 0) throw new NoSuchElementException();
+      pos[depth] += 2;
+      advance();
+    }
+
+    /** Move to the next key, descending into and popping out of nodes */
+    private void advance()
+    {
+      while (depth >= 0)
+      {
+        Object[] a = arrays[depth];
+        int i = pos[depth];
+        if (i >= a.length) { --depth; continue; }
+        if (a[i] != null) return;
+        pos[depth] = i + 2;
+        ++depth;
+        arrays[depth] = ((Node)a[i+1]).array();
+        pos[depth] = 0;
+      }
+    }
+
+    // 7 levels of 5 bits plus a collision node
+    private final Object[][] arrays = new Object[9][];
+    private final int[] pos = new int[9];
+    private int depth;
+  }
+
 //////////////////////////////////////////////////////////////////////////
 // MapEntry
 //////////////////////////////////////////////////////////////////////////
@@ -77,17 +77,40 @@ public class HDictBuilder
   {
     if (!HDict.isTagName(name))
       throw new IllegalArgumentException("Invalid tag name: " + name);
-    if (map == null) map = new HashMap(37);
-    map.put(name, val);
+    int i = indexOf(name);
+    if (i >= 0) { vals[i] = val; return this; }
+
+    if (names == null)
+    {
+      names = new String[8];
+      vals = new HVal[8];
+    }
+    else if (size == names.length)
+    {
+      String[] n = new String[size * 2];
+      HVal[] v = new HVal[size * 2];
+      System.arraycopy(names, 0, n, 0, size);
+      System.arraycopy(vals, 0, v, 0, size);
+      names = n;
+      vals = v;
+    }
+    names[size] = name;
+    vals[size] = val;
+    if (index != null) index.put(name, Integer.valueOf(size));
+    ++size;
+    if (size == maxScan) buildIndex();
     return this;
   }
 
   /** Convert current state to an immutable HDict instance */
   public final HDict toDict()
   {
-    if (map == null || map.isEmpty()) return HDict.EMPTY;
-    HDict dict = new HDict.MapImpl(this.map);
-    this.map = null;
+    if (size == 0) return HDict.EMPTY;
+    HDict dict = HDict.make(names, vals, size);
+    this.names = null;
+    this.vals = null;
+    this.index = null;
+    this.size = 0;
     return dict;
   }
 
@@ -99,7 +122,7 @@ public class HDictBuilder
   public final boolean isEmpty() { return size() == 0; }
 
   /** Return number of tag name/value pairs */
-  public int size() { return map.size(); }
+  public int size() { return size; }
 
   /** Return if the given tag is present */
   public final boolean has(String name) { return get(name, false) != null; }
@@ -114,11 +137,43 @@ public class HDictBuilder
       return null, otherwise throw UnknownNameException */
   public HVal get(String name, boolean checked)
   {
-      HVal val = (HVal)map.get(name);
+      int i = indexOf(name);
+      HVal val = i < 0 ? null : vals[i];
       if (val != null) return val;
       if (!checked) return null;
       throw new UnknownNameException(name);
   }
 
-  private HashMap map;
-}
\ No newline at end of file
+//////////////////////////////////////////////////////////////////////////
+// Implementation
+//////////////////////////////////////////////////////////////////////////
+
+  /** Index of name in names or -1; small dicts are scanned */
+  private int indexOf(String name)
+  {
+    if (index != null)
+    {
+      Integer i = (Integer)index.get(name);
+      return i == null ? -1 : i.intValue();
+    }
+    for (int i=0; i<size; ++i)
+    {
+      String n = names[i];
+      if (n == name || n.equals(name)) return i;
+    }
+    return -1;
+  }
+
+  private void buildIndex()
+  {
+    index = new HashMap(size * 4);
+    for (int i=0; i<size; ++i) index.put(names[i], Integer.valueOf(i));
+  }
+
+  private static final int maxScan = 16;
+
+  private String[] names;
+  private HVal[] vals;
+  private int size;
+  private HashMap index;    // name to Integer once size reaches maxScan
+}
@@ -7,7 +7,6 @@
 //
 package org.projecthaystack;
 
-import java.io.StringReader;
 import java.util.*;
 import org.projecthaystack.io.HZincReader;
 import org.projecthaystack.io.HaystackToken;
@@ -311,7 +310,7 @@ public abstract class HFilter
   {
     Eq(Path p, HVal v) { super(p, v); }
     final String cmpStr() { return "=="; }
-    final boolean doInclude(HVal v) { return v != null && v.equals(val); }
+    final boolean doInclude(HVal v) { return v == val || (v != null && v.equals(val)); }
   }
 
 //////////////////////////////////////////////////////////////////////////
@@ -322,7 +321,7 @@ public abstract class HFilter
   {
     Ne(Path p, HVal v) { super(p, v); }
     final String cmpStr() { return "!="; }
-    final boolean doInclude(HVal v) { return v != null && !v.equals(val); }
+    final boolean doInclude(HVal v) { return v != null && v != val && !v.equals(val); }
   }
 
 //////////////////////////////////////////////////////////////////////////
@@ -428,7 +427,7 @@ public abstract class HFilter
   {
     public FilterParser(String in)
     {
-      this.tokenizer = new HaystackTokenizer(new StringReader(in));
+      this.tokenizer = new HaystackTokenizer(in);
       consume();
       consume();
     }
@@ -16,6 +16,10 @@ import org.projecthaystack.io.*;
  * HGrid is an immutable two dimension data structure of cols and rows.
  * Use HGridBuilder to construct a HGrid instance.
  *
+ * Large grids may be stored by column, with Number, DateTime, and Marker
+ * columns kept as primitives.  The primitive access methods such as
+ * getDouble and toMillis read those without making HVals.
+ *
  * @see <a href='http://project-haystack.org/doc/Grids'>Project Haystack</a>
  */
 public class HGrid extends HVal
@@ -40,6 +44,7 @@ public class HGrid extends HVal
     if (meta == null)
         throw new IllegalStateException("metadata cannot be null");
 
+    this.columns = null;
     this.rows = new HRow[rowList.size()];
     for (int i=0; i<rows.length; ++i)
     {
@@ -49,7 +54,43 @@ public class HGrid extends HVal
       this.rows[i] = new HRow(this, cells);
     }
 
-    this.colsByName = new HashMap();
+    this.colsByName = mapCols(cols);
+  }
+
+  /** Package private constructor for grid with lazily decoded rows */
+  HGrid(HDict meta, HCol[] cols, HCellDecoder decoder)
+  {
+    this.meta = meta;
+    this.cols = cols;
+
+    if (meta == null)
+        throw new IllegalStateException("metadata cannot be null");
+
+    this.columns = null;
+    this.rows = new HRow[decoder.numRows()];
+    for (int i=0; i<rows.length; ++i)
+      this.rows[i] = new HRow.Lazy(this, decoder, i);
+
+    this.colsByName = mapCols(cols);
+  }
+
+  /** Package private constructor for grid stored by column */
+  HGrid(HDict meta, HCol[] cols, HGridColumns columns)
+  {
+    this.meta = meta;
+    this.cols = cols;
+
+    if (meta == null)
+        throw new IllegalStateException("metadata cannot be null");
+
+    this.rows = null;
+    this.columns = columns;
+    this.colsByName = mapCols(cols);
+  }
+
+  private static HashMap mapCols(HCol[] cols)
+  {
+    HashMap colsByName = new HashMap();
     for (int i=0; i<cols.length; ++i)
     {
       HCol col = cols[i];
@@ -58,6 +99,7 @@ public class HGrid extends HVal
         throw new IllegalStateException("Duplicate col name: " + colName);
       colsByName.put(colName, col);
     }
+    return colsByName;
   }
 
 //////////////////////////////////////////////////////////////////////////
@@ -74,10 +116,16 @@ public class HGrid extends HVal
   public boolean isEmpty() { return numRows() == 0; }
 
   /** Return number of rows */
-  public int numRows() { return rows.length; }
+  public int numRows() { return rows != null ? rows.length : columns.numRows(); }
 
-  /** Get a row by its zero based index */
-  public HRow row(int row) { return rows[row]; }
+  /** Get a row by its zero based index.  Rows of a grid stored
+      by column are made on each call. */
+  public HRow row(int row)
+  {
+    if (rows != null) return rows[row];
+    if (row < 0 || row >= columns.numRows()) throw new ArrayIndexOutOfBoundsException(row);
+    return new HRow.Columnar(this, columns, row);
+  }
 
   /** Get number of columns  */
   public int numCols() { return cols.length; }
@@ -104,6 +152,71 @@ public class HGrid extends HVal
     return new GridIterator();
   }
 
+//////////////////////////////////////////////////////////////////////////
+// Primitive Access
+//////////////////////////////////////////////////////////////////////////
+
+  /** Return if the cell at given row index and column is null */
+  public boolean isNull(int row, HCol col)
+  {
+    if (columns != null) return columns.isNull(row, col.index);
+    return rows[row].get(col, false) == null;
+  }
+
+  /** Get a Number cell as a double without making an HNum if
+      the grid is stored by column.  Throw NullPointerException if
+      the cell is null or ClassCastException if not a Number. */
+  public double getDouble(int row, HCol col)
+  {
+    if (columns != null) return columns.getDouble(row, col.index);
+    HVal val = rows[row].get(col, false);
+    if (val == null) throw new NullPointerException("Null cell at row " + row);
+    return ((HNum)val).val;
+  }
+
+  /** Get a DateTime cell as Java millis without making an HDateTime
+      if the grid is stored by column.  Throw NullPointerException if
+      the cell is null or ClassCastException if not a DateTime. */
+  public long getMillis(int row, HCol col)
+  {
+    if (columns != null) return columns.getMillis(row, col.index);
+    HVal val = rows[row].get(col, false);
+    if (val == null) throw new NullPointerException("Null cell at row " + row);
+    return ((HDateTime)val).millis();
+  }
+
+  /** Copy a column of Numbers into a new array where null cells
+      are NaN.  Throw ClassCastException for any other type. */
+  public double[] toDoubles(HCol col)
+  {
+    if (columns != null) return columns.toDoubles(col.index);
+    double[] acc = new double[rows.length];
+    for (int i=0; i<acc.length; ++i)
+    {
+      HVal val = rows[i].get(col, false);
+      acc[i] = val == null ? Double.NaN : ((HNum)val).val;
+    }
+    return acc;
+  }
+
+  /** Copy a column of DateTimes into a new array of Java millis where
+      null cells are Long.MIN_VALUE.  Throw ClassCastException for any
+      other type. */
+  public long[] toMillis(HCol col)
+  {
+    if (columns != null) return columns.toMillis(col.index);
+    long[] acc = new long[rows.length];
+    for (int i=0; i<acc.length; ++i)
+    {
+      HVal val = rows[i].get(col, false);
+      acc[i] = val == null ? Long.MIN_VALUE : ((HDateTime)val).millis();
+    }
+    return acc;
+  }
+
+  /** Return if the rows are stored by column */
+  public boolean isColumnar() { return columns != null; }
+
 //////////////////////////////////////////////////////////////////////////
 // HVal
 //////////////////////////////////////////////////////////////////////////
@@ -127,13 +240,17 @@ public class HGrid extends HVal
 
     if (!meta.equals(hGrid.meta)) return false;
     if (!Arrays.equals(cols, hGrid.cols)) return false;
-    if (!Arrays.equals(rows, hGrid.rows)) return false;
+    int n = numRows();
+    if (n != hGrid.numRows()) return false;
+    for (int i=0; i<n; ++i)
+      if (!row(i).equals(hGrid.row(i))) return false;
     return true;
   }
 
   public int hashCode()
   {
-    int result = Arrays.hashCode(rows);
+    int result = 1;
+    for (int i=0; i<numRows(); ++i) result = 31 * result + row(i).hashCode();
     result = 31 * result + Arrays.hashCode(cols);
     result = 31 * result + meta.hashCode();
     return result;
@@ -164,13 +281,13 @@ public class HGrid extends HVal
  {
     public boolean hasNext()
     {
-      return pos < rows.length;
+      return pos < numRows();
     }
 
     public Object next()
     {
       if (hasNext())
-        return rows[pos++];
+        return row(pos++);
       else
         throw new NoSuchElementException();
     }
@@ -187,7 +304,8 @@ public class HGrid extends HVal
 // Rows
 //////////////////////////////////////////////////////////////////////////
 
-  final HRow[] rows;
+  final HRow[] rows;            // null if stored by column
+  final HGridColumns columns;   // null unless stored by column
   final HCol[] cols;
   final HashMap colsByName;
   final HDict meta;
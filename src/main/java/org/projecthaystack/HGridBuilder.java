@@ -178,7 +178,9 @@ public class HGridBuilder
     return this;
   }
 
-  /** Convert current state to an immutable HGrid instance */
+  /** Convert current state to an immutable HGrid instance.  Grids
+      with many rows are stored by column when every column holds only
+      Numbers of one unit, DateTimes of one timezone, Markers, or nulls. */
   public final HGrid toGrid()
   {
     // meta
@@ -192,10 +194,37 @@ public class HGridBuilder
       hcols[i] = new HCol(i, bc.name, bc.meta.toDict());
     }
 
+    // store large grids by column if every column is primitive
+    if (rows.size() >= minColumnarRows)
+    {
+      HGridColumns columns = HGridColumns.make(rows, hcols.length);
+      if (columns != null) return new HGrid(meta, hcols, columns);
+    }
+
     // let HGrid constructor do the rest...
     return new HGrid(meta, hcols, rows);
   }
 
+  /**
+   * Convert the current meta and columns to an immutable HGrid whose
+   * rows are supplied by the given decoder.  Each cell is decoded the
+   * first time it is read and then cached.  No rows may have been added.
+   */
+  public final HGrid toLazyGrid(HCellDecoder decoder)
+  {
+    if (rows.size() > 0)
+      throw new IllegalStateException("Cannot make lazy grid after rows have been added");
+
+    HDict meta = this.meta.toDict();
+    HCol[] hcols = new HCol[this.cols.size()];
+    for (int i=0; i<hcols.length; ++i)
+    {
+      BCol bc = (BCol)this.cols.get(i);
+      hcols[i] = new HCol(i, bc.name, bc.meta.toDict());
+    }
+    return new HGrid(meta, hcols, decoder);
+  }
+
 //////////////////////////////////////////////////////////////////////////
 // BCol
 //////////////////////////////////////////////////////////////////////////
@@ -211,6 +240,9 @@ public class HGridBuilder
 // Fields
 //////////////////////////////////////////////////////////////////////////
 
+  /** Grids with fewer rows are always stored by row */
+  static final int minColumnarRows = 64;
+
   private final HDictBuilder meta = new HDictBuilder();
   private final ArrayList cols = new ArrayList();
   private final ArrayList rows = new ArrayList();
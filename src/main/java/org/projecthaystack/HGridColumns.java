@@ -0,0 +1,340 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * HGridColumns stores the cells of a grid column by column.  Number
+ * columns whose values share one unit are kept as doubles, DateTime
+ * columns in one timezone as Java millis, and Marker columns as bits.
+ * A column of only nulls keeps its HVals.  Grids with any other column
+ * are stored by row.  Cells of the primitive columns are made each time
+ * they are read.
+ */
+final class HGridColumns
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Construction
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Transpose a list of HVal[] rows into columns.  Return null unless
+   * every column can be stored as primitives or is entirely null,
+   * since rows of a grid with boxed columns must be made on each read.
+   */
+  static HGridColumns make(ArrayList rows, int numCols)
+  {
+    int numRows = rows.size();
+    Column[] cols = new Column[numCols];
+    for (int c=0; c<numCols; ++c)
+    {
+      cols[c] = makeColumn(rows, c);
+      if (cols[c] == null) return null;
+    }
+    return new HGridColumns(numRows, cols);
+  }
+
+  private HGridColumns(int numRows, Column[] cols)
+  {
+    this.numRows = numRows;
+    this.cols = cols;
+  }
+
+  private static Column makeColumn(ArrayList rows, int c)
+  {
+    // find first non-null value
+    int n = rows.size();
+    HVal first = null;
+    for (int r=0; r<n && first == null; ++r) first = ((HVal[])rows.get(r))[c];
+
+    if (first instanceof HNum) return NumColumn.make(rows, c, ((HNum)first).unit);
+    if (first instanceof HDateTime) return TsColumn.make(rows, c, ((HDateTime)first).tz);
+    if (first instanceof HMarker) return MarkerColumn.make(rows, c);
+    if (first == null) return ValColumn.make(rows, c);
+    return null;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Access
+//////////////////////////////////////////////////////////////////////////
+
+  /** Number of rows */
+  int numRows() { return numRows; }
+
+  /** Get the cell at given row and column index or null */
+  HVal cell(int row, int col)
+  {
+    checkRow(row);
+    return cols[col].get(row);
+  }
+
+  /** Is the cell at given row and column index null */
+  boolean isNull(int row, int col)
+  {
+    checkRow(row);
+    return cols[col].isNull(row);
+  }
+
+  /** Get the Number cell at given row and column as a double */
+  double getDouble(int row, int col)
+  {
+    checkRow(row);
+    return cols[col].getDouble(row);
+  }
+
+  /** Get the DateTime cell at given row and column as Java millis */
+  long getMillis(int row, int col)
+  {
+    checkRow(row);
+    return cols[col].getMillis(row);
+  }
+
+  /** Copy a column into a double array, nulls are NaN */
+  double[] toDoubles(int col)
+  {
+    return cols[col].toDoubles();
+  }
+
+  /** Copy a column into a long array, nulls are Long.MIN_VALUE */
+  long[] toMillis(int col)
+  {
+    return cols[col].toMillis();
+  }
+
+  private void checkRow(int row)
+  {
+    if (row < 0 || row >= numRows) throw new ArrayIndexOutOfBoundsException(row);
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Column
+//////////////////////////////////////////////////////////////////////////
+
+  static abstract class Column
+  {
+    abstract HVal get(int row);
+
+    abstract int size();
+
+    boolean isNull(int row) { return get(row) == null; }
+
+    double getDouble(int row)
+    {
+      HVal val = get(row);
+      if (val == null) throw new NullPointerException("Null cell at row " + row);
+      return ((HNum)val).val;
+    }
+
+    long getMillis(int row)
+    {
+      HVal val = get(row);
+      if (val == null) throw new NullPointerException("Null cell at row " + row);
+      return ((HDateTime)val).millis();
+    }
+
+    double[] toDoubles()
+    {
+      double[] acc = new double[size()];
+      for (int i=0; i<acc.length; ++i)
+      {
+        HVal val = get(i);
+        acc[i] = val == null ? Double.NaN : ((HNum)val).val;
+      }
+      return acc;
+    }
+
+    long[] toMillis()
+    {
+      long[] acc = new long[size()];
+      for (int i=0; i<acc.length; ++i)
+      {
+        HVal val = get(i);
+        acc[i] = val == null ? Long.MIN_VALUE : ((HDateTime)val).millis();
+      }
+      return acc;
+    }
+  }
+
+  /** Column with no values, kept as HVals */
+  static final class ValColumn extends Column
+  {
+    static ValColumn make(ArrayList rows, int c)
+    {
+      HVal[] vals = new HVal[rows.size()];
+      for (int r=0; r<vals.length; ++r) vals[r] = ((HVal[])rows.get(r))[c];
+      return new ValColumn(vals);
+    }
+
+    ValColumn(HVal[] vals) { this.vals = vals; }
+
+    HVal get(int row) { return vals[row]; }
+
+    int size() { return vals.length; }
+
+    final HVal[] vals;
+  }
+
+  /** Numbers with the same unit as doubles, null if any cell is not */
+  static final class NumColumn extends Column
+  {
+    static Column make(ArrayList rows, int c, String unit)
+    {
+      int n = rows.size();
+      double[] vals = new double[n];
+      BitSet nulls = null;
+      for (int r=0; r<n; ++r)
+      {
+        HVal val = ((HVal[])rows.get(r))[c];
+        if (val == null)
+        {
+          if (nulls == null) nulls = new BitSet(n);
+          nulls.set(r);
+          vals[r] = Double.NaN;
+          continue;
+        }
+        if (!(val instanceof HNum)) return null;
+        HNum num = (HNum)val;
+        if (unit == null ? num.unit != null : !unit.equals(num.unit)) return null;
+        vals[r] = num.val;
+      }
+      return new NumColumn(vals, unit, nulls);
+    }
+
+    NumColumn(double[] vals, String unit, BitSet nulls)
+    {
+      this.vals = vals;
+      this.unit = unit;
+      this.nulls = nulls;
+    }
+
+    HVal get(int row)
+    {
+      if (nulls != null && nulls.get(row)) return null;
+      return HNum.make(vals[row], unit);
+    }
+
+    int size() { return vals.length; }
+
+    boolean isNull(int row) { return nulls != null && nulls.get(row); }
+
+    double getDouble(int row)
+    {
+      if (nulls != null && nulls.get(row)) throw new NullPointerException("Null cell at row " + row);
+      return vals[row];
+    }
+
+    double[] toDoubles() { return (double[])vals.clone(); }
+
+    final double[] vals;    // NaN for nulls
+    final String unit;
+    final BitSet nulls;     // null if no null cells
+  }
+
+  /** DateTimes in the same timezone as Java millis, null if any cell is not */
+  static final class TsColumn extends Column
+  {
+    static Column make(ArrayList rows, int c, HTimeZone tz)
+    {
+      int n = rows.size();
+      long[] millis = new long[n];
+      BitSet nulls = null;
+      for (int r=0; r<n; ++r)
+      {
+        HVal val = ((HVal[])rows.get(r))[c];
+        if (val == null)
+        {
+          if (nulls == null) nulls = new BitSet(n);
+          nulls.set(r);
+          millis[r] = Long.MIN_VALUE;
+          continue;
+        }
+        if (!(val instanceof HDateTime)) return null;
+        HDateTime ts = (HDateTime)val;
+        if (!ts.tz.equals(tz)) return null;
+
+        // only keep millis if the timezone rules give back the same offset
+        long m = ts.millis();
+        if (tz.java.getOffset(m) != ts.tzOffset * 1000) return null;
+        millis[r] = m;
+      }
+      return new TsColumn(millis, tz, nulls);
+    }
+
+    TsColumn(long[] millis, HTimeZone tz, BitSet nulls)
+    {
+      this.millis = millis;
+      this.tz = tz;
+      this.nulls = nulls;
+    }
+
+    HVal get(int row)
+    {
+      if (nulls != null && nulls.get(row)) return null;
+      return HDateTime.make(millis[row], tz);
+    }
+
+    int size() { return millis.length; }
+
+    boolean isNull(int row) { return nulls != null && nulls.get(row); }
+
+    long getMillis(int row)
+    {
+      if (nulls != null && nulls.get(row)) throw new NullPointerException("Null cell at row " + row);
+      return millis[row];
+    }
+
+    long[] toMillis() { return (long[])millis.clone(); }
+
+    final long[] millis;    // Long.MIN_VALUE for nulls
+    final HTimeZone tz;
+    final BitSet nulls;     // null if no null cells
+  }
+
+  /** Markers as set bits, null if any cell is not */
+  static final class MarkerColumn extends Column
+  {
+    static Column make(ArrayList rows, int c)
+    {
+      int n = rows.size();
+      BitSet bits = new BitSet(n);
+      for (int r=0; r<n; ++r)
+      {
+        HVal val = ((HVal[])rows.get(r))[c];
+        if (val == null) continue;
+        if (!(val instanceof HMarker)) return null;
+        bits.set(r);
+      }
+      return new MarkerColumn(bits, n);
+    }
+
+    MarkerColumn(BitSet bits, int size)
+    {
+      this.bits = bits;
+      this.size = size;
+    }
+
+    HVal get(int row) { return bits.get(row) ? HMarker.VAL : null; }
+
+    int size() { return size; }
+
+    boolean isNull(int row) { return !bits.get(row); }
+
+    final BitSet bits;
+    final int size;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Fields
+//////////////////////////////////////////////////////////////////////////
+
+  private final int numRows;
+  private final Column[] cols;
+}
@@ -7,12 +7,16 @@
 //
 package org.projecthaystack;
 
-import java.text.*;
-import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import org.projecthaystack.util.DoubleFormat;
 
 /**
  * HNum wraps a 64-bit floating point number and optional unit name.
  *
+ * Unit names are validated once and then shared from a table, so
+ * numbers made with the same unit reference the same String.  Small
+ * integral values are cached per unit.
+ *
  * @see <a href='http://project-haystack.org/doc/TagModel#tagKinds'>Project Haystack</a>
  */
 public class HNum extends HVal
@@ -26,8 +30,9 @@ public class HNum extends HVal
   /** Construct with int and null/non-null unit (may have loss of precision) */
   public static HNum make(int val, String unit)
   {
-    if (val == 0 && unit == null) return ZERO;
-    return new HNum((double)val, unit);
+    Unit u = unit(unit);
+    if (val >= minCached && val <= maxCached) return u.small(val);
+    return new HNum((double)val, u.name);
   }
 
   /** Construct with long and null unit (may have loss of precision) */
@@ -39,8 +44,9 @@ public class HNum extends HVal
   /** Construct with long and null/non-null unit (may have loss of precision) */
   public static HNum make(long val, String unit)
   {
-    if (val == 0L && unit == null) return ZERO;
-    return new HNum((double)val, unit);
+    Unit u = unit(unit);
+    if (val >= minCached && val <= maxCached) return u.small((int)val);
+    return new HNum((double)val, u.name);
   }
 
   /** Construct with double and null unit */
@@ -52,8 +58,14 @@ public class HNum extends HVal
   /** Construct with double and null/non-null unit */
   public static HNum make(double val, String unit)
   {
-    if (val == 0.0 && unit == null) return ZERO;
-    return new HNum(val, unit);
+    Unit u = unit(unit);
+    int i = (int)val;
+    if (i >= minCached && i <= maxCached && i == val)
+    {
+      // only the unitless zero folds -0.0 into ZERO
+      if (u == NO_UNIT || Double.doubleToRawLongBits(val) != NEG_ZERO_BITS) return u.small(i);
+    }
+    return new HNum(val, u.name);
   }
 
   /** Singleton value for zero */
@@ -68,10 +80,9 @@ public class HNum extends HVal
   /** Singleton value for not-a-number "NaN" */
   public static final HNum NaN = new HNum(Double.NaN, null);
 
-  /** Private constructor */
+  /** Private constructor, unit must already be validated */
   private HNum(double val, String unit)
   {
-    if (!isUnitName(unit)) throw new IllegalArgumentException("Invalid unit name: " + unit);
     this.val = val;
     this.unit = unit;
   }
@@ -98,6 +109,7 @@ public class HNum extends HVal
     HNum x = (HNum)that;
     if (Double.isNaN(val)) return Double.isNaN(x.val);
     if (val != x.val) return false;
+    if (unit == x.unit) return true;
     if (unit == null) return x.unit == null;
     if (x.unit == null) return false;
     return unit.equals(x.unit);
@@ -115,41 +127,16 @@ public class HNum extends HVal
   /** Encode as {@code "n:<float> [unit]"} */
   public String toJson()
   {
-    StringBuffer s = new StringBuffer();
+    StringBuilder s = new StringBuilder(24);
     s.append("n:");
-    encode(s, true);
+    DoubleFormat.append(s, val, unit, true);
     return s.toString();
   }
 
   /** Encode as floating value followed by optional unit string */
   public String toZinc()
   {
-    StringBuffer s = new StringBuffer();
-    encode(s, false);
-    return s.toString();
-  }
-
-  private void encode(StringBuffer s, boolean spaceBeforeUnit)
-  {
-    if (val == Double.POSITIVE_INFINITY) s.append("INF");
-    else if (val == Double.NEGATIVE_INFINITY) s.append("-INF");
-    else if (Double.isNaN(val)) s.append("NaN");
-    else
-    {
-      // don't encode huge set of decimals if over 1.0
-      double abs = val; if (abs < 0) abs = -abs;
-      if (abs > 1.0)
-        s.append(new DecimalFormat("#0.####", new DecimalFormatSymbols(Locale.ENGLISH)).format(val));
-      else
-        s.append(val);
-
-      if (unit != null)
-      {
-        if (spaceBeforeUnit) s.append(' ');
-        for (int i=0; i<unit.length(); ++i)
-          s.append(unit.charAt(i));
-      }
-    }
+    return DoubleFormat.append(new StringBuilder(16), val, unit, false).toString();
   }
 
   /**
@@ -186,6 +173,56 @@ public class HNum extends HVal
     return true;
   }
 
+//////////////////////////////////////////////////////////////////////////
+// Unit Table
+//////////////////////////////////////////////////////////////////////////
+
+  /** Lookup the canonical unit or validate and add it to the table */
+  private static Unit unit(String name)
+  {
+    if (name == null) return NO_UNIT;
+    Unit u = (Unit)units.get(name);
+    if (u != null) return u;
+
+    if (!isUnitName(name)) throw new IllegalArgumentException("Invalid unit name: " + name);
+    if (units.size() >= maxUnits) return new Unit(name, false);
+    u = new Unit(name, true);
+    Unit old = (Unit)units.putIfAbsent(name, u);
+    return old != null ? old : u;
+  }
+
+  /** Unit name with its cache of small integral values, units made
+      once the table is full have no cache */
+  private static final class Unit
+  {
+    Unit(String name, boolean cache)
+    {
+      this.name = name;
+      this.small = cache ? new HNum[maxCached - minCached + 1] : null;
+    }
+
+    HNum small(int val)
+    {
+      if (small == null) return new HNum((double)val, name);
+
+      // races simply make the same value twice
+      HNum num = small[val - minCached];
+      if (num == null) small[val - minCached] = num = new HNum((double)val, name);
+      return num;
+    }
+
+    final String name;
+    final HNum[] small;
+  }
+
+  private static final int minCached = -16;
+  private static final int maxCached = 255;
+  private static final int maxUnits = 1024;
+  private static final ConcurrentHashMap units = new ConcurrentHashMap();
+  private static final long NEG_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+  private static final Unit NO_UNIT = new Unit(null, true);
+  static { NO_UNIT.small[-minCached] = ZERO; }
+
   private static boolean[] unitChars = new boolean[128];
   static
   {
@@ -17,8 +17,23 @@ public class HRef extends HVal
   /** Construct for string identifier and optional display */
   public static HRef make(String val, String dis)
   {
+    // ids seen before skip validation
+    HValPool pool = HValPool.refs;
+    if (pool.enabled && val != null)
+    {
+      HRef ref = (HRef)pool.get(val);
+      if (ref != null)
+      {
+        if (dis == null ? ref.dis == null : dis.equals(ref.dis)) return ref;
+        return new HRef(ref.val, dis);
+      }
+    }
+
     if (val == null || !isId(val)) throw new IllegalArgumentException("Invalid id val: \"" + val + "\"");
-    return new HRef(val, dis);
+    HRef ref = new HRef(val, dis);
+    if (!pool.enabled) return ref;
+    HRef pooled = (HRef)pool.add(val, ref);
+    return pooled.dis == ref.dis || (dis != null && dis.equals(pooled.dis)) ? pooled : ref;
   }
 
   /** Construct for string identifier and null display */
@@ -42,6 +57,7 @@ public class HRef extends HVal
   /** Equals is based on val field only */
   public boolean equals(Object that)
   {
+    if (this == that) return true;
     if (!(that instanceof HRef)) return false;
     return this.val.equals(((HRef)that).val);
   }
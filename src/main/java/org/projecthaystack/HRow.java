@@ -7,6 +7,7 @@
 //
 package org.projecthaystack;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -19,7 +20,20 @@ import java.util.Map.Entry;
  */
 public class HRow extends HDict
 {
-  /** Package private constructor */
+  /**
+   * Construct a row bound to the columns of the given grid, but which
+   * is not one of its rows.  This is used by streaming readers to hand
+   * out rows before the whole grid is available.  The cells array is
+   * not copied and must not be modified once passed in.
+   */
+  public static HRow make(HGrid grid, HVal[] cells)
+  {
+    if (grid.cols.length != cells.length)
+      throw new IllegalStateException("Row cells size != cols size");
+    return new HRow(grid, cells);
+  }
+
+  /** Package private constructor, cells is null for subclasses */
   HRow(HGrid grid, HVal[] cells)
   {
     this.grid = grid;
@@ -40,7 +54,7 @@ public class HRow extends HDict
     HCol col = grid.col(name, false);
     if (col != null)
     {
-      HVal val = cells[col.index];
+      HVal val = cell(col.index);
       if (val != null) return val;
     }
     if (checked) throw new UnknownNameException(name);
@@ -51,7 +65,7 @@ public class HRow extends HDict
       UnknownNameException or return  null based on checked flag. */
   public HVal get(HCol col, boolean checked)
   {
-    HVal val = cells[col.index];
+    HVal val = cell(col.index);
     if (val != null) return val;
     if (checked) throw new UnknownNameException(col.name());
     return null;
@@ -64,6 +78,9 @@ public class HRow extends HDict
     return new RowIterator();
   }
 
+  /** Get cell at given index or null */
+  HVal cell(int i) { return cells[i]; }
+
 //////////////////////////////////////////////////////////////////////////
 // RowIterator
 //////////////////////////////////////////////////////////////////////////
@@ -73,7 +90,7 @@ public class HRow extends HDict
    RowIterator()
    {
      for (; col < grid.cols.length; ++col)
-       if (cells[col] != null) break;
+       if (cell(col) != null) break;
    }
 
     public boolean hasNext()
@@ -85,8 +102,8 @@ public class HRow extends HDict
     {
       if (col >= grid.cols.length) throw new NoSuchElementException();
       String name = grid.col(col).name();
-      HVal val = cells[col];
-      for (col++; col < grid.cols.length; ++col) if (cells[col] != null) break;
+      HVal val = cell(col);
+      for (col++; col < grid.cols.length; ++col) if (cell(col) != null) break;
       return new MapEntry(name, val);
     }
 
@@ -98,10 +115,78 @@ public class HRow extends HDict
     private int col = 0;
   }
 
+//////////////////////////////////////////////////////////////////////////
+// Lazy
+//////////////////////////////////////////////////////////////////////////
+
+  /** Row whose cells are decoded on first access */
+  static final class Lazy extends HRow
+  {
+    Lazy(HGrid grid, HCellDecoder decoder, int index)
+    {
+      super(grid, null);
+      this.decoder = decoder;
+      this.index = index;
+    }
+
+    HVal cell(int i)
+    {
+      // the array is filled before it is published through the volatile
+      // field; after that a race only decodes the same immutable cell twice
+      HVal[] cells = this.cache;
+      if (cells == null)
+      {
+        cells = new HVal[grid().cols.length];
+        Arrays.fill(cells, UNDECODED);
+        synchronized (this)
+        {
+          if (this.cache == null) this.cache = cells;
+          else cells = this.cache;
+        }
+      }
+      HVal val = cells[i];
+      if (val == UNDECODED) cells[i] = val = decoder.decode(index, i);
+      return val;
+    }
+
+    private final HCellDecoder decoder;
+    private final int index;
+    private volatile HVal[] cache;
+  }
+
+  /** Marks a lazy cell which hasn't been decoded yet */
+  private static final HVal UNDECODED = new HVal()
+  {
+    public String toZinc() { return "undecoded"; }
+    public String toJson() { return "undecoded"; }
+    public int hashCode() { return 0; }
+    public boolean equals(Object that) { return this == that; }
+  };
+
+//////////////////////////////////////////////////////////////////////////
+// Columnar
+//////////////////////////////////////////////////////////////////////////
+
+  /** Row of a grid stored by column */
+  static final class Columnar extends HRow
+  {
+    Columnar(HGrid grid, HGridColumns columns, int index)
+    {
+      super(grid, null);
+      this.columns = columns;
+      this.index = index;
+    }
+
+    HVal cell(int i) { return columns.cell(index, i); }
+
+    private final HGridColumns columns;
+    private final int index;
+  }
+
 //////////////////////////////////////////////////////////////////////////
 // Fields
 //////////////////////////////////////////////////////////////////////////
 
-  private HGrid grid;
-  private HVal[] cells;
-}
\ No newline at end of file
+  private final HGrid grid;
+  private final HVal[] cells;  // null for subclasses
+}
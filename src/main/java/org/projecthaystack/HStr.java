@@ -21,7 +21,12 @@ public class HStr extends HVal
   {
     if (val == null) return null;
     if (val.length() == 0) return EMPTY;
-    return new HStr(val);
+
+    HValPool pool = HValPool.strs;
+    if (!pool.enabled || val.length() > HValPool.maxStrLen) return new HStr(val);
+    HStr str = (HStr)pool.get(val);
+    if (str != null) return str;
+    return (HStr)pool.add(val, new HStr(val));
   }
 
   /** Singleton value for empty string "" */
@@ -39,6 +44,7 @@ public class HStr extends HVal
   /** Equals is based on java.lang.String */
   public boolean equals(Object that)
   {
+    if (this == that) return true;
     if (!(that instanceof HStr)) return false;
     return this.val.equals(((HStr)that).val);
   }
@@ -18,6 +18,17 @@ public class HSymbol extends HVal
    * @return the symbol.
    */
   public static HSymbol make(final String str)
+  {
+    // symbols seen before skip validation
+    HValPool pool = HValPool.symbols;
+    if (!pool.enabled) return parse(str);
+    HSymbol sym = (HSymbol)pool.get(str);
+    if (sym != null) return sym;
+    sym = parse(str);
+    return (HSymbol)pool.add(sym.str, sym);
+  }
+
+  private static HSymbol parse(final String str)
   {
     if (str.isEmpty()) throw new ParseException("Empty str");
     if (!Character.isLowerCase(str.charAt(0))) throw new ParseException("Invalid start char: " + str);
@@ -85,6 +96,7 @@ public class HSymbol extends HVal
   @Override
   public boolean equals(Object that)
   {
+    if (this == that) return true;
     if (!(that instanceof HSymbol)) return false;
     final HSymbol x = (HSymbol)that;
     return this.str.equals(x.str);
@@ -87,8 +87,8 @@ public class HTime extends HVal
   /** Singleton for midnight 00:00 */
   public static final HTime MIDNIGHT = new HTime(0, 0, 0, 0);
 
-  /** Private constructor */
-  private HTime(int hour, int min, int sec, int ms)
+  /** Package private constructor */
+  HTime(int hour, int min, int sec, int ms)
   {
     this.hour = hour;
     this.min  = min;
@@ -7,10 +7,13 @@
 //
 package org.projecthaystack;
 
+import java.time.zone.ZoneRules;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.TimeZone;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * HTimeZone handles the mapping between Haystack timezone
@@ -29,26 +32,20 @@ public final class HTimeZone
    */
   public static HTimeZone make(String name, boolean checked)
   {
-    synchronized (cache)
-    {
-      // lookup in cache
-      HTimeZone tz = (HTimeZone)cache.get(name);
-      if (tz != null) return tz;
+    // lookup in cache
+    HTimeZone tz = (HTimeZone)cache.get(name);
+    if (tz != null) return tz;
 
-      // map haystack id to Java full id
-      String javaId = (String)toJava.get(name);
-      if (javaId == null)
-      {
-        if (checked) throw new RuntimeException("Unknown tz: " + name);
-        return null;
-      }
-
-      // resolve full id to HTimeZone and cache
-      TimeZone java = TimeZone.getTimeZone(javaId);
-      tz = new HTimeZone(name, java);
-      cache.put(name, tz);
-      return tz;
+    // map haystack id to Java full id
+    String javaId = (String)Index.toJava.get(name);
+    if (javaId == null)
+    {
+      if (checked) throw new RuntimeException("Unknown tz: " + name);
+      return null;
     }
+
+    // resolve full id to HTimeZone and cache
+    return cache(name, TimeZone.getTimeZone(javaId));
   }
 
   /** Convenience for make(java, true) */
@@ -81,17 +78,83 @@ public final class HTimeZone
       javaId = "Etc/" + javaId;
     }
 
-    String name = (String)fromJava.get(javaId);
+    // the haystack name is the city of a Region/City id known to Java,
+    // which avoids building the index for the common timezones; cities
+    // with more than one id resolve through the index like make(name)
+    String name = toName(javaId);
+    if (name != null)
+    {
+      HTimeZone tz = (HTimeZone)cache.get(name);
+      if (tz != null) return tz;
+      if (isOnlyId(javaId, name))
+        return cache(name, TimeZone.getTimeZone(javaId));
+    }
+
+    name = (String)Index.fromJava.get(javaId);
     if (name != null) return make(name);
     if (checked) throw new RuntimeException("Invalid Java timezone: " + java.getID());
     return null;
   }
 
+  /** Add to cache unless another thread already did */
+  private static HTimeZone cache(String name, TimeZone java)
+  {
+    HTimeZone tz = new HTimeZone(name, java);
+    HTimeZone old = (HTimeZone)cache.putIfAbsent(name, tz);
+    return old != null ? old : tz;
+  }
+
+  /** Haystack name for Java id or null if not in a valid region */
+  private static String toName(String javaId)
+  {
+    // Etc/Rel is treated as GMT by Java
+    if (javaId.equals("GMT")) return "Rel";
+
+    // skip ids not formatted as Region/City
+    int slash = javaId.indexOf('/');
+    if (slash < 0) return null;
+    if (regions.get(javaId.substring(0, slash)) == null) return null;
+
+    // get city name as haystack id
+    return javaId.substring(javaId.lastIndexOf('/')+1);
+  }
+
+  /**
+   * Is the Region/City id known to Java and the only id for its city.
+   * Aliases such as "America/Indianapolis" and
+   * "America/Indiana/Indianapolis" share a city, so both return false.
+   */
+  private static boolean isOnlyId(String javaId, String city)
+  {
+    if (!isKnown(javaId)) return false;
+    if (javaId.indexOf('/') != javaId.lastIndexOf('/')) return false;
+    for (Iterator it = regions.keySet().iterator(); it.hasNext(); )
+    {
+      String id = it.next() + "/" + city;
+      if (!id.equals(javaId) && isKnown(id)) return false;
+    }
+    for (int i=0; i<subRegions.length; ++i)
+      if (isKnown(subRegions[i] + "/" + city)) return false;
+    return true;
+  }
+
+  private static boolean isKnown(String javaId)
+  {
+    return TimeZone.getTimeZone(javaId).getID().equals(javaId);
+  }
+
   /** Private constructor */
   private HTimeZone(String name, TimeZone java)
   {
     this.name = name;
     this.java = java;
+    this.rules = toRules(java);
+  }
+
+  private static ZoneRules toRules(TimeZone java)
+  {
+    try { return java.toZoneId().getRules(); }
+    catch (Exception e) { return null; }
   }
 
   /** Haystack timezone name */
@@ -100,68 +163,81 @@ public final class HTimeZone
   /** Java representation of this timezone. */
   public final TimeZone java;
 
+  /** Transition rules used by HDateTime or null if java.time
+      does not know the Java timezone */
+  final ZoneRules rules;
+
   /** Return Haystack timezone name */
   public String toString() { return name; }
 
   // haystack name -> HTimeZone
-  private static HashMap cache = new HashMap();
+  private static final ConcurrentHashMap cache = new ConcurrentHashMap();
 
-  // haystack name <-> java name mapping
-  private static HashMap toJava;
-  private static HashMap fromJava;
+  // only time zones which start with these
+  // regions are considered valid timezones
+  private static final HashMap regions = new HashMap();
   static
   {
-    HashMap toJava = new HashMap();
-    HashMap fromJava = new HashMap();
-    try
+    regions.put("Africa",     "ok");
+    regions.put("America",    "ok");
+    regions.put("Antarctica", "ok");
+    regions.put("Asia",       "ok");
+    regions.put("Atlantic",   "ok");
+    regions.put("Australia",  "ok");
+    regions.put("Etc",        "ok");
+    regions.put("Europe",     "ok");
+    regions.put("Indian",     "ok");
+    regions.put("Pacific",    "ok");
+  }
+
+  // regions with Region/Area/City ids whose cities may also
+  // have an older Region/City alias
+  private static final String[] subRegions =
+  {
+    "America/Argentina", "America/Indiana", "America/Kentucky", "America/North_Dakota",
+  };
+
+  /**
+   * Index holds the haystack name to and from Java id mapping of all
+   * the Java timezones.  It is built on first use rather than when
+   * HTimeZone is loaded.
+   */
+  private static final class Index
+  {
+    static final HashMap toJava;
+    static final HashMap fromJava;
+    static
     {
-      // only time zones which start with these
-      // regions are considered valid timezones
-      HashMap regions = new HashMap();
-      regions.put("Africa",     "ok");
-      regions.put("America",    "ok");
-      regions.put("Antarctica", "ok");
-      regions.put("Asia",       "ok");
-      regions.put("Atlantic",   "ok");
-      regions.put("Australia",  "ok");
-      regions.put("Etc",        "ok");
-      regions.put("Europe",     "ok");
-      regions.put("Indian",     "ok");
-      regions.put("Pacific",    "ok");
-
-      // iterate Java timezone IDs available
-      String[] ids = TimeZone.getAvailableIDs();
-      for (int i=0; i<ids.length; ++i)
+      HashMap to = new HashMap();
+      HashMap from = new HashMap();
+      try
       {
-        String java = ids[i];
-
-        // skip ids not formatted as Region/City
-        int slash = java.indexOf('/');
-        if (slash < 0) continue;
-        String region = java.substring(0, slash);
-        if (regions.get(region) == null) continue;
+        // iterate Java timezone IDs available
+        String[] ids = TimeZone.getAvailableIDs();
+        for (int i=0; i<ids.length; ++i)
+        {
+          String java = ids[i];
+          String haystack = toName(java);
+          if (haystack == null || java.equals("GMT")) continue;
 
-        // get city name as haystack id
-        slash = java.lastIndexOf('/');
-        String haystack = java.substring(slash+1);
+          // store mapping b/w Java <-> Haystack
+          to.put(haystack, java);
+          from.put(java, haystack);
+        }
 
-        // store mapping b/w Java <-> Haystack
-        toJava.put(haystack, java);
-        fromJava.put(java, haystack);
+        // Special handling for Etc/Rel which java does not understand.
+        // It treats Etc/Rel as GMT. Note that Etc/GMT will map to javaId Etc/GMT
+        // whereas Etc/Rel will mape to javaId GMT
+        to.put("Rel", "GMT");
+        from.put("GMT", "Rel");
       }
-
-      // Special handling for Etc/Rel which java does not understand.
-      // It treats Etc/Rel as GMT. Note that Etc/GMT will map to javaId Etc/GMT
-      // whereas Etc/Rel will mape to javaId GMT
-      toJava.put("Rel", "GMT");
-      fromJava.put("GMT", "Rel");
-    }
-    catch (Throwable e)
-    {
-      e.printStackTrace();
+      catch (Throwable e)
+      {
+        e.printStackTrace();
+      }
+      toJava = to;
+      fromJava = from;
     }
-    HTimeZone.toJava   = toJava;
-    HTimeZone.fromJava = fromJava;
   }
 
   /** UTC timezone */
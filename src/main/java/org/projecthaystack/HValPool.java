@@ -0,0 +1,156 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HValPool is an opt-in canonical pool for one type of HVal.  When a
+ * pool is enabled its make method returns a previously made instance
+ * for the same string, skipping validation and allocation.  Entries
+ * are weakly referenced, so values no longer used elsewhere are
+ * garbage collected.  Lookups take no locks, so a pool may be shared
+ * by many server threads.
+ *
+ * Pools are disabled by default:
+ *
+ *   HValPool.refs.setEnabled(true);
+ */
+public final class HValPool
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Pools
+//////////////////////////////////////////////////////////////////////////
+
+  /** Pool for HRef.make keyed by id */
+  public static final HValPool refs = new HValPool("HRef");
+
+  /** Pool for HStr.make keyed by strings of up to maxStrLen chars */
+  public static final HValPool strs = new HValPool("HStr");
+
+  /** Pool for HSymbol.make keyed by symbol */
+  public static final HValPool symbols = new HValPool("HSymbol");
+
+  /** Longest string pooled by HStr.make */
+  public static final int maxStrLen = 64;
+
+  private HValPool(String name)
+  {
+    this.name = name;
+  }
+
+  /** Name of the type pooled */
+  public final String name;
+
+//////////////////////////////////////////////////////////////////////////
+// Config
+//////////////////////////////////////////////////////////////////////////
+
+  /** Is the pool used by make */
+  public boolean isEnabled() { return enabled; }
+
+  /** Enable or disable the pool and return this.  Disabling
+      also clears the pool. */
+  public HValPool setEnabled(boolean enabled)
+  {
+    this.enabled = enabled;
+    if (!enabled) clear();
+    return this;
+  }
+
+  /** Remove all entries and reset the statistics */
+  public void clear()
+  {
+    map.clear();
+    hits.reset();
+    misses.reset();
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Statistics
+//////////////////////////////////////////////////////////////////////////
+
+  /** Number of lookups which found a pooled value */
+  public long hits() { return hits.sum(); }
+
+  /** Number of lookups which did not find a pooled value */
+  public long misses() { return misses.sum(); }
+
+  /** Number of entries, which may include values not yet purged
+      after being garbage collected */
+  public int size() { return map.size(); }
+
+  /** Debug string with the statistics */
+  public String toString()
+  {
+    return name + " pool [enabled=" + enabled + ", size=" + size() +
+           ", hits=" + hits() + ", misses=" + misses() + "]";
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Lookup
+//////////////////////////////////////////////////////////////////////////
+
+  /** Get the pooled value for the key or null */
+  HVal get(String key)
+  {
+    ValRef ref = (ValRef)map.get(key);
+    HVal val = ref == null ? null : (HVal)ref.get();
+    if (val != null) hits.increment(); else misses.increment();
+    return val;
+  }
+
+  /** Add a value keyed by a string it references, unless another
+      value was added since the lookup.  Return the pooled value. */
+  HVal add(String key, HVal val)
+  {
+    expunge();
+    ValRef ref = new ValRef(val, key, queue);
+    while (true)
+    {
+      ValRef old = (ValRef)map.putIfAbsent(key, ref);
+      if (old == null) return val;
+      HVal oldVal = (HVal)old.get();
+      if (oldVal != null) return oldVal;
+      if (map.replace(key, old, ref)) return val;
+    }
+  }
+
+  /** Remove the entries whose values have been collected */
+  private void expunge()
+  {
+    ValRef ref;
+    while ((ref = (ValRef)queue.poll()) != null)
+      map.remove(ref.key, ref);
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// ValRef
+//////////////////////////////////////////////////////////////////////////
+
+  /** Weak reference to a pooled value which remembers its key */
+  static final class ValRef extends WeakReference
+  {
+    ValRef(HVal val, String key, ReferenceQueue queue) { super(val, queue); this.key = key; }
+    final String key;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Fields
+//////////////////////////////////////////////////////////////////////////
+
+  volatile boolean enabled;
+  private final ConcurrentHashMap map = new ConcurrentHashMap();
+  private final ReferenceQueue queue = new ReferenceQueue();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+}
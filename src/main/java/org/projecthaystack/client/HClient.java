@@ -91,6 +91,10 @@ public class HClient extends HProj
     this.connectTimeout = copy.connectTimeout;
     this.readTimeout    = copy.readTimeout;
     this.version        = copy.version;
+    this.binary         = copy.binary;
+    this.compression    = copy.compression;
+    this.compressRequests = copy.compressRequests;
+    this.intern         = copy.intern;
   }
 
   private static String checkUri(String uri)
@@ -136,6 +140,61 @@ public class HClient extends HProj
     return this;
   }
 
+  /**
+   * Optional table used to intern tag names, units, strs, and refs
+   * of response grids.  Set this to reduce heap when keeping many large
+   * grids in memory; the table may be shared by multiple clients.
+   */
+  public HInternTable intern;
+
+  /** Set the intern table and return this */
+  public HClient setIntern(HInternTable intern)
+  {
+    this.intern = intern;
+    return this;
+  }
+
+  /**
+   * Ask the server for grids in the binary format before Zinc.  Servers
+   * which do not support it respond with Zinc as before.  Requests are
+   * always posted as Zinc.
+   */
+  public boolean binary = true;
+
+  /** Set the binary flag and return this */
+  public HClient setBinary(boolean binary)
+  {
+    this.binary = binary;
+    return this;
+  }
+
+  /**
+   * Content encoding used to decompress gzip or deflate responses and
+   * to compress requests.  Configure the threshold and level or read
+   * the byte counters here; copies of this client share it.
+   */
+  public HContentEncoding compression = new HContentEncoding();
+
+  /** Set the content encoding and return this */
+  public HClient setCompression(HContentEncoding compression)
+  {
+    this.compression = compression;
+    return this;
+  }
+
+  /**
+   * Gzip request bodies which reach the compression threshold.  This
+   * is off by default since not all servers accept compressed requests.
+   */
+  public boolean compressRequests = false;
+
+  /** Set the compress requests flag and return this */
+  public HClient setCompressRequests(boolean compressRequests)
+  {
+    this.compressRequests = compressRequests;
+    return this;
+  }
+
   /** Set the connect and read timeouts and return this */
   public HClient setTimeouts(final int connectTimeout, final int readTimeout)
   {
@@ -291,8 +350,7 @@ public class HClient extends HProj
   public HGrid[] evalAll(HGrid req, boolean checked)
   {
     String reqStr = HZincWriter.gridToString(req);
-    String resStr = postString(uri + "evalAll", reqStr);
-    HGrid[] res = new HZincReader(resStr).readGrids();
+    HGrid[] res = postGrids("evalAll", reqStr);
     if (checked)
     {
       for (int i=0; i<res.length; ++i)
@@ -604,56 +662,129 @@ public class HClient extends HProj
     return res;
   }
 
+  /**
+   * Make a call to the given operation and return a cursor to read the
+   * response one row at a time as it arrives.  The HTTP connection stays
+   * open until the last row is read or the cursor is closed, so callers
+   * should always close the cursor.  Raise CallNetworkException if there
+   * is a communication I/O error.  Raise CallErrException if there is a
+   * server side error and an error grid is returned.
+   */
+  public HGridCursor callCursor(String op, HGrid req)
+  {
+    HttpURLConnection c = postConnect(uri + op, HZincWriter.gridToString(req, this.version), null);
+    HGridCursor cursor;
+    try
+    {
+      cursor = reader(c).readCursor();
+    }
+    catch (Exception e)
+    {
+      try { c.disconnect(); } catch (Exception x) {}
+      if (e instanceof ParseException) throw (ParseException)e;
+      throw new CallNetworkException(e);
+    }
+    if (cursor.meta().has("err"))
+    {
+      HGrid err;
+      try { err = cursor.toGrid(); }
+      finally
+      {
+        cursor.close();
+        try { c.disconnect(); } catch (Exception x) {}
+      }
+      throw new CallErrException(err);
+    }
+    return cursor;
+  }
+
   private HGrid postGrid(String op, HGrid req)
   {
     String reqStr = HZincWriter.gridToString(req, this.version);
-    String resStr = postString(uri + op, reqStr);
-    return new HZincReader(resStr).readGrid();
+    HttpURLConnection c = postConnect(uri + op, reqStr, null);
+    try
+    {
+      return reader(c).readGrid();
+    }
+    catch (IOException e) { throw new CallNetworkException(e); }
+    finally
+    {
+      try { c.disconnect(); } catch(Exception e) {}
+    }
   }
 
-  private String postString(String uriStr, String req)
+  /** Make reader for the response based on its content type */
+  private HGridReader reader(HttpURLConnection c) throws IOException
   {
-    return postString(uriStr, req, null);
+    String mime = c.getContentType();
+    InputStream in = compression.decode(c.getInputStream(), c.getContentEncoding());
+    if (mime != null && mime.startsWith(HBinaryWriter.MIME))
+      return new HBinaryReader(in, intern);
+    return new HZincReader(in, intern);
   }
 
-  private String postString(String uriStr, String req, String mimeType)
+  private HGrid[] postGrids(String op, String reqStr)
   {
+    HttpURLConnection c = postConnect(uri + op, reqStr, null);
+    try
+    {
+      HGridReader r = reader(c);
+      try { return r.readGrids(); }
+      finally { r.close(); }
+    }
+    catch (IOException e) { throw new CallNetworkException(e); }
+    finally
+    {
+      try { c.disconnect(); } catch(Exception e) {}
+    }
+  }
+
+  /**
+   * Post the request and check for a successful response code.  The
+   * caller is responsible for reading the response and disconnecting.
+   */
+  private HttpURLConnection postConnect(String uriStr, String req, String mimeType)
+  {
+    HttpURLConnection c = null;
     try
     {
       // setup the POST request
       URL url = new URL(uriStr);
-      HttpURLConnection c = openHttpConnection(url, "POST");
+      c = openHttpConnection(url, "POST");
       c = auth.prepare(c);
-      try
+      c.setDoOutput(true);
+      c.setDoInput(true);
+      c.setRequestProperty("Connection", "Close");
+      c.setRequestProperty("Content-Type", mimeType == null ? "text/zinc; charset=utf-8": mimeType);
+      if (binary) c.setRequestProperty("Accept", HBinaryWriter.MIME + ", text/zinc");
+      c.setRequestProperty("Accept-Encoding", "gzip, deflate");
+
+      // encode the body up front so we know whether to compress it
+      byte[] body = req.getBytes("UTF-8");
+      if (compressRequests && body.length >= compression.threshold)
       {
-        c.setDoOutput(true);
-        c.setDoInput(true);
-        c.setRequestProperty("Connection", "Close");
-        c.setRequestProperty("Content-Type", mimeType == null ? "text/zinc; charset=utf-8": mimeType);
-        c.connect();
-
-        // post expression
-        Writer cout = new OutputStreamWriter(c.getOutputStream(), "UTF-8");
-        cout.write(req);
-        cout.close();
-
-        // check for successful request
-        if (c.getResponseCode() != 200)
-          throw new CallHttpException(c.getResponseCode(), c.getResponseMessage());
-
-        // read response into string
-        StringBuffer s = new StringBuffer(1024);
-        Reader r = new BufferedReader(new InputStreamReader(c.getInputStream(), "UTF-8"));
-        int n;
-        while ((n = r.read()) > 0) s.append((char)n);
-        return s.toString();
-      }
-      finally
-      {
-        try { c.disconnect(); } catch(Exception e) {}
+        body = compression.compress(body, "gzip");
+        c.setRequestProperty("Content-Encoding", "gzip");
       }
+      c.setFixedLengthStreamingMode(body.length);
+      c.connect();
+
+      // post expression
+      OutputStream cout = c.getOutputStream();
+      cout.write(body);
+      cout.close();
+
+      // check for successful request
+      if (c.getResponseCode() != 200)
+        throw new CallHttpException(c.getResponseCode(), c.getResponseMessage());
+
+      return c;
+    }
+    catch (Exception e)
+    {
+      if (c != null) try { c.disconnect(); } catch(Exception x) {}
+      throw new CallNetworkException(e);
     }
-    catch (Exception e) { throw new CallNetworkException(e); }
   }
 
 ////////////////////////////////////////////////////////////////
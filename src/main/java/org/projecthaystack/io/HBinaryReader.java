@@ -0,0 +1,508 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import org.projecthaystack.*;
+import static org.projecthaystack.io.HBinaryWriter.*;
+
+/**
+ * HBinaryReader reads grids written by HBinaryWriter.
+ *
+ * @see HBinaryWriter
+ */
+public class HBinaryReader extends HGridReader
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Construction
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read from input stream */
+  public HBinaryReader(InputStream in)
+  {
+    this.in = in;
+  }
+
+  /** Read from input stream, interning strings in the given table */
+  public HBinaryReader(InputStream in, HInternTable intern)
+  {
+    this(in);
+    this.intern = intern;
+  }
+
+  /** Read from in-memory bytes */
+  public HBinaryReader(byte[] bytes)
+  {
+    this.in = null;
+    this.buf = bytes;
+    this.lim = bytes.length;
+  }
+
+  /** Close underlying input stream */
+  public void close()
+  {
+    if (in == null) return;
+    try { in.close(); } catch (IOException e) {}
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Public
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read a grid */
+  public HGrid readGrid()
+  {
+    HGridBuilder b = new HGridBuilder();
+    int numCols = readGridHeader(b);
+    readRows(b, numCols);
+    return b.toGrid();
+  }
+
+  /** Read grids until the end of the stream */
+  public HGrid[] readGrids()
+  {
+    ArrayList acc = new ArrayList();
+    while (!atEnd()) acc.add(readGrid());
+    return (HGrid[])acc.toArray(new HGrid[acc.size()]);
+  }
+
+  /**
+   * Read a grid one row at a time.  The stream is closed when the
+   * last row has been read or the cursor is closed.
+   */
+  public HGridCursor readCursor()
+  {
+    try
+    {
+      HGridBuilder b = new HGridBuilder();
+      int numCols = readGridHeader(b);
+      return new BinaryCursor(b.toGrid(), numCols);
+    }
+    catch (RuntimeException e)
+    {
+      close();
+      throw e;
+    }
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Grids
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read magic and header of a top level grid into builder */
+  private int readGridHeader(HGridBuilder b)
+  {
+    if (read() != MAGIC0 || read() != MAGIC1) throw err("Invalid magic");
+    int ver = read();
+    if (ver != VERSION) throw err("Unsupported version " + ver);
+    numStrs = 0;
+    tzs.clear();
+    return readHeader(b);
+  }
+
+  private int readHeader(HGridBuilder b)
+  {
+    readDict(b.meta());
+    int numCols = count();
+    for (int i=0; i<numCols; ++i)
+    {
+      String name = readStr();
+      if (name == null) throw err("Missing column name");
+      readDict(b.addCol(name));
+    }
+    return numCols;
+  }
+
+  private void readRows(HGridBuilder b, int numCols)
+  {
+    HVal[] cells = new HVal[numCols];
+    while (readRow(cells)) b.addRow(cells);
+  }
+
+  /** Read the next row into cells or return false at the end */
+  private boolean readRow(HVal[] cells)
+  {
+    int tag = read();
+    if (tag == END) return false;
+    if (tag != ROW) throw err("Invalid row " + tag);
+    for (int i=0; i<cells.length; ++i) cells[i] = readVal();
+    return true;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Values
+//////////////////////////////////////////////////////////////////////////
+
+  private HVal readVal()
+  {
+    int type = read();
+    switch (type)
+    {
+      case NULL:     return null;
+      case MARKER:   return HMarker.VAL;
+      case NA:       return HNA.VAL;
+      case REMOVE:   return HRemove.VAL;
+      case FALSE:    return HBool.FALSE;
+      case TRUE:     return HBool.TRUE;
+      case NUM:      return HNum.make(Double.longBitsToDouble(int64()));
+      case NUM_UNIT: return HNum.make(Double.longBitsToDouble(int64()), readStrChecked());
+      case STR:      return readHStr();
+      case REF:      return readRef();
+      case REF_DIS:  return HRef.make(readStrChecked(), readStrChecked());
+      case URI:      return HUri.make(readStrChecked());
+      case DATE:     return toDate(zigzag());
+      case TIME:     return toTime((int)varint());
+      case DATETIME: return readDateTime();
+      case COORD:    return HCoord.makeMicro((int)zigzag(), (int)zigzag());
+      case XSTR:     return HXStr.decode(readStrChecked(), readStrChecked());
+      case BIN:      return HBin.make(readStrChecked());
+      case SYMBOL:   return HSymbol.make(readStrChecked());
+      case LIST:     return readList();
+      case DICT:     { HDictBuilder b = new HDictBuilder(); readDict(b); return b.toDict(); }
+      case GRID:     return readNestedGrid();
+      default:       throw err("Invalid type " + type);
+    }
+  }
+
+  private HStr readHStr()
+  {
+    int index = readStrIndex();
+    if (index < 0) return HStr.make(literal(index));
+    HStr s = hstrs[index];
+    if (s == null) s = hstrs[index] = HStr.make(strs[index]);
+    return s;
+  }
+
+  private HRef readRef()
+  {
+    int index = readStrIndex();
+    if (index < 0) return HRef.make(literal(index));
+    HRef r = hrefs[index];
+    if (r == null) r = hrefs[index] = HRef.make(strs[index]);
+    return r;
+  }
+
+  private HDateTime readDateTime()
+  {
+    long millis = zigzag();
+    int offset = (int)zigzag();
+    String name = readStrChecked();
+    HTimeZone tz = (HTimeZone)tzs.get(name);
+    if (tz == null) tzs.put(name, tz = HTimeZone.make(name));
+    return HDateTime.make(millis, tz, offset);
+  }
+
+  private HList readList()
+  {
+    // grow the items as they are read rather than trusting n up front
+    int n = count();
+    HVal[] items = new HVal[Math.min(n, 16)];
+    for (int i=0; i<n; ++i)
+    {
+      if (i == items.length)
+      {
+        HVal[] temp = new HVal[(int)Math.min(n, items.length * 2L)];
+        System.arraycopy(items, 0, temp, 0, i);
+        items = temp;
+      }
+      items[i] = readVal();
+    }
+    return HList.make(items);
+  }
+
+  private void readDict(HDictBuilder b)
+  {
+    while (true)
+    {
+      String name = readStr();
+      if (name == null) return;
+      HVal val = readVal();
+      if (val != null) b.add(name, val);
+    }
+  }
+
+  private HGrid readNestedGrid()
+  {
+    HGridBuilder b = new HGridBuilder();
+    readRows(b, readHeader(b));
+    return b.toGrid();
+  }
+
+  /** Date from days since 1970-01-01 in the proleptic Gregorian calendar */
+  private static HDate toDate(long days)
+  {
+    long z = days + 719468;
+    long era = (z >= 0 ? z : z - 146096) / 146097;
+    long doe = z - era * 146097;
+    long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+    long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+    long mp = (5 * doy + 2) / 153;
+    int day = (int)(doy - (153 * mp + 2) / 5 + 1);
+    int month = (int)(mp < 10 ? mp + 3 : mp - 9);
+    long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+    return HDate.make((int)year, month, day);
+  }
+
+  private static HTime toTime(int ms)
+  {
+    return HTime.make(ms / 3600000, (ms / 60000) % 60, (ms / 1000) % 60, ms % 1000);
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Strings
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read a string token or return null at the end of a dict */
+  private String readStr()
+  {
+    int index = readStrIndex();
+    if (index >= 0) return strs[index];
+    return index == -1 ? lit : null;
+  }
+
+  private String readStrChecked()
+  {
+    return checked(readStr());
+  }
+
+  private String checked(String s)
+  {
+    if (s == null) throw err("Unexpected end of dict");
+    return s;
+  }
+
+  private String literal(int index)
+  {
+    return checked(index == -1 ? lit : null);
+  }
+
+  /**
+   * Read a string token and return its index in the table; return -1
+   * for a string not in the table which is stored in lit, or -2 for the
+   * end of a dict.
+   */
+  private int readStrIndex()
+  {
+    long token = varint();
+    int kind = (int)(token & 3);
+    long n = token >>> 2;
+    if (kind == STR_INDEX)
+    {
+      if (n >= numStrs) throw err("Invalid string index " + n);
+      return (int)n;
+    }
+    if (kind == STR_END) return -2;
+    if (n > MAX_STR_LEN || n > remaining()) throw err("Invalid string length " + n);
+
+    String s = chars((int)n);
+    if (intern != null) s = intern.str(s);
+    if (kind == STR_LIT) { lit = s; return -1; }
+
+    if (numStrs >= MAX_TABLE_SIZE) throw err("String table full");
+    if (numStrs == strs.length)
+    {
+      int size = strs.length * 2;
+      String[] s2 = new String[size];
+      HStr[] h2 = new HStr[size];
+      HRef[] r2 = new HRef[size];
+      System.arraycopy(strs, 0, s2, 0, numStrs);
+      System.arraycopy(hstrs, 0, h2, 0, numStrs);
+      System.arraycopy(hrefs, 0, r2, 0, numStrs);
+      strs = s2;
+      hstrs = h2;
+      hrefs = r2;
+    }
+    strs[numStrs] = s;
+    hstrs[numStrs] = null;
+    hrefs[numStrs] = null;
+    return numStrs++;
+  }
+
+  /** Decode n chars of UTF-8, growing the buffer as chars are read */
+  private String chars(int n)
+  {
+    char[] cs = chars;
+    int i = 0;
+    while (i < n)
+    {
+      if (i + 2 > cs.length && cs.length < n)
+      {
+        char[] temp = new char[(int)Math.min(n, cs.length * 2L)];
+        System.arraycopy(cs, 0, temp, 0, i);
+        cs = chars = temp;
+      }
+      int c = read();
+      if (c < 0x80)
+      {
+        cs[i++] = (char)c;
+      }
+      else if (c < 0xe0)
+      {
+        cs[i++] = (char)(((c & 0x1f) << 6) | (read() & 0x3f));
+      }
+      else if (c < 0xf0)
+      {
+        int c2 = read();
+        cs[i++] = (char)(((c & 0x0f) << 12) | ((c2 & 0x3f) << 6) | (read() & 0x3f));
+      }
+      else
+      {
+        int c2 = read(), c3 = read();
+        int cp = ((c & 0x07) << 18) | ((c2 & 0x3f) << 12) | ((c3 & 0x3f) << 6) | (read() & 0x3f);
+        if (i + 2 > n || !Character.isSupplementaryCodePoint(cp)) throw err("Invalid UTF-8");
+        cs[i++] = Character.highSurrogate(cp);
+        cs[i++] = Character.lowSurrogate(cp);
+      }
+    }
+    return new String(cs, 0, n);
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Bytes
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read a count of items which each take at least one byte */
+  private int count()
+  {
+    long n = varint();
+    if (n < 0 || n > Integer.MAX_VALUE - 8 || n > remaining()) throw err("Invalid count " + n);
+    return (int)n;
+  }
+
+  /** Bytes left for in-memory input, or max value for a stream */
+  private long remaining()
+  {
+    return in == null ? lim - pos : Long.MAX_VALUE;
+  }
+
+  private long zigzag()
+  {
+    long v = varint();
+    return (v >>> 1) ^ -(v & 1);
+  }
+
+  private long varint()
+  {
+    long v = 0;
+    for (int shift=0; shift<64; shift+=7)
+    {
+      int b = read();
+      v |= (long)(b & 0x7f) << shift;
+      if ((b & 0x80) == 0) return v;
+    }
+    throw err("Invalid varint");
+  }
+
+  private long int64()
+  {
+    long v = 0;
+    for (int i=0; i<8; ++i) v = (v << 8) | read();
+    return v;
+  }
+
+  private int read()
+  {
+    if (pos >= lim && !fill()) throw err("Unexpected end of input");
+    return buf[pos++] & 0xff;
+  }
+
+  /** Return true if there are no more bytes to read */
+  private boolean atEnd()
+  {
+    return pos >= lim && !fill();
+  }
+
+  private boolean fill()
+  {
+    if (in == null) return false;
+    try
+    {
+      int n = in.read(buf, 0, buf.length);
+      if (n <= 0) return false;
+      pos = 0;
+      lim = n;
+      return true;
+    }
+    catch (IOException e)
+    {
+      throw new ParseException("read failed", e);
+    }
+  }
+
+  private ParseException err(String msg)
+  {
+    return new ParseException(msg);
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// BinaryCursor
+//////////////////////////////////////////////////////////////////////////
+
+  final class BinaryCursor extends HGridCursor
+  {
+    BinaryCursor(HGrid header, int numCols)
+    {
+      this.header = header;
+      this.cells = new HVal[numCols];
+    }
+
+    public HGrid header() { return header; }
+
+    public HRow next()
+    {
+      if (done) return null;
+      try
+      {
+        if (readRow(cells)) return HRow.make(header, (HVal[])cells.clone());
+      }
+      catch (RuntimeException e)
+      {
+        close();
+        throw e;
+      }
+      close();
+      return null;
+    }
+
+    public void close()
+    {
+      if (done) return;
+      done = true;
+      HBinaryReader.this.close();
+    }
+
+    private final HGrid header;
+    private final HVal[] cells;
+    private boolean done;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Fields
+//////////////////////////////////////////////////////////////////////////
+
+  // longest string accepted, in chars
+  private static final int MAX_STR_LEN = 64 * 1024 * 1024;
+
+  private final InputStream in;
+  private byte[] buf = new byte[8192];
+  private int pos, lim;
+  private HInternTable intern;
+
+  // string table of current grid
+  private String[] strs = new String[64];
+  private HStr[] hstrs = new HStr[64];
+  private HRef[] hrefs = new HRef[64];
+  private int numStrs;
+  private String lit;
+  private char[] chars = new char[64];
+  private final HashMap tzs = new HashMap();  // name -> HTimeZone
+
+}
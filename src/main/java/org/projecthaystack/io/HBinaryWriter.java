@@ -0,0 +1,408 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.projecthaystack.*;
+
+/**
+ * HBinaryWriter writes grids in a compact binary format intended for
+ * exchange between Java services.  Every HVal type round trips exactly.
+ *
+ * Each top level grid starts with the bytes "HB" and a version byte,
+ * followed by the grid body: the meta dict, a varint column count, the
+ * name and meta dict of each column, then each row as a ROW byte and
+ * one value per column, and finally an END byte.  Values are a type
+ * byte followed by their fields:
+ * <ul>
+ * <li>numbers are raw IEEE 754 doubles with an optional unit string</li>
+ * <li>dates are days since 1970-01-01 and times millis of the day</li>
+ * <li>date times are epoch millis, the offset in seconds, and the
+ *   timezone name</li>
+ * <li>lists are a varint count of values; dicts are name/value pairs
+ *   ending with an end string; nested grids are a grid body</li>
+ * </ul>
+ * Strings are written once per top level grid and then referenced by
+ * index, so repeated tag names, units, refs, and timezones cost a byte
+ * or two.  Integers are unsigned LEB128 varints, zigzag encoded when
+ * signed.
+ *
+ * @see HBinaryReader
+ */
+public class HBinaryWriter extends HGridWriter
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Construction
+//////////////////////////////////////////////////////////////////////////
+
+  /** Mime type registered for the binary format */
+  public static final String MIME = "application/x-haystack-binary";
+
+  /**
+   * Write to the given stream.  Output is buffered internally and, like
+   * PrintWriter, IO errors are not raised; once the stream fails the
+   * rest of the output is discarded.
+   */
+  public HBinaryWriter(OutputStream out)
+  {
+    this.out = out;
+  }
+
+  /** Write a grid to an in-memory byte array */
+  public static byte[] gridToBytes(HGrid grid)
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(grid.numCols() * grid.numRows() * 8 + 32);
+    HBinaryWriter w = new HBinaryWriter(out);
+    w.writeGrid(grid);
+    w.flushBuf();
+    return out.toByteArray();
+  }
+
+  /** Flush underlying output stream */
+  public void flush()
+  {
+    flushBuf();
+    if (error) return;
+    try { out.flush(); } catch (IOException e) { error = true; }
+  }
+
+  /** Close underlying output stream */
+  public void close()
+  {
+    flushBuf();
+    try { out.close(); } catch (IOException e) { error = true; }
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// HGridWriter
+//////////////////////////////////////////////////////////////////////////
+
+  /** Write a grid */
+  public void writeGrid(HGrid grid)
+  {
+    if (depth == 0) begin();
+    ++depth;
+    try
+    {
+      writeHeader(grid);
+      for (int i=0; i<grid.numRows(); ++i)
+        writeRow(grid, grid.row(i));
+      p(END);
+    }
+    finally
+    {
+      --depth;
+    }
+  }
+
+  /** Begin a grid with the meta and columns of given header */
+  public void writeGridHeader(HGrid header)
+  {
+    if (this.header != null) throw new IllegalStateException("Grid already started");
+    begin();
+    writeHeader(header);
+    this.header = header;
+    ++depth;
+  }
+
+  /** Write a row of the grid started by writeGridHeader */
+  public void writeRow(HDict row)
+  {
+    if (header == null) throw new IllegalStateException("Grid not started");
+    writeRow(header, row);
+  }
+
+  /** End the grid started by writeGridHeader */
+  public void writeGridEnd()
+  {
+    if (header == null) throw new IllegalStateException("Grid not started");
+    header = null;
+    --depth;
+    p(END);
+  }
+
+  /** Start a top level grid with its own string table */
+  private void begin()
+  {
+    p(MAGIC0).p(MAGIC1).p(VERSION);
+    strs.clear();
+  }
+
+  private void writeHeader(HGrid grid)
+  {
+    writeDict(grid.meta());
+    varint(grid.numCols());
+    for (int i=0; i<grid.numCols(); ++i)
+    {
+      HCol col = grid.col(i);
+      writeStr(col.name());
+      writeDict(col.meta());
+    }
+  }
+
+  private void writeRow(HGrid grid, HDict row)
+  {
+    p(ROW);
+    for (int i=0; i<grid.numCols(); ++i)
+      writeVal(cell(grid, row, i));
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Values
+//////////////////////////////////////////////////////////////////////////
+
+  private void writeVal(HVal val)
+  {
+    if (val == null) p(NULL);
+    else if (val instanceof HStr) { p(STR); writeStr(((HStr)val).val); }
+    else if (val instanceof HNum) writeNum((HNum)val);
+    else if (val instanceof HRef) writeRef((HRef)val);
+    else if (val instanceof HMarker) p(MARKER);
+    else if (val instanceof HBool) p(((HBool)val).val ? TRUE : FALSE);
+    else if (val instanceof HDateTime) writeDateTime((HDateTime)val);
+    else if (val instanceof HDate) { p(DATE); zigzag(epochDays((HDate)val)); }
+    else if (val instanceof HTime) { p(TIME); varint(msOfDay((HTime)val)); }
+    else if (val instanceof HUri) { p(URI); writeStr(((HUri)val).val); }
+    else if (val instanceof HDict) { p(DICT); writeDict((HDict)val); }
+    else if (val instanceof HList) writeList((HList)val);
+    else if (val instanceof HGrid) { p(GRID); writeGrid((HGrid)val); }
+    else if (val instanceof HNA) p(NA);
+    else if (val instanceof HRemove) p(REMOVE);
+    else if (val instanceof HCoord) { p(COORD); zigzag(((HCoord)val).ulat); zigzag(((HCoord)val).ulng); }
+    else if (val instanceof HBin) { p(BIN); writeStr(((HBin)val).mime); }
+    else if (val instanceof HXStr) { p(XSTR); writeStr(((HXStr)val).type); writeStr(((HXStr)val).val); }
+    else if (val instanceof HSymbol) { p(SYMBOL); writeStr(symbolStr((HSymbol)val)); }
+    else throw new IllegalArgumentException("Cannot encode " + val.getClass().getName());
+  }
+
+  private void writeNum(HNum num)
+  {
+    p(num.unit == null ? NUM : NUM_UNIT);
+    long bits = Double.doubleToRawLongBits(num.val);
+    if (pos + 8 > buf.length) flushBuf();
+    for (int shift=56; shift>=0; shift-=8) buf[pos++] = (byte)(bits >>> shift);
+    if (num.unit != null) writeStr(num.unit);
+  }
+
+  private void writeRef(HRef ref)
+  {
+    p(ref.dis == null ? REF : REF_DIS);
+    writeStr(ref.val);
+    if (ref.dis != null) writeStr(ref.dis);
+  }
+
+  private void writeDateTime(HDateTime ts)
+  {
+    p(DATETIME);
+    zigzag(ts.millis());
+    zigzag(ts.tzOffset);
+    writeStr(ts.tz.name);
+  }
+
+  private void writeDict(HDict dict)
+  {
+    for (Iterator it = dict.iterator(); it.hasNext(); )
+    {
+      Map.Entry entry = (Map.Entry)it.next();
+      writeStr((String)entry.getKey());
+      writeVal((HVal)entry.getValue());
+    }
+    varint(STR_END);
+  }
+
+  private void writeList(HList list)
+  {
+    p(LIST);
+    varint(list.size());
+    for (int i=0; i<list.size(); ++i) writeVal(list.get(i));
+  }
+
+  /** Symbol string from its toJson encoding "y:str" */
+  private static String symbolStr(HSymbol sym)
+  {
+    return sym.toJson().substring(2);
+  }
+
+  /** Days since 1970-01-01 in the proleptic Gregorian calendar */
+  static long epochDays(HDate date)
+  {
+    long y = date.year;
+    int m = date.month;
+    if (m <= 2) --y;
+    long era = (y >= 0 ? y : y - 399) / 400;
+    long yoe = y - era * 400;
+    long doy = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + date.day - 1;
+    long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+    return era * 146097 + doe - 719468;
+  }
+
+  static int msOfDay(HTime time)
+  {
+    return ((time.hour * 60 + time.min) * 60 + time.sec) * 1000 + time.ms;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Encoding
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Write a string token: an index into the string table, or the chars
+   * of a new string which is added to the table unless it is long or
+   * the table is full.
+   */
+  private void writeStr(String s)
+  {
+    Integer index = (Integer)strs.get(s);
+    if (index != null)
+    {
+      varint(((long)index.intValue() << 2) | STR_INDEX);
+      return;
+    }
+    int n = s.length();
+    if (n <= MAX_TABLE_STR && strs.size() < MAX_TABLE_SIZE)
+    {
+      strs.put(s, Integer.valueOf(strs.size()));
+      varint(((long)n << 2) | STR_DEF);
+    }
+    else
+    {
+      varint(((long)n << 2) | STR_LIT);
+    }
+    chars(s);
+  }
+
+  /** Write chars as UTF-8; unpaired surrogates are kept as 3 bytes */
+  private void chars(String s)
+  {
+    int n = s.length();
+    for (int i=0; i<n; ++i)
+    {
+      if (pos + 4 > buf.length) flushBuf();
+      int c = s.charAt(i);
+      if (c < 0x80)
+      {
+        buf[pos++] = (byte)c;
+      }
+      else if (c < 0x800)
+      {
+        buf[pos++] = (byte)(0xc0 | (c >> 6));
+        buf[pos++] = (byte)(0x80 | (c & 0x3f));
+      }
+      else if (Character.isHighSurrogate((char)c) && i+1 < n && Character.isLowSurrogate(s.charAt(i+1)))
+      {
+        int cp = Character.toCodePoint((char)c, s.charAt(++i));
+        buf[pos++] = (byte)(0xf0 | (cp >> 18));
+        buf[pos++] = (byte)(0x80 | ((cp >> 12) & 0x3f));
+        buf[pos++] = (byte)(0x80 | ((cp >> 6) & 0x3f));
+        buf[pos++] = (byte)(0x80 | (cp & 0x3f));
+      }
+      else
+      {
+        buf[pos++] = (byte)(0xe0 | (c >> 12));
+        buf[pos++] = (byte)(0x80 | ((c >> 6) & 0x3f));
+        buf[pos++] = (byte)(0x80 | (c & 0x3f));
+      }
+    }
+  }
+
+  private void zigzag(long v)
+  {
+    varint((v << 1) ^ (v >> 63));
+  }
+
+  private void varint(long v)
+  {
+    if (pos + 10 > buf.length) flushBuf();
+    while ((v & ~0x7fL) != 0)
+    {
+      buf[pos++] = (byte)((v & 0x7f) | 0x80);
+      v >>>= 7;
+    }
+    buf[pos++] = (byte)v;
+  }
+
+  private HBinaryWriter p(int b)
+  {
+    if (pos >= buf.length) flushBuf();
+    buf[pos++] = (byte)b;
+    return this;
+  }
+
+  /** Write buffered bytes to the stream */
+  private void flushBuf()
+  {
+    if (pos == 0) return;
+    if (!error)
+    {
+      try { out.write(buf, 0, pos); } catch (IOException e) { error = true; }
+    }
+    pos = 0;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Format
+//////////////////////////////////////////////////////////////////////////
+
+  static final int MAGIC0  = 'H';
+  static final int MAGIC1  = 'B';
+  static final int VERSION = 1;
+
+  // grid rows
+  static final int END = 0;
+  static final int ROW = 1;
+
+  // value types
+  static final int NULL     = 0;
+  static final int MARKER   = 1;
+  static final int NA       = 2;
+  static final int REMOVE   = 3;
+  static final int FALSE    = 4;
+  static final int TRUE     = 5;
+  static final int NUM      = 6;
+  static final int NUM_UNIT = 7;
+  static final int STR      = 8;
+  static final int REF      = 9;
+  static final int REF_DIS  = 10;
+  static final int URI      = 11;
+  static final int DATE     = 12;
+  static final int TIME     = 13;
+  static final int DATETIME = 14;
+  static final int COORD    = 15;
+  static final int XSTR     = 16;
+  static final int BIN      = 17;
+  static final int SYMBOL   = 18;
+  static final int LIST     = 19;
+  static final int DICT     = 20;
+  static final int GRID     = 21;
+
+  // low two bits of a string token
+  static final int STR_INDEX = 0;  // index of string in table
+  static final int STR_DEF   = 1;  // char count, chars; add to table
+  static final int STR_LIT   = 2;  // char count, chars
+  static final int STR_END   = 3;  // end of dict
+
+  static final int MAX_TABLE_STR  = 128;
+  static final int MAX_TABLE_SIZE = 65536;
+
+//////////////////////////////////////////////////////////////////////////
+// Fields
+//////////////////////////////////////////////////////////////////////////
+
+  private final OutputStream out;
+  private final byte[] buf = new byte[8192];
+  private int pos;
+  private boolean error;
+  private int depth;
+  private HGrid header;        // grid started by writeGridHeader
+  private final HashMap strs = new HashMap();  // String -> Integer index
+
+}
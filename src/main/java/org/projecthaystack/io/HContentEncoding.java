@@ -0,0 +1,393 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.*;
+
+/**
+ * HContentEncoding negotiates and applies the HTTP "gzip" and "deflate"
+ * content encodings.  Bodies smaller than the threshold are sent as is,
+ * since compressing them costs more time than it saves.  The counters
+ * total the bytes before and after compression of every body which was
+ * compressed or decompressed.  Instances are thread safe and may be
+ * shared by many requests.
+ */
+public class HContentEncoding
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Config
+//////////////////////////////////////////////////////////////////////////
+
+  /** Bodies smaller than this many bytes are not compressed */
+  public int threshold = 1024;
+
+  /** Set the threshold and return this */
+  public HContentEncoding setThreshold(int threshold)
+  {
+    if (threshold < 0) throw new IllegalArgumentException("Invalid threshold: " + threshold);
+    this.threshold = threshold;
+    return this;
+  }
+
+  /** Deflater level from 1 (fastest) to 9 (smallest), or -1 for the default */
+  public int level = Deflater.DEFAULT_COMPRESSION;
+
+  /** Set the compression level and return this */
+  public HContentEncoding setLevel(int level)
+  {
+    if (level < -1 || level > 9) throw new IllegalArgumentException("Invalid level: " + level);
+    this.level = level;
+    return this;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Counters
+//////////////////////////////////////////////////////////////////////////
+
+  /** Total bytes of compressed bodies before compression */
+  public long uncompressedBytes() { return uncompressed.get(); }
+
+  /** Total bytes of compressed bodies as sent or received */
+  public long compressedBytes() { return compressed.get(); }
+
+  /** Reset both counters to zero */
+  public void resetCounters()
+  {
+    uncompressed.set(0);
+    compressed.set(0);
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Negotiation
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Choose the encoding for a response from the request's
+   * Accept-Encoding header.  The encoding with the highest q-value
+   * wins and "gzip" is preferred on a tie.  An encoding not listed
+   * takes the q-value of "*" if present.  Return null if neither is
+   * acceptable, including when both are refused with q=0.
+   */
+  public static String negotiate(String accept)
+  {
+    if (accept == null) return null;
+    double gzip = -1, deflate = -1, any = -1;
+    int start = 0;
+    while (start < accept.length())
+    {
+      int comma = accept.indexOf(',', start);
+      if (comma < 0) comma = accept.length();
+      String item = accept.substring(start, comma);
+      start = comma + 1;
+
+      // split off parameters to find the q-value
+      String name = item;
+      double q = 1;
+      int semi = item.indexOf(';');
+      if (semi >= 0)
+      {
+        name = item.substring(0, semi);
+        q = toQ(item.substring(semi + 1));
+      }
+      name = name.trim().toLowerCase();
+      if (name.equals("gzip") || name.equals("x-gzip")) gzip = Math.max(gzip, q);
+      else if (name.equals("deflate")) deflate = Math.max(deflate, q);
+      else if (name.equals("*")) any = Math.max(any, q);
+    }
+
+    // explicit entries, including refusals, override the wildcard
+    if (gzip < 0) gzip = any;
+    if (deflate < 0) deflate = any;
+    if (gzip <= 0 && deflate <= 0) return null;
+    return gzip >= deflate ? "gzip" : "deflate";
+  }
+
+  /** Parse the q parameter, which defaults to 1 if missing or invalid */
+  private static double toQ(String params)
+  {
+    String[] toks = params.split(";");
+    for (int i=0; i<toks.length; ++i)
+    {
+      String tok = toks[i].trim();
+      if (!tok.startsWith("q=")) continue;
+      double q;
+      try { q = Double.parseDouble(tok.substring(2)); }
+      catch (NumberFormatException e) { return 1; }
+      if (Double.isNaN(q)) return 1;
+      return Math.max(0, Math.min(1, q));
+    }
+    return 1;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Encoding
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Wrap an output stream to compress with the given encoding once
+   * the body reaches the threshold.  Until then bytes are held back,
+   * and a body which stays under the threshold is written as is on
+   * close.  Just before the first compressed byte is written, onStart
+   * is run so the caller can set the Content-Encoding header.  The
+   * stream must be closed to complete the body.
+   */
+  public OutputStream encode(OutputStream out, String encoding, Runnable onStart)
+  {
+    checkEncoding(encoding);
+    return new ThresholdOutputStream(out, encoding, onStart);
+  }
+
+  /** Compress bytes with the given encoding regardless of threshold */
+  public byte[] compress(byte[] bytes, String encoding)
+    throws IOException
+  {
+    checkEncoding(encoding);
+    ByteArrayOutputStream buf = new ByteArrayOutputStream(bytes.length / 4 + 64);
+    OutputStream out = open(buf, encoding);
+    out.write(bytes);
+    out.close();
+    return buf.toByteArray();
+  }
+
+  /**
+   * Wrap an input stream to decompress the given Content-Encoding.
+   * A null, empty, or "identity" encoding returns the stream itself.
+   * Raise UnsupportedEncodingException for any other encoding.
+   */
+  public InputStream decode(InputStream in, String encoding)
+    throws IOException
+  {
+    if (encoding == null) return in;
+    encoding = encoding.trim().toLowerCase();
+    if (encoding.length() == 0 || encoding.equals("identity")) return in;
+    InputStream wire = new CountingInputStream(in, compressed);
+    if (encoding.equals("gzip") || encoding.equals("x-gzip"))
+      return new CountingInputStream(new GZIPInputStream(wire, 8192), uncompressed);
+    if (encoding.equals("deflate"))
+      return new CountingInputStream(new InflaterInputStream(wire), uncompressed);
+    throw new UnsupportedEncodingException("Unsupported Content-Encoding: " + encoding);
+  }
+
+  private static void checkEncoding(String encoding)
+  {
+    if (!encoding.equals("gzip") && !encoding.equals("deflate"))
+      throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+  }
+
+  /** Open compressing stream with counters */
+  private OutputStream open(OutputStream out, String encoding)
+    throws IOException
+  {
+    return new CountingOutputStream(deflater(out, encoding), uncompressed);
+  }
+
+  /** Open compressor which counts the bytes it writes to out */
+  private DeflaterOutputStream deflater(OutputStream out, String encoding)
+    throws IOException
+  {
+    OutputStream wire = new CountingOutputStream(out, compressed);
+    if (encoding.equals("gzip")) return new GzipOutputStream(wire, level);
+    return new DeflaterStream(wire, new Deflater(level));
+  }
+
+  /**
+   * Abandon a stream returned by encode after a failure.  The
+   * compressor is released without finishing the body, and neither
+   * held back bytes nor the trailer are written, so the client cannot
+   * mistake a truncated body for a complete one.  The underlying
+   * stream is not closed.
+   */
+  public static void abort(OutputStream encoded)
+  {
+    if (encoded instanceof ThresholdOutputStream)
+      ((ThresholdOutputStream)encoded).abort();
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// ThresholdOutputStream
+//////////////////////////////////////////////////////////////////////////
+
+  private class ThresholdOutputStream extends OutputStream
+  {
+    ThresholdOutputStream(OutputStream out, String encoding, Runnable onStart)
+    {
+      this.out = out;
+      this.encoding = encoding;
+      this.onStart = onStart;
+      this.limit = threshold;
+      this.buf = new byte[Math.min(limit, 8192)];
+    }
+
+    public void write(int b) throws IOException
+    {
+      if (sink != null) { sink.write(b); return; }
+      one[0] = (byte)b;
+      write(one, 0, 1);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      if (sink != null) { sink.write(b, off, len); return; }
+      if (size + len < limit)
+      {
+        if (size + len > buf.length)
+        {
+          byte[] temp = new byte[Math.min(Math.max(buf.length * 2, size + len), limit)];
+          System.arraycopy(buf, 0, temp, 0, size);
+          buf = temp;
+        }
+        System.arraycopy(b, off, buf, size, len);
+        size += len;
+        return;
+      }
+
+      // reached threshold, so start compressing what we have held back
+      if (onStart != null) onStart.run();
+      z = deflater(out, encoding);
+      sink = new CountingOutputStream(z, uncompressed);
+      sink.write(buf, 0, size);
+      sink.write(b, off, len);
+      buf = null;
+    }
+
+    /** Held back bytes stay buffered until threshold or close */
+    public void flush() throws IOException
+    {
+      if (sink != null) sink.flush();
+    }
+
+    public void close() throws IOException
+    {
+      if (closed) return;
+      closed = true;
+      if (sink != null) { sink.close(); return; }
+      out.write(buf, 0, size);
+      out.close();
+    }
+
+    void abort()
+    {
+      if (closed) return;
+      closed = true;
+      buf = null;
+      if (z instanceof GzipOutputStream) ((GzipOutputStream)z).end();
+      else if (z instanceof DeflaterStream) ((DeflaterStream)z).end();
+    }
+
+    private final OutputStream out;
+    private final String encoding;
+    private final Runnable onStart;
+    private final int limit;
+    private final byte[] one = new byte[1];
+    private byte[] buf;
+    private int size;
+    private DeflaterOutputStream z;  // compressor once started
+    private OutputStream sink;
+    private boolean closed;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Streams
+//////////////////////////////////////////////////////////////////////////
+
+  /** GZIPOutputStream with a compression level */
+  private static class GzipOutputStream extends GZIPOutputStream
+  {
+    GzipOutputStream(OutputStream out, int level) throws IOException
+    {
+      super(out, 8192);
+      def.setLevel(level);
+    }
+
+    /** Release the Deflater without finishing */
+    void end() { def.end(); }
+  }
+
+  /** DeflaterOutputStream which releases its own Deflater on close */
+  private static class DeflaterStream extends DeflaterOutputStream
+  {
+    DeflaterStream(OutputStream out, Deflater def) { super(out, def, 8192); }
+
+    public void close() throws IOException
+    {
+      try { super.close(); }
+      finally { def.end(); }
+    }
+
+    /** Release the Deflater without finishing */
+    void end() { def.end(); }
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream
+  {
+    CountingOutputStream(OutputStream out, AtomicLong count)
+    {
+      super(out);
+      this.count = count;
+    }
+
+    public void write(int b) throws IOException
+    {
+      out.write(b);
+      count.incrementAndGet();
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      out.write(b, off, len);
+      count.addAndGet(len);
+    }
+
+    private final AtomicLong count;
+  }
+
+  private static class CountingInputStream extends FilterInputStream
+  {
+    CountingInputStream(InputStream in, AtomicLong count)
+    {
+      super(in);
+      this.count = count;
+    }
+
+    public int read() throws IOException
+    {
+      int b = in.read();
+      if (b >= 0) count.incrementAndGet();
+      return b;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      int n = in.read(b, off, len);
+      if (n > 0) count.addAndGet(n);
+      return n;
+    }
+
+    public long skip(long n) throws IOException
+    {
+      long skipped = in.skip(n);
+      if (skipped > 0) count.addAndGet(skipped);
+      return skipped;
+    }
+
+    public boolean markSupported() { return false; }
+
+    private final AtomicLong count;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Fields
+//////////////////////////////////////////////////////////////////////////
+
+  private final AtomicLong uncompressed = new AtomicLong();
+  private final AtomicLong compressed = new AtomicLong();
+
+}
@@ -0,0 +1,137 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.io.*;
+import java.util.*;
+import org.projecthaystack.*;
+
+/**
+ * HCsvHisImporter writes the history of a point from CSV with a "ts"
+ * and a "val" column.  If the header has no columns with those names
+ * the first two columns are used.  Rows are read one at a time and
+ * written with hisWrite in batches, so files of any size can be
+ * imported.
+ *
+ * Timestamps without a timezone name are in the point's "tz", and
+ * timestamps in another timezone are converted to it.  Numbers without
+ * a unit take the point's "unit", and numbers in a point of kind
+ * "Bool" are true when non-zero.  Rows with an empty val are skipped.
+ */
+public class HCsvHisImporter
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Construction
+//////////////////////////////////////////////////////////////////////////
+
+  /** Import into the history of given point through given project */
+  public HCsvHisImporter(HProj proj, HRef id)
+  {
+    this.proj = proj;
+    this.id = id;
+  }
+
+  /** Project written to with hisWrite */
+  public final HProj proj;
+
+  /** Id of the point to import */
+  public final HRef id;
+
+  /** Number of items written by each call to hisWrite */
+  public int batchSize = 10000;
+
+  /** Set the batch size and return this */
+  public HCsvHisImporter setBatchSize(int batchSize)
+  {
+    if (batchSize <= 0) throw new IllegalArgumentException("Invalid batchSize: " + batchSize);
+    this.batchSize = batchSize;
+    return this;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Import
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Import UTF-8 CSV using comma delimiter and close the stream.
+   * Return the number of items written.
+   */
+  public int importCsv(InputStream in)
+  {
+    return importCsv(new HCsvReader(in));
+  }
+
+  /**
+   * Import using the given reader, whose delimiter may be configured
+   * beforehand, and close it.  Return the number of items written.
+   */
+  public int importCsv(HCsvReader reader)
+  {
+    // lookup point
+    HDict rec = proj.readById(id);
+    HTimeZone tz = HTimeZone.make(rec.getStr("tz"));
+    String unit = rec.has("unit") ? rec.getStr("unit") : null;
+    HVal kind = rec.get("kind", false);
+    boolean isBool = kind instanceof HStr && ((HStr)kind).val.equals("Bool");
+
+    HGridCursor c = reader.setTz(tz).readCursor();
+    try
+    {
+      // find columns
+      HCol tsCol = c.col("ts", false);
+      HCol valCol = c.col("val", false);
+      if (tsCol == null || valCol == null)
+      {
+        if (c.numCols() < 2) throw new ParseException("Expected ts and val columns");
+        tsCol = c.col(0);
+        valCol = c.col(1);
+      }
+
+      // read rows and write in batches
+      ArrayList batch = new ArrayList();
+      int count = 0;
+      for (HRow row = c.next(); row != null; row = c.next())
+      {
+        HVal val = row.get(valCol, false);
+        if (val == null) continue;
+
+        HVal ts = row.get(tsCol, false);
+        if (!(ts instanceof HDateTime)) throw new ParseException("Invalid ts: " + ts);
+        HDateTime dt = (HDateTime)ts;
+        if (!dt.tz.equals(tz)) dt = HDateTime.make(dt.millis(), tz);
+
+        if (val instanceof HNum)
+        {
+          HNum num = (HNum)val;
+          if (isBool) val = HBool.make(num.val != 0);
+          else if (num.unit == null && unit != null) val = HNum.make(num.val, unit);
+        }
+
+        batch.add(HHisItem.make(dt, val));
+        if (batch.size() >= batchSize) count += flush(batch);
+      }
+      count += flush(batch);
+      return count;
+    }
+    finally
+    {
+      c.close();
+    }
+  }
+
+  private int flush(ArrayList batch)
+  {
+    int n = batch.size();
+    if (n == 0) return 0;
+    proj.hisWrite(id, (HHisItem[])batch.toArray(new HHisItem[n]));
+    batch.clear();
+    return n;
+  }
+
+}
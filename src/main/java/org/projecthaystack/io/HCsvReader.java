@@ -0,0 +1,514 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.io.*;
+import java.util.*;
+import org.projecthaystack.*;
+
+/**
+ * HCsvReader reads grids from comma separated values as written by
+ * HCsvWriter.  The first row is the column headers, which are mapped
+ * to tag names with the original text kept as the column "dis" when it
+ * differs.  Cells may be quoted with '"' and contain the delimiter,
+ * newlines, or quotes escaped as two quotes.  Unquoted cells are
+ * trimmed, and blank lines are skipped.
+ *
+ * Cell values are inferred unless a column type is configured with
+ * setType: markers, bools, refs, numbers with optional unit, dates,
+ * times, and timestamps are recognized and everything else is a Str.
+ * Timestamps without a timezone name such as "2024-01-31 13:45:00" or
+ * "2024-01-31T13:45:00-05:00" are made in the configured tz.
+ *
+ * Rows are parsed one at a time by readCursor, so large files can
+ * be processed without holding every row in memory.
+ *
+ * @see <a href='http://project-haystack.org/doc/Csv'>Project Haystack</a>
+ */
+public class HCsvReader extends HGridReader
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Construction
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read from UTF-8 input stream. */
+  public HCsvReader(InputStream in)
+  {
+    try
+    {
+      this.in = new InputStreamReader(in, "UTF-8");
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Read from in-memory string. */
+  public HCsvReader(String in)
+  {
+    this.in = new StringReader(in);
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Config
+//////////////////////////////////////////////////////////////////////////
+
+  /** Delimiter used to separate each cell */
+  public char delimiter = ',';
+
+  /** Set the delimiter and return this */
+  public HCsvReader setDelimiter(char delimiter)
+  {
+    this.delimiter = delimiter;
+    return this;
+  }
+
+  /** Timezone for timestamps which do not include a timezone name */
+  public HTimeZone tz = HTimeZone.DEFAULT;
+
+  /** Set the timezone and return this */
+  public HCsvReader setTz(HTimeZone tz)
+  {
+    if (tz == null) throw new IllegalArgumentException("tz is null");
+    this.tz = tz;
+    return this;
+  }
+
+  /**
+   * Parse the cells of the given column as the given type instead of
+   * inferring them.  The column may be named by its tag name or its
+   * header text.  The type is one of HStr, HNum, HBool, HMarker, HRef,
+   * HUri, HDate, HTime, or HDateTime; any other HVal class parses the
+   * cells as Zinc.  Return this.
+   */
+  public HCsvReader setType(String col, Class type)
+  {
+    if (!HVal.class.isAssignableFrom(type)) throw new IllegalArgumentException("Not HVal type: " + type.getName());
+    types.put(col, type);
+    return this;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Public
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read the whole grid and close the stream */
+  public HGrid readGrid()
+  {
+    return readCursor().toGrid();
+  }
+
+  /**
+   * Read the header row and return a cursor which parses the rest of
+   * the rows one at a time.  An empty input is an empty grid.
+   */
+  public HGridCursor readCursor()
+  {
+    try
+    {
+      // read header row
+      ArrayList names = new ArrayList();
+      if (!readRecord(names))
+      {
+        close();
+        return HGridCursor.make(HGrid.EMPTY);
+      }
+
+      // map headers to unique tag names
+      HGridBuilder b = new HGridBuilder();
+      HashMap used = new HashMap();
+      Class[] colTypes = new Class[names.size()];
+      for (int i=0; i<names.size(); ++i)
+      {
+        String dis = (String)names.get(i);
+        String name = toTagName(dis);
+        for (int n=1; used.get(name) != null; ++n) name = toTagName(dis) + "_" + n;
+        used.put(name, name);
+
+        HDictBuilder meta = b.addCol(name);
+        if (!name.equals(dis)) meta.add("dis", dis);
+
+        Class type = (Class)types.get(name);
+        if (type == null) type = (Class)types.get(dis);
+        colTypes[i] = type;
+      }
+      return new CsvCursor(b.toGrid(), colTypes);
+    }
+    catch (IOException e)
+    {
+      close();
+      throw new ParseException("Cannot read CSV", e);
+    }
+  }
+
+  /** Close the underlying stream */
+  public void close()
+  {
+    try { in.close(); } catch (IOException e) {}
+  }
+
+  /**
+   * Map column header text to a tag name: runs of chars which are not
+   * ASCII letters or digits start a new camel case word, and names
+   * which would not start with a lower case letter are prefixed by "v".
+   */
+  public static String toTagName(String dis)
+  {
+    StringBuilder s = new StringBuilder(dis.length());
+    boolean upper = false;
+    for (int i=0; i<dis.length(); ++i)
+    {
+      char c = dis.charAt(i);
+      boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+      boolean digit = c >= '0' && c <= '9';
+      if (!letter && !digit) { upper = s.length() > 0; continue; }
+      if (s.length() == 0)
+      {
+        if (digit) s.append('v');
+        else c = Character.toLowerCase(c);
+      }
+      else if (upper) c = Character.toUpperCase(c);
+      s.append(c);
+      upper = false;
+    }
+    if (s.length() == 0) return "blank";
+    return s.toString();
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Values
+//////////////////////////////////////////////////////////////////////////
+
+  /** Parse cell as given type, or infer type if null */
+  private HVal parse(String s, Class type)
+  {
+    if (s.length() == 0) return null;
+    if (type == null || type == HVal.class) return infer(s);
+    if (type == HStr.class)      return HStr.make(s);
+    if (type == HNum.class)      return parseNum(s);
+    if (type == HDateTime.class) return parseDateTime(s);
+    if (type == HDate.class)     return decoder.date(s, 0, s.length());
+    if (type == HTime.class)     return parseTime(s, 0, s.length());
+    if (type == HRef.class)      return parseRef(s);
+    if (type == HUri.class)      return HUri.make(s);
+    if (type == HMarker.class)   return HMarker.VAL;
+    if (type == HBool.class)
+    {
+      if (s.equals("true")  || s.equals("T")) return HBool.TRUE;
+      if (s.equals("false") || s.equals("F")) return HBool.FALSE;
+      throw new ParseException("Invalid Bool: " + s);
+    }
+    return new HZincReader(s).readVal();
+  }
+
+  /** Infer the type of a non-empty cell */
+  private HVal infer(String s)
+  {
+    char c = s.charAt(0);
+    if (c == '@' && isRef(s)) return parseRef(s);
+    if (s.equals("\u2713")) return HMarker.VAL;
+    if (s.equals("true")) return HBool.TRUE;
+    if (s.equals("false")) return HBool.FALSE;
+    if (isDigit(c) || (c == '-' && s.length() > 1 && isDigit(s.charAt(1))) ||
+        s.equals("INF") || s.equals("-INF") || s.equals("NaN"))
+    {
+      try
+      {
+        int n = s.length();
+        if (n >= 10 && s.charAt(4) == '-' && s.charAt(7) == '-')
+          return n == 10 ? (HVal)decoder.date(s, 0, n) : parseDateTime(s);
+        if (n >= 5 && s.charAt(2) == ':')
+          return parseTime(s, 0, n);
+        return parseNum(s);
+      }
+      catch (RuntimeException e)
+      {
+        // not a literal after all
+      }
+    }
+    return HStr.make(s);
+  }
+
+  /** Parse number with optional unit such as "72.5\u00b0F" or "72.5 kW" */
+  private HNum parseNum(String s)
+  {
+    if (s.equals("INF"))  return HNum.POS_INF;
+    if (s.equals("-INF")) return HNum.NEG_INF;
+    if (s.equals("NaN"))  return HNum.NaN;
+
+    // scan number: -digits.digits[e[+-]digits]
+    int n = s.length();
+    int i = 0;
+    if (i < n && s.charAt(i) == '-') ++i;
+    int digitsStart = i;
+    while (i < n && (isDigit(s.charAt(i)) || s.charAt(i) == '.')) ++i;
+    if (i == digitsStart) throw new ParseException("Invalid Number: " + s);
+    if (i+1 < n && (s.charAt(i) == 'e' || s.charAt(i) == 'E'))
+    {
+      int j = i+1;
+      if (s.charAt(j) == '+' || s.charAt(j) == '-') ++j;
+      if (j < n && isDigit(s.charAt(j)))
+      {
+        i = j;
+        while (i < n && isDigit(s.charAt(i))) ++i;
+      }
+    }
+    double val = decoder.toDouble(s, 0, i);
+
+    // optional unit
+    int unitStart = i;
+    while (unitStart < n && s.charAt(unitStart) == ' ') ++unitStart;
+    if (unitStart == n) return HNum.make(val);
+    return HNum.make(val, decoder.unit(s, unitStart, n));
+  }
+
+  /** Parse "hh:mm" or any form accepted by HTime.make */
+  private HTime parseTime(String s, int start, int end)
+  {
+    if (end - start == 5 && s.charAt(start+2) == ':')
+      return HTime.make(Integer.parseInt(s.substring(start, start+2)), Integer.parseInt(s.substring(start+3, end)));
+    return decoder.time(s, start, end);
+  }
+
+  /** Is "@id" or "@id dis" with a valid id */
+  private static boolean isRef(String s)
+  {
+    int sp = s.indexOf(' ');
+    return HRef.isId(sp < 0 ? s.substring(1) : s.substring(1, sp));
+  }
+
+  /** Parse ref with optional display name as written by HCsvWriter */
+  private static HRef parseRef(String s)
+  {
+    int start = s.startsWith("@") ? 1 : 0;
+    int sp = s.indexOf(' ');
+    if (sp < 0) return HRef.make(s.substring(start));
+    return HRef.make(s.substring(start, sp), s.substring(sp+1));
+  }
+
+  /**
+   * Parse timestamp:
+   *   YYYY-MM-DDThh:mm:ss[.FFF](Z|+hh:mm|-hh:mm) Tz_Name
+   *   YYYY-MM-DD(T| )hh:mm[:ss[.FFF]] in tz
+   *   YYYY-MM-DD(T| )hh:mm[:ss[.FFF]](Z|+hh:mm|-hh:mm) converted to tz
+   */
+  private HDateTime parseDateTime(String s)
+  {
+    int n = s.length();
+    if (n < 16 || s.charAt(4) != '-' || s.charAt(7) != '-' || (s.charAt(10) != 'T' && s.charAt(10) != ' '))
+      throw new ParseException("Invalid DateTime: " + s);
+
+    // timestamps with a timezone name are standard Haystack form
+    if (s.indexOf(' ', 11) > 0) return decoder.dateTime(s, 0, n);
+
+    // find end of local time
+    int timeEnd = 11;
+    while (timeEnd < n)
+    {
+      char c = s.charAt(timeEnd);
+      if (!isDigit(c) && c != ':' && c != '.') break;
+      ++timeEnd;
+    }
+    HDate date = decoder.date(s, 0, 10);
+    HTime time = parseTime(s, 11, timeEnd);
+    if (timeEnd == n) return HDateTime.make(date, time, tz);
+
+    // offset from UTC
+    int offset;
+    if (timeEnd == n-1 && s.charAt(timeEnd) == 'Z')
+    {
+      offset = 0;
+    }
+    else
+    {
+      char sign = s.charAt(timeEnd);
+      String off = s.substring(timeEnd+1);
+      if (off.length() == 4) off = off.substring(0, 2) + ":" + off.substring(2);
+      if ((sign != '+' && sign != '-') || off.length() != 5 || off.charAt(2) != ':')
+        throw new ParseException("Invalid DateTime offset: " + s);
+      offset = (Integer.parseInt(off.substring(0, 2)) * 3600 + Integer.parseInt(off.substring(3)) * 60);
+      if (sign == '-') offset = -offset;
+    }
+    long millis = HDateTime.make(date, time, HTimeZone.UTC).millis() - offset * 1000L;
+    return HDateTime.make(millis, tz);
+  }
+
+  private static boolean isDigit(char c) { return c >= '0' && c <= '9'; }
+
+//////////////////////////////////////////////////////////////////////////
+// CSV
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Read the cells of the next non-blank record into the list and
+   * return true, or return false at end of input.
+   */
+  private boolean readRecord(ArrayList cells) throws IOException
+  {
+    cells.clear();
+    int c = read();
+    if (c == 0xfeff && !started) c = read();
+    started = true;
+    while (c == '\n' || c == '\r')
+    {
+      if (c == '\n') ++line;
+      c = read();
+    }
+    if (c < 0) return false;
+    recordLine = line;
+
+    StringBuilder s = this.cell;
+    while (true)
+    {
+      s.setLength(0);
+      while ((c == ' ' || c == '\t') && c != delimiter) c = read();
+      if (c == '"')
+      {
+        // quoted cell with "" as escaped quote
+        while (true)
+        {
+          c = read();
+          if (c < 0) throw new ParseException("Unterminated quoted cell [Line " + line + "]");
+          if (c == '"')
+          {
+            c = read();
+            if (c != '"') break;
+          }
+          if (c == '\n') ++line;
+          s.append((char)c);
+        }
+        while ((c == ' ' || c == '\t') && c != delimiter) c = read();
+        if (c >= 0 && c != delimiter && c != '\n' && c != '\r')
+          throw new ParseException("Expected delimiter after quoted cell [Line " + line + "]");
+        cells.add(s.toString());
+      }
+      else
+      {
+        while (c >= 0 && c != delimiter && c != '\n' && c != '\r')
+        {
+          s.append((char)c);
+          c = read();
+        }
+        int end = s.length();
+        while (end > 0 && HCsvWriter.isWhiteSpace(s.charAt(end-1))) --end;
+        s.setLength(end);
+        cells.add(s.toString());
+      }
+
+      if (c == delimiter) { c = read(); continue; }
+
+      // end of record
+      if (c == '\r')
+      {
+        c = read();
+        if (c != '\n' && c >= 0) --pos;
+      }
+      if (c == '\n') ++line;
+      return true;
+    }
+  }
+
+  private int read() throws IOException
+  {
+    if (pos >= len)
+    {
+      len = in.read(buf, 0, buf.length);
+      pos = 0;
+      if (len <= 0) { len = 0; return -1; }
+    }
+    return buf[pos++];
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// CsvCursor
+//////////////////////////////////////////////////////////////////////////
+
+  final class CsvCursor extends HGridCursor
+  {
+    CsvCursor(HGrid header, Class[] types)
+    {
+      this.header = header;
+      this.types = types;
+    }
+
+    public HGrid header() { return header; }
+
+    public HRow next()
+    {
+      if (done) return null;
+      try
+      {
+        if (readRecord(cells))
+        {
+          int numCols = types.length;
+          if (cells.size() > numCols)
+          {
+            for (int i=numCols; i<cells.size(); ++i)
+              if (((String)cells.get(i)).length() > 0)
+                throw new ParseException("Row has " + cells.size() + " cells, expected " + numCols + " [Line " + recordLine + "]");
+          }
+          HVal[] vals = new HVal[numCols];
+          for (int i=0; i<numCols && i<cells.size(); ++i)
+          {
+            String s = (String)cells.get(i);
+            try
+            {
+              vals[i] = parse(s, types[i]);
+            }
+            catch (RuntimeException e)
+            {
+              throw new ParseException("Invalid cell '" + s + "' for column " + header.col(i).name() + " [Line " + recordLine + "]", e);
+            }
+          }
+          return HRow.make(header, vals);
+        }
+      }
+      catch (IOException e)
+      {
+        close();
+        throw new ParseException("Cannot read CSV", e);
+      }
+      catch (RuntimeException e)
+      {
+        close();
+        throw e;
+      }
+      close();
+      return null;
+    }
+
+    public void close()
+    {
+      if (done) return;
+      done = true;
+      HCsvReader.this.close();
+    }
+
+    private final HGrid header;
+    private final Class[] types;
+    private final ArrayList cells = new ArrayList();
+    private boolean done;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Fields
+//////////////////////////////////////////////////////////////////////////
+
+  private final Reader in;
+  private final char[] buf = new char[8192];
+  private int pos;
+  private int len;
+  private int line = 1;
+  private int recordLine;
+  private boolean started;
+  private final StringBuilder cell = new StringBuilder();
+  private final HashMap types = new HashMap();
+  private final LiteralDecoder decoder = new LiteralDecoder();
+}
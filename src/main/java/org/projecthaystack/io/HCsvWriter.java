@@ -10,6 +10,7 @@ package org.projecthaystack.io;
 import java.io.*;
 import java.util.*;
 import org.projecthaystack.*;
+import org.projecthaystack.util.DoubleFormat;
 
 /**
  * HCsvWriter is used to write grids in comma separated values
@@ -50,30 +51,73 @@ public class HCsvWriter extends HGridWriter
   /** Write a grid */
   public void writeGrid(HGrid grid)
   {
-    // cols
+    writeHeader(grid);
+    for (int i=0; i<grid.numRows(); ++i)
+    {
+      writeRow(grid, grid.row(i));
+      out.write('\n');
+    }
+  }
+
+  /** Begin a grid with the columns of given header */
+  public void writeGridHeader(HGrid header)
+  {
+    if (this.header != null) throw new IllegalStateException("Grid already started");
+    writeHeader(header);
+    this.header = header;
+  }
+
+  /** Write a row of the grid started by writeGridHeader */
+  public void writeRow(HDict row)
+  {
+    if (header == null) throw new IllegalStateException("Grid not started");
+    writeRow(header, row);
+    out.write('\n');
+  }
+
+  /** End the grid started by writeGridHeader */
+  public void writeGridEnd()
+  {
+    if (header == null) throw new IllegalStateException("Grid not started");
+    header = null;
+  }
+
+  private void writeHeader(HGrid grid)
+  {
     for (int i=0; i<grid.numCols(); ++i)
     {
       if (i > 0) out.write((char)delimiter);
       writeCell(grid.col(i).dis());
     }
     out.write('\n');
+  }
 
-    // rows
-    for (int i=0; i<grid.numRows(); ++i)
+  private void writeRow(HGrid grid, HDict row)
+  {
+    for (int i=0; i<grid.numCols(); ++i)
     {
-      writeRow(grid, grid.row(i));
-      out.write('\n');
+      HVal val = cell(grid, row, i);
+      if (i > 0) out.write((char)delimiter);
+      if (val instanceof HNum) writeNum((HNum)val);
+      else writeCell(valToString(val));
     }
   }
 
-  private void writeRow(HGrid grid, HRow row)
+  /** Write number cell without making a String */
+  private void writeNum(HNum num)
   {
-    for (int i=0; i<grid.numCols(); ++i)
+    StringBuilder s = scratch;
+    s.setLength(0);
+    DoubleFormat.append(s, num.val, num.unit, false);
+    if (isQuoteRequired(s))
     {
-      HVal val = row.get(grid.col(i), false);
-      if (i > 0) out.write((char)delimiter);
-      writeCell(valToString(val));
+      writeCell(s.toString());
+      return;
     }
+    int n = s.length();
+    if (chars.length < n) chars = new char[n];
+    s.getChars(0, n, chars, 0);
+    out.write(chars, 0, n);
   }
 
   private String valToString(HVal val)
@@ -139,6 +183,11 @@ public class HCsvWriter extends HGridWriter
    * </ul>
    */
   public boolean isQuoteRequired(String cell)
+  {
+    return isQuoteRequired((CharSequence)cell);
+  }
+
+  private boolean isQuoteRequired(CharSequence cell)
   {
     if (cell.length() == 0) return true;
     if (isWhiteSpace(cell.charAt(0))) return true;
@@ -165,5 +214,8 @@ public class HCsvWriter extends HGridWriter
   public char delimiter = ',';
 
   private PrintWriter out;
+  private HGrid header;     // grid started by writeGridHeader
+  private final StringBuilder scratch = new StringBuilder(32);
+  private char[] chars = new char[32];
 
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import org.projecthaystack.*;
+
+/**
+ * HGridCursor reads the rows of a grid one at a time.  The grid meta
+ * and columns are available up front via {@link #header}; rows are
+ * decoded on each call to {@link #next} so that very large grids can
+ * be processed as they arrive without holding every row in memory.
+ *
+ * @see HGridReader#readCursor()
+ */
+public abstract class HGridCursor
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Construction
+//////////////////////////////////////////////////////////////////////////
+
+  /** Make a cursor which iterates the rows of an in-memory grid */
+  public static HGridCursor make(HGrid grid)
+  {
+    return new GridImpl(grid);
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Access
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Return a grid with the meta and columns of the grid being read.
+   * Streaming cursors return a grid with no rows.  Rows returned by
+   * {@link #next} are bound to this grid's columns.
+   */
+  public abstract HGrid header();
+
+  /** Convenience for {@code header().meta()} */
+  public HDict meta() { return header().meta(); }
+
+  /** Convenience for {@code header().numCols()} */
+  public int numCols() { return header().numCols(); }
+
+  /** Convenience for {@code header().col(index)} */
+  public HCol col(int index) { return header().col(index); }
+
+  /** Convenience for {@code header().col(name, checked)} */
+  public HCol col(String name, boolean checked) { return header().col(name, checked); }
+
+  /**
+   * Read the next row or return null if there are no more rows.
+   * The underlying stream is closed once the last row is read.
+   */
+  public abstract HRow next();
+
+  /**
+   * Read all the remaining rows into an immutable in-memory grid
+   * and close the cursor.
+   */
+  public HGrid toGrid()
+  {
+    try
+    {
+      HGrid header = header();
+      HGridBuilder b = new HGridBuilder();
+      b.meta().add(header.meta());
+      for (int i=0; i<header.numCols(); ++i)
+      {
+        HCol col = header.col(i);
+        b.addCol(col.name()).add(col.meta());
+      }
+
+      HVal[] cells = new HVal[header.numCols()];
+      for (HRow row = next(); row != null; row = next())
+      {
+        for (int i=0; i<cells.length; ++i)
+          cells[i] = row.get(header.col(i), false);
+        b.addRow(cells);
+      }
+      return b.toGrid();
+    }
+    finally
+    {
+      close();
+    }
+  }
+
+  /** Close the underlying stream */
+  public void close() {}
+
+//////////////////////////////////////////////////////////////////////////
+// GridImpl
+//////////////////////////////////////////////////////////////////////////
+
+  static final class GridImpl extends HGridCursor
+  {
+    GridImpl(HGrid grid) { this.grid = grid; }
+
+    public HGrid header() { return grid; }
+
+    public HRow next()
+    {
+      if (pos >= grid.numRows()) return null;
+      return grid.row(pos++);
+    }
+
+    public HGrid toGrid()
+    {
+      if (pos == 0) return grid;
+      return super.toGrid();
+    }
+
+    private final HGrid grid;
+    private int pos;
+  }
+
+}
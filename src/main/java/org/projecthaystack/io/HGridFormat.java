@@ -9,12 +9,25 @@ package org.projecthaystack.io;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * HGridFormat models a format used to encode/decode HGrid.
  *
+ * Formats are registered in an immutable table which is copied on
+ * each registration, so lookups never lock.  The built-in formats
+ * override makeReader and makeWriter to construct their codecs
+ * directly.  Formats registered with just the reader and writer
+ * classes are constructed through a constructor looked up once.
+ * Additional formats are discovered with ServiceLoader from
+ * "META-INF/services/org.projecthaystack.io.HGridFormat"; such
+ * subclasses need a public no argument constructor.
+ *
  * @see <a href='http://project-haystack.org/doc/Rest#contentNegotiation'>Project Haystack</a>
  */
 public class HGridFormat
@@ -32,11 +45,7 @@ public class HGridFormat
     if (semicolon > 0) mime = mime.substring(0, semicolon).trim();
 
     // lookup format
-    HGridFormat format = null;
-    synchronized (registry)
-    {
-      format = (HGridFormat)registry.get(mime);
-    }
+    HGridFormat format = (HGridFormat)registry.byMime.get(mime);
     if (format != null) return format;
 
     // handle missing
@@ -44,28 +53,44 @@ public class HGridFormat
     return null;
   }
 
+  /**
+   * Find the best format with a writer for an HTTP Accept header.
+   * Media ranges are ranked by their "q" value, then exact mime types
+   * before wildcards, then order in the header; ranges with q=0 are
+   * never chosen.  Wildcards match the "text/plain" format, which is
+   * also returned when accept is null or nothing matches.  Results
+   * are cached by header value.
+   */
+  public static HGridFormat negotiate(String accept)
+  {
+    Registry r = registry;
+    if (accept == null) return r.fallback;
+    HGridFormat format = (HGridFormat)r.acceptCache.get(accept);
+    if (format != null) return format;
+
+    format = r.negotiate(accept);
+    if (format == null) return null;
+    if (r.acceptCache.size() >= maxAcceptCache) r.acceptCache.clear();
+    r.acceptCache.put(accept, format);
+    return format;
+  }
+
   /**
    * List all registered formats
    */
   public static HGridFormat[] list()
   {
-    synchronized (registry)
-    {
-      HGridFormat[] acc = new HGridFormat[registry.size()];
-      Iterator it = registry.values().iterator();
-      for (int i=0; it.hasNext(); ++i) acc[i] = (HGridFormat)it.next();
-      return acc;
-    }
+    return (HGridFormat[])registry.list.clone();
   }
 
   /**
-   * Register a new HGridFormat
+   * Register a new HGridFormat, replacing any format with the same mime type
    */
   public static void register(HGridFormat format)
   {
-    synchronized (registry)
+    synchronized (lock)
     {
-      registry.put(format.mime, format);
+      registry = new Registry(registry, format);
     }
   }
 
@@ -99,15 +124,16 @@ public class HGridFormat
 
   /**
    * Make instance of "reader"; constructor with InputStream is expected.
+   * Subclasses override this to construct the reader directly.
    */
   public HGridReader makeReader(InputStream in)
   {
     if (reader == null) throw new RuntimeException("Format doesn't support reader: " + mime);
+    Constructor ctor = readerCtor;
     try
     {
-      return (HGridReader)reader
-        .getConstructor(new Class[] { InputStream.class })
-        .newInstance(new Object[] { in });
+      if (ctor == null) readerCtor = ctor = reader.getConstructor(new Class[] { InputStream.class });
+      return (HGridReader)ctor.newInstance(new Object[] { in });
     }
     catch (Throwable e)
     {
@@ -117,15 +143,16 @@ public class HGridFormat
 
   /**
    * Make instance of "writer"; constructor with OutputStream is expected.
+   * Subclasses override this to construct the writer directly.
    */
   public HGridWriter makeWriter(OutputStream out)
   {
     if (writer == null) throw new RuntimeException("Format doesn't support writer: " + mime);
+    Constructor ctor = writerCtor;
     try
     {
-      return (HGridWriter)writer
-        .getConstructor(new Class[] { OutputStream.class })
-        .newInstance(new Object[] { out });
+      if (ctor == null) writerCtor = ctor = writer.getConstructor(new Class[] { OutputStream.class });
+      return (HGridWriter)ctor.newInstance(new Object[] { out });
     }
     catch (Throwable e)
     {
@@ -133,17 +160,158 @@ public class HGridFormat
     }
   }
 
-  private static HashMap registry = new HashMap();
+  private volatile Constructor readerCtor;
+  private volatile Constructor writerCtor;
+
+//////////////////////////////////////////////////////////////////////////
+// Registry
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Registry is an immutable snapshot of the registered formats
+   * along with its own cache of Accept header results.
+   */
+  private static final class Registry
+  {
+    Registry()
+    {
+      this.byMime = new HashMap();
+      this.list = new HGridFormat[0];
+      this.fallback = null;
+    }
+
+    Registry(Registry base, HGridFormat format)
+    {
+      HashMap map = new HashMap(base.byMime);
+      ArrayList acc = new ArrayList();
+      for (int i=0; i<base.list.length; ++i)
+        if (!base.list[i].mime.equals(format.mime)) acc.add(base.list[i]);
+      acc.add(format);
+      map.put(format.mime, format);
+      this.byMime = map;
+      this.list = (HGridFormat[])acc.toArray(new HGridFormat[acc.size()]);
+      this.fallback = (HGridFormat)map.get("text/plain");
+    }
+
+    /** Parse the media ranges of an Accept header and pick best format */
+    HGridFormat negotiate(String accept)
+    {
+      HGridFormat best = null;
+      double bestQ = 0;
+      boolean bestExact = false;
+      int start = 0;
+      while (start < accept.length())
+      {
+        int comma = accept.indexOf(',', start);
+        if (comma < 0) comma = accept.length();
+        String range = accept.substring(start, comma);
+        start = comma + 1;
+
+        // split mime from parameters
+        double q = 1;
+        int semi = range.indexOf(';');
+        String mime = (semi < 0 ? range : range.substring(0, semi)).trim();
+        if (semi >= 0) q = parseQ(range.substring(semi+1));
+        if (q <= 0 || mime.length() == 0) continue;
+
+        // match exact format with writer or wildcard
+        HGridFormat format;
+        boolean exact = mime.indexOf('*') < 0;
+        if (exact)
+        {
+          format = (HGridFormat)byMime.get(mime);
+          if (format == null || format.writer == null) continue;
+        }
+        else
+        {
+          format = fallback;
+          if (format == null) continue;
+          if (!matches(mime, format.mime)) continue;
+        }
+
+        // keep first of highest q, preferring exact mime types
+        if (best == null || q > bestQ || (q == bestQ && exact && !bestExact))
+        {
+          best = format;
+          bestQ = q;
+          bestExact = exact;
+        }
+      }
+      return best != null ? best : fallback;
+    }
+
+    /** Does a wildcard range such as "text/*" match the mime type */
+    private static boolean matches(String range, String mime)
+    {
+      if (range.equals("*/*") || range.equals("*")) return true;
+      if (!range.endsWith("/*")) return false;
+      return mime.startsWith(range.substring(0, range.length()-1));
+    }
+
+    private static double parseQ(String params)
+    {
+      int start = 0;
+      while (start < params.length())
+      {
+        int semi = params.indexOf(';', start);
+        if (semi < 0) semi = params.length();
+        String p = params.substring(start, semi).trim();
+        start = semi + 1;
+        if (!p.startsWith("q=") && !p.startsWith("Q=")) continue;
+        try { return Double.parseDouble(p.substring(2).trim()); }
+        catch (NumberFormatException e) { return 1; }
+      }
+      return 1;
+    }
+
+    final HashMap byMime;
+    final HGridFormat[] list;
+    final HGridFormat fallback;
+    final ConcurrentHashMap acceptCache = new ConcurrentHashMap();
+  }
+
+  private static final int maxAcceptCache = 256;
+  private static final Object lock = new Object();
+  private static volatile Registry registry = new Registry();
   static
   {
     try
     {
-      register(new HGridFormat("text/plain",       HZincReader.class, HZincWriter.class));
-      register(new HGridFormat("text/zinc",        HZincReader.class, HZincWriter.class));
-      register(new HGridFormat("text/csv",         null,              HCsvWriter.class));
-      register(new HGridFormat("application/json", null,              HJsonWriter.class));
+      register(new HGridFormat("text/plain", HZincReader.class, HZincWriter.class)
+      {
+        public HGridReader makeReader(InputStream in) { return new HZincReader(in); }
+        public HGridWriter makeWriter(OutputStream out) { return new HZincWriter(out); }
+      });
+      register(new HGridFormat("text/zinc", HZincReader.class, HZincWriter.class)
+      {
+        public HGridReader makeReader(InputStream in) { return new HZincReader(in); }
+        public HGridWriter makeWriter(OutputStream out) { return new HZincWriter(out); }
+      });
+      register(new HGridFormat("text/csv", HCsvReader.class, HCsvWriter.class)
+      {
+        public HGridReader makeReader(InputStream in) { return new HCsvReader(in); }
+        public HGridWriter makeWriter(OutputStream out) { return new HCsvWriter(out); }
+      });
+      register(new HGridFormat("application/json", HJsonReader.class, HJsonWriter.class)
+      {
+        public HGridReader makeReader(InputStream in) { return new HJsonReader(in); }
+        public HGridWriter makeWriter(OutputStream out) { return new HJsonWriter(out); }
+      });
+      register(new HGridFormat(HBinaryWriter.MIME, HBinaryReader.class, HBinaryWriter.class)
+      {
+        public HGridReader makeReader(InputStream in) { return new HBinaryReader(in); }
+        public HGridWriter makeWriter(OutputStream out) { return new HBinaryWriter(out); }
+      });
+    }
+    catch (Throwable e) { e.printStackTrace(); }
+
+    // plug-in formats
+    try
+    {
+      Iterator it = ServiceLoader.load(HGridFormat.class).iterator();
+      while (it.hasNext()) register((HGridFormat)it.next());
     }
     catch (Throwable e) { e.printStackTrace(); }
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import org.projecthaystack.*;
+
+/**
+ * HGridListener receives the grids decoded by a push mode parser
+ * as they complete.  For each grid the header is reported first,
+ * then each row in order, then the end of the grid.  The default
+ * implementations do nothing.
+ *
+ * @see HZincPushParser
+ */
+public abstract class HGridListener
+{
+  /**
+   * Called when the meta and columns of a grid have been decoded.
+   * The header has no rows; rows passed to {@link #onRow} are bound
+   * to its columns.
+   */
+  public void onHeader(HGrid header) {}
+
+  /** Called with each row of the current grid */
+  public void onRow(HRow row) {}
+
+  /** Called after the last row of the current grid */
+  public void onGridEnd(HGrid header) {}
+}
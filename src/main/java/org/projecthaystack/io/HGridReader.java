@@ -20,4 +20,28 @@ public abstract class HGridReader
   /** Read a grid */
   public abstract HGrid readGrid();
 
+  /**
+   * Read a grid one row at a time.  The default implementation reads
+   * the whole grid into memory; readers which can decode incrementally
+   * override this to stream the rows.
+   */
+  public HGridCursor readCursor()
+  {
+    return HGridCursor.make(readGrid());
+  }
+
+  /**
+   * Read all the grids until the end of the input.  The default
+   * implementation is for formats which hold a single grid.
+   */
+  public HGrid[] readGrids()
+  {
+    return new HGrid[] { readGrid() };
+  }
+
+  /** Close the underlying input.  The default does nothing. */
+  public void close()
+  {
+  }
+
 }
\ No newline at end of file
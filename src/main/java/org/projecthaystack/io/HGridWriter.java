@@ -12,6 +12,10 @@ import org.projecthaystack.*;
 /**
  * HGridWriter is base class for writing grids to an output stream.
  *
+ * A grid may be written all at once with writeGrid, or incrementally
+ * with writeGridHeader, then writeRow for each row, then writeGridEnd.
+ * Both produce the same output.
+ *
  * @see <a href='http://project-haystack.org/doc/Rest#contentNegotiation'>Project Haystack</a>
  */
 public abstract class HGridWriter
@@ -26,4 +30,68 @@ public abstract class HGridWriter
   /** Close output stream */
   public abstract void close();
 
-}
\ No newline at end of file
+//////////////////////////////////////////////////////////////////////////
+// Streaming
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Begin a grid with the meta and columns of the given header; any
+   * rows of the header are ignored.  The default implementation
+   * collects the rows and writes the whole grid from writeGridEnd,
+   * so subclasses override all three methods to actually stream.
+   */
+  public void writeGridHeader(HGrid header)
+  {
+    if (pending != null) throw new IllegalStateException("Grid already started");
+    HGridBuilder b = new HGridBuilder();
+    b.meta().add(header.meta());
+    for (int i=0; i<header.numCols(); ++i)
+    {
+      HCol col = header.col(i);
+      b.addCol(col.name()).add(col.meta());
+    }
+    this.pending = b;
+    this.pendingHeader = header;
+  }
+
+  /**
+   * Write a row of the grid started by writeGridHeader.  The cells
+   * are looked up by column name, so the row may be any dict; tags
+   * which are not columns of the header are ignored.
+   */
+  public void writeRow(HDict row)
+  {
+    if (pending == null) throw new IllegalStateException("Grid not started");
+    HGrid header = pendingHeader;
+    HVal[] cells = new HVal[header.numCols()];
+    for (int i=0; i<cells.length; ++i) cells[i] = cell(header, row, i);
+    pending.addRow(cells);
+  }
+
+  /** End the grid started by writeGridHeader */
+  public void writeGridEnd()
+  {
+    if (pending == null) throw new IllegalStateException("Grid not started");
+    HGrid grid = pending.toGrid();
+    this.pending = null;
+    this.pendingHeader = null;
+    writeGrid(grid);
+  }
+
+  /**
+   * Get the cell of given row for the header's column at index i.
+   * Rows of the header grid itself are read by index.
+   */
+  protected static HVal cell(HGrid header, HDict row, int i)
+  {
+    if (row == null) return null;
+    HCol col = header.col(i);
+    if (row instanceof HRow && ((HRow)row).grid() == header)
+      return ((HRow)row).get(col, false);
+    return row.get(col.name(), false);
+  }
+
+  private HGridBuilder pending;
+  private HGrid pendingHeader;
+
+}
@@ -0,0 +1,191 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import org.projecthaystack.*;
+
+/**
+ * HInternTable maps repeated tag names, units, strings, and ref ids
+ * decoded by a reader to shared instances.  Lookups are made directly
+ * against the characters being decoded so a hit allocates nothing.
+ * A table may be used by one reader or shared by many readers across
+ * threads: lookups are lock free and only inserts are synchronized.
+ * Values longer than {@link #maxLen} chars are never interned, and
+ * once the table holds {@link #maxSize} entries new values are simply
+ * not added.
+ *
+ * @see HZincReader#HZincReader(java.io.InputStream, HInternTable)
+ */
+public final class HInternTable
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Construction
+//////////////////////////////////////////////////////////////////////////
+
+  /** Construct with defaults of maxSize 65536 and maxLen 64 */
+  public HInternTable() { this(65536, 64); }
+
+  /** Construct with max number of entries and max length of strings */
+  public HInternTable(int maxSize, int maxLen)
+  {
+    if (maxSize < 1 || maxLen < 1) throw new IllegalArgumentException("Invalid size");
+    this.maxSize = maxSize;
+    this.maxLen = maxLen;
+    this.table = new Entry[64];
+  }
+
+  /** Max number of entries in the table */
+  public final int maxSize;
+
+  /** Max number of chars of a value which will be interned */
+  public final int maxLen;
+
+  /** Number of values interned */
+  public int size() { return size; }
+
+//////////////////////////////////////////////////////////////////////////
+// Lookup
+//////////////////////////////////////////////////////////////////////////
+
+  /** Intern a String such as a tag name or unit */
+  public String str(String s) { return str(s, 0, s.length()); }
+
+  /** Intern a Str value */
+  public HStr hstr(String s) { return hstr(s, 0, s.length()); }
+
+  /** Intern a Ref value with null dis */
+  public HRef ref(String s) { return ref(s, 0, s.length()); }
+
+  /** Intern chars [start, end) as String */
+  String str(CharSequence s, int start, int end)
+  {
+    return (String)lookup(STR, s, start, end);
+  }
+
+  /** Intern chars [start, end) as HStr */
+  HStr hstr(CharSequence s, int start, int end)
+  {
+    return (HStr)lookup(HSTR, s, start, end);
+  }
+
+  /** Intern chars [start, end) as HRef with null dis */
+  HRef ref(CharSequence s, int start, int end)
+  {
+    return (HRef)lookup(HREF, s, start, end);
+  }
+
+  private Object lookup(int kind, CharSequence s, int start, int end)
+  {
+    if (end - start > maxLen) return make(kind, s.subSequence(start, end).toString());
+
+    int hash = kind;
+    for (int i=start; i<end; ++i) hash = 31*hash + s.charAt(i);
+
+    // lock free probe; entries are immutable so a racing reader
+    // sees either null or a fully constructed entry
+    Entry[] t = table;
+    for (int i = hash & (t.length-1); ; i = (i+1) & (t.length-1))
+    {
+      Entry e = t[i];
+      if (e == null) break;
+      if (e.hash == hash && e.kind == kind && e.matches(s, start, end)) return e.val;
+    }
+
+    return insert(kind, hash, s.subSequence(start, end).toString());
+  }
+
+  private synchronized Object insert(int kind, int hash, String key)
+  {
+    // probe again now that we own the lock
+    Entry[] t = table;
+    int i = hash & (t.length-1);
+    for (; t[i] != null; i = (i+1) & (t.length-1))
+    {
+      Entry e = t[i];
+      if (e.hash == hash && e.kind == kind && e.key.equals(key)) return e.val;
+    }
+
+    Object val = make(kind, key);
+    if (size >= maxSize) return val;
+
+    // keep load factor under 1/2; publish resized table when complete
+    if ((size+1) * 2 > t.length)
+    {
+      Entry[] n = new Entry[t.length * 2];
+      for (int j=0; j<t.length; ++j)
+      {
+        Entry e = t[j];
+        if (e == null) continue;
+        int k = e.hash & (n.length-1);
+        while (n[k] != null) k = (k+1) & (n.length-1);
+        n[k] = e;
+      }
+      t = n;
+      i = hash & (t.length-1);
+      while (t[i] != null) i = (i+1) & (t.length-1);
+      t[i] = new Entry(kind, hash, key, val);
+      table = t;
+    }
+    else
+    {
+      t[i] = new Entry(kind, hash, key, val);
+    }
+    ++size;
+    return val;
+  }
+
+  private static Object make(int kind, String key)
+  {
+    switch (kind)
+    {
+      case HSTR: return HStr.make(key);
+      case HREF: return HRef.make(key);
+      default:   return key;
+    }
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Entry
+//////////////////////////////////////////////////////////////////////////
+
+  static final class Entry
+  {
+    Entry(int kind, int hash, String key, Object val)
+    {
+      this.kind = kind;
+      this.hash = hash;
+      this.key  = key;
+      this.val  = val;
+    }
+
+    boolean matches(CharSequence s, int start, int end)
+    {
+      if (key.length() != end - start) return false;
+      for (int i=0; i<key.length(); ++i)
+        if (key.charAt(i) != s.charAt(start+i)) return false;
+      return true;
+    }
+
+    final int kind;
+    final int hash;
+    final String key;
+    final Object val;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Fields
+//////////////////////////////////////////////////////////////////////////
+
+  private static final int STR  = 1;
+  private static final int HSTR = 2;
+  private static final int HREF = 3;
+
+  private volatile Entry[] table;
+  private int size;
+}
@@ -0,0 +1,648 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.io.*;
+import java.util.*;
+import org.projecthaystack.*;
+
+/**
+ * HJsonReader reads grids using the Haystack JSON encoding.  The
+ * document is decoded in a single pass directly into Haystack values;
+ * no intermediate JSON object model is built.  Rows of the top level
+ * grid may be streamed with {@link #readCursor} when the "meta" and
+ * "cols" members precede "rows" as written by {@link HJsonWriter}.
+ *
+ * @see <a href='http://project-haystack.org/doc/Json'>Project Haystack</a>
+ */
+public class HJsonReader extends HGridReader
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Construction
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read from UTF-8 input stream. */
+  public HJsonReader(InputStream in)
+  {
+    try
+    {
+      this.in = new InputStreamReader(in, "UTF-8");
+      this.buf = new char[bufSize];
+      consume();
+    }
+    catch (IOException e)
+    {
+      throw err("init failed", e);
+    }
+  }
+
+  /** Read from in-memory string. */
+  public HJsonReader(String in)
+  {
+    this.in = null;
+    this.buf = in.toCharArray();
+    this.len = buf.length;
+    consume();
+  }
+
+  /** Close underlying input stream */
+  public void close()
+  {
+    if (in == null) return;
+    try { in.close(); } catch (IOException e) {}
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Public
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read a grid */
+  public HGrid readGrid()
+  {
+    return readCursor().toGrid();
+  }
+
+  /**
+   * Read a grid one row at a time.  The grid meta and columns are
+   * decoded immediately and each call to {@link HGridCursor#next}
+   * decodes one more row.  If the "rows" member appears before "meta"
+   * or "cols" then the whole grid must be read into memory first.
+   */
+  public HGridCursor readCursor()
+  {
+    try
+    {
+      skipSpace();
+      consume('{');
+      skipSpace();
+
+      HDict meta = null;
+      ArrayList cols = null;
+      ArrayList rows = null;
+      if (cur != '}') while (true)
+      {
+        String name = parseKey();
+        if (name.equals("meta"))
+        {
+          meta = parseDict();
+        }
+        else if (name.equals("cols"))
+        {
+          cols = parseDicts();
+        }
+        else if (name.equals("rows"))
+        {
+          // common case: header is known so stream the rows
+          if (meta != null && cols != null && rows == null)
+          {
+            HGrid header = toHeader(meta, cols);
+            consume('[');
+            skipSpace();
+            return new JsonCursor(header);
+          }
+          rows = parseDicts();
+        }
+        else
+        {
+          parseVal();
+        }
+        if (!nextMember()) break;
+      }
+      consume('}');
+      verifyEof();
+      close();
+
+      if (cols == null) throw err("Grid missing 'cols'");
+      return HGridCursor.make(toGrid(meta, cols, rows));
+    }
+    catch (RuntimeException e)
+    {
+      close();
+      throw e;
+    }
+  }
+
+  /** Read a single Haystack value from the stream */
+  public HVal readVal()
+  {
+    try
+    {
+      skipSpace();
+      HVal val = parseVal();
+      verifyEof();
+      return val;
+    }
+    finally
+    {
+      close();
+    }
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Grids
+//////////////////////////////////////////////////////////////////////////
+
+  /** Build a grid with no rows from the meta and list of col dicts */
+  private HGrid toHeader(HDict meta, ArrayList cols)
+  {
+    HGridBuilder gb = new HGridBuilder();
+    addHeader(gb, meta, cols);
+    return gb.toGrid();
+  }
+
+  /** Build a grid from meta, list of col dicts, and list of row dicts */
+  private HGrid toGrid(HDict meta, ArrayList cols, ArrayList rows)
+  {
+    HGridBuilder gb = new HGridBuilder();
+    String[] names = addHeader(gb, meta, cols);
+    if (rows != null)
+    {
+      HashMap colIndex = new HashMap(names.length * 2);
+      for (int c=0; c<names.length; ++c) colIndex.put(names[c], Integer.valueOf(c));
+      for (int i=0; i<rows.size(); ++i)
+      {
+        HDict row = (HDict)rows.get(i);
+        HVal[] cells = new HVal[names.length];
+        for (Iterator it = row.iterator(); it.hasNext(); )
+        {
+          Map.Entry e = (Map.Entry)it.next();
+          Integer index = (Integer)colIndex.get(e.getKey());
+          if (index == null) throw err("Row tag not in cols: " + e.getKey());
+          cells[index.intValue()] = (HVal)e.getValue();
+        }
+        gb.addRow(cells);
+      }
+    }
+    return gb.toGrid();
+  }
+
+  private String[] addHeader(HGridBuilder gb, HDict meta, ArrayList cols)
+  {
+    if (meta != null)
+    {
+      for (Iterator it = meta.iterator(); it.hasNext(); )
+      {
+        Map.Entry e = (Map.Entry)it.next();
+        String name = (String)e.getKey();
+        if (!name.equals("ver")) gb.meta().add(name, (HVal)e.getValue());
+      }
+    }
+
+    if (cols.size() == 0) throw err("No columns defined");
+    String[] names = new String[cols.size()];
+    for (int i=0; i<names.length; ++i)
+    {
+      HDict col = (HDict)cols.get(i);
+      HVal name = col.get("name", false);
+      if (!(name instanceof HStr)) throw err("Column missing 'name'");
+      names[i] = ((HStr)name).val;
+      HDictBuilder colMeta = gb.addCol(names[i]);
+      for (Iterator it = col.iterator(); it.hasNext(); )
+      {
+        Map.Entry e = (Map.Entry)it.next();
+        String n = (String)e.getKey();
+        if (!n.equals("name")) colMeta.add(n, (HVal)e.getValue());
+      }
+    }
+    return names;
+  }
+
+  /** Decode a JSON object which is the encoding of a nested grid */
+  private static boolean isGrid(HDict dict)
+  {
+    return dict.get("meta", false) instanceof HDict &&
+           dict.get("cols", false) instanceof HList &&
+           dict.get("rows", false) instanceof HList;
+  }
+
+  private HGrid dictToGrid(HDict dict)
+  {
+    return toGrid((HDict)dict.get("meta"), listToArray((HList)dict.get("cols")), listToArray((HList)dict.get("rows")));
+  }
+
+  private ArrayList listToArray(HList list)
+  {
+    ArrayList acc = new ArrayList(list.size());
+    for (int i=0; i<list.size(); ++i)
+    {
+      HVal val = list.get(i);
+      if (!(val instanceof HDict)) throw err("Expected grid dict, not " + val);
+      acc.add(val);
+    }
+    return acc;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Values
+//////////////////////////////////////////////////////////////////////////
+
+  private HVal parseVal()
+  {
+    switch (cur)
+    {
+      case '"': return decodeStr(parseStr());
+      case '{':
+        HDict dict = parseDict();
+        return isGrid(dict) ? (HVal)dictToGrid(dict) : (HVal)dict;
+      case '[': return parseList();
+      case 't': consumeLiteral("true");  return HBool.TRUE;
+      case 'f': consumeLiteral("false"); return HBool.FALSE;
+      case 'n': consumeLiteral("null");  return null;
+    }
+    if (cur == '-' || isDigit(cur)) return parseNum();
+    throw err("Unexpected " + curToStr());
+  }
+
+  private HDict parseDict()
+  {
+    consume('{');
+    skipSpace();
+    if (cur == '}') { consume(); skipSpace(); return HDict.EMPTY; }
+    HDictBuilder b = new HDictBuilder();
+    while (true)
+    {
+      String name = parseKey();
+      HVal val = parseVal();
+      if (val != null) b.add(name, val);
+      if (!nextMember()) break;
+    }
+    consume('}');
+    skipSpace();
+    return b.toDict();
+  }
+
+  private ArrayList parseDicts()
+  {
+    ArrayList acc = new ArrayList();
+    consume('[');
+    skipSpace();
+    if (cur != ']') while (true)
+    {
+      acc.add(parseDict());
+      if (!nextMember()) break;
+    }
+    consume(']');
+    skipSpace();
+    return acc;
+  }
+
+  private HList parseList()
+  {
+    consume('[');
+    skipSpace();
+    if (cur == ']') { consume(); skipSpace(); return HList.EMPTY; }
+    ArrayList acc = new ArrayList();
+    while (true)
+    {
+      acc.add(parseVal());
+      if (!nextMember()) break;
+    }
+    consume(']');
+    skipSpace();
+    return HList.make(acc);
+  }
+
+  private HNum parseNum()
+  {
+    StringBuilder s = scratch();
+    while (cur == '-' || cur == '+' || cur == '.' || cur == 'e' || cur == 'E' || isDigit(cur))
+    {
+      s.append((char)cur);
+      consume();
+    }
+    skipSpace();
+    try
+    {
+      return HNum.make(Double.parseDouble(s.toString()));
+    }
+    catch (NumberFormatException e)
+    {
+      throw err("Invalid number: " + s, e);
+    }
+  }
+
+  /**
+   * Decode a JSON string using the type prefixes such as "n:" or "r:".
+   * Strings without a recognized prefix are plain Str values.
+   */
+  private HVal decodeStr(String s)
+  {
+    if (s.length() < 2 || s.charAt(1) != ':') return HStr.make(s);
+    try
+    {
+      switch (s.charAt(0))
+      {
+        case 'm': if (s.length() == 2) return HMarker.VAL; break;
+        case 'z': if (s.length() == 2) return HNA.VAL; break;
+        case '-': if (s.length() == 2) return HRemove.VAL; break;
+        case 'x': return decodeXStr(s);
+        case 's': return HStr.make(s.substring(2));
+        case 'n': return decodeNum(s);
+        case 'r': return decodeRef(s);
+        case 'd': return literals.date(s, 2, s.length());
+        case 'h': return literals.time(s, 2, s.length());
+        case 't': return literals.dateTime(s, 2, s.length());
+        case 'u': return HUri.make(s.substring(2));
+        case 'b': return HBin.make(s.substring(2));
+        case 'c': return decodeCoord(s);
+        case 'y': return HSymbol.make(s.substring(2));
+      }
+    }
+    catch (ParseException e)
+    {
+      throw err("Invalid value: " + s, e);
+    }
+    catch (IllegalArgumentException e)
+    {
+      throw err("Invalid value: " + s, e);
+    }
+    return HStr.make(s);
+  }
+
+  private HNum decodeNum(String s)
+  {
+    int sp = s.indexOf(' ', 2);
+    int numEnd = sp < 0 ? s.length() : sp;
+    String unit = sp < 0 ? null : literals.unit(s, sp+1, s.length());
+    double val;
+    if (s.startsWith("INF", 2) && numEnd == 5) val = Double.POSITIVE_INFINITY;
+    else if (s.startsWith("-INF", 2) && numEnd == 6) val = Double.NEGATIVE_INFINITY;
+    else if (s.startsWith("NaN", 2) && numEnd == 5) val = Double.NaN;
+    else val = literals.toDouble(s, 2, numEnd);
+    return HNum.make(val, unit);
+  }
+
+  private HRef decodeRef(String s)
+  {
+    int sp = s.indexOf(' ', 2);
+    if (sp < 0) return HRef.make(s.substring(2));
+    return HRef.make(s.substring(2, sp), s.substring(sp+1));
+  }
+
+  private HCoord decodeCoord(String s)
+  {
+    int comma = s.indexOf(',', 2);
+    if (comma < 0) throw new ParseException(s);
+    return HCoord.make(Double.parseDouble(s.substring(2, comma)), Double.parseDouble(s.substring(comma+1)));
+  }
+
+  /** "x:" is Remove; "x:Type:val" is an XStr */
+  private HVal decodeXStr(String s)
+  {
+    if (s.length() == 2) return HRemove.VAL;
+    int colon = s.indexOf(':', 2);
+    if (colon < 0) return HStr.make(s);
+    return HXStr.decode(s.substring(2, colon), s.substring(colon+1));
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Lexing
+//////////////////////////////////////////////////////////////////////////
+
+  /** Parse {@code "name":} and position on the value */
+  private String parseKey()
+  {
+    if (cur != '"') throw err("Expected member name, not " + curToStr());
+    String name = parseStr();
+    consume(':');
+    skipSpace();
+    return name;
+  }
+
+  /** Consume a comma and return true, or return false if at end of object/array */
+  private boolean nextMember()
+  {
+    if (cur != ',') return false;
+    consume();
+    skipSpace();
+    return true;
+  }
+
+  /** Parse a quoted string and skip trailing whitespace */
+  private String parseStr()
+  {
+    consume('"');
+    StringBuilder s = scratch();
+    while (true)
+    {
+      if (cur == '"') { consume(); break; }
+      if (cur == eof) throw err("Unexpected end of string");
+      if (cur == '\\') { s.append(escape()); continue; }
+
+      // copy run of plain chars straight out of the buffer
+      int start = pos - 1;
+      int end = pos;
+      while (end < len)
+      {
+        char c = buf[end];
+        if (c == '"' || c == '\\') break;
+        ++end;
+      }
+      s.append(buf, start, end - start);
+      pos = end;
+      consume();
+    }
+    skipSpace();
+    return s.toString();
+  }
+
+  private char escape()
+  {
+    consume('\\');
+    int c = cur;
+    consume();
+    switch (c)
+    {
+      case 'b':  return '\b';
+      case 'f':  return '\f';
+      case 'n':  return '\n';
+      case 'r':  return '\r';
+      case 't':  return '\t';
+      case '"':  return '"';
+      case '/':  return '/';
+      case '\\': return '\\';
+      case 'u':
+        int code = 0;
+        for (int i=0; i<4; ++i)
+        {
+          int digit = Character.digit(cur, 16);
+          if (digit < 0) throw err("Invalid unicode escape");
+          code = (code << 4) | digit;
+          consume();
+        }
+        return (char)code;
+    }
+    throw err("Invalid escape sequence: \\" + (char)c);
+  }
+
+  private void consumeLiteral(String lit)
+  {
+    for (int i=0; i<lit.length(); ++i)
+    {
+      if (cur != lit.charAt(i)) throw err("Expected " + lit);
+      consume();
+    }
+    skipSpace();
+  }
+
+  private void skipSpace()
+  {
+    while (cur == ' ' || cur == '\n' || cur == '\r' || cur == '\t') consume();
+  }
+
+  private void verifyEof()
+  {
+    skipSpace();
+    if (cur != eof) throw err("Expected end of stream, not " + curToStr());
+  }
+
+  private static boolean isDigit(int c) { return '0' <= c && c <= '9'; }
+
+  private StringBuilder scratch()
+  {
+    scratch.setLength(0);
+    return scratch;
+  }
+
+  private String curToStr()
+  {
+    return cur < 0 ? "end of stream" : "'" + (char)cur + "'";
+  }
+
+  private ParseException err(String msg) { return err(msg, null); }
+  private ParseException err(String msg, Exception e) { return new ParseException(msg, e); }
+
+//////////////////////////////////////////////////////////////////////////
+// Char
+//////////////////////////////////////////////////////////////////////////
+
+  private void consume(char expected)
+  {
+    if (cur != expected) throw err("Expected '" + expected + "', not " + curToStr());
+    consume();
+  }
+
+  private void consume()
+  {
+    if (pos < len) cur = buf[pos++];
+    else cur = fill();
+  }
+
+  /** Read the next block from the stream and return its first char */
+  private int fill()
+  {
+    if (in == null) return eof;
+    try
+    {
+      int n;
+      do { n = in.read(buf, 0, buf.length); } while (n == 0);
+      if (n < 0) { len = 0; pos = 0; return eof; }
+      len = n;
+      pos = 1;
+      return buf[0];
+    }
+    catch (IOException e)
+    {
+      throw err("Read failed", e);
+    }
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// JsonCursor
+//////////////////////////////////////////////////////////////////////////
+
+  final class JsonCursor extends HGridCursor
+  {
+    JsonCursor(HGrid header)
+    {
+      this.header = header;
+      this.colIndex = new HashMap(header.numCols() * 2);
+      for (int i=0; i<header.numCols(); ++i)
+        colIndex.put(header.col(i).name(), Integer.valueOf(i));
+    }
+
+    public HGrid header() { return header; }
+
+    public HRow next()
+    {
+      if (done) return null;
+      try
+      {
+        if (cur != ']') return HRow.make(header, parseRow());
+        consume(']');
+        skipSpace();
+
+        // any trailing members after rows
+        while (nextMember())
+        {
+          parseKey();
+          parseVal();
+        }
+        consume('}');
+        verifyEof();
+      }
+      catch (RuntimeException e)
+      {
+        close();
+        throw e;
+      }
+      close();
+      return null;
+    }
+
+    private HVal[] parseRow()
+    {
+      if (!first) consume(',');
+      first = false;
+      skipSpace();
+
+      HVal[] cells = new HVal[header.numCols()];
+      consume('{');
+      skipSpace();
+      if (cur != '}') while (true)
+      {
+        String name = parseKey();
+        Integer index = (Integer)colIndex.get(name);
+        if (index == null) throw err("Row tag not in cols: " + name);
+        cells[index.intValue()] = parseVal();
+        if (!nextMember()) break;
+      }
+      consume('}');
+      skipSpace();
+      return cells;
+    }
+
+    public void close()
+    {
+      if (done) return;
+      done = true;
+      HJsonReader.this.close();
+    }
+
+    private final HGrid header;
+    private final HashMap colIndex;
+    private boolean first = true;
+    private boolean done;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Fields
+//////////////////////////////////////////////////////////////////////////
+
+  private static final int bufSize = 8192;
+  private static final int eof = -1;
+
+  private final Reader in;   // underlying stream or null if in-memory
+  private final char[] buf;  // block of chars read from stream
+  private int pos;           // index of next char in buf
+  private int len;           // number of valid chars in buf
+  private int cur;           // current char
+  private final StringBuilder scratch = new StringBuilder(64);
+  private final LiteralDecoder literals = new LiteralDecoder();
+}
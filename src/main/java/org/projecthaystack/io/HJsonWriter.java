@@ -11,6 +11,7 @@ import java.io.*;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import org.projecthaystack.*;
+import org.projecthaystack.util.DoubleFormat;
 
 /**
  * HJsonWriter is used to write grids in JavaScript Object Notation.
@@ -26,130 +27,448 @@ public class HJsonWriter extends HGridWriter
 // Construction
 //////////////////////////////////////////////////////////////////////////
 
-  /** Write using UTF-8 */
+  /**
+   * Write using UTF-8.  Values are encoded and escaped directly into
+   * an internal byte buffer which is written to the stream in large
+   * blocks, so output memory stays bounded however large the grid.
+   * Like PrintWriter, IO errors are not raised; once the stream fails
+   * the rest of the output is discarded.
+   */
   public HJsonWriter(OutputStream out)
   {
+    this.out = out;
+  }
+
+  /** Write a grid to an in-memory a string */
+  public static String gridToString(HGrid grid)
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(grid.numCols() * grid.numRows() * 32 + 64);
+    HJsonWriter w = new HJsonWriter(out);
+    w.toStr = true;
+    w.writeGrid(grid);
+    if (w.surrogates) return HZincWriter.decodeSurrogates(out.toByteArray());
     try
     {
-      this.out = new PrintWriter(new OutputStreamWriter(out, "UTF-8"));
+      return out.toString("UTF-8");
     }
-    catch (IOException e)
+    catch (UnsupportedEncodingException e)
     {
       throw new RuntimeException(e);
     }
   }
 
-  /** Write a grid to an in-memory a string */
-  public static String gridToString(HGrid grid)
-  {
-    StringWriter out = new StringWriter(grid.numCols() * grid.numRows() * 32);
-    new HJsonWriter(out).writeGrid(grid);
-    return out.toString();
-  }
-
-  private HJsonWriter(StringWriter out) { this.out = new PrintWriter(out); }
-
 //////////////////////////////////////////////////////////////////////////
 // HGridWriter
 //////////////////////////////////////////////////////////////////////////
 
   /** Write a grid */
   public void writeGrid(HGrid grid)
+  {
+    ++gridDepth;
+    try
+    {
+      writeHeader(grid);
+      for (int i=0; i<grid.numRows(); ++i)
+      {
+        if (i > 0) p(",\n");
+        writeRow(grid, grid.row(i));
+      }
+      writeEnd();
+    }
+    finally
+    {
+      --gridDepth;
+    }
+    if (gridDepth == 0) flush();
+  }
+
+  /** Begin a grid with the meta and columns of given header */
+  public void writeGridHeader(HGrid header)
+  {
+    if (this.header != null) throw new IllegalStateException("Grid already started");
+    writeHeader(header);
+    this.header = header;
+    this.numRows = 0;
+    ++gridDepth;
+  }
+
+  /** Write a row of the grid started by writeGridHeader */
+  public void writeRow(HDict row)
+  {
+    if (header == null) throw new IllegalStateException("Grid not started");
+    if (numRows++ > 0) p(",\n");
+    writeRow(header, row);
+  }
+
+  /** End the grid started by writeGridHeader */
+  public void writeGridEnd()
+  {
+    if (header == null) throw new IllegalStateException("Grid not started");
+    header = null;
+    --gridDepth;
+    writeEnd();
+    if (gridDepth == 0) flush();
+  }
+
+  private void writeHeader(HGrid grid)
   {
     // grid begin
-    out.print("{\n");
+    p("{\n");
 
     // meta
     HDict meta = grid.meta();
-    String ver = meta.has("ver")?meta.getStr("ver"):"3.0";
-    out.print("\"meta\": {\"ver\":\""+ver+"\"");
-    writeDictTags(grid.meta(), false);
-    out.print("},\n");
+    p("\"meta\": {\"ver\":\"");
+    p(meta.has("ver") ? meta.getStr("ver") : "3.0");
+    p('"');
+    writeDictTags(meta, false);
+    p("},\n");
 
     // columns
-    out.print("\"cols\":[\n");
+    p("\"cols\":[\n");
     for (int i=0; i<grid.numCols(); ++i)
     {
-      if (i > 0) out.print(",\n");
+      if (i > 0) p(",\n");
       HCol col = grid.col(i);
-      out.print("{\"name\":");
-      out.print(HStr.toCode(col.name()));
+      p("{\"name\":");
+      writeStr(col.name());
       writeDictTags(col.meta(), false);
-      out.print("}");
+      p('}');
     }
-    out.print("\n],\n");
+    p("\n],\n");
 
     // rows
-    out.print("\"rows\":[\n");
-    for (int i=0; i<grid.numRows(); ++i)
+    p("\"rows\":[\n");
+  }
+
+  /** Write row as a dict of its non-null cells in column order */
+  private void writeRow(HGrid grid, HDict row)
+  {
+    p('{');
+    boolean first = true;
+    for (int i=0; i<grid.numCols(); ++i)
     {
-      if (i > 0) out.print(",\n");
-      writeDict(grid.row(i));
+      HVal val = cell(grid, row, i);
+      if (val == null) continue;
+      if (first) first = false; else p(", ");
+      writeStr(grid.col(i).name());
+      p(':');
+      writeVal(val);
     }
-    out.print("\n]\n");
+    p('}');
+  }
+
+  private void writeEnd()
+  {
+    p("\n]\n");
 
     // grid end
-    out.print("}\n");
-    out.flush();
+    p("}\n");
   }
 
   private void writeDict(HDict dict)
   {
-    out.print("{");
+    p('{');
     writeDictTags(dict, true);
-    out.print("}");
+    p('}');
   }
 
   private void writeDictTags(HDict dict, boolean first)
   {
     for (Iterator it = dict.iterator(); it.hasNext(); )
     {
-      if (first) first = false; else out.print(", ");
+      if (first) first = false; else p(", ");
       Entry entry = (Entry)it.next();
       String name = (String)entry.getKey();
       HVal val = (HVal)entry.getValue();
-      out.print(HStr.toCode(name));
-      out.print(":");
+      writeStr(name);
+      p(':');
       writeVal(val);
     }
   }
 
-  private void writeVal(HVal val)
-  {
-    if (val == null) out.print("null");
-    else if (val instanceof HBool) out.print(val);
-    else if(val instanceof HDict) writeDict((HDict) val);
-    else if(val instanceof HGrid) writeGrid((HGrid) val);
-    else if(val instanceof HList) writeList((HList) val);
-    else out.print(HStr.toCode(val.toJson()));
-  }
-
   private void writeList(HList list)
   {
-    out.print("[");
+    p('[');
     for(int i = 0;i<list.size();++i) {
-      if (i > 0) out.print(",");
+      if (i > 0) p(',');
       writeVal(list.get(i));
     }
-    out.print("]");
+    p(']');
   }
 
   /** Flush underlying output stream */
   public void flush()
   {
-    out.flush();
+    flushBuf();
+    if (error) return;
+    try { out.flush(); } catch (IOException e) { error = true; }
   }
 
   /** Close underlying output stream */
   public void close()
   {
-    out.close();
+    flushBuf();
+    try { out.close(); } catch (IOException e) { error = true; }
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Values
+//////////////////////////////////////////////////////////////////////////
+
+  // Scalars are written as the JSON string of their toJson() byte
+  // for byte, but encoded in one pass without building the string
+
+  private void writeVal(HVal val)
+  {
+    if (val == null) p("null");
+    else if (val instanceof HStr) writeStr((HStr)val);
+    else if (val instanceof HNum) writeNum((HNum)val);
+    else if (val instanceof HRef) writeRef((HRef)val);
+    else if (val instanceof HMarker) p("\"m:\"");
+    else if (val instanceof HBool) p(((HBool)val).val ? "true" : "false");
+    else if (val instanceof HDateTime) writeDateTime((HDateTime)val);
+    else if (val instanceof HDict) writeDict((HDict)val);
+    else if (val instanceof HGrid) writeGrid((HGrid)val);
+    else if (val instanceof HList) writeList((HList)val);
+    else if (val instanceof HDate) { p("\"d:"); writeDate((HDate)val); p('"'); }
+    else if (val instanceof HTime) { p("\"h:"); writeTime((HTime)val); p('"'); }
+    else if (val instanceof HUri) writePrefixed("u:", ((HUri)val).val);
+    else writeStr(val.toJson());
+  }
+
+  private void writeStr(HStr str)
+  {
+    String val = str.val;
+    p('"');
+    if (val.indexOf(':') >= 0) p("s:");
+    esc(val);
+    p('"');
+  }
+
+  private void writeStr(String val)
+  {
+    p('"');
+    esc(val);
+    p('"');
+  }
+
+  private void writePrefixed(String prefix, String val)
+  {
+    p('"').p(prefix);
+    esc(val);
+    p('"');
+  }
+
+  private void writeNum(HNum num)
+  {
+    StringBuilder s = scratch;
+    s.setLength(0);
+    DoubleFormat.append(s, num.val, num.unit, true);
+    p("\"n:");
+    esc(s);
+    p('"');
+  }
+
+  private void writeRef(HRef ref)
+  {
+    p("\"r:");
+    esc(ref.val);
+    if (ref.dis != null)
+    {
+      p(' ');
+      esc(ref.dis);
+    }
+    p('"');
+  }
+
+  private void writeDate(HDate date)
+  {
+    p(date.year).p('-').p2(date.month).p('-').p2(date.day);
+  }
+
+  private void writeTime(HTime time)
+  {
+    p2(time.hour).p(':').p2(time.min).p(':').p2(time.sec);
+    int ms = time.ms;
+    if (ms != 0)
+    {
+      p('.');
+      if (ms < 10) p('0');
+      if (ms < 100) p('0');
+      p(ms);
+    }
   }
 
+  private void writeDateTime(HDateTime ts)
+  {
+    p("\"t:");
+    writeDate(ts.date());
+    p('T');
+    writeTime(ts.time());
+    int offset = ts.tzOffset;
+    if (offset == 0) p('Z');
+    else
+    {
+      if (offset < 0) { p('-'); offset = -offset; }
+      else { p('+'); }
+      p2(offset / 3600).p(':').p2((offset % 3600) / 60);
+    }
+    p(' ');
+    esc(ts.tz.name);
+    p('"');
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Utils
+//////////////////////////////////////////////////////////////////////////
+
+  /** Write chars as UTF-8 with the escapes of HStr.toCode */
+  private void esc(CharSequence s)
+  {
+    int n = s.length();
+    for (int i=0; i<n; ++i)
+    {
+      char c = s.charAt(i);
+      if (c < ' ' || c == '"' || c == '\\')
+      {
+        p('\\');
+        switch (c)
+        {
+          case '\n':  p('n');  break;
+          case '\r':  p('r');  break;
+          case '\t':  p('t');  break;
+          case '"':   p('"');  break;
+          case '\\':  p('\\'); break;
+          default:
+            p('u').p('0').p('0').p(hex[(c >> 4) & 0xf]).p(hex[c & 0xf]);
+        }
+      }
+      else if (c < 0x80)
+      {
+        if (pos >= buf.length) flushBuf();
+        buf[pos++] = (byte)c;
+      }
+      else
+      {
+        i = utf8(s, i);
+      }
+    }
+  }
+
+  /** Write an ASCII char */
+  private HJsonWriter p(char c)
+  {
+    if (pos >= buf.length) flushBuf();
+    buf[pos++] = (byte)c;
+    return this;
+  }
+
+  /** Write chars as UTF-8 without escapes */
+  private HJsonWriter p(String s)
+  {
+    int n = s.length();
+    for (int i=0; i<n; ++i)
+    {
+      char c = s.charAt(i);
+      if (c < 0x80)
+      {
+        if (pos >= buf.length) flushBuf();
+        buf[pos++] = (byte)c;
+      }
+      else
+      {
+        i = utf8(s, i);
+      }
+    }
+    return this;
+  }
+
+  /** Write decimal digits of a non-negative int */
+  private HJsonWriter p(int i)
+  {
+    if (i < 0) return p(String.valueOf(i));
+    if (pos + 10 > buf.length) flushBuf();
+    int start = pos;
+    do { buf[pos++] = (byte)('0' + (i % 10)); i /= 10; } while (i != 0);
+    for (int a=start, b=pos-1; a < b; ++a, --b)
+    {
+      byte t = buf[a]; buf[a] = buf[b]; buf[b] = t;
+    }
+    return this;
+  }
+
+  /** Write two digits zero padded */
+  private HJsonWriter p2(int i)
+  {
+    if (i < 10) p('0');
+    return p(i);
+  }
+
+  /** Write non-ASCII char at index as UTF-8 and return index of last char used */
+  private int utf8(CharSequence s, int i)
+  {
+    if (pos + 4 > buf.length) flushBuf();
+    int c = s.charAt(i);
+    if (c < 0x800)
+    {
+      buf[pos++] = (byte)(0xc0 | (c >> 6));
+      buf[pos++] = (byte)(0x80 | (c & 0x3f));
+    }
+    else if (c < 0xd800 || c > 0xdfff || (toStr && !isPair(s, i)))
+    {
+      // strings keep an unpaired surrogate as is
+      if (c >= 0xd800 && c <= 0xdfff) surrogates = true;
+      buf[pos++] = (byte)(0xe0 | (c >> 12));
+      buf[pos++] = (byte)(0x80 | ((c >> 6) & 0x3f));
+      buf[pos++] = (byte)(0x80 | (c & 0x3f));
+    }
+    else if (isPair(s, i))
+    {
+      int cp = Character.toCodePoint((char)c, s.charAt(++i));
+      buf[pos++] = (byte)(0xf0 | (cp >> 18));
+      buf[pos++] = (byte)(0x80 | ((cp >> 12) & 0x3f));
+      buf[pos++] = (byte)(0x80 | ((cp >> 6) & 0x3f));
+      buf[pos++] = (byte)(0x80 | (cp & 0x3f));
+    }
+    else
+    {
+      // unpaired surrogate is replaced like OutputStreamWriter
+      buf[pos++] = (byte)'?';
+    }
+    return i;
+  }
+
+  private static boolean isPair(CharSequence s, int i)
+  {
+    return Character.isHighSurrogate(s.charAt(i)) && i+1 < s.length() && Character.isLowSurrogate(s.charAt(i+1));
+  }
+
+  /** Write buffered bytes to the stream */
+  private void flushBuf()
+  {
+    if (pos == 0) return;
+    if (!error)
+    {
+      try { out.write(buf, 0, pos); } catch (IOException e) { error = true; }
+    }
+    pos = 0;
+  }
+
+  private static final char[] hex = "0123456789abcdef".toCharArray();
+
 //////////////////////////////////////////////////////////////////////////
 // Fields
 //////////////////////////////////////////////////////////////////////////
 
-  private PrintWriter out;
+  private final OutputStream out;
+  private final byte[] buf = new byte[8192];
+  private int pos;
+  private boolean error;
+  private boolean toStr;       // writing for gridToString
+  private boolean surrogates;  // unpaired surrogate written in toStr mode
+  private int gridDepth;
+  private HGrid header;        // grid started by writeGridHeader
+  private int numRows;         // rows written since writeGridHeader
+  private final StringBuilder scratch = new StringBuilder(32);
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.io.*;
+import org.projecthaystack.*;
+
+/**
+ * HZincLazyReader reads a Zinc grid whose cells are decoded on demand.
+ * The input is read fully into memory and scanned once to index the
+ * offsets of every row and cell; the grid meta and columns are parsed
+ * immediately, but a cell is only decoded to an HVal the first time it
+ * is read from its row.  This makes reading a few tags from each row
+ * of a wide grid much cheaper than a full parse.
+ *
+ * The grid behaves exactly like one read by HZincReader except that a
+ * malformed cell raises ParseException when it is first read rather
+ * than from readGrid.  Input the scan cannot index safely, such as rows
+ * with comments, is parsed eagerly with HZincReader.
+ *
+ * @see HZincReader
+ */
+public class HZincLazyReader extends HGridReader
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Construction
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read all of UTF-8 input stream into memory and close it. */
+  public HZincLazyReader(InputStream in)
+  {
+    try
+    {
+      init(ZincScanner.readAll(new InputStreamReader(in, "UTF-8"), 8192));
+    }
+    catch (IOException e)
+    {
+      throw new ParseException("read failed", e);
+    }
+  }
+
+  /** Read all of memory mapped UTF-8 file into memory. */
+  public HZincLazyReader(File file) throws IOException
+  {
+    MappedUtf8Reader r = new MappedUtf8Reader(file);
+    if (r.size() >= Integer.MAX_VALUE - 8) { r.close(); throw new IOException("File too large: " + file); }
+    init(ZincScanner.readAll(r, (int)r.size() + 1));
+  }
+
+  /** Read from in-memory string. */
+  public HZincLazyReader(String in)
+  {
+    this.buf = in.toCharArray();
+    this.len = buf.length;
+  }
+
+  private void init(ZincScanner s)
+  {
+    this.buf = s.buf;
+    this.len = s.len;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Public
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read a single grid whose cells are decoded lazily */
+  public HGrid readGrid()
+  {
+    // find header and extent of rows
+    ZincScanner s = new ZincScanner(buf, len, 0, 1);
+    if (!s.scanGrid(-1) || !s.onlyBlankAfterGrid(len)) return eager();
+
+    HGridBuilder gb = new HGridBuilder();
+    HZincReader header = new HZincReader(buf, 0, s.headerEnd, 1);
+    int numCols = header.readGridHeader(gb);
+
+    // index the cells of each row
+    int gridEnd = s.gridEnd;
+    s = new ZincScanner(buf, gridEnd, s.headerEnd, 1 + countLines(0, s.headerEnd));
+    int stride = numCols + 1;
+    int[] seps = new int[stride * 16];
+    int[] lines = new int[16];
+    int numRows = 0;
+    while (s.pos < gridEnd)
+    {
+      if (numRows == lines.length)
+      {
+        seps = grow(seps, seps.length * 2);
+        lines = grow(lines, lines.length * 2);
+      }
+      lines[numRows] = s.line;
+      if (!s.scanCells(seps, numRows * stride, numCols)) return eager();
+      ++numRows;
+    }
+
+    return gb.toLazyGrid(new Cells(numRows, numCols, seps, lines, header.version()));
+  }
+
+  private HGrid eager()
+  {
+    return new HZincReader(buf, 0, len, 1).readGrid();
+  }
+
+  /** Number of newlines in [start, end) counted like HaystackTokenizer */
+  private int countLines(int start, int end)
+  {
+    int n = 0;
+    for (int i=start; i<end; ++i)
+    {
+      char c = buf[i];
+      if (c == '\n') ++n;
+      else if (c == '\r' && (i+1 >= end || buf[i+1] != '\n')) ++n;
+    }
+    return n;
+  }
+
+  private static int[] grow(int[] a, int size)
+  {
+    int[] temp = new int[size];
+    System.arraycopy(a, 0, temp, 0, a.length);
+    return temp;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Cells
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Cells decodes a cell from the span between its delimiters.  Each
+   * row has numCols+1 delimiter offsets: the char before the row, the
+   * commas, and the end of the row.
+   */
+  final class Cells extends HCellDecoder
+  {
+    Cells(int numRows, int numCols, int[] seps, int[] lines, int version)
+    {
+      this.numRows = numRows;
+      this.numCols = numCols;
+      this.seps = seps;
+      this.lines = lines;
+      this.version = version;
+    }
+
+    public int numRows() { return numRows; }
+
+    public HVal decode(int row, int col)
+    {
+      int i = row * (numCols + 1) + col;
+      int start = seps[i] + 1;
+      int end = seps[i+1];
+      while (start < end && (buf[start] == ' ' || buf[start] == '\t')) ++start;
+      if (start >= end) return null;
+      int line = lines[row] + countLines(seps[row * (numCols + 1)] + 1, start);
+      HZincReader r = new HZincReader(buf, start, end - start, line);
+      r.version(version);
+      return r.readCell();
+    }
+
+    private final int numRows, numCols, version;
+    private final int[] seps;
+    private final int[] lines;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Fields
+//////////////////////////////////////////////////////////////////////////
+
+  private char[] buf;
+  private int len;
+}
@@ -0,0 +1,264 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.projecthaystack.*;
+
+/**
+ * HZincParallelReader parses large Zinc documents using multiple cores.
+ * The input is read fully into memory, then scanned once to find the
+ * row boundaries at the top level of the grid (newlines which are not
+ * inside a string, uri, or nested grid).  Runs of rows are parsed as
+ * independent chunks on a ForkJoinPool and stitched back together in
+ * their original order.  Input smaller than {@link #threshold}, or
+ * which the boundary scan cannot split safely, is parsed sequentially
+ * with HZincReader so results and errors are always identical.
+ *
+ * @see HZincReader
+ */
+public class HZincParallelReader extends HGridReader
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Construction
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read all of UTF-8 input stream into memory and close it. */
+  public HZincParallelReader(InputStream in)
+  {
+    try
+    {
+      init(ZincScanner.readAll(new InputStreamReader(in, "UTF-8"), 8192));
+    }
+    catch (IOException e)
+    {
+      throw new ParseException("read failed", e);
+    }
+  }
+
+  /**
+   * Read all of UTF-8 file into memory.  The file is memory mapped
+   * and decoded straight into a char array sized from the file.
+   */
+  public HZincParallelReader(File file) throws IOException
+  {
+    MappedUtf8Reader r = new MappedUtf8Reader(file);
+    if (r.size() >= Integer.MAX_VALUE - 8) { r.close(); throw new IOException("File too large: " + file); }
+    init(ZincScanner.readAll(r, (int)r.size() + 1));
+  }
+
+  private void init(ZincScanner s)
+  {
+    this.buf = s.buf;
+    this.len = s.len;
+  }
+
+  /** Read from in-memory string. */
+  public HZincParallelReader(String in)
+  {
+    this.buf = in.toCharArray();
+    this.len = buf.length;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Config
+//////////////////////////////////////////////////////////////////////////
+
+  /** Pool used to parse chunks */
+  public ForkJoinPool pool = ForkJoinPool.commonPool();
+
+  /** Number of chars below which a grid is parsed sequentially */
+  public int threshold = 1024 * 1024;
+
+  /** Approximate number of chars of rows to parse per task */
+  public int chunkSize = 256 * 1024;
+
+//////////////////////////////////////////////////////////////////////////
+// Public
+//////////////////////////////////////////////////////////////////////////
+
+  /** Read a single grid */
+  public HGrid readGrid()
+  {
+    if (len < threshold || pool.getParallelism() <= 1)
+      return new HZincReader(buf, 0, len, 1).readGrid();
+
+    Object result = pool.invoke(new GridTask(0, len, 1, true));
+    if (result instanceof RuntimeException) throw (RuntimeException)result;
+    return (HGrid)result;
+  }
+
+  /**
+   * Read a list of grids separated by blank line such as the
+   * response to evalAll.  Each grid is parsed concurrently.
+   */
+  public HGrid[] readGrids()
+  {
+    if (len < threshold || pool.getParallelism() <= 1)
+      return new HZincReader(buf, 0, len, 1).readGrids();
+
+    // split into grids at the top level blank lines
+    final ArrayList tasks = new ArrayList();
+    ZincScanner s = new ZincScanner(buf, len, 0, 1);
+    while (!s.atEnd())
+    {
+      int start = s.pos;
+      int line = s.line;
+      if (!isVer(start) || !s.scanGrid(-1))
+        return new HZincReader(buf, 0, len, 1).readGrids();
+      tasks.add(new GridTask(start, s.gridEnd - start, line, false));
+      s.skipBlankLine();
+    }
+
+    Object result = pool.invoke(new RecursiveTask()
+    {
+      protected Object compute()
+      {
+        invokeAll(tasks);
+        HGrid[] grids = new HGrid[tasks.size()];
+        for (int i=0; i<grids.length; ++i)
+        {
+          Object r = ((GridTask)tasks.get(i)).join();
+          if (r instanceof RuntimeException) return r;
+          grids[i] = (HGrid)r;
+        }
+        return grids;
+      }
+    });
+    if (result instanceof RuntimeException) throw (RuntimeException)result;
+    return (HGrid[])result;
+  }
+
+  /** Does the text at given offset start with "ver:" */
+  private boolean isVer(int i)
+  {
+    return i + 4 <= len && buf[i] == 'v' && buf[i+1] == 'e' && buf[i+2] == 'r' && buf[i+3] == ':';
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// GridTask
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Parse one top level grid within [off, off+size).  Returns the
+   * HGrid or the RuntimeException raised so that errors are reported
+   * from the earliest failing chunk.
+   */
+  final class GridTask extends RecursiveTask
+  {
+    GridTask(int off, int size, int line, boolean whole)
+    {
+      this.off = off;
+      this.size = size;
+      this.line = line;
+      this.whole = whole;
+    }
+
+    protected Object compute()
+    {
+      try
+      {
+        return parse();
+      }
+      catch (RuntimeException e)
+      {
+        return e;
+      }
+    }
+
+    private HGrid parse()
+    {
+      int end = off + size;
+
+      // find header, row chunks, and end of rows
+      ZincScanner s = new ZincScanner(buf, len, off, line);
+      if (size < threshold || !s.scanGrid(chunkSize) || (whole && !s.onlyBlankAfterGrid(end)))
+        return sequential();
+
+      // header
+      HGridBuilder gb = new HGridBuilder();
+      HZincReader header = new HZincReader(buf, off, s.headerEnd - off, line);
+      int numCols = header.readGridHeader(gb);
+      int version = header.version();
+
+      // rows
+      int n = s.chunks.size();
+      ChunkTask[] tasks = new ChunkTask[n];
+      for (int i=0; i<n; ++i)
+      {
+        int start = ((int[])s.chunks.get(i))[0];
+        int chunkEnd = i+1 < n ? ((int[])s.chunks.get(i+1))[0] : s.gridEnd;
+        tasks[i] = new ChunkTask(start, chunkEnd - start, ((int[])s.chunks.get(i))[1], numCols, version);
+      }
+      invokeAll(tasks);
+
+      for (int i=0; i<n; ++i)
+      {
+        Object r = tasks[i].join();
+        if (r instanceof RuntimeException) throw (RuntimeException)r;
+        ArrayList rows = (ArrayList)r;
+        for (int j=0; j<rows.size(); ++j) gb.addRow((HVal[])rows.get(j));
+      }
+      return gb.toGrid();
+    }
+
+    private HGrid sequential()
+    {
+      HZincReader r = new HZincReader(buf, off, size, line);
+      if (whole) return r.readGrid();
+      return r.readGrids()[0];
+    }
+
+    private final int off, size, line;
+    private final boolean whole;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// ChunkTask
+//////////////////////////////////////////////////////////////////////////
+
+  /** Parse a run of complete rows into list of HVal[] */
+  final class ChunkTask extends RecursiveTask
+  {
+    ChunkTask(int off, int size, int line, int numCols, int version)
+    {
+      this.off = off;
+      this.size = size;
+      this.line = line;
+      this.numCols = numCols;
+      this.version = version;
+    }
+
+    protected Object compute()
+    {
+      try
+      {
+        HZincReader r = new HZincReader(buf, off, size, line);
+        r.version(version);
+        return r.readGridRows(numCols);
+      }
+      catch (RuntimeException e)
+      {
+        return e;
+      }
+    }
+
+    private final int off, size, line, numCols, version;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Fields
+//////////////////////////////////////////////////////////////////////////
+
+  private char[] buf;
+  private int len;
+}
@@ -0,0 +1,323 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+import java.util.ArrayList;
+import org.projecthaystack.*;
+
+/**
+ * HZincPushParser decodes Zinc grids from chunks of UTF-8 bytes as
+ * they arrive instead of pulling from a blocking stream, which lets
+ * a single thread drive many responses from a non-blocking channel.
+ * Each call to {@link #feed} decodes what it can and reports the
+ * grid headers and rows completed so far to an {@link HGridListener};
+ * a chunk may end anywhere, including inside a token or a multi-byte
+ * char.  Call {@link #end} once the input is complete.
+ *
+ * Input is scanned for the newlines which end rows at the top level
+ * (outside strings, uris, comments, and nested grids) and complete
+ * lines are decoded by HZincReader, so values and errors are the same
+ * as a blocking read.  Grids separated by a blank line are reported
+ * one after another.  Instances are not thread safe.
+ */
+public class HZincPushParser
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Construction
+//////////////////////////////////////////////////////////////////////////
+
+  /** Construct to report grids to the given listener */
+  public HZincPushParser(HGridListener listener)
+  {
+    this.listener = listener;
+    this.decoder = Charset.forName("UTF-8").newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Public
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Decode the remaining bytes of the given buffer, reporting any
+   * grid headers and rows which are now complete.  Bytes of a char
+   * split across chunks are kept until the next feed.
+   */
+  public void feed(ByteBuffer bytes)
+  {
+    if (ended) throw new IllegalStateException("Parser already ended");
+    try
+    {
+      compact();
+      ensure(bytes.remaining() + carry.position());
+
+      // finish a char split across the previous chunk
+      while (carry.position() > 0 && bytes.hasRemaining())
+      {
+        carry.put(bytes.get());
+        carry.flip();
+        decode(carry, false);
+        carry.compact();
+      }
+      decode(bytes, false);
+      carry.put(bytes);
+
+      parse();
+    }
+    catch (RuntimeException e)
+    {
+      ended = true;
+      throw e;
+    }
+  }
+
+  /**
+   * Signal end of input: decode anything left including a last row
+   * without a trailing newline and end the current grid.
+   */
+  public void end()
+  {
+    if (ended) return;
+    ended = true;
+
+    carry.flip();
+    ensure(carry.remaining() + 1);
+    decode(carry, true);
+    CharBuffer out = CharBuffer.wrap(buf, len, buf.length - len);
+    decoder.flush(out);
+    len = out.position();
+
+    parse();
+    if (lineStart < len) line(lineStart, len, content, lineNo);
+    flushRows(len);
+    if (state == COLS) header(hdrStart, len, hdrLine);
+    if (state == ROWS) endGrid();
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Decoding
+//////////////////////////////////////////////////////////////////////////
+
+  private void decode(ByteBuffer in, boolean endOfInput)
+  {
+    while (true)
+    {
+      CharBuffer out = CharBuffer.wrap(buf, len, buf.length - len);
+      CoderResult r = decoder.decode(in, out, endOfInput);
+      len = out.position();
+      if (!r.isOverflow()) break;
+      ensure(Math.max(in.remaining(), 16));
+    }
+  }
+
+  /** Ensure room for at least n more chars */
+  private void ensure(int n)
+  {
+    if (len + n <= buf.length) return;
+    char[] temp = new char[Math.max(buf.length * 2, len + n)];
+    System.arraycopy(buf, 0, temp, 0, len);
+    buf = temp;
+  }
+
+  /** Shift the unparsed text to the front of the buffer */
+  private void compact()
+  {
+    int keep = state == COLS ? hdrStart : lineStart;
+    if (keep == 0) return;
+    System.arraycopy(buf, keep, buf, 0, len - keep);
+    len -= keep;
+    scanPos -= keep;
+    lineStart -= keep;
+    if (state == COLS) hdrStart -= keep;
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Lines
+//////////////////////////////////////////////////////////////////////////
+
+  /** Process each complete line, then decode the rows collected */
+  private void parse()
+  {
+    while (true)
+    {
+      int end = scanLine();
+      if (end < 0) break;
+      line(lineStart, end, content, lineNo);
+      lineNo += lineCount + 1;
+      lineStart = end;
+      lineCount = 0;
+      content = false;
+    }
+    flushRows(lineStart);
+  }
+
+  private void line(int start, int end, boolean content, int line)
+  {
+    switch (state)
+    {
+      case VER:
+        // skip blank lines between grids
+        if (!content) return;
+        hdrStart = start;
+        hdrLine = line;
+        state = COLS;
+        return;
+
+      case COLS:
+        header(hdrStart, end, hdrLine);
+        return;
+
+      default:
+        if (!content)
+        {
+          flushRows(start);
+          endGrid();
+          return;
+        }
+        if (rowsStart < 0) { rowsStart = start; rowsLine = line; }
+    }
+  }
+
+  private void header(int start, int end, int line)
+  {
+    HGridBuilder gb = new HGridBuilder();
+    HZincReader r = new HZincReader(buf, start, end - start, line);
+    numCols = r.readGridHeader(gb);
+    version = r.version();
+    header = gb.toGrid();
+    state = ROWS;
+    listener.onHeader(header);
+  }
+
+  private void flushRows(int end)
+  {
+    if (rowsStart < 0) return;
+    HZincReader r = new HZincReader(buf, rowsStart, end - rowsStart, rowsLine);
+    r.version(version);
+    rowsStart = -1;
+    ArrayList rows = r.readGridRows(numCols);
+    for (int i=0; i<rows.size(); ++i)
+      listener.onRow(HRow.make(header, (HVal[])rows.get(i)));
+  }
+
+  private void endGrid()
+  {
+    HGrid header = this.header;
+    this.header = null;
+    state = VER;
+    listener.onGridEnd(header);
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Scanning
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Continue scanning the current line from scanPos.  Return the offset
+   * after its top level newline, or -1 if more input is needed.  Chars
+   * whose meaning depends on the next char wait for it unless ended.
+   * Newlines are counted the same way as HaystackTokenizer.
+   */
+  private int scanLine()
+  {
+    int p = scanPos;
+    while (p < len)
+    {
+      char c = buf[p];
+      if (p+1 >= len && !ended && needsPeek(c)) break;
+      char peek = p+1 < len ? buf[p+1] : 0;
+
+      if (commentDepth > 0)
+      {
+        if (c == '*' && peek == '/') { --commentDepth; p += 2; continue; }
+        if (c == '/' && peek == '*') { ++commentDepth; p += 2; continue; }
+        if (c == '\n') ++lineCount;
+        ++p;
+        continue;
+      }
+
+      if (lineComment)
+      {
+        if (c != '\n') { ++p; continue; }
+        lineComment = false;
+      }
+
+      if (quote != 0)
+      {
+        if (c == '\\') { p += 2; continue; }
+        if (c == quote) quote = 0;
+        ++p;
+        continue;
+      }
+
+      if (c == '\n' || c == '\r')
+      {
+        p += (c == '\r' && peek == '\n') ? 2 : 1;
+        if (depth == 0) { scanPos = p; return p; }
+        ++lineCount;
+        continue;
+      }
+
+      if (c == ' ' || c == '\t' || c == 0xa0) { ++p; continue; }
+      if (c == '/' && peek == '/') { lineComment = true; p += 2; continue; }
+      if (c == '/' && peek == '*') { commentDepth = 1; p += 2; continue; }
+
+      content = true;
+      if (c == '"' || c == '`') quote = c;
+      else if (c == '<' && peek == '<') { ++depth; p += 2; continue; }
+      else if (c == '>' && peek == '>') { if (depth > 0) --depth; p += 2; continue; }
+      ++p;
+    }
+    scanPos = Math.min(p, len);
+    return -1;
+  }
+
+  private static boolean needsPeek(char c)
+  {
+    return c == '/' || c == '*' || c == '<' || c == '>' || c == '\r' || c == '\\';
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Fields
+//////////////////////////////////////////////////////////////////////////
+
+  private static final int VER  = 0;  // expecting ver line
+  private static final int COLS = 1;  // expecting cols line
+  private static final int ROWS = 2;  // reading rows
+
+  private final HGridListener listener;
+  private final CharsetDecoder decoder;
+  private final ByteBuffer carry = ByteBuffer.allocate(16);  // bytes of split char
+  private char[] buf = new char[8192];
+  private int len;
+  private boolean ended;
+
+  // grid state
+  private int state = VER;
+  private int hdrStart, hdrLine;
+  private int rowsStart = -1, rowsLine;
+  private HGrid header;
+  private int numCols;
+  private int version = 3;
+
+  // scan state of current line
+  private int lineStart;
+  private int lineNo = 1;
+  private int lineCount;       // newlines within line before its end
+  private int scanPos;
+  private boolean content;     // line has more than whitespace/comments
+  private char quote;          // open quote char or zero
+  private int depth;           // nested grid depth
+  private int commentDepth;    // nested block comment depth
+  private boolean lineComment;
+}
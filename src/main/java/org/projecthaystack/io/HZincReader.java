@@ -30,7 +30,7 @@ public class HZincReader extends HGridReader
   {
     try
     {
-      this.tokenizer = new HaystackTokenizer(new BufferedReader(new InputStreamReader(in, "UTF-8")));
+      this.tokenizer = new HaystackTokenizer(new InputStreamReader(in, "UTF-8"));
       init();
     }
     catch (IOException e)
@@ -39,10 +39,52 @@ public class HZincReader extends HGridReader
     }
   }
 
+  /**
+   * Read from UTF-8 file.  The file is memory mapped and decoded
+   * directly from the mapped pages instead of through a stream.
+   */
+  public HZincReader(File file) throws IOException
+  {
+    this.tokenizer = new HaystackTokenizer(new MappedUtf8Reader(file));
+    try
+    {
+      init();
+    }
+    catch (RuntimeException e)
+    {
+      close();
+      throw e;
+    }
+  }
+
   /** Read from in-memory string. */
   public HZincReader(String in)
   {
-    this.tokenizer = new HaystackTokenizer(new StringReader(in));
+    this.tokenizer = new HaystackTokenizer(in);
+    init();
+  }
+
+  /**
+   * Read from UTF-8 input stream, decoding repeated tag names, units,
+   * strs, and refs to the shared instances in the given table.
+   */
+  public HZincReader(InputStream in, HInternTable intern)
+  {
+    this(in);
+    tokenizer.intern(intern);
+  }
+
+  /** Read from in-memory string using given intern table */
+  public HZincReader(String in, HInternTable intern)
+  {
+    this(in);
+    tokenizer.intern(intern);
+  }
+
+  /** Read from a range of an in-memory char array starting at given line */
+  HZincReader(char[] buf, int off, int len, int line)
+  {
+    this.tokenizer = new HaystackTokenizer(buf, off, len, line);
     init();
   }
 
@@ -92,6 +134,27 @@ public class HZincReader extends HGridReader
     return (HGrid)readVal(true);
   }
 
+  /**
+   * Read a grid one row at a time.  The version, meta, and column
+   * lines are parsed immediately; each call to {@link HGridCursor#next}
+   * parses one more row from the stream.  The stream is closed when the
+   * last row has been read or the cursor is closed.
+   */
+  public HGridCursor readCursor()
+  {
+    try
+    {
+      HGridBuilder gb = new HGridBuilder();
+      int numCols = parseGridHeader(gb, false);
+      return new ZincCursor(gb.toGrid(), numCols);
+    }
+    catch (RuntimeException e)
+    {
+      close();
+      throw e;
+    }
+  }
+
   /** Read a list of grids separated by blank line from stream */
   public HGrid[] readGrids()
   {
@@ -119,6 +182,44 @@ public class HZincReader extends HGridReader
     return parseVal();
   }
 
+//////////////////////////////////////////////////////////////////////////
+// Parallel Support
+//////////////////////////////////////////////////////////////////////////
+
+  /** Parse just the version, meta, and column lines and return number of cols */
+  int readGridHeader(HGridBuilder gb)
+  {
+    int numCols = parseGridHeader(gb, false);
+    verify(HaystackToken.eof);
+    return numCols;
+  }
+
+  /** Parse a run of rows which makes up the rest of the input */
+  ArrayList readGridRows(int numCols)
+  {
+    ArrayList acc = new ArrayList();
+    while (true)
+    {
+      HVal[] cells = parseRow(numCols, false);
+      if (cells == null) break;
+      acc.add(cells);
+    }
+    verify(HaystackToken.eof);
+    return acc;
+  }
+
+  /** Parse the input as a single cell which may be empty */
+  HVal readCell()
+  {
+    HVal val = cur == HaystackToken.eof ? null : parseVal();
+    verify(HaystackToken.eof);
+    return val;
+  }
+
+  /** Version of the grid header last parsed */
+  int version() { return version; }
+  void version(int version) { this.version = version; }
+
 //////////////////////////////////////////////////////////////////////////
 // Utils
 //////////////////////////////////////////////////////////////////////////
@@ -261,6 +362,24 @@ public class HZincReader extends HGridReader
   private HGrid parseGrid()
   {
     boolean nested = cur == HaystackToken.lt2;
+    HGridBuilder gb = new HGridBuilder();
+    int numCols = parseGridHeader(gb, nested);
+
+    // grid rows
+    while (true)
+    {
+      HVal[] cells = parseRow(numCols, nested);
+      if (cells == null) break;
+      gb.addRow(cells);
+    }
+
+    parseGridEnd(nested);
+    return gb.toGrid();
+  }
+
+  /** Parse grid version, meta, and columns into builder; return number of cols */
+  private int parseGridHeader(HGridBuilder gb, boolean nested)
+  {
     if (nested)
     {
       consume(HaystackToken.lt2);
@@ -275,7 +394,6 @@ public class HZincReader extends HGridReader
     this.version = checkVersion(consumeStr());
 
     // grid meta
-    HGridBuilder gb = new HGridBuilder();
     if (cur == HaystackToken.id)
       gb.meta().add(parseDict());
     consume(HaystackToken.nl);
@@ -295,35 +413,38 @@ public class HZincReader extends HGridReader
     }
     if (numCols == 0) throw err("No columns defined");
     consume(HaystackToken.nl);
+    return numCols;
+  }
 
-    // grid rows
-    while (true)
-    {
-      if (cur == HaystackToken.nl) break;
-      if (cur == HaystackToken.eof) break;
-      if (nested && cur == HaystackToken.gt2) break;
-
-      // read cells
-      HVal[] cells = new HVal[numCols];
-      for (int i = 0; i < numCols; ++i)
-      {
-        if (cur == HaystackToken.comma || cur == HaystackToken.nl || cur == HaystackToken.eof)
-          cells[i] = null;
-        else
-          cells[i] = parseVal();
-        if (i+1 < numCols) consume(HaystackToken.comma);
-      }
-      gb.addRow(cells);
+  /** Parse the cells of the next row or return null at end of grid */
+  private HVal[] parseRow(int numCols, boolean nested)
+  {
+    if (cur == HaystackToken.nl) return null;
+    if (cur == HaystackToken.eof) return null;
+    if (nested && cur == HaystackToken.gt2) return null;
 
-      // newline or end
-      if (nested && cur == HaystackToken.gt2) break;
-      if (cur == HaystackToken.eof) break;
-      consume(HaystackToken.nl);
+    // read cells
+    HVal[] cells = new HVal[numCols];
+    for (int i = 0; i < numCols; ++i)
+    {
+      if (cur == HaystackToken.comma || cur == HaystackToken.nl || cur == HaystackToken.eof)
+        cells[i] = null;
+      else
+        cells[i] = parseVal();
+      if (i+1 < numCols) consume(HaystackToken.comma);
     }
 
+    // newline or end
+    if (nested && cur == HaystackToken.gt2) return cells;
+    if (cur == HaystackToken.eof) return cells;
+    consume(HaystackToken.nl);
+    return cells;
+  }
+
+  private void parseGridEnd(boolean nested)
+  {
     if (cur == HaystackToken.nl) consume(HaystackToken.nl);
     if (nested) consume(HaystackToken.gt2);
-    return gb.toGrid();
   }
 
   private int checkVersion(String s)
@@ -390,6 +511,51 @@ public class HZincReader extends HGridReader
   private ParseException err(String msg) { return err(msg, null); }
   private ParseException err(String msg, Exception e) { return new ParseException(msg + " [line " + curLine + "]", e); }
 
+//////////////////////////////////////////////////////////////////////////
+// ZincCursor
+//////////////////////////////////////////////////////////////////////////
+
+  final class ZincCursor extends HGridCursor
+  {
+    ZincCursor(HGrid header, int numCols)
+    {
+      this.header = header;
+      this.numCols = numCols;
+    }
+
+    public HGrid header() { return header; }
+
+    public HRow next()
+    {
+      if (done) return null;
+      try
+      {
+        HVal[] cells = parseRow(numCols, false);
+        if (cells != null) return HRow.make(header, cells);
+        parseGridEnd(false);
+        verify(HaystackToken.eof);
+      }
+      catch (RuntimeException e)
+      {
+        close();
+        throw e;
+      }
+      close();
+      return null;
+    }
+
+    public void close()
+    {
+      if (done) return;
+      done = true;
+      HZincReader.this.close();
+    }
+
+    private final HGrid header;
+    private final int numCols;
+    private boolean done;
+  }
+
 //////////////////////////////////////////////////////////////////////////
 // Fields
 //////////////////////////////////////////////////////////////////////////
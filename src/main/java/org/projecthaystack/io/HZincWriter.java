@@ -8,10 +8,9 @@
 package org.projecthaystack.io;
 
 import java.io.*;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.*;
 import org.projecthaystack.*;
+import org.projecthaystack.util.DoubleFormat;
 
 /**
  * HZincWriter is used to write grids in the Zinc format
@@ -25,17 +24,15 @@ public class HZincWriter extends HGridWriter
 // Construction
 //////////////////////////////////////////////////////////////////////////
 
-  /** Write using UTF-8 */
+  /**
+   * Write using UTF-8.  Values are encoded directly into an internal
+   * byte buffer which is written to the stream in large blocks.  Like
+   * PrintWriter, IO errors are not raised; once the stream fails the
+   * rest of the output is discarded.
+   */
   public HZincWriter(OutputStream out)
   {
-    try
-    {
-      this.out = new PrintWriter(new OutputStreamWriter(out, "UTF-8"));
-    }
-    catch (IOException e)
-    {
-      throw new RuntimeException(e);
-    }
+    this.out = out;
   }
 
 
@@ -54,35 +51,72 @@ public class HZincWriter extends HGridWriter
   public static String gridToString(HGrid grid, final int version)
   {
     if (version != 2 && version != 3) throw new IllegalArgumentException("Invalid version: " + version);
-    StringWriter out = new StringWriter(grid.numCols() * grid.numRows() * 16);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(grid.numCols() * grid.numRows() * 16 + 32);
     HZincWriter w = new HZincWriter(out);
+    w.toStr = true;
     w.version = version;
     w.writeGrid(grid);
-
-    return out.toString();
+    return w.toUtf8String(out);
   }
 
   public static String valToString(HVal val)
   {
-    StringWriter out = (val instanceof HGrid)
-      ? new StringWriter(((HGrid)val).numCols() * ((HGrid)val).numRows() * 16)
-      : new StringWriter();
-    new HZincWriter(out).writeVal(val);
-    return out.toString();
+    ByteArrayOutputStream out = (val instanceof HGrid)
+      ? new ByteArrayOutputStream(((HGrid)val).numCols() * ((HGrid)val).numRows() * 16 + 32)
+      : new ByteArrayOutputStream(32);
+    HZincWriter w = new HZincWriter(out);
+    w.toStr = true;
+    w.writeVal(val);
+    return w.toUtf8String(out);
   }
 
-  private HZincWriter(StringWriter out) { this.out = new PrintWriter(out); }
+  /** Flush buffer and decode the bytes written to given stream */
+  private String toUtf8String(ByteArrayOutputStream out)
+  {
+    flushBuf();
+    if (surrogates) return decodeSurrogates(out.toByteArray());
+    try
+    {
+      return out.toString("UTF-8");
+    }
+    catch (UnsupportedEncodingException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Decode UTF-8 which may include unpaired surrogates as 3 byte sequences */
+  static String decodeSurrogates(byte[] bytes)
+  {
+    StringBuilder s = new StringBuilder(bytes.length);
+    for (int i=0; i<bytes.length; )
+    {
+      int c = bytes[i] & 0xff;
+      if (c < 0x80) { s.append((char)c); i += 1; }
+      else if (c < 0xe0) { s.append((char)(((c & 0x1f) << 6) | (bytes[i+1] & 0x3f))); i += 2; }
+      else if (c < 0xf0) { s.append((char)(((c & 0x0f) << 12) | ((bytes[i+1] & 0x3f) << 6) | (bytes[i+2] & 0x3f))); i += 3; }
+      else
+      {
+        s.appendCodePoint(((c & 0x07) << 18) | ((bytes[i+1] & 0x3f) << 12) | ((bytes[i+2] & 0x3f) << 6) | (bytes[i+3] & 0x3f));
+        i += 4;
+      }
+    }
+    return s.toString();
+  }
 
   /** Flush underlying output stream */
   public void flush()
   {
-    out.flush();
+    flushBuf();
+    if (error) return;
+    try { out.flush(); } catch (IOException e) { error = true; }
   }
 
   /** Close underlying output stream */
   public void close()
   {
-    out.close();
+    flushBuf();
+    try { out.close(); } catch (IOException e) { error = true; }
   }
 
   /** Write a zinc value */
@@ -136,12 +170,126 @@ public class HZincWriter extends HGridWriter
   private void writeScalar(HVal val)
   {
     if (val == null) p('N');
+    else if (val instanceof HStr) writeStr(((HStr)val).val);
+    else if (val instanceof HNum) writeNum((HNum)val);
+    else if (val instanceof HRef) writeRef((HRef)val);
+    else if (val instanceof HDateTime) writeDateTime((HDateTime)val);
+    else if (val instanceof HMarker) p('M');
+    else if (val instanceof HBool) p(((HBool)val).val ? 'T' : 'F');
+    else if (val instanceof HDate) writeDate((HDate)val);
+    else if (val instanceof HTime) writeTime((HTime)val);
+    else if (val instanceof HUri) writeUri((HUri)val);
     else if (val instanceof HBin) writeBin((HBin)val);
     else if (val instanceof HXStr) writeXStr((HXStr)val);
     else if (val instanceof HSymbol) writeSymbol((HSymbol)val);
     else p(val.toZinc());
   }
 
+//////////////////////////////////////////////////////////////////////////
+// Scalars
+//////////////////////////////////////////////////////////////////////////
+
+  // These match the toZinc() of each type byte for byte
+
+  private void writeStr(String val)
+  {
+    p('"');
+    for (int i=0; i<val.length(); ++i)
+    {
+      char c = val.charAt(i);
+      if (c < ' ' || c == '"' || c == '\\')
+      {
+        p('\\');
+        switch (c)
+        {
+          case '\n':  p('n');  break;
+          case '\r':  p('r');  break;
+          case '\t':  p('t');  break;
+          case '"':   p('"');  break;
+          case '\\':  p('\\'); break;
+          default:
+            p('u').p('0').p('0').p(hex[(c >> 4) & 0xf]).p(hex[c & 0xf]);
+        }
+      }
+      else if (c < 0x80)
+      {
+        p(c);
+      }
+      else
+      {
+        i = utf8(val, i);
+      }
+    }
+    p('"');
+  }
+
+  private void writeNum(HNum num)
+  {
+    p(DoubleFormat.append(scratch(), num.val, num.unit, false));
+  }
+
+  private void writeRef(HRef ref)
+  {
+    p('@').p(ref.val);
+    if (ref.dis != null)
+    {
+      p(' ');
+      writeStr(ref.dis);
+    }
+  }
+
+  private void writeDate(HDate date)
+  {
+    p(date.year).p('-').p2(date.month).p('-').p2(date.day);
+  }
+
+  private void writeTime(HTime time)
+  {
+    p2(time.hour).p(':').p2(time.min).p(':').p2(time.sec);
+    int ms = time.ms;
+    if (ms != 0)
+    {
+      p('.');
+      if (ms < 10) p('0');
+      if (ms < 100) p('0');
+      p(ms);
+    }
+  }
+
+  private void writeDateTime(HDateTime ts)
+  {
+    writeDate(ts.date());
+    p('T');
+    writeTime(ts.time());
+    int offset = ts.tzOffset;
+    if (offset == 0) p('Z');
+    else
+    {
+      if (offset < 0) { p('-'); offset = -offset; }
+      else { p('+'); }
+      p2(offset / 3600).p(':').p2((offset % 3600) / 60);
+    }
+    p(' ').p(ts.tz.name);
+  }
+
+  private void writeUri(HUri uri)
+  {
+    // validate before writing anything
+    String val = uri.val;
+    for (int i=0; i<val.length(); ++i)
+      if (val.charAt(i) < ' ') { p(uri.toZinc()); return; }
+
+    p('`');
+    for (int i=0; i<val.length(); ++i)
+    {
+      char c = val.charAt(i);
+      if (c == '`') p('\\');
+      if (c < 0x80) p(c);
+      else i = utf8(val, i);
+    }
+    p('`');
+  }
+
   private void writeBin(HBin bin)
   {
     if (this.version < 3)
@@ -177,26 +325,7 @@ public class HZincWriter extends HGridWriter
     ++gridDepth;
     try
     {
-      // meta
-      p("ver:\"").p(version).p(".0\"").writeMeta(grid.meta()).nl();
-
-      // cols
-      if (grid.numCols() == 0)
-      {
-        // technically this shoudl be illegal, but
-        // for robustness handle it here
-      }
-      else
-      {
-        for (int i = 0; i < grid.numCols(); ++i)
-        {
-          if (i > 0) p(',');
-          writeCol(grid.col(i));
-        }
-      }
-      nl();
-
-      // rows
+      writeHeader(grid);
       for (int i = 0; i < grid.numRows(); ++i)
       {
         writeRow(grid, grid.row(i));
@@ -209,6 +338,53 @@ public class HZincWriter extends HGridWriter
     }
   }
 
+  /** Begin a grid with the meta and columns of given header */
+  public void writeGridHeader(HGrid header)
+  {
+    if (this.header != null) throw new IllegalStateException("Grid already started");
+    writeHeader(header);
+    this.header = header;
+    ++gridDepth;
+  }
+
+  /** Write a row of the grid started by writeGridHeader */
+  public void writeRow(HDict row)
+  {
+    if (header == null) throw new IllegalStateException("Grid not started");
+    writeRow(header, row);
+    nl();
+  }
+
+  /** End the grid started by writeGridHeader */
+  public void writeGridEnd()
+  {
+    if (header == null) throw new IllegalStateException("Grid not started");
+    header = null;
+    --gridDepth;
+  }
+
+  private void writeHeader(HGrid grid)
+  {
+    // meta
+    p("ver:\"").p(version).p(".0\"").writeMeta(grid.meta()).nl();
+
+    // cols
+    if (grid.numCols() == 0)
+    {
+      // technically this shoudl be illegal, but
+      // for robustness handle it here
+    }
+    else
+    {
+      for (int i = 0; i < grid.numCols(); ++i)
+      {
+        if (i > 0) p(',');
+        writeCol(grid.col(i));
+      }
+    }
+    nl();
+  }
+
   private HZincWriter writeMeta(HDict meta)
   {
     if (meta.isEmpty()) return this;
@@ -241,15 +417,15 @@ public class HZincWriter extends HGridWriter
     p(col.name()).writeMeta(col.meta());
   }
 
-  private void writeRow(HGrid grid, HRow row)
+  private void writeRow(HGrid grid, HDict row)
   {
     for (int i=0; i<grid.numCols(); ++i)
     {
-      HVal val = row.get(grid.col(i), false);
-      if (i > 0) out.write(',');
+      HVal val = cell(grid, row, i);
+      if (i > 0) p(',');
       if (val == null)
       {
-        if (i == 0) out.write('N');
+        if (i == 0) p('N');
       }
       else
       {
@@ -262,10 +438,121 @@ public class HZincWriter extends HGridWriter
 // Utils
 //////////////////////////////////////////////////////////////////////////
 
-  private HZincWriter p(int i) { out.print(i); return this; }
-  private HZincWriter p(char c) { out.print(c); return this; }
-  private HZincWriter p(Object obj) { out.print(obj); return this; }
-  private HZincWriter nl() { out.print('\n'); return this; }
+  /** Write an ASCII char */
+  private HZincWriter p(char c)
+  {
+    if (pos >= buf.length) flushBuf();
+    buf[pos++] = (byte)c;
+    return this;
+  }
+
+  /** Write decimal digits of a long */
+  private HZincWriter p(long i)
+  {
+    if (i < 0)
+    {
+      if (i == Long.MIN_VALUE) return p(String.valueOf(i));
+      p('-');
+      i = -i;
+    }
+    if (pos + 20 > buf.length) flushBuf();
+    int start = pos;
+    do { buf[pos++] = (byte)('0' + (i % 10)); i /= 10; } while (i != 0);
+    for (int a=start, b=pos-1; a < b; ++a, --b)
+    {
+      byte t = buf[a]; buf[a] = buf[b]; buf[b] = t;
+    }
+    return this;
+  }
+
+  /** Write two digits zero padded */
+  private HZincWriter p2(int i)
+  {
+    if (i < 10) p('0');
+    return p(i);
+  }
+
+  /** Write chars as UTF-8 */
+  private HZincWriter p(CharSequence s)
+  {
+    int n = s.length();
+    for (int i=0; i<n; ++i)
+    {
+      char c = s.charAt(i);
+      if (c < 0x80)
+      {
+        if (pos >= buf.length) flushBuf();
+        buf[pos++] = (byte)c;
+      }
+      else
+      {
+        i = utf8(s, i);
+      }
+    }
+    return this;
+  }
+
+  /** Write non-ASCII char at index as UTF-8 and return index of last char used */
+  private int utf8(CharSequence s, int i)
+  {
+    if (pos + 4 > buf.length) flushBuf();
+    int c = s.charAt(i);
+    if (c < 0x800)
+    {
+      buf[pos++] = (byte)(0xc0 | (c >> 6));
+      buf[pos++] = (byte)(0x80 | (c & 0x3f));
+    }
+    else if (c < 0xd800 || c > 0xdfff || (toStr && !isPair(s, i)))
+    {
+      // strings keep an unpaired surrogate as is
+      if (c >= 0xd800 && c <= 0xdfff) surrogates = true;
+      buf[pos++] = (byte)(0xe0 | (c >> 12));
+      buf[pos++] = (byte)(0x80 | ((c >> 6) & 0x3f));
+      buf[pos++] = (byte)(0x80 | (c & 0x3f));
+    }
+    else if (isPair(s, i))
+    {
+      int cp = Character.toCodePoint((char)c, s.charAt(++i));
+      buf[pos++] = (byte)(0xf0 | (cp >> 18));
+      buf[pos++] = (byte)(0x80 | ((cp >> 12) & 0x3f));
+      buf[pos++] = (byte)(0x80 | ((cp >> 6) & 0x3f));
+      buf[pos++] = (byte)(0x80 | (cp & 0x3f));
+    }
+    else
+    {
+      // unpaired surrogate is replaced like OutputStreamWriter
+      buf[pos++] = (byte)'?';
+    }
+    return i;
+  }
+
+  private static boolean isPair(CharSequence s, int i)
+  {
+    return Character.isHighSurrogate(s.charAt(i)) && i+1 < s.length() && Character.isLowSurrogate(s.charAt(i+1));
+  }
+
+  private HZincWriter nl() { return p('\n'); }
+
+  /** Write buffered bytes to the stream */
+  private void flushBuf()
+  {
+    if (pos == 0) return;
+    if (!error)
+    {
+      try { out.write(buf, 0, pos); } catch (IOException e) { error = true; }
+    }
+    pos = 0;
+  }
+
+  /** Reset and return the shared scratch buffer */
+  private StringBuilder scratch()
+  {
+    if (scratch == null) scratch = new StringBuilder(32);
+    scratch.setLength(0);
+    return scratch;
+  }
+
+  private static final char[] hex = "0123456789abcdef".toCharArray();
 
 //////////////////////////////////////////////////////////////////////////
 // Fields
@@ -274,7 +561,14 @@ public class HZincWriter extends HGridWriter
   /** Version of Zinc to write */
   public int version = 3;
 
-  private PrintWriter out;
+  private final OutputStream out;
+  private final byte[] buf = new byte[8192];
+  private int pos;
+  private boolean error;
+  private boolean toStr;       // writing for gridToString/valToString
+  private boolean surrogates;  // unpaired surrogate written in toStr mode
   private int gridDepth = 0;
+  private HGrid header;        // grid started by writeGridHeader
+  private StringBuilder scratch;
 
 }
\ No newline at end of file
@@ -13,7 +13,10 @@ import java.io.IOException;
 import java.io.Reader;
 
 /**
- * Stream based tokenizer for Haystack formats such as Zinc and Filters
+ * Stream based tokenizer for Haystack formats such as Zinc and Filters.
+ * Characters are read from the underlying stream in large blocks and
+ * scanned directly out of a char buffer; token text is accumulated in
+ * a single scratch builder which is reused for every token.
  */
 public class HaystackTokenizer
 {
@@ -25,13 +28,46 @@ public class HaystackTokenizer
   public HaystackTokenizer(Reader in)
   {
     this.in = in;
+    this.buf = new char[bufSize];
     this.tok = HaystackToken.eof;
     consume();
     consume();
   }
 
+  /** Tokenize an in-memory string */
+  public HaystackTokenizer(String in)
+  {
+    this.in = null;
+    this.buf = in.toCharArray();
+    this.len = buf.length;
+    this.tok = HaystackToken.eof;
+    consume();
+    consume();
+  }
+
+  /** Tokenize a range of an in-memory char array starting at given line */
+  HaystackTokenizer(char[] buf, int off, int len, int line)
+  {
+    this.in = null;
+    this.buf = buf;
+    this.pos = off;
+    this.len = off + len;
+    this.line = line;
+    this.tok = HaystackToken.eof;
+    consume();
+    consume();
+  }
+
+  /** Intern ids, strs, refs, and units using given table */
+  void intern(HInternTable intern)
+  {
+    this.intern = intern;
+    this.literals.intern = intern;
+  }
+
   boolean close()
   {
+    if (in == null) return true;
     try
     {
       in.close();
@@ -96,13 +132,13 @@ public class HaystackTokenizer
 
   private HaystackToken id()
   {
-    StringBuffer s = new StringBuffer();
+    StringBuilder s = scratch();
     while (isIdPart(cur))
     {
       s.append((char)cur);
       consume();
     }
-    this.val = s.toString();
+    this.val = intern != null ? intern.str(s, 0, s.length()) : s.toString();
     return HaystackToken.id;
   }
 
@@ -134,7 +170,7 @@ public class HaystackTokenizer
     {
       consume('0');
       consume('x');
-      StringBuffer s = new StringBuffer();
+      StringBuilder s = scratch();
       while (true)
       {
         if (isHex(cur)) { s.append((char)cur); consume(); continue; }
@@ -146,7 +182,7 @@ public class HaystackTokenizer
     }
 
     // consume all things that might be part of this number token
-    StringBuffer s = new StringBuffer().append((char)cur);
+    StringBuilder s = scratch().append((char)cur);
     consume();
     int colons = 0;
     int dashes = 0;
@@ -170,10 +206,10 @@ public class HaystackTokenizer
       consume();
     }
 
-    if (dashes == 2 && colons == 0) return date(s.toString());
+    if (dashes == 2 && colons == 0) return date(s);
     if (dashes == 0 && colons >= 1) return time(s, colons == 1);
     if (dashes >= 2) return dateTime(s);
-    return number(s.toString(), unitIndex);
+    return number(s, unitIndex);
   }
 
   private static boolean isHex(int cur)
@@ -184,11 +220,11 @@ public class HaystackTokenizer
     return false;
   }
 
-  private HaystackToken date(String s)
+  private HaystackToken date(StringBuilder s)
   {
     try
     {
-      this.val = HDate.make(s);
+      this.val = literals.date(s, 0, s.length());
       return HaystackToken.date;
     }
     catch (ParseException e)
@@ -198,13 +234,13 @@ public class HaystackTokenizer
   }
 
   /** we don't require hour to be two digits and we don't require seconds */
-  private HaystackToken time(StringBuffer s, boolean addSeconds)
+  private HaystackToken time(StringBuilder s, boolean addSeconds)
   {
     try
     {
       if (s.charAt(1) == ':') s.insert(0, '0');
       if (addSeconds) s.append(":00");
-      this.val = HTime.make(s.toString());
+      this.val = literals.time(s, 0, s.length());
       return HaystackToken.time;
     }
     catch (ParseException e)
@@ -213,7 +249,7 @@ public class HaystackTokenizer
     }
   }
 
-  private HaystackToken dateTime(StringBuffer s)
+  private HaystackToken dateTime(StringBuilder s)
   {
     // xxx timezone
     if (cur != ' ' || !Character.isUpperCase(peek))
@@ -228,7 +264,7 @@ public class HaystackTokenizer
       while (isIdPart(cur)) { s.append((char)cur); consume(); }
 
       // handle GMT+xx or GMT-xx
-      if ((cur == '+' || cur == '-') && s.toString().endsWith("GMT"))
+      if ((cur == '+' || cur == '-') && endsWith(s, "GMT"))
       {
         s.append((char)cur); consume();
         while (isDigit(cur)) { s.append((char)cur); consume(); }
@@ -236,7 +272,7 @@ public class HaystackTokenizer
     }
     try
     {
-      this.val = HDateTime.make(s.toString());
+      this.val = literals.dateTime(s, 0, s.length());
       return HaystackToken.dateTime;
     }
     catch (ParseException e)
@@ -245,19 +281,18 @@ public class HaystackTokenizer
     }
   }
 
-  private HaystackToken number(String s, int unitIndex)
+  private HaystackToken number(StringBuilder s, int unitIndex)
   {
     try
     {
       if (unitIndex == 0)
       {
-        this.val = HNum.make(Double.parseDouble(s));
+        this.val = HNum.make(literals.toDouble(s, 0, s.length()));
       }
       else
       {
-        String doubleStr = s.substring(0, unitIndex);
-        String unitStr   = s.substring(unitIndex);
-        this.val = HNum.make(Double.parseDouble(doubleStr), unitStr);
+        double val = literals.toDouble(s, 0, unitIndex);
+        this.val = HNum.make(val, literals.unit(s, unitIndex, s.length()));
       }
     }
     catch (Exception e)
@@ -270,7 +305,7 @@ public class HaystackTokenizer
   private HaystackToken str()
   {
     consume('"');
-    StringBuffer s = new StringBuffer();
+    StringBuilder s = scratch();
     while (true)
     {
       if (cur == eof) throw err("Unexpected end of str");
@@ -279,14 +314,14 @@ public class HaystackTokenizer
       s.append((char)cur);
       consume();
     }
-    this.val = HStr.make(s.toString());
+    this.val = intern != null ? intern.hstr(s, 0, s.length()) : HStr.make(s.toString());
     return HaystackToken.str;
   }
 
   private HaystackToken symbol()
   {
     consume('^');
-    StringBuffer s = new StringBuffer();
+    StringBuilder s = scratch();
     while (true)
     {
       if (HRef.isIdChar((char)cur))
@@ -307,7 +342,7 @@ public class HaystackTokenizer
   private HaystackToken ref()
   {
     consume('@');
-    StringBuffer s = new StringBuffer();
+    StringBuilder s = scratch();
     while (true)
     {
       if (HRef.isIdChar((char)cur))
@@ -320,14 +355,14 @@ public class HaystackTokenizer
         break;
       }
     }
-    this.val = HRef.make(s.toString(), null);
+    this.val = intern != null ? intern.ref(s, 0, s.length()) : HRef.make(s.toString(), null);
     return HaystackToken.ref;
   }
 
   private HaystackToken uri()
   {
     consume('`');
-    StringBuffer s = new StringBuffer();
+    StringBuilder s = scratch();
     while (true)
     {
       if (cur == '`') { consume('`'); break; }
@@ -384,22 +419,22 @@ public class HaystackTokenizer
     }
 
     // check for uxxxx
-    StringBuffer esc = new StringBuffer();
     if (cur == 'u')
     {
       consume('u');
-      esc.append((char)cur); consume();
-      esc.append((char)cur); consume();
-      esc.append((char)cur); consume();
-      esc.append((char)cur); consume();
-      try
-      {
-        return (char) Integer.parseInt(esc.toString(), 16);
-      }
-      catch (NumberFormatException e)
+      int code = 0;
+      boolean valid = true;
+      char[] esc = new char[4];
+      for (int i=0; i<4; ++i)
       {
-        throw new ParseException("Invalid unicode escape: " + esc.toString());
+        int digit = Character.digit(cur, 16);
+        if (digit < 0) valid = false;
+        code = (code << 4) | digit;
+        esc[i] = (char)cur;
+        consume();
       }
+      if (!valid) throw new ParseException("Invalid unicode escape: " + new String(esc));
+      return (char)code;
     }
     throw err("Invalid escape sequence: " + (char)cur);
   }
@@ -504,18 +539,49 @@ public class HaystackTokenizer
 
   private void consume()
   {
+    cur = peek;
+    if (pos < len) peek = buf[pos++];
+    else peek = fill();
+  }
+
+  /** Read the next block from the stream and return its first char */
+  private int fill()
+  {
+    if (in == null) return eof;
     try
     {
-      cur = peek;
-      peek = in.read();
+      int n;
+      do { n = in.read(buf, 0, buf.length); } while (n == 0);
+      if (n < 0) { len = 0; pos = 0; return eof; }
+      len = n;
+      pos = 1;
+      return buf[0];
     }
     catch (IOException e)
     {
+      len  = 0;
+      pos  = 0;
       cur  = eof;
-      peek = eof;
+      return eof;
     }
   }
 
+  /** Reset and return the shared scratch builder */
+  private StringBuilder scratch()
+  {
+    scratch.setLength(0);
+    return scratch;
+  }
+
+  private static boolean endsWith(StringBuilder s, String suffix)
+  {
+    int off = s.length() - suffix.length();
+    if (off < 0) return false;
+    for (int i=0; i<suffix.length(); ++i)
+      if (s.charAt(off+i) != suffix.charAt(i)) return false;
+    return true;
+  }
+
 //////////////////////////////////////////////////////////////////////////
 // Fields
 //////////////////////////////////////////////////////////////////////////
@@ -524,8 +590,15 @@ public class HaystackTokenizer
   public Object val;        //token literal or identifier
   int line = 1;             // current line number
 
-  private final Reader in;   // underlying stream
+  private final Reader in;   // underlying stream or null if in-memory
+  private final char[] buf;  // block of chars read from stream
+  private int pos;           // index of next char in buf
+  private int len;           // number of valid chars in buf
   private int cur;           // current char
   private int peek;          // next char
+  private final StringBuilder scratch = new StringBuilder(64); // reused token text
+  private final LiteralDecoder literals = new LiteralDecoder();
+  private HInternTable intern;
+  private static final int bufSize = 8192;
   private static final int eof = -1;
 }
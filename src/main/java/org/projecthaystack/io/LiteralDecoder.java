@@ -0,0 +1,259 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import org.projecthaystack.*;
+
+/**
+ * LiteralDecoder decodes number, date, time, and timestamp literals
+ * directly from a character sequence without allocating substrings.
+ * Literals in the canonical form written by HZincWriter/HJsonWriter
+ * take the fast path; anything else is passed to the original String
+ * based parsers so that results and errors are identical.  The decoder
+ * remembers the last date, timezone, and unit since these repeat from
+ * row to row in history grids.  Instances are not thread safe.
+ */
+final class LiteralDecoder
+{
+
+//////////////////////////////////////////////////////////////////////////
+// Numbers
+//////////////////////////////////////////////////////////////////////////
+
+  /** Decode a double with the same result as Double.parseDouble */
+  double toDouble(CharSequence s, int start, int end)
+  {
+    // fast path for decimals with no exponent whose digits fit exactly
+    // in a double: mantissa / 10^frac is then correctly rounded
+    int i = start;
+    boolean neg = false;
+    if (i < end && s.charAt(i) == '-') { neg = true; ++i; }
+    long mantissa = 0;
+    int digits = 0;
+    int frac = -1;
+    for (; i < end; ++i)
+    {
+      char c = s.charAt(i);
+      if ('0' <= c && c <= '9')
+      {
+        mantissa = mantissa * 10 + (c - '0');
+        if (++digits > 15) break;
+        if (frac >= 0) ++frac;
+      }
+      else if (c == '.' && frac < 0) frac = 0;
+      else break;
+    }
+    if (i == end && digits > 0 && frac != 0 && frac <= 22)
+    {
+      double val = (double)mantissa;
+      if (frac > 0) val = val / pow10[frac];
+      return neg ? -val : val;
+    }
+    return Double.parseDouble(s.subSequence(start, end).toString());
+  }
+
+  /** Decode a unit, reusing the last unit string if identical */
+  String unit(CharSequence s, int start, int end)
+  {
+    String last = lastUnit;
+    if (last != null && equals(s, start, end, last)) return last;
+    if (intern != null) return lastUnit = intern.str(s, start, end);
+    return lastUnit = s.subSequence(start, end).toString();
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Date/Time
+//////////////////////////////////////////////////////////////////////////
+
+  /** Decode with the same result as HDate.make(String) */
+  HDate date(CharSequence s, int start, int end)
+  {
+    HDate val = fastDate(s, start, end);
+    if (val != null) return val;
+    return HDate.make(s.subSequence(start, end).toString());
+  }
+
+  /** Decode with the same result as HTime.make(String) */
+  HTime time(CharSequence s, int start, int end)
+  {
+    if (isTime(s, start, end)) return makeTime(s, start, end);
+    return HTime.make(s.subSequence(start, end).toString());
+  }
+
+  /** Decode with the same result as HDateTime.make(String) */
+  HDateTime dateTime(CharSequence s, int start, int end)
+  {
+    HDateTime val = fastDateTime(s, start, end);
+    if (val != null) return val;
+    return HDateTime.make(s.subSequence(start, end).toString());
+  }
+
+  private HDate fastDate(CharSequence s, int start, int end)
+  {
+    if (end - start != 10) return null;
+    if (s.charAt(start+4) != '-' || s.charAt(start+7) != '-') return null;
+    int year  = digits(s, start, 4);
+    int month = digits(s, start+5, 2);
+    int day   = digits(s, start+8, 2);
+    if (year < 0 || month < 0 || day < 0) return null;
+
+    HDate last = lastDate;
+    if (last != null && last.day == day && last.month == month && last.year == year) return last;
+    return lastDate = HDate.make(year, month, day);
+  }
+
+  /** Is "hh:mm:ss" or "hh:mm:ss.F*" with all digits */
+  private static boolean isTime(CharSequence s, int start, int end)
+  {
+    int n = end - start;
+    if (n < 8 || n == 9) return false;
+    if (s.charAt(start+2) != ':' || s.charAt(start+5) != ':') return false;
+    if (digits(s, start, 2) < 0 || digits(s, start+3, 2) < 0 || digits(s, start+6, 2) < 0) return false;
+    if (n == 8) return true;
+    if (s.charAt(start+8) != '.') return false;
+    // only the first three fractional digits are read
+    return digits(s, start+9, Math.min(3, n-9)) >= 0;
+  }
+
+  /** Make time from string already checked by isTime */
+  private HTime makeTime(CharSequence s, int start, int end)
+  {
+    int hour = digits(s, start, 2);
+    int min  = digits(s, start+3, 2);
+    int sec  = digits(s, start+6, 2);
+    int ms = 0;
+    if (end - start > 8)
+    {
+      int places = Math.min(3, end - start - 9);
+      ms = digits(s, start+9, places);
+      if (places == 1) ms *= 100;
+      else if (places == 2) ms *= 10;
+    }
+
+    // whole minutes repeat constantly in history data
+    if (sec == 0 && ms == 0 && hour < 24 && min < 60)
+    {
+      if (minutes == null) minutes = new HTime[24*60];
+      HTime t = minutes[hour*60 + min];
+      if (t == null) t = minutes[hour*60 + min] = HTime.make(hour, min, 0, 0);
+      return t;
+    }
+    return HTime.make(hour, min, sec, ms);
+  }
+
+  /**
+   * Fast path for the canonical timestamp forms:
+   *   YYYY-MM-DDThh:mm:ss[.FFF]Z
+   *   YYYY-MM-DDThh:mm:ss[.FFF]Z UTC
+   *   YYYY-MM-DDThh:mm:ss[.FFF](Z|+hh:mm|-hh:mm) Tz_Name
+   * Shape is fully verified before any value is made so that errors
+   * are raised in the same order as HDateTime.make(String).
+   */
+  private HDateTime fastDateTime(CharSequence s, int start, int end)
+  {
+    if (end - start < 20 || s.charAt(start+10) != 'T') return null;
+    int timeStart = start + 11;
+
+    // Z or Z UTC
+    if (s.charAt(end-1) == 'Z' || endsWith(s, start, end, "Z UTC"))
+    {
+      int timeEnd = s.charAt(end-1) == 'Z' ? end-1 : end-5;
+      if (!isTime(s, timeStart, timeEnd)) return null;
+      HDate date = fastDate(s, start, start+10);
+      if (date == null) return null;
+      return HDateTime.make(date, makeTime(s, timeStart, timeEnd), HTimeZone.UTC, 0);
+    }
+
+    // offset followed by space and timezone name
+    int sp = indexOf(s, ' ', start, end);
+    if (sp < 0 || sp+1 >= end) return null;
+    int offset;
+    int timeEnd;
+    if (s.charAt(sp-1) == 'Z')
+    {
+      offset = 0;
+      timeEnd = sp-1;
+    }
+    else
+    {
+      timeEnd = sp-6;
+      if (timeEnd <= timeStart) return null;
+      char sign = s.charAt(timeEnd);
+      if ((sign != '-' && sign != '+') || s.charAt(sp-3) != ':') return null;
+      int tzHours = digits(s, sp-5, 2);
+      int tzMins  = digits(s, sp-2, 2);
+      if (tzHours < 0 || tzMins < 0) return null;
+      // matches HDateTime.parseOffset which doesn't negate the minutes
+      offset = (sign == '-' ? -1 : 1) * (tzHours * 3600) + (tzMins * 60);
+    }
+    if (!isTime(s, timeStart, timeEnd)) return null;
+    if (indexOf(s, '-', timeStart, timeEnd) >= 0 || indexOf(s, '+', timeStart, timeEnd) >= 0) return null;
+    HDate date = fastDate(s, start, start+10);
+    if (date == null) return null;
+
+    HTimeZone tz = tz(s, sp+1, end);
+    return HDateTime.make(date, makeTime(s, timeStart, timeEnd), tz, offset);
+  }
+
+  /** Lookup timezone, reusing the last one if the name is identical */
+  private HTimeZone tz(CharSequence s, int start, int end)
+  {
+    HTimeZone last = lastTz;
+    if (last != null && equals(s, start, end, last.name)) return last;
+    return lastTz = HTimeZone.make(s.subSequence(start, end).toString());
+  }
+
+//////////////////////////////////////////////////////////////////////////
+// Utils
+//////////////////////////////////////////////////////////////////////////
+
+  /** Parse n decimal digits or return -1 if any char is not a digit */
+  private static int digits(CharSequence s, int start, int n)
+  {
+    int val = 0;
+    for (int i=start; i<start+n; ++i)
+    {
+      char c = s.charAt(i);
+      if (c < '0' || c > '9') return -1;
+      val = val * 10 + (c - '0');
+    }
+    return val;
+  }
+
+  private static int indexOf(CharSequence s, char ch, int start, int end)
+  {
+    for (int i=start; i<end; ++i)
+      if (s.charAt(i) == ch) return i;
+    return -1;
+  }
+
+  private static boolean endsWith(CharSequence s, int start, int end, String suffix)
+  {
+    int off = end - suffix.length();
+    if (off < start) return false;
+    return equals(s, off, end, suffix);
+  }
+
+  private static boolean equals(CharSequence s, int start, int end, String x)
+  {
+    if (end - start != x.length()) return false;
+    for (int i=0; i<x.length(); ++i)
+      if (s.charAt(start+i) != x.charAt(i)) return false;
+    return true;
+  }
+
+  private static final double[] pow10 = {
+    1e0,  1e1,  1e2,  1e3,  1e4,  1e5,  1e6,  1e7,  1e8,  1e9,  1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+  HInternTable intern;        // optional table for units
+  private HDate lastDate;
+  private HTimeZone lastTz;
+  private String lastUnit;
+  private HTime[] minutes;
+}
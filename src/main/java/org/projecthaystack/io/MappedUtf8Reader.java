@@ -0,0 +1,161 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * MappedUtf8Reader reads a UTF-8 file by memory mapping it in large
+ * windows and decoding the bytes directly into the caller's char
+ * buffer.  Runs of ASCII are copied with a tight loop; multi-byte
+ * sequences which straddle a window boundary cause the next window
+ * to be mapped starting at the sequence.  Malformed bytes decode
+ * to U+FFFD.
+ */
+final class MappedUtf8Reader extends Reader
+{
+  MappedUtf8Reader(File file) throws IOException
+  {
+    this(file, 64 * 1024 * 1024);
+  }
+
+  MappedUtf8Reader(File file, int windowSize) throws IOException
+  {
+    this.file = new RandomAccessFile(file, "r");
+    this.channel = this.file.getChannel();
+    this.size = channel.size();
+    this.windowSize = windowSize;
+  }
+
+  /** Size of the file in bytes */
+  long size() { return size; }
+
+  public int read(char[] cbuf, int off, int len) throws IOException
+  {
+    if (len == 0) return 0;
+    int n = 0;
+
+    // low surrogate left over from previous read
+    if (pending != 0) { cbuf[off + n++] = pending; pending = 0; }
+
+    while (n < len)
+    {
+      // map next window if needed
+      if (buf == null || pos >= lim)
+      {
+        if (!map(winStart + pos)) break;
+      }
+
+      // ASCII fast path
+      MappedByteBuffer b = this.buf;
+      int p = pos;
+      int max = Math.min(lim, p + (len - n));
+      while (p < max)
+      {
+        byte x = b.get(p);
+        if (x < 0) break;
+        cbuf[off + n++] = (char)x;
+        ++p;
+      }
+      pos = p;
+      if (n >= len || pos >= lim) continue;
+
+      // multi-byte sequence
+      int c = b.get(pos) & 0xff;
+      int need;
+      if      ((c & 0xe0) == 0xc0) need = 2;
+      else if ((c & 0xf0) == 0xe0) need = 3;
+      else if ((c & 0xf8) == 0xf0) need = 4;
+      else { ++pos; cbuf[off + n++] = '\ufffd'; continue; }
+
+      // sequence straddles window; remap starting at it
+      if (pos + need > lim && winStart + lim < size)
+      {
+        map(winStart + pos);
+        continue;
+      }
+
+      int cp = decode(c, need);
+      if (cp < 0x10000)
+      {
+        cbuf[off + n++] = (char)cp;
+      }
+      else
+      {
+        cbuf[off + n++] = (char)(0xd800 + ((cp - 0x10000) >> 10));
+        char low = (char)(0xdc00 + ((cp - 0x10000) & 0x3ff));
+        if (n < len) cbuf[off + n++] = low;
+        else pending = low;
+      }
+    }
+    return n == 0 ? -1 : n;
+  }
+
+  /** Decode sequence at pos with given lead byte and length; advance pos */
+  private int decode(int c, int need)
+  {
+    int cp = c & (0x7f >> need);
+    int i = 1;
+    for (; i < need; ++i)
+    {
+      if (pos + i >= lim) break;
+      int x = buf.get(pos + i) & 0xff;
+      if ((x & 0xc0) != 0x80) break;
+      cp = (cp << 6) | (x & 0x3f);
+    }
+    if (i < need || !valid(cp, need))
+    {
+      // malformed: replace the lead byte and resync on the next byte
+      ++pos;
+      return 0xfffd;
+    }
+    pos += need;
+    return cp;
+  }
+
+  /** Reject overlong encodings, surrogates, and out of range */
+  private static boolean valid(int cp, int need)
+  {
+    switch (need)
+    {
+      case 2: return cp >= 0x80;
+      case 3: return cp >= 0x800 && (cp < 0xd800 || cp > 0xdfff);
+      default: return cp >= 0x10000 && cp <= 0x10ffff;
+    }
+  }
+
+  /** Map window starting at given file offset; return false at end of file */
+  private boolean map(long start) throws IOException
+  {
+    if (start >= size) return false;
+    long len = Math.min(windowSize, size - start);
+    this.buf = channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+    this.winStart = start;
+    this.pos = 0;
+    this.lim = (int)len;
+    return true;
+  }
+
+  public void close() throws IOException
+  {
+    buf = null;
+    file.close();
+  }
+
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final long size;
+  private final int windowSize;
+  private MappedByteBuffer buf;  // current window or null
+  private long winStart;         // file offset of window
+  private int pos;               // position within window
+  private int lim;               // size of window
+  private char pending;          // low surrogate not yet returned
+}
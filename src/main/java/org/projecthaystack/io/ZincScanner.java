@@ -0,0 +1,266 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import java.io.*;
+import java.util.ArrayList;
+
+/**
+ * ZincScanner walks the chars of a grid tracking strings, uris, comments,
+ * and nesting depth to find the top level line and cell boundaries
+ * without decoding any values.  Line numbers are counted the same way
+ * as HaystackTokenizer.
+ */
+final class ZincScanner
+{
+  ZincScanner(char[] buf, int len, int pos, int line)
+  {
+    this.buf = buf;
+    this.len = len;
+    this.pos = pos;
+    this.line = line;
+  }
+
+  /** Read all chars into a scanner positioned at start and close reader */
+  static ZincScanner readAll(Reader r, int initial) throws IOException
+  {
+    char[] buf = new char[Math.max(initial, 16)];
+    int len = 0;
+    try
+    {
+      while (true)
+      {
+        if (len == buf.length)
+        {
+          char[] temp = new char[buf.length * 2];
+          System.arraycopy(buf, 0, temp, 0, len);
+          buf = temp;
+        }
+        int n = r.read(buf, len, buf.length - len);
+        if (n < 0) break;
+        len += n;
+      }
+    }
+    finally
+    {
+      r.close();
+    }
+    return new ZincScanner(buf, len, 0, 1);
+  }
+
+  /**
+   * Scan the header and rows of a grid starting at pos.  Set headerEnd
+   * to the start of the first row, gridEnd to the end of the last row,
+   * and leave pos at the blank line ending the grid or end of input.
+   * If chunkSize is positive then also record the [offset, line] of
+   * each run of rows of about that size.  Return false if the grid
+   * can't be split safely.
+   */
+  boolean scanGrid(int chunkSize)
+  {
+    // ver line and cols line
+    if (scanLine() != LINE || scanLine() != LINE) return false;
+    headerEnd = pos;
+
+    int chunkStart = -1;
+    while (true)
+    {
+      int rowStart = pos;
+      int rowLine = line;
+      int r = scanLine();
+      if (r == FAIL) return false;
+      if (r == BLANK || r == EOF) { gridEnd = rowStart; pos = rowStart; line = rowLine; return true; }
+      if (chunkSize > 0 && (chunkStart < 0 || rowStart - chunkStart >= chunkSize))
+      {
+        chunkStart = rowStart;
+        chunks.add(new int[] { rowStart, rowLine });
+      }
+      if (r == LAST) { gridEnd = pos; return true; }
+    }
+  }
+
+  /**
+   * Scan the row at pos for the top level chars which delimit its
+   * cells and store their offsets into seps starting at off: the char
+   * before the row, each comma, and the end of the row.  Leave pos at
+   * the start of the next row.  Return false unless the row has exactly
+   * numCols cells and can be split safely.
+   */
+  boolean scanCells(int[] seps, int off, int numCols)
+  {
+    int n = 0;
+    int depth = 0;
+    seps[off] = pos - 1;
+    while (pos < len)
+    {
+      char c = buf[pos];
+      if (c == '\n' || c == '\r')
+      {
+        if (depth == 0) break;
+        ++pos;
+        if (c == '\r' && pos < len && buf[pos] == '\n') ++pos;
+        ++line;
+        continue;
+      }
+      if (c == '"' || c == '`')
+      {
+        if (!skipQuoted(c)) return false;
+        continue;
+      }
+      if (pos+1 < len)
+      {
+        char next = buf[pos+1];
+        if (c == '/' && (next == '/' || next == '*')) return false;
+        if (c == '<' && next == '<') { ++depth; pos += 2; continue; }
+        if (c == '>' && next == '>') { if (--depth < 0) return false; pos += 2; continue; }
+      }
+      if (c == '[' || c == '{' || c == '(') ++depth;
+      else if (c == ']' || c == '}' || c == ')') { if (--depth < 0) return false; }
+      else if (c == ',' && depth == 0)
+      {
+        if (++n >= numCols) return false;
+        seps[off+n] = pos;
+      }
+      ++pos;
+    }
+    if (depth != 0 || n != numCols-1) return false;
+    seps[off+numCols] = pos;
+
+    // skip newline
+    if (pos < len)
+    {
+      if (buf[pos++] == '\r' && pos < len && buf[pos] == '\n') ++pos;
+      ++line;
+    }
+    return true;
+  }
+
+  /** Is the rest of the input only whitespace */
+  boolean atEnd()
+  {
+    for (int i=pos; i<len; ++i)
+      if (!isSpace(buf[i])) return false;
+    return true;
+  }
+
+  /** Skip the blank line at pos which terminates a grid */
+  void skipBlankLine()
+  {
+    scanLine();
+  }
+
+  /** Is the text after the grid only a single blank line and whitespace */
+  boolean onlyBlankAfterGrid(int end)
+  {
+    if (pos >= end) return true;
+    if (scanLine() != BLANK) return false;
+    return atEnd();
+  }
+
+  /** Scan one line; return LINE, LAST, BLANK, EOF, or FAIL */
+  private int scanLine()
+  {
+    boolean content = false;
+    int depth = 0;
+    while (pos < len)
+    {
+      char c = buf[pos];
+      if (c == '\n' || c == '\r')
+      {
+        ++pos;
+        if (c == '\r' && pos < len && buf[pos] == '\n') ++pos;
+        ++line;
+        if (depth > 0) continue;
+        return content ? LINE : BLANK;
+      }
+      if (isSpace(c)) { ++pos; continue; }
+      content = true;
+      if (c == '"' || c == '`')
+      {
+        if (!skipQuoted(c)) return FAIL;
+      }
+      else if (c == '/' && pos+1 < len && buf[pos+1] == '/')
+      {
+        while (pos < len && buf[pos] != '\n' && buf[pos] != '\r') ++pos;
+        content = depth > 0 || pos > 0 && hasContentBefore();
+      }
+      else if (c == '/' && pos+1 < len && buf[pos+1] == '*')
+      {
+        return FAIL;
+      }
+      else if (c == '<' && pos+1 < len && buf[pos+1] == '<')
+      {
+        ++depth;
+        pos += 2;
+      }
+      else if (c == '>' && pos+1 < len && buf[pos+1] == '>')
+      {
+        if (--depth < 0) return FAIL;
+        pos += 2;
+      }
+      else
+      {
+        ++pos;
+      }
+    }
+    if (depth > 0) return FAIL;
+    return content ? LAST : EOF;
+  }
+
+  /** Is there non-whitespace earlier on this line before a // comment */
+  private boolean hasContentBefore()
+  {
+    int i = pos - 1;
+    while (i >= 0 && buf[i] != '\n' && buf[i] != '\r') --i;
+    for (++i; i < pos; ++i)
+    {
+      if (buf[i] == '/' && i+1 < pos && buf[i+1] == '/') break;
+      if (!isSpace(buf[i])) return true;
+    }
+    return false;
+  }
+
+  /** Skip a string or uri literal; return false if unterminated */
+  private boolean skipQuoted(char quote)
+  {
+    ++pos;
+    while (pos < len)
+    {
+      char c = buf[pos];
+      if (c == '\\') { pos += 2; continue; }
+      ++pos;
+      if (c == quote) return true;
+      if (c == '\n' || c == '\r')
+      {
+        // raw newlines aren't counted as lines by the tokenizer
+        // and aren't legal in uris; let sequential parse decide
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private static final int LINE  = 0;
+  private static final int LAST  = 1;
+  private static final int BLANK = 2;
+  private static final int EOF   = 3;
+  private static final int FAIL  = 4;
+
+  final char[] buf;
+  final int len;
+  int pos;
+  int line;
+  int headerEnd;
+  int gridEnd;
+  final ArrayList chunks = new ArrayList();
+
+  private static boolean isSpace(char c)
+  {
+    return c == ' ' || c == '\t' || c == 0xa0;
+  }
+}
@@ -31,26 +31,15 @@ public abstract class HOp
    * Service the request and return response.
    * This method routes to "onService(HServer,HGrid)".
    */
-  public void onService(HServer db, HttpServletRequest req, HttpServletResponse res)
+  public void onService(HServer db, HttpServletRequest req, final HttpServletResponse res)
     throws Exception
   {
-    // parse GET query parameters or POST body into grid
-    HGrid reqGrid = HGrid.EMPTY;
+    // parse GET query parameters or open cursor on POST body
+    HGridCursor reqCursor = HGridCursor.make(HGrid.EMPTY);
     String method = req.getMethod();
-    if (method.equals("GET"))  reqGrid = getToGrid(req);
-    if (method.equals("POST")) reqGrid = postToGrid(req, res);
-    if (reqGrid == null) return;
-
-    // route to onService(HServer, HGrid)
-    HGrid resGrid;
-    try
-    {
-      resGrid = onService(db, reqGrid);
-    }
-    catch (Throwable e)
-    {
-      resGrid = HGridBuilder.errToGrid(e);
-    }
+    if (method.equals("GET"))  reqCursor = HGridCursor.make(getToGrid(req));
+    if (method.equals("POST")) reqCursor = postToCursor(db, req, res);
+    if (reqCursor == null) return;
 
     // figure out best format to use for response
     HGridFormat format = toFormat(req);
@@ -66,9 +55,77 @@ public abstract class HOp
     {
       res.setContentType(format.mime);
     }
-    HGridWriter out = format.makeWriter(res.getOutputStream());
-    out.writeGrid(resGrid);
-    out.flush();
+
+    // compress the body if the client accepts it and it reaches the
+    // threshold; Content-Encoding is set before the first byte goes out
+    OutputStream body = res.getOutputStream();
+    final String encoding = HContentEncoding.negotiate(req.getHeader("Accept-Encoding"));
+    res.addHeader("Vary", "Accept-Encoding");
+    if (encoding != null)
+    {
+      body = db.compression.encode(body, encoding, new Runnable()
+      {
+        public void run() { res.setHeader("Content-Encoding", encoding); }
+      });
+    }
+    ResponseWriter out = new ResponseWriter(format.makeWriter(body));
+
+    // route to onService(HServer, HGridCursor, HGridWriter); errors
+    // are sent as an error grid unless the response has been started
+    boolean ok = false;
+    try
+    {
+      try
+      {
+        onService(db, reqCursor, out);
+      }
+      catch (Throwable e)
+      {
+        if (out.started) throw e;
+        out.writeGrid(HGridBuilder.errToGrid(e));
+      }
+      finally
+      {
+        reqCursor.close();
+      }
+      out.flush();
+      ok = true;
+    }
+    finally
+    {
+      // always release the compressor's native memory, but on failure
+      // don't finish the body so the truncated response isn't valid
+      if (encoding != null)
+      {
+        if (ok) body.close();
+        else HContentEncoding.abort(body);
+      }
+    }
+  }
+
+  /**
+   * Service the request and write the response grid to the given
+   * writer.  Ops with large results override this to write rows as
+   * they are produced using writeGridHeader, writeRow, and writeGridEnd.
+   * An exception raised before anything is written is sent as an error
+   * grid.  The default implementation routes to "onService(HServer,HGridCursor)".
+   */
+  public void onService(HServer db, HGridCursor req, HGridWriter res)
+    throws Exception
+  {
+    res.writeGrid(onService(db, req));
+  }
+
+  /**
+   * Service the request and return response.  The request grid is
+   * read through a cursor so that large POST bodies can be processed
+   * one row at a time as they arrive.  The default implementation reads
+   * the whole request grid and routes to "onService(HServer,HGrid)".
+   */
+  public HGrid onService(HServer db, HGridCursor req)
+    throws Exception
+  {
+    return onService(db, req.toGrid());
   }
 
   /**
@@ -111,9 +168,9 @@ public abstract class HOp
   }
 
   /**
-   * Map the POST body to grid
+   * Map the POST body to grid cursor
    */
-  private HGrid postToGrid(HttpServletRequest req, HttpServletResponse res)
+  private HGridCursor postToCursor(HServer db, HttpServletRequest req, HttpServletResponse res)
     throws IOException
   {
     // get content type
@@ -132,8 +189,20 @@ public abstract class HOp
       return null;
     }
 
-    // read the grid
-    return format.makeReader(req.getInputStream()).readGrid();
+    // decompress body if the client sent it with a content encoding
+    InputStream in;
+    try
+    {
+      in = db.compression.decode(req.getInputStream(), req.getHeader("Content-Encoding"));
+    }
+    catch (UnsupportedEncodingException e)
+    {
+      res.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, e.getMessage());
+      return null;
+    }
+
+    // open cursor to read the grid
+    return format.makeReader(in).readCursor();
   }
 
   /**
@@ -142,21 +211,29 @@ public abstract class HOp
    */
   private HGridFormat toFormat(HttpServletRequest req)
   {
-    HGridFormat format = null;
-    String accept = req.getHeader("Accept");
-    if (accept != null)
-    {
-      String[] mimes = HStr.split(accept, ',', true);
-      for (int i=0; i<mimes.length; ++i)
-      {
-        format = HGridFormat.find(mimes[i], false);
-        if (format != null && format.writer != null) break;
-      }
-    }
+    HGridFormat format = HGridFormat.negotiate(req.getHeader("Accept"));
     if (format == null) format = HGridFormat.find("text/plain", true);
     return format;
   }
 
+  /**
+   * ResponseWriter notes when the response grid has been started.
+   */
+  private static class ResponseWriter extends HGridWriter
+  {
+    ResponseWriter(HGridWriter out) { this.out = out; }
+
+    public void writeGrid(HGrid grid) { started = true; out.writeGrid(grid); }
+    public void writeGridHeader(HGrid header) { started = true; out.writeGridHeader(header); }
+    public void writeRow(HDict row) { out.writeRow(row); }
+    public void writeGridEnd() { out.writeGridEnd(); }
+    public void flush() { out.flush(); }
+    public void close() { out.close(); }
+
+    final HGridWriter out;
+    boolean started;
+  }
+
   HRef[] gridToIds(HServer db, HGrid grid)
   {
     HRef[] ids = new HRef[grid.numRows()];
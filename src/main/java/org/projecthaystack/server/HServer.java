@@ -9,6 +9,7 @@ package org.projecthaystack.server;
 
 import java.util.*;
 import org.projecthaystack.*;
+import org.projecthaystack.io.*;
 
 /**
  * HServer is the interface between HServlet and a database of
@@ -107,6 +108,62 @@ public abstract class HServer extends HProj
    * Default implementation scans all records using "iterator"
    */
   protected HGrid onReadAll(String filter, int limit)
+  {
+    ArrayList acc = scan(filter, limit);
+    return HGridBuilder.dictsToGrid((HDict[])acc.toArray(new HDict[acc.size()]));
+  }
+
+  /**
+   * Query every entity record that matches given filter and write
+   * the same grid as "readAll" to the given writer.  Implementations
+   * may write rows as they are found rather than building the grid.
+   */
+  public final void readAll(String filter, int limit, HGridWriter out)
+  {
+    onReadAll(filter, limit, out);
+  }
+
+  /**
+   * Subclass hook for streaming readAll.  The default implementation
+   * writes the grid from "onReadAll(String,int)".  Subclasses which
+   * use the default scan of "iterator" may route to "writeAll".
+   */
+  protected void onReadAll(String filter, int limit, HGridWriter out)
+  {
+    out.writeGrid(onReadAll(filter, limit));
+  }
+
+  /**
+   * Scan all records using "iterator" and write the matches to the
+   * given writer one row at a time.  A grid's columns must be known
+   * before its first row, so the matches are collected first; however
+   * their tags are never copied into a grid.
+   */
+  protected final void writeAll(String filter, int limit, HGridWriter out)
+  {
+    ArrayList recs = scan(filter, limit);
+
+    // columns in the same order as dictsToGrid
+    HGridBuilder b = new HGridBuilder();
+    HashMap colsByName = new HashMap();
+    for (int i=0; i<recs.size(); ++i)
+    {
+      for (Iterator it = ((HDict)recs.get(i)).iterator(); it.hasNext(); )
+      {
+        String name = (String)((Map.Entry)it.next()).getKey();
+        if (colsByName.put(name, name) == null) b.addCol(name);
+      }
+    }
+    if (colsByName.size() == 0) b.addCol("empty");
+
+    out.writeGridHeader(b.toGrid());
+    for (int i=0; i<recs.size(); ++i)
+      out.writeRow((HDict)recs.get(i));
+    out.writeGridEnd();
+  }
+
+  /** Scan all records using "iterator" for those matching filter */
+  private ArrayList scan(String filter, int limit)
   {
     HFilter f = HFilter.make(filter);
     ArrayList acc = new ArrayList();
@@ -119,7 +176,7 @@ public abstract class HServer extends HProj
         if  (acc.size() >= limit) break;
       }
     }
-    return HGridBuilder.dictsToGrid((HDict[])acc.toArray(new HDict[acc.size()]));
+    return acc;
   }
 
   private HFilter.Pather filterPather = new HFilter.Pather()
@@ -294,7 +351,35 @@ public abstract class HServer extends HProj
   {
     // lookup entity
     HDict rec = readById(id);
+    HDateTimeRange r = toHisRange(rec, range);
 
+    // route to subclass
+    HHisItem[] items = onHisRead(rec, r);
+    checkHisItems(r, items);
+
+    // build and return result grid
+    return HGridBuilder.hisItemsToGrid(hisMeta(id, r), items);
+  }
+
+  /**
+   * Read history time-series data like "hisRead" and write the same
+   * grid to the given writer.  The record and range are checked before
+   * anything is written; the items are written by the subclass hook
+   * "onHisRead(HDict,HDateTimeRange,HGrid,HGridWriter)".
+   */
+  public final void hisRead(HRef id, Object range, HGridWriter out)
+  {
+    HDict rec = readById(id);
+    HDateTimeRange r = toHisRange(rec, range);
+    HGrid header = HGridBuilder.hisItemsToGrid(hisMeta(id, r), new HHisItem[0]);
+    onHisRead(rec, r, header, out);
+  }
+
+  /**
+   * Check the record is historized and resolve the range in its timezone
+   */
+  private HDateTimeRange toHisRange(HDict rec, Object range)
+  {
     // check that entity has "his" tag
     if (rec.missing("his"))
       throw new UnknownNameException("Rec missing 'his' tag: " + rec.dis());
@@ -327,23 +412,25 @@ public abstract class HServer extends HProj
     if (!r.start.tz.equals(tz))
       throw new RuntimeException("range.tz != rec: " + r.start.tz + " != " + tz);
 
-    // route to subclass
-    HHisItem[] items = onHisRead(rec, r);
+    return r;
+  }
 
-    // check items
+  private static void checkHisItems(HDateTimeRange r, HHisItem[] items)
+  {
     if (items.length > 0)
     {
       if (r.start.millis() >= items[0].ts.millis()) throw new IllegalStateException("start range not met");
       if (r.end.millis() < items[items.length-1].ts.millis()) throw new IllegalStateException("end range not met");
     }
+  }
 
-    // build and return result grid
-    HDict meta = new HDictBuilder()
+  private static HDict hisMeta(HRef id, HDateTimeRange r)
+  {
+    return new HDictBuilder()
       .add("id", id)
       .add("hisStart", r.start)
       .add("hisEnd", r.end)
       .toDict();
-    return HGridBuilder.hisItemsToGrid(meta, items);
   }
 
   /**
@@ -352,6 +439,23 @@ public abstract class HServer extends HProj
    */
   protected abstract HHisItem[] onHisRead(HDict rec, HDateTimeRange range);
 
+  /**
+   * Implementation hook for streaming hisRead.  Write the given header
+   * with "writeGridHeader", then each item with "writeRow", then call
+   * "writeGridEnd".  The items must be exclusive of start and inclusive
+   * of end time.  The default implementation writes the items returned
+   * by "onHisRead(HDict,HDateTimeRange)".
+   */
+  protected void onHisRead(HDict rec, HDateTimeRange range, HGrid header, HGridWriter out)
+  {
+    HHisItem[] items = onHisRead(rec, range);
+    checkHisItems(range, items);
+    out.writeGridHeader(header);
+    for (int i=0; i<items.length; ++i)
+      out.writeRow(items[i]);
+    out.writeGridEnd();
+  }
+
   /**
    * Write a set of history time-series data to the given point record.
    * The record must already be defined and must be properly tagged as
@@ -409,6 +513,17 @@ public abstract class HServer extends HProj
    */
   protected abstract HGrid onInvokeAction(HDict rec, String action, HDict args);
 
+//////////////////////////////////////////////////////////////////////////
+// Compression
+//////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Content encoding used by HOp to compress responses for clients
+   * which accept gzip or deflate and to decompress request bodies.
+   * Configure the threshold and level or read the byte counters here.
+   */
+  public HContentEncoding compression = new HContentEncoding();
+
 //////////////////////////////////////////////////////////////////////////
 // Fields
 //////////////////////////////////////////////////////////////////////////
@@ -133,6 +133,21 @@ class ReadOp extends HOp
 {
   public String name() { return "read"; }
   public String summary() { return "Read entity records in database"; }
+  public void onService(HServer db, HGridCursor req, HGridWriter res) throws Exception
+  {
+    // stream filter reads
+    HGrid grid = req.toGrid();
+    HRow row = grid.isEmpty() ? null : grid.row(0);
+    if (row != null && row.has("filter"))
+    {
+      String filter = row.getStr("filter");
+      int limit = row.has("limit") ? row.getInt("limit") : Integer.MAX_VALUE;
+      db.readAll(filter, limit, res);
+      return;
+    }
+    res.writeGrid(onService(db, grid));
+  }
+
   public HGrid onService(HServer db, HGrid req) throws Exception
   {
     // ensure we have one row
@@ -305,6 +320,16 @@ class HisReadOp extends HOp
 {
   public String name() { return "hisRead"; }
   public String summary() { return "Read time series from historian"; }
+  public void onService(HServer db, HGridCursor req, HGridWriter res) throws Exception
+  {
+    HGrid grid = req.toGrid();
+    if (grid.isEmpty()) throw new Exception("Request has no rows");
+    HRow row = grid.row(0);
+    HRef id = valToId(db, row.get("id"));
+
+    String range = row.getStr("range");
+    db.hisRead(id, range, res);
+  }
   public HGrid onService(HServer db, HGrid req) throws Exception
   {
     if (req.isEmpty()) throw new Exception("Request has no rows");
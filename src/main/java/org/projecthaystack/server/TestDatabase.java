@@ -10,6 +10,7 @@ package org.projecthaystack.server;
 import java.net.*;
 import java.util.*;
 import org.projecthaystack.*;
+import org.projecthaystack.io.*;
 
 /**
  * TestDatabase provides a simple implementation of
@@ -141,6 +142,8 @@ public class TestDatabase extends HServer
 
   protected Iterator iterator() { return recs.values().iterator(); }
 
+  protected void onReadAll(String filter, int limit, HGridWriter out) { writeAll(filter, limit, out); }
+
 //////////////////////////////////////////////////////////////////////////
 // Navigation
 //////////////////////////////////////////////////////////////////////////
@@ -168,7 +171,7 @@ public class TestDatabase extends HServer
     Iterator it = grid.iterator();
     for (int i=0; it.hasNext(); ) rows[i++] = (HDict)it.next();
     for (int i=0; i<rows.length; ++i)
-      rows[i] = new HDictBuilder().add(rows[i]).add("navId", rows[i].id().val).toDict();
+      rows[i] = rows[i].with("navId", HStr.make(rows[i].id().val));
     return HGridBuilder.dictsToGrid(rows);
   }
 
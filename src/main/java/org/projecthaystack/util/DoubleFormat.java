@@ -0,0 +1,164 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.util;
+
+import java.math.BigDecimal;
+
+/**
+ * DoubleFormat encodes numbers the way HNum always has: values whose
+ * magnitude is over 1.0 are formatted like {@code DecimalFormat("#0.####")}
+ * with HALF_EVEN rounding, smaller values like {@code Double.toString},
+ * and the special values as "INF", "-INF", and "NaN".  Formatting appends
+ * to the caller's StringBuilder without allocating, and since there is
+ * no shared state the methods are safe to call from any thread.
+ */
+public final class DoubleFormat
+{
+  private DoubleFormat() {}
+
+  /**
+   * Append number followed by optional unit.  The unit is omitted
+   * for INF, -INF, and NaN.  Return the builder.
+   */
+  public static StringBuilder append(StringBuilder s, double val, String unit, boolean spaceBeforeUnit)
+  {
+    append(s, val);
+    if (unit != null && !Double.isInfinite(val) && !Double.isNaN(val))
+    {
+      if (spaceBeforeUnit) s.append(' ');
+      s.append(unit);
+    }
+    return s;
+  }
+
+  /** Append number without a unit and return the builder */
+  public static StringBuilder append(StringBuilder s, double val)
+  {
+    if (val == Double.POSITIVE_INFINITY) return s.append("INF");
+    if (val == Double.NEGATIVE_INFINITY) return s.append("-INF");
+    if (Double.isNaN(val)) return s.append("NaN");
+
+    // don't encode huge set of decimals if over 1.0
+    double abs = val; if (abs < 0) abs = -abs;
+    if (abs <= 1.0) return s.append(val);
+    if (abs >= twoPow53) return appendHuge(s, val);
+
+    // DecimalFormat rounds the shortest round trip digits, which is
+    // the same as rounding the exact value unless those digits have
+    // four or fewer decimal places; that is only possible once the
+    // gap between doubles reaches 1e-4 from 2^39 up
+    long whole = (long)abs;
+    int frac = 0;
+    double rem = abs - whole;
+    if (abs >= twoPow39 && rem != 0.0)
+    {
+      int start = s.length();
+      s.append(abs);
+      long digits = shortestDigits(s, start);
+      s.setLength(start);
+      int places = (int)(digits & 7);
+      if (places <= 4)
+      {
+        long d = digits >>> 3;
+        whole = d / pow10[places];
+        frac = (int)(d % pow10[places]) * (int)pow10[4 - places];
+        rem = 0.0;
+      }
+    }
+    if (rem != 0.0)
+    {
+      // the fraction is f/2^k which is rounded exactly to 4 places:
+      // f*10000/2^k = f*625/2^(k-4) without overflow
+      long bits = Double.doubleToRawLongBits(rem);
+      long f = (bits & 0xfffffffffffffL) | 0x10000000000000L;
+      int k = 1075 - (int)((bits >>> 52) & 0x7ff);
+      int zeros = Long.numberOfTrailingZeros(f);
+      f >>>= zeros;
+      k -= zeros;
+
+      long scaled = f * 625L;
+      if (k <= 4)
+      {
+        frac = (int)(scaled << (4 - k));
+      }
+      else
+      {
+        int shift = k - 4;
+        long q = scaled >>> shift;
+        long r = scaled & ((1L << shift) - 1);
+        long half = 1L << (shift - 1);
+        if (r > half || (r == half && (q & 1) != 0)) ++q;
+        frac = (int)q;
+      }
+      if (frac == 10000) { ++whole; frac = 0; }
+    }
+
+    if (val < 0) s.append('-');
+    s.append(whole);
+    if (frac != 0)
+    {
+      s.append('.');
+      int div = 1000;
+      while (frac != 0)
+      {
+        s.append((char)('0' + frac / div));
+        frac %= div;
+        div /= 10;
+      }
+    }
+    return s;
+  }
+
+  /**
+   * Parse the Double.toString text appended at start into its digits
+   * as a long without trailing zeros and the number of decimal places.
+   * Return digits << 3 | places, or 7 if there are over 4 places.
+   */
+  private static long shortestDigits(StringBuilder s, int start)
+  {
+    int end = s.length();
+    int exp = 0;
+    for (int i=start; i<end; ++i)
+    {
+      if (s.charAt(i) != 'E') continue;
+      for (int j=i+1; j<end; ++j) exp = exp * 10 + (s.charAt(j) - '0');
+      end = i;
+      break;
+    }
+
+    long val = 0;
+    int afterDot = -1;
+    for (int i=start; i<end; ++i)
+    {
+      char c = s.charAt(i);
+      if (c == '.') { afterDot = 0; continue; }
+      val = val * 10 + (c - '0');
+      if (afterDot >= 0) ++afterDot;
+    }
+
+    // the exponent moves the point right
+    int places = Math.max(afterDot, 0) - exp;
+    for (; places < 0; ++places) val *= 10;
+    while (places > 0 && val % 10 == 0) { val /= 10; --places; }
+    if (places > 4) return 7;
+    return val << 3 | places;
+  }
+
+  /**
+   * Values of 2^53 and above are all whole numbers which DecimalFormat
+   * prints as the shortest round trip digits padded with zeros.
+   */
+  private static StringBuilder appendHuge(StringBuilder s, double val)
+  {
+    return s.append(new BigDecimal(Double.toString(val)).toPlainString());
+  }
+
+  private static final long[] pow10 = { 1L, 10L, 100L, 1000L, 10000L };
+  private static final double twoPow39 = 549755813888.0;
+  private static final double twoPow53 = 9007199254740992.0;
+}
@@ -68,10 +68,10 @@ public class HDateTest extends HValTest
   private void verifyMidnight(HDate date, String tzName, String str)
   {
     HDateTime ts = date.midnight(HTimeZone.make(tzName));
-    assertEquals(ts.date, date);
-    assertEquals(ts.time.hour, 0);
-    assertEquals(ts.time.min,  0);
-    assertEquals(ts.time.sec,  0);
+    assertEquals(ts.date(), date);
+    assertEquals(ts.time().hour, 0);
+    assertEquals(ts.time().min,  0);
+    assertEquals(ts.time().sec,  0);
     assertEquals(ts.toString(), str);
     assertEquals(ts, read(ts.toZinc()));
     assertEquals(ts.millis(), ((HDateTime)read(str)).millis());
@@ -34,7 +34,7 @@ public class HDateTimeRangeTest
 
     HDateTimeRange r = HDateTimeRange.make(xb.toString(), tz);
     assertEquals(r.start, xb);
-    assertEquals(r.end.date, today);
+    assertEquals(r.end.date(), today);
     assertEquals(r.end.tz, tz);
 
     // this week
@@ -78,11 +78,11 @@ public class HDateTimeRangeTest
 
   private void verifyRange(HDateTimeRange r, HDate start, HDate end)
   {
-    assertEquals(r.start.date,    start);
-    assertEquals(r.start.time,    HTime.MIDNIGHT);
+    assertEquals(r.start.date(),    start);
+    assertEquals(r.start.time(),    HTime.MIDNIGHT);
     assertEquals(r.start.tz.name, HTimeZone.DEFAULT.name);
-    assertEquals(r.end.date,      end.plusDays(1));
-    assertEquals(r.end.time,      HTime.MIDNIGHT);
+    assertEquals(r.end.date(),      end.plusDays(1));
+    assertEquals(r.end.time(),      HTime.MIDNIGHT);
     assertEquals(r.end.tz.name,   HTimeZone.DEFAULT.name);
   }
 
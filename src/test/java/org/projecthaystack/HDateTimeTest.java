@@ -9,6 +9,10 @@ package org.projecthaystack;
 
 import static org.testng.Assert.*;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.TimeZone;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -49,15 +53,15 @@ public class HDateTimeTest extends HValTest
   {
     HDateTime ts = HDateTime.make(1307377618069L, HTimeZone.make("New_York"));
     verifyZinc(ts, "2011-06-06T12:26:58.069-04:00 New_York");
-    assertEquals(ts.date.toString(), "2011-06-06");
-    assertEquals(ts.time.toString(), "12:26:58.069");
+    assertEquals(ts.date().toString(), "2011-06-06");
+    assertEquals(ts.time().toString(), "12:26:58.069");
     assertEquals(ts.tzOffset, -4*60*60);
     assertEquals(ts.tz.name, "New_York");
     assertEquals(ts.tz.java.getID(), "America/New_York");
     assertEquals(ts.millis(), 1307377618069L);
 
     // convert back to millis
-    ts = HDateTime.make(ts.date, ts.time, ts.tz, ts.tzOffset);
+    ts = HDateTime.make(ts.date(), ts.time(), ts.tz, ts.tzOffset);
     assertEquals(ts.millis(), 1307377618069L);
 
     // different timezones
@@ -73,6 +77,132 @@ public class HDateTimeTest extends HValTest
       "2011-06-08T04:07:33.771+07:00 GMT-7");
   }
 
+  @Test
+  public void testTransitions()
+  {
+    // compare with Calendar around every transition of each zone; the
+    // transition table of java.util.TimeZone ends at 2037 for zones
+    // without a recurring rule, such as Casablanca
+    Instant end = Instant.parse("2037-01-01T00:00:00Z");
+    String[] ids = TimeZone.getAvailableIDs();
+    int zones = 0;
+    for (int i=0; i<ids.length; ++i)
+    {
+      HTimeZone tz = HTimeZone.make(TimeZone.getTimeZone(ids[i]), false);
+      if (tz == null || tz.rules == null) continue;
+      ++zones;
+      verifyFast(HDateTime.make(2024, 1, 15, 12, 30, 15, tz, 0).millis(), tz);
+      verifyFast(HDateTime.make(2024, 7, 15, 12, 30, 15, tz, 0).millis(), tz);
+
+      Instant t = Instant.parse("1902-01-01T00:00:00Z");
+      for (ZoneOffsetTransition trans; (trans = tz.rules.nextTransition(t)) != null; )
+      {
+        t = trans.getInstant();
+        if (t.isAfter(end)) break;
+        long m = t.toEpochMilli();
+        verifyFast(m - 3600000L, tz);
+        verifyFast(m - 1, tz);
+        verifyFast(m, tz);
+        verifyFast(m + 1, tz);
+        verifyFast(m + 3600000L, tz);
+        verifyFast(trans.getDateTimeBefore(), tz);
+        verifyFast(trans.getDateTimeBefore().minusMinutes(1), tz);
+        verifyFast(trans.getDateTimeAfter(), tz);
+        verifyFast(trans.getDateTimeAfter().minusMinutes(1), tz);
+      }
+    }
+    assertTrue(zones > 300, "zones " + zones);
+  }
+
+  private void verifyFast(long millis, HTimeZone tz)
+  {
+    HDateTime fast = HDateTime.make(millis, tz);
+    HDateTime cal = HDateTime.calendarMake(millis, tz);
+    assertEquals(fast, cal, tz + " " + millis);
+    assertEquals(fast.millis(), millis);
+    HDateTime x = HDateTime.make(fast.date(), fast.time(), tz, fast.tzOffset);
+    assertEquals(x.millis(), x.calendarMillis(), tz + " " + millis);
+  }
+
+  private void verifyFast(LocalDateTime local, HTimeZone tz)
+  {
+    if (local.getYear() < 1901) return;
+    HDate date = HDate.make(local.getYear(), local.getMonthValue(), local.getDayOfMonth());
+    HTime time = HTime.make(local.getHour(), local.getMinute(), local.getSecond());
+    HDateTime fast = HDateTime.make(date, time, tz);
+    HDateTime cal = HDateTime.calendarMake(date, time, tz);
+    assertEquals(fast, cal, tz + " " + local);
+    assertEquals(fast.millis(), cal.millis(), tz + " " + local);
+  }
+
+  @Test
+  public void testPacked()
+  {
+    HTimeZone ny = HTimeZone.make("New_York");
+    HDateTime ts = HDateTime.make(2024, 7, 4, 13, 45, 30, ny, -4*3600);
+    assertEquals(ts.date(), HDate.make(2024, 7, 4));
+    assertEquals(ts.time(), HTime.make(13, 45, 30));
+    assertEquals(ts.millis(), 1720115130000L);
+
+    // same instant with another offset is not equal
+    HDateTime x = HDateTime.make(ts.millis(), ny, -5*3600);
+    assertEquals(x.time(), HTime.make(12, 45, 30));
+    assertNotEquals(x, ts);
+    assertEquals(x.compareTo(ts), 0);
+    assertEquals(HDateTime.make(ts.millis(), ny, -4*3600), ts);
+    assertEquals(HDateTime.make(ts.millis(), ny, -4*3600).hashCode(), ts.hashCode());
+
+    // fields before the epoch and at day boundaries
+    verifyPacked("1935-12-31T23:59:59.999-05:00 New_York");
+    verifyPacked("1969-12-31T00:00:00Z UTC");
+    verifyPacked("2000-02-29T00:00:00+05:30 Kolkata");
+    verifyPacked("2099-12-31T23:59:59.001+14:00 Kiritimati");
+
+    // before the Gregorian cutover dates are Julian like Calendar
+    ts = HDateTime.make(-20000000000000L, HTimeZone.UTC);
+    assertTrue(ts.toZinc().startsWith("1336-03-15T"), ts.toZinc());
+    assertEquals(ts.date(), HDateTime.calendarMake(-20000000000000L, HTimeZone.UTC).date());
+    assertEquals(HDateTime.make(ts.date(), ts.time(), ts.tz, ts.tzOffset), ts);
+
+    // local time skipped by DST is normalized after the gap
+    ts = HDateTime.make(HDate.make(2024, 3, 10), HTime.make(2, 30), ny);
+    assertEquals(ts.toZinc(), "2024-03-10T03:30:00-04:00 New_York");
+  }
+
+  private void verifyPacked(String zinc)
+  {
+    HDateTime ts = HDateTime.make(zinc);
+    assertEquals(ts.toZinc(), zinc);
+    assertEquals(HDateTime.make(ts.date(), ts.time(), ts.tz, ts.tzOffset), ts);
+    assertEquals(ts.millis(), ts.calendarMillis());
+  }
+
+  @Test
+  public void testDst()
+  {
+    HTimeZone ny = HTimeZone.make("New_York");
+
+    // spring forward: 02:30 is skipped
+    HDateTime ts = HDateTime.make(HDate.make(2024, 3, 10), HTime.make(2, 30), ny);
+    assertEquals(ts.tzOffset, -4*3600);
+    assertEquals(ts.millis(), HDateTime.make("2024-03-10T07:30:00Z").millis());
+    assertEquals(ts.date(), HDate.make(2024, 3, 10));
+    assertEquals(ts.time(), HTime.make(3, 30));
+
+    // fall back: 01:30 happens twice, the later offset is used
+    ts = HDateTime.make(HDate.make(2024, 11, 3), HTime.make(1, 30), ny);
+    assertEquals(ts.tzOffset, -5*3600);
+    assertEquals(ts.millis(), HDateTime.make("2024-11-03T06:30:00Z").millis());
+
+    // both instants of 01:30 decode with their own offset
+    assertEquals(HDateTime.make(HDateTime.make("2024-11-03T05:30:00Z").millis(), ny).toZinc(), "2024-11-03T01:30:00-04:00 New_York");
+    assertEquals(HDateTime.make(HDateTime.make("2024-11-03T06:30:00Z").millis(), ny).toZinc(), "2024-11-03T01:30:00-05:00 New_York");
+
+    // leap day and end of year
+    assertEquals(HDateTime.make(HDateTime.make("2024-02-29T23:59:59.999Z").millis(), HTimeZone.UTC).toZinc(), "2024-02-29T23:59:59.999Z UTC");
+    assertEquals(HDateTime.make(HDateTime.make("2100-12-31T23:00:00Z").millis() + 3600000L, HTimeZone.UTC).date(), HDate.make(2101, 1, 1));
+  }
+
   @Test
   public void testMillis()
   {
@@ -9,6 +9,7 @@ package org.projecthaystack;
 
 import static org.testng.Assert.*;
 
+import java.util.*;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -156,4 +157,215 @@ public class HDictTest extends HValTest
     assertEquals(new HDictBuilder().add("id", HRef.make("a", "b")).toDict().dis(), "b");
     assertEquals(new HDictBuilder().add("id", HRef.make("a")).add("dis", "d").toDict().dis(), "d");
   }
+
+  @Test
+  public void testCompactOrder()
+  {
+    Random r = new Random(18);
+    for (int n=0; n<=60; ++n)
+    {
+      for (int trial=0; trial<20; ++trial)
+      {
+        HDictBuilder b = new HDictBuilder();
+        HashMap map = new HashMap(37);
+        for (int i=0; i<n; ++i)
+        {
+          String name = "t" + r.nextInt(n * 2 + 1);
+          HVal val = i % 11 == 5 ? null : HNum.make(i);
+          b.add(name, val);
+          map.put(name, val);
+        }
+        verifyOrder(b.toDict(), map);
+      }
+    }
+
+    // nine names in the same bucket fall back to a real HashMap
+    HDictBuilder b = new HDictBuilder();
+    HashMap map = new HashMap(37);
+    for (int i=0, found=0; found<9; ++i)
+    {
+      String name = "c" + i;
+      int h = name.hashCode();
+      if (((h ^ (h >>> 16)) & 63) != 7) continue;
+      b.add(name, HMarker.VAL);
+      map.put(name, HMarker.VAL);
+      ++found;
+    }
+    verifyOrder(b.toDict(), map);
+  }
+
+  private void verifyOrder(HDict dict, HashMap map)
+  {
+    assertEquals(dict.size(), map.size());
+    Iterator a = dict.iterator();
+    Iterator b = map.entrySet().iterator();
+    while (b.hasNext())
+    {
+      Map.Entry x = (Map.Entry)a.next();
+      Map.Entry y = (Map.Entry)b.next();
+      assertEquals(x.getKey(), y.getKey());
+      assertEquals(x.getValue(), y.getValue());
+      assertEquals(dict.get((String)y.getKey(), false), y.getValue());
+    }
+    assertFalse(a.hasNext());
+    assertNull(dict.get("notThere", false));
+  }
+
+  @Test
+  public void testCompactImpls()
+  {
+    HDict small = new HDictBuilder().add("a", 1).add("b").add("a", 2).toDict();
+    assertTrue(small instanceof HDict.ArrayImpl);
+    assertEquals(small.get("a"), HNum.make(2));
+    assertEquals(small.size(), 2);
+
+    HDict[] big = new HDict[3];
+    for (int i=0; i<big.length; ++i)
+    {
+      HDictBuilder b = new HDictBuilder();
+      for (int j=0; j<20; ++j) b.add("tag" + j, HNum.make(i * j));
+      assertEquals(b.size(), 20);
+      assertEquals(b.get("tag19"), HNum.make(i * 19));
+      big[i] = b.toDict();
+      assertTrue(big[i] instanceof HDict.ShapeImpl);
+      assertEquals(big[i].get("tag7"), HNum.make(i * 7));
+    }
+    assertSame(((HDict.ShapeImpl)big[0]).shape, ((HDict.ShapeImpl)big[2]).shape);
+
+    HDictBuilder b = new HDictBuilder();
+    for (int j=0; j<60; ++j) b.add("tag" + j, HNum.make(j));
+    HDict huge = b.toDict();
+    assertTrue(huge instanceof HDict.MapImpl);
+    assertEquals(huge.get("tag59"), HNum.make(59));
+
+    // equality across implementations
+    HashMap map = new HashMap(37);
+    for (int j=0; j<20; ++j) map.put("tag" + j, HNum.make(j));
+    HDict viaMap = new HDict.MapImpl(map);
+    HDict viaShape = new HDictBuilder().add(viaMap).toDict();
+    assertEquals(viaShape, viaMap);
+    assertEquals(viaMap, viaShape);
+    assertEquals(viaShape.hashCode(), viaMap.hashCode());
+    assertEquals(viaShape, big[1]);
+    assertNotEquals(viaShape, big[2]);
+  }
+
+  @Test
+  public void testWith()
+  {
+    // small dicts stay compact
+    HDict a = new HDictBuilder().add("x", 1).add("y", 2).toDict();
+    HDict b = a.with("z", HMarker.VAL);
+    assertTrue(b instanceof HDict.ArrayImpl);
+    assertEquals(b, new HDictBuilder().add("x", 1).add("y", 2).add("z").toDict());
+    assertEquals(a.size(), 2);
+    assertEquals(b.with("x", HNum.make(3)).get("x"), HNum.make(3));
+    assertEquals(b.with("x", null), new HDictBuilder().add("y", 2).add("z").toDict());
+    assertSame(b.without("foo"), b);
+    assertEquals(b.without("y").without("x").without("z"), HDict.EMPTY);
+    assertEquals(a.merge(new HDictBuilder().add("x", "s").add("w").toDict()),
+                 new HDictBuilder().add("x", "s").add("y", 2).add("w").toDict());
+    assertSame(a.merge(HDict.EMPTY), a);
+    try { a.with("Bad Name", HMarker.VAL); fail(); } catch (IllegalArgumentException e) {}
+
+    // larger dicts become persistent and share unchanged nodes
+    HDict p = HDict.EMPTY;
+    for (int i=0; i<100; ++i) p = p.with("t" + i, HNum.make(i));
+    assertTrue(p instanceof HDict.PersistentImpl);
+    assertEquals(p.size(), 100);
+    HDict q = p.with("t5", HStr.make("five"));
+    assertEquals(p.get("t5"), HNum.make(5));
+    assertEquals(q.get("t5"), HStr.make("five"));
+    assertEquals(q.size(), 100);
+    assertSame(q.with("t5", q.get("t5")), q);
+    assertSame(q.without("nope"), q);
+
+    // same tags in any representation are equal
+    HDictBuilder builder = new HDictBuilder();
+    for (int i=0; i<100; ++i) builder.add("t" + i, HNum.make(i));
+    HDict map = builder.toDict();
+    assertEquals(p, map);
+    assertEquals(map, p);
+    assertEquals(p.hashCode(), map.hashCode());
+
+    // tags iterate in the same order as HDictBuilder
+    verifyOrder(p, map);
+    HDict site = new HDictBuilder().add("id", HRef.make("a")).add("dis", "A").add("site")
+      .add("area", 1000).add("geoAddr", "x").add("geoCity", "y").add("geoState", "z").add("tz", "New_York").toDict();
+    verifyOrder(site.with("navId", HStr.make("a")), new HDictBuilder().add(site).add("navId", "a").toDict());
+    builder = new HDictBuilder();
+    for (int i=0; i<100; ++i) builder.add("t" + i, i == 5 ? (HVal)HStr.make("five") : HNum.make(i));
+    verifyOrder(q, builder.toDict());
+    builder = new HDictBuilder();
+    for (int i=0; i<100; ++i) if (i != 7) builder.add("t" + i, HNum.make(i));
+    builder.add("t7", HNum.make(7));
+    verifyOrder(p.without("t7").with("t7", HNum.make(7)), builder.toDict());
+  }
+
+  private void verifyOrder(HDict a, HDict b)
+  {
+    assertEquals(a, b);
+    Iterator ia = a.iterator();
+    Iterator ib = b.iterator();
+    while (ib.hasNext())
+      assertEquals(((Map.Entry)ia.next()).getKey(), ((Map.Entry)ib.next()).getKey());
+    assertFalse(ia.hasNext());
+  }
+
+  @Test
+  public void testPersistentRandom()
+  {
+    // compare random updates against a HashMap, with colliding names
+    // such as "xAa" and "xBB" which have the same hash code
+    assertEquals("xAa".hashCode(), "xBB".hashCode());
+    String[] names = new String[60];
+    for (int i=0; i<names.length; ++i)
+      names[i] = i < 8 ? "x" + (i % 2 == 0 ? "Aa" : "BB") + (char)('a' + i / 2) : "n" + i * 7919;
+    names[0] = "xAa"; names[1] = "xBB"; names[2] = "xAaBB"; names[3] = "xBBAa"; names[4] = "xAaAa"; names[5] = "xBBBB";
+
+    Random r = new Random(42);
+    HashMap model = new HashMap();
+    HDict dict = HDict.EMPTY;
+    for (int i=0; i<20000; ++i)
+    {
+      String name = names[r.nextInt(names.length)];
+      int op = r.nextInt(10);
+      if (op < 6)
+      {
+        HNum val = HNum.make(r.nextInt(5));
+        model.put(name, val);
+        dict = dict.with(name, val);
+      }
+      else if (op < 9)
+      {
+        model.remove(name);
+        dict = dict.without(name);
+      }
+      else
+      {
+        HDict other = new HDictBuilder().add(name, "m").add(names[r.nextInt(names.length)], "n").toDict();
+        for (Iterator it = other.iterator(); it.hasNext(); )
+        {
+          Map.Entry e = (Map.Entry)it.next();
+          model.put(e.getKey(), e.getValue());
+        }
+        dict = dict.merge(other);
+      }
+      if (i % 97 == 0 || i > 19900) verifyModel(dict, model, names);
+    }
+  }
+
+  private void verifyModel(HDict dict, HashMap model, String[] names)
+  {
+    assertEquals(dict.size(), model.size());
+    for (int i=0; i<names.length; ++i)
+      assertEquals(dict.get(names[i], false), model.get(names[i]), names[i]);
+    HashMap seen = new HashMap();
+    for (Iterator it = dict.iterator(); it.hasNext(); )
+    {
+      Map.Entry e = (Map.Entry)it.next();
+      assertNull(seen.put(e.getKey(), e.getValue()));
+    }
+    assertEquals(seen, model);
+  }
 }
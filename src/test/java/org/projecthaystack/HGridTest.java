@@ -111,6 +111,98 @@ public class HGridTest extends HValTest
     verifyGridIterator(g);
   }
 
+  @Test
+  public void testColumnar()
+  {
+    HTimeZone ny = HTimeZone.make("New_York");
+    long start = HDateTime.make(2024, 3, 10, 0, 0, 0, ny, -5*3600).millis();
+    HGridBuilder b = new HGridBuilder();
+    b.addCol("ts");
+    b.addCol("val");
+    b.addCol("alarm");
+    b.addCol("note");
+    int n = 200;
+    for (int i=0; i<n; ++i)
+    {
+      // crosses the DST change at 2am
+      HDateTime ts = HDateTime.make(start + i * 60000L, ny);
+      HNum val = i % 10 == 0 ? null : HNum.make(i * 0.5, "kW");
+      HMarker alarm = i % 3 == 0 ? HMarker.VAL : null;
+      b.addRow(new HVal[] { ts, val, alarm, null });
+    }
+    HGrid g = b.toGrid();
+    assertTrue(g.isColumnar());
+    assertEquals(g.numRows(), n);
+
+    // cells match what went in
+    HCol ts = g.col("ts");
+    HCol val = g.col("val");
+    HCol alarm = g.col("alarm");
+    HCol note = g.col("note");
+    double[] doubles = g.toDoubles(val);
+    long[] millis = g.toMillis(ts);
+    int count = 0;
+    for (Iterator it = g.iterator(); it.hasNext(); ++count)
+    {
+      int i = count;
+      HRow r = (HRow)it.next();
+      assertEquals(r.get("ts"), HDateTime.make(start + i * 60000L, ny));
+      assertEquals(g.getMillis(i, ts), start + i * 60000L);
+      assertEquals(millis[i], start + i * 60000L);
+      if (i % 10 == 0)
+      {
+        assertNull(r.get("val", false));
+        assertTrue(g.isNull(i, val));
+        assertTrue(Double.isNaN(doubles[i]));
+        try { g.getDouble(i, val); fail(); } catch (NullPointerException e) {}
+      }
+      else
+      {
+        assertEquals(r.get("val"), HNum.make(i * 0.5, "kW"));
+        assertEquals(g.getDouble(i, val), i * 0.5);
+        assertEquals(doubles[i], i * 0.5);
+      }
+      assertEquals(r.has("alarm"), i % 3 == 0);
+      assertEquals(g.isNull(i, alarm), i % 3 != 0);
+      assertNull(r.get("note", false));
+      assertTrue(g.isNull(i, note));
+    }
+    assertEquals(count, n);
+    try { g.row(n); fail(); } catch (ArrayIndexOutOfBoundsException e) {}
+
+    // same as grid stored by row
+    HGrid byRow = HGridBuilder.dictsToGrid(new HDict[] { g.row(0), g.row(1) });
+    assertFalse(byRow.isColumnar());
+    assertEquals(byRow.getDouble(1, byRow.col("val")), 0.5);
+    assertEquals(byRow.toMillis(byRow.col("ts"))[1], start + 60000L);
+    HGrid copy = new org.projecthaystack.io.HZincReader(g.toZinc()).readGrid();
+    assertTrue(copy.isColumnar());
+    assertEquals(copy, g);
+    assertEquals(copy.hashCode(), g.hashCode());
+
+    // mixed units, timezones, or types stay boxed
+    b = new HGridBuilder();
+    b.addCol("a");
+    b.addCol("b");
+    for (int i=0; i<n; ++i)
+      b.addRow(new HVal[] { HNum.make(i, i == 5 ? "W" : "kW"), i == 5 ? HStr.make("x") : HMarker.VAL });
+    g = b.toGrid();
+    assertFalse(g.isColumnar());
+    assertEquals(g.row(5).get("a"), HNum.make(5, "W"));
+    assertEquals(g.getDouble(5, g.col("a")), 5.0);
+
+    // records with any boxed column are stored by row
+    b = new HGridBuilder();
+    b.addCol("id");
+    b.addCol("site");
+    for (int i=0; i<100; ++i)
+      b.addRow(new HVal[] { HRef.make("r" + i), HMarker.VAL });
+    g = b.toGrid();
+    assertFalse(g.isColumnar());
+    assertTrue(g.row(5) == g.row(5));
+    assertEquals(g.row(5).id(), HRef.make("r5"));
+  }
+
   HCol verifyCol(HGrid g, int i, String n)
   {
     HCol col = g.col(i);
@@ -57,6 +57,37 @@ public class HNumTest extends HValTest
     assertEquals(HNum.make(Double.NEGATIVE_INFINITY, "%").toZinc(), "-INF");
   }
 
+  @Test
+  public void testCanonical()
+  {
+    // small integral values are shared per unit
+    assertSame(HNum.make(100, "%"), HNum.make(100.0, new String("%")));
+    assertSame(HNum.make(1L), HNum.make(1.0));
+    assertSame(HNum.make(-16, "kW"), HNum.make(-16.0, "kW"));
+    assertNotSame(HNum.make(256, "kW"), HNum.make(256, "kW"));
+    assertNotSame(HNum.make(0.5, "kW"), HNum.make(0.5, "kW"));
+    assertSame(HNum.make(0.0, null), HNum.ZERO);
+
+    // zero of either sign is ZERO
+    assertSame(HNum.make(-0.0), HNum.ZERO);
+    assertEquals(HNum.make(-0.0).toZinc(), "0.0");
+    assertEquals(HNum.make(-0.0).toJson(), "n:0.0");
+
+    // but with a unit -0.0 keeps its sign
+    assertEquals(HNum.make(-0.0, "s").toZinc(), "-0.0s");
+    assertEquals(HNum.make(0.0, "s").toZinc(), "0.0s");
+    assertSame(HNum.make(0.0, "s"), HNum.make(0L, "s"));
+    assertNotSame(HNum.make(-0.0, "s"), HNum.make(0.0, "s"));
+
+    // units are shared
+    assertSame(HNum.make(1e6, new String("kWh")).unit, HNum.make(2.5, "kWh").unit);
+    assertEquals(HNum.make(1e6, "kWh"), HNum.make(1e6, new String("kWh")));
+
+    // bad units are rejected every time
+    for (int i=0; i<2; ++i)
+      try { HNum.make(1, "x y"); fail(); } catch (IllegalArgumentException e) {}
+  }
+
   @Test
   public void verifyUnitNames()
   {
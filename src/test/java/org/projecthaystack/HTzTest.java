@@ -12,6 +12,7 @@ import static org.testng.Assert.*;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.HashMap;
 import java.util.TimeZone;
 
 
@@ -29,6 +30,69 @@ public class HTzTest
     verifyTz("Rel",      "GMT");
   }
 
+  @Test
+  public void testAllIds()
+  {
+    String[] ids = TimeZone.getAvailableIDs();
+    int n = 0;
+    for (int i=0; i<ids.length; ++i)
+    {
+      HTimeZone tz = HTimeZone.make(TimeZone.getTimeZone(ids[i]), false);
+      if (ids[i].startsWith("America/") || ids[i].startsWith("Europe/"))
+      {
+        assertNotNull(tz, ids[i]);
+        assertEquals(tz.name, ids[i].substring(ids[i].lastIndexOf('/')+1));
+      }
+      if (tz == null) continue;
+      assertSame(HTimeZone.make(tz.name), tz);
+      ++n;
+    }
+    assertTrue(n > 300);
+
+    // aliases of one city always resolve to the last id like the
+    // index, whatever order they are looked up in
+    HashMap expected = new HashMap();
+    for (int i=0; i<ids.length; ++i)
+    {
+      HTimeZone tz = HTimeZone.make(TimeZone.getTimeZone(ids[i]), false);
+      if (tz != null && ids[i].indexOf('/') > 0) expected.put(tz.name, ids[i]);
+    }
+    for (int i=ids.length-1; i>=0; --i)
+    {
+      HTimeZone tz = HTimeZone.make(TimeZone.getTimeZone(ids[i]), false);
+      if (tz != null && ids[i].indexOf('/') > 0) assertEquals(tz.java.getID(), expected.get(tz.name), ids[i]);
+    }
+    assertSame(HTimeZone.make(TimeZone.getTimeZone("America/Indianapolis")),
+               HTimeZone.make(TimeZone.getTimeZone("America/Indiana/Indianapolis")));
+
+    assertNull(HTimeZone.make("Not_A_City", false));
+    assertNull(HTimeZone.make(TimeZone.getTimeZone("SystemV/EST5"), false));
+  }
+
+  @Test
+  public void testConcurrent() throws Exception
+  {
+    final String[] names = { "Tokyo", "Sydney", "Denver", "Paris", "Lima", "Cairo" };
+    final HTimeZone[][] results = new HTimeZone[8][];
+    Thread[] threads = new Thread[results.length];
+    for (int t=0; t<threads.length; ++t)
+    {
+      final HTimeZone[] acc = results[t] = new HTimeZone[names.length];
+      threads[t] = new Thread()
+      {
+        public void run()
+        {
+          for (int i=0; i<names.length; ++i) acc[i] = HTimeZone.make(names[i]);
+        }
+      };
+      threads[t].start();
+    }
+    for (int t=0; t<threads.length; ++t) threads[t].join();
+    for (int t=0; t<threads.length; ++t)
+      for (int i=0; i<names.length; ++i)
+        assertSame(results[t][i], HTimeZone.make(names[i]));
+  }
+
   private void verifyTz(String name, String javaId)
   {
     HTimeZone tz = HTimeZone.make(name);
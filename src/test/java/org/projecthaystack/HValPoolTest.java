@@ -0,0 +1,110 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+public class HValPoolTest
+{
+  @Test
+  public void testRefs()
+  {
+    HValPool pool = HValPool.refs;
+    assertFalse(pool.isEnabled());
+    assertNotSame(HRef.make("pool-a"), HRef.make("pool-a"));
+
+    pool.setEnabled(true);
+    try
+    {
+      HRef a = HRef.make(new String("pool-a"));
+      assertSame(HRef.make(new String("pool-a")), a);
+      assertEquals(pool.hits(), 1);
+      assertEquals(pool.misses(), 1);
+      assertEquals(pool.size(), 1);
+
+      // different dis shares the val string
+      HRef b = HRef.make("pool-a", "Alpha");
+      assertNotSame(b, a);
+      assertSame(b.val, a.val);
+      assertEquals(b.dis, "Alpha");
+      assertEquals(b, a);
+
+      // invalid ids are still rejected
+      try { HRef.make("pool a"); fail(); } catch (IllegalArgumentException e) {}
+      try { HRef.make(null); fail(); } catch (IllegalArgumentException e) {}
+    }
+    finally
+    {
+      pool.setEnabled(false);
+    }
+    assertEquals(pool.size(), 0);
+    assertEquals(pool.hits(), 0);
+  }
+
+  @Test
+  public void testStrsAndSymbols()
+  {
+    HValPool.strs.setEnabled(true);
+    HValPool.symbols.setEnabled(true);
+    try
+    {
+      assertSame(HStr.make(new String("kW")), HStr.make("kW"));
+      StringBuilder s = new StringBuilder();
+      for (int i=0; i<=HValPool.maxStrLen; ++i) s.append('x');
+      assertNotSame(HStr.make(s.toString()), HStr.make(s.toString()));
+
+      assertSame(HSymbol.make("ph:site"), HSymbol.make(new String("ph:site")));
+      assertEquals(HSymbol.make("ph:site").name(), "site");
+      try { HSymbol.make("Bad"); fail(); } catch (ParseException e) {}
+      assertTrue(HValPool.symbols.toString().indexOf("hits=") > 0);
+    }
+    finally
+    {
+      HValPool.strs.setEnabled(false);
+      HValPool.symbols.setEnabled(false);
+    }
+  }
+
+  @Test
+  public void testConcurrent() throws Exception
+  {
+    HValPool.refs.setEnabled(true);
+    try
+    {
+      final HRef[][] results = new HRef[8][100];
+      Thread[] threads = new Thread[results.length];
+      for (int t=0; t<threads.length; ++t)
+      {
+        final HRef[] acc = results[t];
+        threads[t] = new Thread()
+        {
+          public void run()
+          {
+            for (int i=0; i<acc.length; ++i) acc[i] = HRef.make("c" + i);
+          }
+        };
+        threads[t].start();
+      }
+      for (int t=0; t<threads.length; ++t) threads[t].join();
+
+      // every thread sees the instance that won
+      for (int i=0; i<100; ++i)
+      {
+        HRef pooled = HRef.make("c" + i);
+        for (int t=0; t<results.length; ++t)
+          assertSame(results[t][i], pooled);
+      }
+    }
+    finally
+    {
+      HValPool.refs.setEnabled(false);
+    }
+  }
+}
@@ -265,14 +265,14 @@ public class ClientTest
     HDict kw = client.read("power and siteMeter");
     HGrid his = client.hisRead(kw.id(), "yesterday");
     assertEquals(his.meta().id(), kw.id());
-    assertEquals(ts(his.meta(), "hisStart").date, HDate.today().minusDays(1));
-    assertEquals(ts(his.meta(), "hisEnd").date, HDate.today());
+    assertEquals(ts(his.meta(), "hisStart").date(), HDate.today().minusDays(1));
+    assertEquals(ts(his.meta(), "hisEnd").date(), HDate.today());
     assertTrue(his.numRows() > 90);
     int last = his.numRows()-1;
-    assertEquals(ts(his.row(0)).date, HDate.today().minusDays(1));
-    assertEquals(ts(his.row(0)).time, HTime.make(0, 15));
-    assertEquals(ts(his.row(last)).date, HDate.today());
-    assertEquals(ts(his.row(last)).time, HTime.make(0, 0));
+    assertEquals(ts(his.row(0)).date(), HDate.today().minusDays(1));
+    assertEquals(ts(his.row(0)).time(), HTime.make(0, 15));
+    assertEquals(ts(his.row(last)).date(), HDate.today());
+    assertEquals(ts(his.row(last)).time(), HTime.make(0, 0));
     assertEquals(numVal(his.row(0)).unit, "kW");
   }
 
@@ -0,0 +1,172 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import java.io.*;
+import org.projecthaystack.*;
+import org.testng.annotations.Test;
+
+public class BinaryTest
+{
+  private HGrid roundTrip(HGrid grid)
+  {
+    HGrid actual = new HBinaryReader(HBinaryWriter.gridToBytes(grid)).readGrid();
+    assertEquals(actual, grid);
+    return actual;
+  }
+
+  private HGrid makeGrid()
+  {
+    HGridBuilder nb = new HGridBuilder();
+    nb.meta().add("nested").add("n", HNum.make(3, "m"));
+    nb.addCol("a").add("dis", "A");
+    nb.addCol("b");
+    nb.addRow(new HVal[] { HStr.make("x"), null });
+    nb.addRow(new HVal[] { HList.make(new HVal[] { HRef.make("p1") }), HStr.make("y") });
+
+    HTimeZone ny = HTimeZone.make("New_York");
+    HGridBuilder b = new HGridBuilder();
+    b.meta().add("ver", "3.0").add("hisStart", HDateTime.make(1307377618069L, ny)).add("foo");
+    b.addCol("v").add("dis", "Value").add("unit", "\u00b0F");
+    b.addCol("empty");
+    HVal[] vals = {
+      HMarker.VAL, HNA.VAL, HRemove.VAL, HBool.TRUE, HBool.FALSE,
+      HNum.make(0), HNum.make(-0.0), HNum.make(72.5, "\u00b0F"), HNum.make(Double.NaN),
+      HNum.make(Double.NEGATIVE_INFINITY, "kW"), HNum.make(Double.MIN_VALUE), HNum.make(1e300, "m\u00b2"),
+      HStr.make(""), HStr.make("with:colon"), HStr.make("\u00e9\u20ac\ud83d\ude00"), HStr.make("lone \ud800 x \udc00"),
+      HRef.make("p1"), HRef.make("p1", "Point \"1\""), HRef.make("p1"),
+      HUri.make("http://x/\u00e9"), HDate.make(2015, 6, 9), HDate.make(1900, 1, 1), HDate.make(1969, 12, 31),
+      HDate.make(2000, 2, 29), HTime.make(0, 0, 0), HTime.make(23, 59, 59, 999),
+      HDateTime.make(1307377618069L, ny), HDateTime.make(-1000L, HTimeZone.make("UTC")),
+      HDateTime.make(HDate.make(2020, 3, 8), HTime.make(2, 30, 0), ny, -5 * 3600),
+      HDateTime.make(2021, 1, 1, 0, 0, 0, HTimeZone.make("Kolkata"), 19800),
+      HCoord.make(37.55, -77.45), HCoord.makeMicro(-90000000, 180000000), HCoord.makeMicro(1, -134217719),
+      HXStr.decode("Foo", "bar"), HBin.make("text/plain"), HSymbol.make("elec-meter"), HSymbol.make("ph:site"),
+      HList.make(new HVal[0]), HList.make(new HVal[] { HNum.make(1), null, HStr.make("s") }),
+      new HDictBuilder().add("a").add("b", "c").add("d", HList.make(new HVal[] { HMarker.VAL })).toDict(),
+      HDict.EMPTY, nb.toGrid(), HGrid.EMPTY,
+    };
+    for (int i=0; i<vals.length; ++i) b.addRow(new HVal[] { vals[i], null });
+    return b.toGrid();
+  }
+
+  @Test
+  public void testRoundTrip()
+  {
+    HGrid grid = roundTrip(makeGrid());
+
+    // repeated strings and refs share instances
+    HRef r1 = (HRef)grid.row(16).get("v");
+    assertSame(grid.row(18).get("v"), r1);
+
+    roundTrip(HGrid.EMPTY);
+    roundTrip(HGridBuilder.dictsToGrid(new HDict[0]));
+
+    // large grid with long strings and more strings than the table holds
+    HGridBuilder b = new HGridBuilder();
+    b.addCol("id");
+    b.addCol("dis");
+    b.addCol("val");
+    StringBuffer longStr = new StringBuffer();
+    for (int i=0; i<300; ++i) longStr.append((char)('a' + i % 26));
+    for (int i=0; i<70000; ++i)
+      b.addRow(new HVal[] { HRef.make("r" + i), HStr.make(i % 1000 == 0 ? longStr.toString() : "Point " + (i % 10)), HNum.make(i, "kW") });
+    roundTrip(b.toGrid());
+  }
+
+  @Test
+  public void testStreams() throws IOException
+  {
+    HGrid a = makeGrid();
+    HGrid b = HGridBuilder.dictsToGrid(new HDict[] { new HDictBuilder().add("x", 1).toDict() });
+
+    // several grids with the incremental api
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HGridWriter w = HGridFormat.find("application/x-haystack-binary", true).makeWriter(out);
+    w.writeGrid(a);
+    w.writeGridHeader(b);
+    w.writeRow(new HDictBuilder().add("x", 1).add("extra").toDict());
+    w.writeGridEnd();
+    w.flush();
+    byte[] bytes = out.toByteArray();
+
+    HGrid[] grids = new HBinaryReader(new ByteArrayInputStream(bytes)).readGrids();
+    assertEquals(grids.length, 2);
+    assertEquals(grids[0], a);
+    assertEquals(grids[1], b);
+
+    // read one byte at a time through a cursor
+    InputStream slow = new FilterInputStream(new ByteArrayInputStream(bytes))
+    {
+      public int read(byte[] buf, int off, int len) throws IOException { return super.read(buf, off, Math.min(len, 1)); }
+    };
+    HGridCursor c = HGridFormat.find("application/x-haystack-binary", true).makeReader(slow).readCursor();
+    assertEquals(c.header().numCols(), 2);
+    assertEquals(c.toGrid(), a);
+
+    // truncated input
+    for (int n=0; n<40; n+=7)
+    {
+      byte[] part = new byte[n];
+      System.arraycopy(bytes, 0, part, 0, n);
+      try { new HBinaryReader(part).readGrid(); fail(); } catch (ParseException e) {}
+    }
+
+    // not binary
+    try { new HBinaryReader("ver:\"3.0\"\nempty\n".getBytes("UTF-8")).readGrid(); fail(); } catch (ParseException e) {}
+  }
+
+  @Test
+  public void testHostileCounts() throws IOException
+  {
+    // header with one column "a", a row, then a value with a huge count
+    int[][] tails = {
+      { HBinaryWriter.STR },                               // string length
+      { HBinaryWriter.LIST },                              // list count
+    };
+    for (int t=0; t<tails.length; ++t)
+    {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      out.write(HBinaryWriter.MAGIC0);
+      out.write(HBinaryWriter.MAGIC1);
+      out.write(HBinaryWriter.VERSION);
+      out.write(HBinaryWriter.STR_END);                    // empty meta
+      out.write(1);                                        // one column
+      out.write((1 << 2) | HBinaryWriter.STR_LIT);
+      out.write('a');
+      out.write(HBinaryWriter.STR_END);                    // empty col meta
+      out.write(HBinaryWriter.ROW);
+      out.write(tails[t][0]);
+      long n = t == 0 ? (0x7ffffff0L << 2) | HBinaryWriter.STR_LIT : 0x7ffffff0L;
+      while (n >= 0x80) { out.write((int)(n & 0x7f) | 0x80); n >>>= 7; }
+      out.write((int)n);
+      byte[] bytes = out.toByteArray();
+
+      // rejected up front in memory, and by running out of input on a stream
+      try { new HBinaryReader(bytes).readGrid(); fail(); } catch (ParseException e) {}
+      try { new HBinaryReader(new ByteArrayInputStream(bytes)).readGrid(); fail(); } catch (ParseException e) {}
+    }
+  }
+
+  @Test
+  public void testSize()
+  {
+    HGridBuilder b = new HGridBuilder();
+    b.addCol("id");
+    b.addCol("siteRef");
+    b.addCol("curVal");
+    b.addCol("ts");
+    HTimeZone tz = HTimeZone.make("New_York");
+    for (int i=0; i<1000; ++i)
+      b.addRow(new HVal[] { HRef.make("p" + i), HRef.make("site"), HNum.make(i * 0.5, "kW"), HDateTime.make(1307377618069L + i * 60000L, tz) });
+    HGrid grid = b.toGrid();
+    assertTrue(HBinaryWriter.gridToBytes(grid).length * 3 < HZincWriter.gridToString(grid).length() * 2);
+  }
+}
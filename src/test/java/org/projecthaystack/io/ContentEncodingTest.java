@@ -0,0 +1,121 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import java.io.*;
+import org.projecthaystack.*;
+import org.testng.annotations.Test;
+
+public class ContentEncodingTest
+{
+  @Test
+  public void testNegotiate()
+  {
+    assertEquals(HContentEncoding.negotiate(null), null);
+    assertEquals(HContentEncoding.negotiate(""), null);
+    assertEquals(HContentEncoding.negotiate("identity"), null);
+    assertEquals(HContentEncoding.negotiate("gzip"), "gzip");
+    assertEquals(HContentEncoding.negotiate("deflate, gzip"), "gzip");
+    assertEquals(HContentEncoding.negotiate("deflate"), "deflate");
+    assertEquals(HContentEncoding.negotiate("br, DEFLATE;q=0.5"), "deflate");
+    assertEquals(HContentEncoding.negotiate("gzip;q=0, deflate"), "deflate");
+    assertEquals(HContentEncoding.negotiate("gzip; q=0.0"), null);
+    assertEquals(HContentEncoding.negotiate("*"), "gzip");
+    assertEquals(HContentEncoding.negotiate("x-gzip"), "gzip");
+
+    // refusals override the wildcard and q-values rank the choices
+    assertEquals(HContentEncoding.negotiate("gzip;q=0, *"), "deflate");
+    assertEquals(HContentEncoding.negotiate("gzip;q=0, deflate;q=0, *"), null);
+    assertEquals(HContentEncoding.negotiate("*;q=0"), null);
+    assertEquals(HContentEncoding.negotiate("gzip;q=0.1, deflate"), "deflate");
+    assertEquals(HContentEncoding.negotiate("deflate;q=0.5, *;q=0.8"), "gzip");
+    assertEquals(HContentEncoding.negotiate("gzip;q=0.5, deflate;q=0.5"), "gzip");
+  }
+
+  @Test
+  public void testUnderThreshold() throws IOException
+  {
+    HContentEncoding ce = new HContentEncoding().setThreshold(100);
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    final boolean[] started = new boolean[1];
+    OutputStream out = ce.encode(buf, "gzip", new Runnable()
+    {
+      public void run() { started[0] = true; }
+    });
+    out.write("hello".getBytes("UTF-8"));
+    out.flush();
+    assertEquals(buf.size(), 0);
+    out.close();
+    assertFalse(started[0]);
+    assertEquals(buf.toString("UTF-8"), "hello");
+    assertEquals(ce.compressedBytes(), 0);
+    assertEquals(ce.uncompressedBytes(), 0);
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException
+  {
+    verifyRoundTrip("gzip", 0);
+    verifyRoundTrip("gzip", 1);
+    verifyRoundTrip("gzip", 9);
+    verifyRoundTrip("deflate", -1);
+  }
+
+  private void verifyRoundTrip(String encoding, int level) throws IOException
+  {
+    HGridBuilder b = new HGridBuilder();
+    b.addCol("id");
+    b.addCol("val");
+    for (int i=0; i<500; ++i)
+      b.addRow(new HVal[] { HRef.make("r" + i), HNum.make(i, "kW") });
+    byte[] zinc = HZincWriter.gridToString(b.toGrid()).getBytes("UTF-8");
+
+    HContentEncoding ce = new HContentEncoding().setThreshold(1024).setLevel(level);
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    final boolean[] started = new boolean[1];
+    OutputStream out = ce.encode(buf, encoding, new Runnable()
+    {
+      public void run() { started[0] = true; }
+    });
+    for (int i=0; i<zinc.length; i += 300)
+      out.write(zinc, i, Math.min(300, zinc.length - i));
+    out.close();
+    assertTrue(started[0]);
+    assertEquals(ce.uncompressedBytes(), zinc.length);
+    assertEquals(ce.compressedBytes(), buf.size());
+    if (level != 0) assertTrue(buf.size() * 2 < zinc.length);
+
+    ce.resetCounters();
+    InputStream in = ce.decode(new ByteArrayInputStream(buf.toByteArray()), encoding);
+    HGrid grid = new HZincReader(in).readGrid();
+    assertEquals(grid.numRows(), 500);
+    assertEquals(grid.row(499).get("val"), HNum.make(499, "kW"));
+    assertEquals(ce.uncompressedBytes(), zinc.length);
+    assertEquals(ce.compressedBytes(), buf.size());
+
+    // compress regardless of threshold
+    byte[] small = ce.compress("ver:\"3.0\"\nempty\n".getBytes("UTF-8"), encoding);
+    in = ce.decode(new ByteArrayInputStream(small), encoding.toUpperCase());
+    assertEquals(new HZincReader(in).readGrid().numRows(), 0);
+  }
+
+  @Test
+  public void testDecodeIdentity() throws IOException
+  {
+    HContentEncoding ce = new HContentEncoding();
+    InputStream in = new ByteArrayInputStream(new byte[0]);
+    assertSame(ce.decode(in, null), in);
+    assertSame(ce.decode(in, ""), in);
+    assertSame(ce.decode(in, "identity"), in);
+    try { ce.decode(in, "br"); fail(); } catch (UnsupportedEncodingException e) {}
+    try { ce.setLevel(10); fail(); } catch (IllegalArgumentException e) {}
+    try { ce.setThreshold(-1); fail(); } catch (IllegalArgumentException e) {}
+  }
+}
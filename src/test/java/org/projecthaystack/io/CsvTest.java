@@ -0,0 +1,172 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import org.projecthaystack.*;
+import org.projecthaystack.server.TestDatabase;
+import org.testng.annotations.Test;
+
+public class CsvTest
+{
+  @Test
+  public void testRoundTrip() throws IOException
+  {
+    HTimeZone ny = HTimeZone.make("New_York");
+    HGridBuilder b = new HGridBuilder();
+    b.addCol("str");
+    b.addCol("num");
+    b.addCol("misc").add("dis", "Misc Stuff");
+    b.addRow(new HVal[] { HStr.make("plain"), HNum.make(72.5, "\u00b0F"), HMarker.VAL });
+    b.addRow(new HVal[] { HStr.make("a, \"quoted\"\nline"), HNum.make(-3), HRef.make("p1", "Point 1") });
+    b.addRow(new HVal[] { HStr.make(" padded "), HNum.make(1e20), HDate.make(2024, 1, 31) });
+    b.addRow(new HVal[] { null, HNum.POS_INF, HDateTime.make(2024, 1, 31, 13, 45, 0, ny, -5*3600) });
+    b.addRow(new HVal[] { HStr.make("x"), null, HBool.FALSE });
+    b.addRow(new HVal[] { HStr.make("y"), HNum.make(0.25, "%"), HTime.make(8, 30) });
+    HGrid grid = b.toGrid();
+
+    char[] delims = { ',', ';', '\t', '|' };
+    for (int i=0; i<delims.length; ++i)
+    {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      HCsvWriter w = new HCsvWriter(out);
+      w.delimiter = delims[i];
+      w.writeGrid(grid);
+      w.close();
+
+      HGrid x = new HCsvReader(new ByteArrayInputStream(out.toByteArray())).setDelimiter(delims[i]).readGrid();
+      assertEquals(x.numCols(), 3);
+      assertEquals(x.col(2).name(), "miscStuff");
+      assertEquals(x.col(2).dis(), "Misc Stuff");
+      assertEquals(x.numRows(), grid.numRows());
+      for (int r=0; r<grid.numRows(); ++r)
+        for (int c=0; c<grid.numCols(); ++c)
+          assertEquals(x.row(r).get(x.col(c), false), grid.row(r).get(grid.col(c), false), "row " + r + " col " + c);
+    }
+  }
+
+  @Test
+  public void testInference()
+  {
+    HTimeZone ny = HTimeZone.make("New_York");
+    HCsvReader r = new HCsvReader(
+      "\ufeffTime Stamp,Value,Value,Note,Code\r\n" +
+      "2024-01-31 13:45,10 kW,true,10 Main St,007\r\n" +
+      "\r\n" +
+      "2024-01-31T18:45:00Z,-1.5e3,,\"x\"\"y\",1-2\n" +
+      "2024-07-01T12:00:00+0200,NaN,@a,  trimmed  ,12:00\n" +
+      "2024-07-01,1,2\n");
+    r.setTz(ny).setType("Code", HStr.class);
+    HGridCursor c = r.readCursor();
+    assertEquals(c.col(0).name(), "timeStamp");
+    assertEquals(c.col(1).name(), "value");
+    assertEquals(c.col(2).name(), "value_1");
+
+    HRow row = c.next();
+    assertEquals(row.get("timeStamp"), HDateTime.make(HDate.make(2024, 1, 31), HTime.make(13, 45), ny));
+    assertEquals(row.get("value"), HNum.make(10, "kW"));
+    assertEquals(row.get("value_1"), HBool.TRUE);
+    assertEquals(row.get("note"), HStr.make("10 Main St"));
+    assertEquals(row.get("code"), HStr.make("007"));
+
+    row = c.next();
+    assertEquals(row.get("timeStamp"), HDateTime.make(HDate.make(2024, 1, 31), HTime.make(13, 45), ny));
+    assertEquals(row.get("value"), HNum.make(-1500));
+    assertEquals(row.get("value_1", false), null);
+    assertEquals(row.get("note"), HStr.make("x\"y"));
+    assertEquals(row.get("code"), HStr.make("1-2"));
+
+    row = c.next();
+    assertEquals(row.get("timeStamp"), HDateTime.make(HDate.make(2024, 7, 1), HTime.make(6, 0), ny));
+    assertEquals(row.get("value"), HNum.NaN);
+    assertEquals(row.get("value_1"), HRef.make("a"));
+    assertEquals(row.get("note"), HStr.make("trimmed"));
+    assertEquals(row.get("code"), HStr.make("12:00"));
+
+    row = c.next();
+    assertEquals(row.get("timeStamp"), HDate.make(2024, 7, 1));
+    assertEquals(row.get("value"), HNum.make(1));
+    assertEquals(row.get("value_1"), HNum.make(2));
+    assertEquals(row.get("note", false), null);
+    assertNull(c.next());
+
+    // text starting with @ which is not a ref stays a Str
+    HGrid g = new HCsvReader("a,b,c\n@bob's place,@,@x Site\n").readGrid();
+    assertEquals(g.row(0).get("a"), HStr.make("@bob's place"));
+    assertEquals(g.row(0).get("b"), HStr.make("@"));
+    assertEquals(g.row(0).get("c"), HRef.make("x", "Site"));
+  }
+
+  @Test
+  public void testErrors()
+  {
+    verifyErr("a,b\n\"open,2\n");
+    verifyErr("a,b\n\"x\"y,2\n");
+    verifyErr("a,b\n1,2,3\n");
+    HCsvReader r = new HCsvReader("a\nxyz\n").setType("a", HNum.class);
+    try { r.readGrid(); fail(); } catch (ParseException e) { assertTrue(e.getMessage().indexOf("Line 2") > 0, e.getMessage()); }
+
+    // trailing empty cells are allowed
+    assertEquals(new HCsvReader("a,b\n1,2,,\n").readGrid().numRows(), 1);
+    assertEquals(new HCsvReader("").readGrid().numRows(), 0);
+  }
+
+  private void verifyErr(String csv)
+  {
+    try { new HCsvReader(csv).readGrid(); fail(); } catch (ParseException e) {}
+  }
+
+  @Test
+  public void testFormat()
+  {
+    HGridFormat f = HGridFormat.find("text/csv", true);
+    HGridReader r = f.makeReader(new ByteArrayInputStream("a,b\n1,2\n".getBytes()));
+    assertEquals(r.readGrid().row(0).get("b"), HNum.make(2));
+  }
+
+  @Test
+  public void testHisImport() throws IOException
+  {
+    final ArrayList batches = new ArrayList();
+    TestDatabase db = new TestDatabase()
+    {
+      public void onHisWrite(HDict rec, HHisItem[] items) { batches.add(items); }
+    };
+    HDict kw = db.read("elecKw and siteRef==@A");
+    HDict bool = db.read("cool and siteRef==@A");
+    HTimeZone ny = HTimeZone.make("New_York");
+
+    // kW point with 25 rows in batches of 10
+    StringBuilder s = new StringBuilder("ts,val\n");
+    for (int i=0; i<25; ++i) s.append("2024-03-01 00:").append(i < 10 ? "0" : "").append(i).append(",").append(i).append("\n");
+    s.append("2024-03-01T12:00:00Z,\n");
+    s.append("2024-03-01T12:00:00Z,99 W\n");
+    HCsvHisImporter imp = new HCsvHisImporter(db, kw.id()).setBatchSize(10);
+    assertEquals(imp.importCsv(new ByteArrayInputStream(s.toString().getBytes("UTF-8"))), 26);
+    assertEquals(batches.size(), 3);
+    assertEquals(((HHisItem[])batches.get(0)).length, 10);
+    assertEquals(((HHisItem[])batches.get(2)).length, 6);
+    HHisItem first = ((HHisItem[])batches.get(0))[0];
+    assertEquals(first.ts, HDateTime.make(HDate.make(2024, 3, 1), HTime.make(0, 0), ny));
+    assertEquals(first.val, HNum.make(0, "kW"));
+    HHisItem last = ((HHisItem[])batches.get(2))[5];
+    assertEquals(last.ts, HDateTime.make(HDate.make(2024, 3, 1), HTime.make(7, 0), ny));
+    assertEquals(last.val, HNum.make(99, "W"));
+
+    // bool point with other column names and semicolon delimiter
+    batches.clear();
+    HCsvReader r = new HCsvReader("Time;State\n2024-03-01T00:00:00-05:00 New_York;1\n2024-03-01T00:15:00-05:00 New_York;0\n").setDelimiter(';');
+    assertEquals(new HCsvHisImporter(db, bool.id()).importCsv(r), 2);
+    HHisItem[] items = (HHisItem[])batches.get(0);
+    assertEquals(items[0].val, HBool.TRUE);
+    assertEquals(items[1].val, HBool.FALSE);
+  }
+}
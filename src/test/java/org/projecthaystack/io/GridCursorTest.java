@@ -0,0 +1,95 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import org.projecthaystack.*;
+import org.testng.annotations.Test;
+
+public class GridCursorTest
+{
+  @Test
+  public void testZincCursor()
+  {
+    String zinc =
+      "ver:\"3.0\" dis:\"Points\"\n" +
+      "id,dis,curVal unit:\"kW\"\n" +
+      "@a,\"Alpha\",72kW\n" +
+      "@b,,N\n" +
+      "@c,\"Charlie\",<<\n" +
+      "ver:\"3.0\"\n" +
+      "x\n" +
+      "1\n" +
+      ">>\n";
+
+    HGridCursor c = new HZincReader(zinc).readCursor();
+    assertEquals(c.meta().getStr("dis"), "Points");
+    assertEquals(c.numCols(), 3);
+    assertEquals(c.col(2).name(), "curVal");
+    assertEquals(c.col(2).meta().getStr("unit"), "kW");
+    assertEquals(c.header().numRows(), 0);
+
+    HRow r = c.next();
+    assertEquals(r.id(), HRef.make("a"));
+    assertEquals(r.getStr("dis"), "Alpha");
+    assertEquals(r.get("curVal"), HNum.make(72, "kW"));
+    assertSame(r.grid(), c.header());
+
+    r = c.next();
+    assertEquals(r.id(), HRef.make("b"));
+    assertNull(r.get("dis", false));
+    assertFalse(r.has("curVal"));
+
+    r = c.next();
+    assertEquals(r.id(), HRef.make("c"));
+    assertEquals(((HGrid)r.get("curVal")).row(0).get("x"), HNum.make(1));
+
+    assertNull(c.next());
+    assertNull(c.next());
+
+    // cursor and readGrid must agree
+    assertEquals(new HZincReader(zinc).readCursor().toGrid(), new HZincReader(zinc).readGrid());
+  }
+
+  @Test
+  public void testEmptyAndPartial()
+  {
+    String zinc = "ver:\"3.0\"\na,b\n";
+    HGridCursor c = new HZincReader(zinc).readCursor();
+    assertEquals(c.numCols(), 2);
+    assertNull(c.next());
+
+    zinc = "ver:\"3.0\"\na,b\n1,2\n3,4\n5,6";
+    c = new HZincReader(zinc).readCursor();
+    c.next();
+    HGrid rest = c.toGrid();
+    assertEquals(rest.numRows(), 2);
+    assertEquals(rest.row(0).get("a"), HNum.make(3));
+    assertEquals(rest.row(1).get("b"), HNum.make(6));
+  }
+
+  @Test(expectedExceptions = ParseException.class)
+  public void testBadRow()
+  {
+    HGridCursor c = new HZincReader("ver:\"3.0\"\na,b\n1,2\n3,4,5\n").readCursor();
+    assertNotNull(c.next());
+    c.next();
+  }
+
+  @Test
+  public void testGridCursor()
+  {
+    HGrid grid = new HZincReader("ver:\"3.0\"\na\n1\n2\n").readGrid();
+    HGridCursor c = HGridCursor.make(grid);
+    assertSame(c.next(), grid.row(0));
+    assertSame(c.next(), grid.row(1));
+    assertNull(c.next());
+    assertSame(HGridCursor.make(grid).toGrid(), grid);
+  }
+}
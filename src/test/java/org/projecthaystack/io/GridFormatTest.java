@@ -0,0 +1,84 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import java.io.*;
+import org.projecthaystack.*;
+import org.testng.annotations.Test;
+
+public class GridFormatTest
+{
+  @Test
+  public void testFind()
+  {
+    assertEquals(HGridFormat.find("text/zinc", true).mime, "text/zinc");
+    assertEquals(HGridFormat.find("text/zinc; charset=utf-8", true).mime, "text/zinc");
+    assertEquals(HGridFormat.find("text/csv", true).reader, HCsvReader.class);
+    assertNull(HGridFormat.find("foo/bar", false));
+    try { HGridFormat.find("foo/bar", true); fail(); } catch (RuntimeException e) {}
+
+    HGridFormat[] list = HGridFormat.list();
+    assertEquals(list[0].mime, "text/plain");
+    assertEquals(list[1].mime, "text/zinc");
+    list[0] = null;
+    assertNotNull(HGridFormat.list()[0]);
+  }
+
+  @Test
+  public void testNegotiate()
+  {
+    verifyNegotiate(null, "text/plain");
+    verifyNegotiate("", "text/plain");
+    verifyNegotiate("foo/bar", "text/plain");
+    verifyNegotiate("application/json", "application/json");
+    verifyNegotiate("text/zinc, application/json", "text/zinc");
+    verifyNegotiate("text/zinc;q=0.5, application/json", "application/json");
+    verifyNegotiate("text/zinc; charset=utf-8; q=0.5, application/json;q=0.7", "application/json");
+    verifyNegotiate("application/json;q=0, text/csv", "text/csv");
+    verifyNegotiate("*/*, application/json", "application/json");
+    verifyNegotiate("application/json;q=0.5, */*", "text/plain");
+    verifyNegotiate("text/*;q=0.9, application/json;q=0.8", "text/plain");
+    verifyNegotiate("image/*, text/csv;q=0.1", "text/csv");
+    verifyNegotiate(HBinaryWriter.MIME + ", text/zinc", HBinaryWriter.MIME);
+
+    // cached results are the same instance
+    String accept = "text/csv;q=0.3, application/json;q=0.2";
+    assertSame(HGridFormat.negotiate(accept), HGridFormat.negotiate(accept));
+  }
+
+  private void verifyNegotiate(String accept, String mime)
+  {
+    assertEquals(HGridFormat.negotiate(accept).mime, mime);
+    assertEquals(HGridFormat.negotiate(accept).mime, mime);
+  }
+
+  @Test
+  public void testRegister() throws IOException
+  {
+    // format registered by class is made with its constructor
+    HGridFormat.register(new HGridFormat("application/x-test-zinc", HZincReader.class, HZincWriter.class));
+    verifyNegotiate("application/x-test-zinc", "application/x-test-zinc");
+    HGridFormat f = HGridFormat.find("application/x-test-zinc", true);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HGridWriter w = f.makeWriter(out);
+    w.writeGrid(HGridBuilder.dictToGrid(new HDictBuilder().add("a", 1).toDict()));
+    w.flush();
+    HGrid grid = f.makeReader(new ByteArrayInputStream(out.toByteArray())).readGrid();
+    assertEquals(grid.row(0).get("a"), HNum.make(1));
+
+    // replacing a format invalidates cached negotiation
+    HGridFormat.register(new HGridFormat("application/x-test-zinc", HZincReader.class, null));
+    verifyNegotiate("application/x-test-zinc", "text/plain");
+    int n = 0;
+    HGridFormat[] list = HGridFormat.list();
+    for (int i=0; i<list.length; ++i) if (list[i].mime.equals("application/x-test-zinc")) ++n;
+    assertEquals(n, 1);
+  }
+}
@@ -0,0 +1,144 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import java.io.*;
+import org.projecthaystack.*;
+import org.testng.annotations.Test;
+
+public class GridWriterTest
+{
+  private HGrid makeGrid()
+  {
+    HGridBuilder nb = new HGridBuilder();
+    nb.addCol("x");
+    nb.addRow(new HVal[] { HNum.make(1) });
+
+    HGridBuilder b = new HGridBuilder();
+    b.meta().add("foo").add("bar", "baz");
+    b.addCol("id");
+    b.addCol("dis").add("dis", "Display");
+    b.addCol("val");
+    b.addCol("nested");
+    for (int i=0; i<50; ++i)
+      b.addRow(new HVal[] {
+        HRef.make("r" + i),
+        i % 3 == 0 ? null : HStr.make("Point " + i),
+        HNum.make(i * 1.5, "\u00b0F"),
+        i % 10 == 0 ? nb.toGrid() : null });
+    return b.toGrid();
+  }
+
+  private static final int ZINC = 0, JSON = 1, CSV = 2, BASE = 3;
+
+  private HGridWriter makeWriter(int kind, OutputStream out)
+  {
+    switch (kind)
+    {
+      case ZINC: return new HZincWriter(out);
+      case JSON: return new HJsonWriter(out);
+      case CSV:  return new HCsvWriter(out);
+      default:
+        // only implements writeGrid
+        final HZincWriter zinc = new HZincWriter(out);
+        return new HGridWriter()
+        {
+          public void writeGrid(HGrid grid) { zinc.writeGrid(grid); }
+          public void flush() { zinc.flush(); }
+          public void close() { zinc.close(); }
+        };
+    }
+  }
+
+  private String writeGrid(int kind, HGrid grid) throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HGridWriter w = makeWriter(kind, out);
+    w.writeGrid(grid);
+    w.flush();
+    return out.toString("UTF-8");
+  }
+
+  private String stream(int kind, HGrid grid, boolean asDicts) throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HGridWriter w = makeWriter(kind, out);
+    w.writeGridHeader(grid);
+    for (int i=0; i<grid.numRows(); ++i)
+    {
+      HRow row = grid.row(i);
+      if (!asDicts) { w.writeRow(row); continue; }
+
+      // plain dict with tags in another order and an extra tag
+      HDictBuilder db = new HDictBuilder();
+      for (int c=grid.numCols()-1; c>=0; --c)
+      {
+        HVal val = row.get(grid.col(c), false);
+        if (val != null) db.add(grid.col(c).name(), val);
+      }
+      db.add("notCol", HMarker.VAL);
+      w.writeRow(db.toDict());
+    }
+    w.writeGridEnd();
+    w.flush();
+    return out.toString("UTF-8");
+  }
+
+  @Test
+  public void testStream() throws IOException
+  {
+    HGrid grid = makeGrid();
+    HGrid empty = emptyGrid();
+    for (int kind=ZINC; kind<=BASE; ++kind)
+    {
+      String expected = writeGrid(kind, grid);
+      assertEquals(stream(kind, grid, false), expected);
+      assertEquals(stream(kind, grid, true), expected);
+      assertEquals(stream(kind, empty, false), writeGrid(kind, empty));
+    }
+
+    // rows bound to another grid are read by name
+    HGrid copy = new HZincReader(HZincWriter.gridToString(grid)).readGrid();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HZincWriter w = new HZincWriter(out);
+    w.writeGridHeader(grid);
+    for (int i=0; i<copy.numRows(); ++i) w.writeRow(copy.row(i));
+    w.writeGridEnd();
+    w.flush();
+    assertEquals(out.toString("UTF-8"), HZincWriter.gridToString(grid));
+    assertEquals(new HZincReader(out.toString("UTF-8")).readGrid(), grid);
+  }
+
+  private HGrid emptyGrid()
+  {
+    HGridBuilder b = new HGridBuilder();
+    b.addCol("empty");
+    return b.toGrid();
+  }
+
+  @Test
+  public void testState() throws IOException
+  {
+    HGrid grid = makeGrid();
+    for (int kind=ZINC; kind<=BASE; ++kind)
+    {
+      HGridWriter w = makeWriter(kind, new ByteArrayOutputStream());
+      try { w.writeRow(grid.row(0)); fail(); } catch (IllegalStateException e) {}
+      try { w.writeGridEnd(); fail(); } catch (IllegalStateException e) {}
+      w.writeGridHeader(grid);
+      try { w.writeGridHeader(grid); fail(); } catch (IllegalStateException e) {}
+      w.writeGridEnd();
+
+      // writer can start another grid
+      w.writeGridHeader(grid);
+      w.writeGridEnd();
+    }
+  }
+}
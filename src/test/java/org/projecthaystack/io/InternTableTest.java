@@ -0,0 +1,90 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import org.projecthaystack.*;
+import org.testng.annotations.Test;
+
+public class InternTableTest
+{
+  @Test
+  public void testReader()
+  {
+    String zinc =
+      "ver:\"3.0\"\n" +
+      "id,dis,kind,siteRef,curVal\n" +
+      "@a,\"A\",\"Number\",@site,72kW\n" +
+      "@b,\"B\",\"Number\",@site,75kW\n";
+
+    HInternTable t = new HInternTable();
+    HGrid g1 = new HZincReader(zinc, t).readGrid();
+    HGrid g2 = new HZincReader(zinc, t).readGrid();
+    assertEquals(g1, new HZincReader(zinc).readGrid());
+
+    // within a grid and across readers sharing the table
+    assertSame(g1.row(0).get("kind"), g1.row(1).get("kind"));
+    assertSame(g1.row(0).get("siteRef"), g1.row(1).get("siteRef"));
+    assertSame(g1.row(0).get("kind"), g2.row(0).get("kind"));
+    assertSame(g1.col(3).name(), g2.col(3).name());
+    assertSame(((HNum)g1.row(0).get("curVal")).unit, ((HNum)g2.row(1).get("curVal")).unit);
+
+    // refs with dis are not shared
+    HGrid g3 = new HZincReader("ver:\"3.0\"\nid\n@a \"Alpha\"\n", t).readGrid();
+    assertEquals(g3.row(0).id().dis, "Alpha");
+
+    // without a table nothing is shared
+    HGrid g4 = new HZincReader(zinc).readGrid();
+    assertNotSame(g4.row(0).get("kind"), g4.row(1).get("kind"));
+  }
+
+  @Test
+  public void testLimits()
+  {
+    HInternTable t = new HInternTable(3, 4);
+    assertSame(t.str("abcd"), t.str("abcd"));
+    assertNotSame(t.str(new String("abcde")), t.str(new String("abcde")));
+    assertSame(t.hstr("x"), t.hstr("x"));
+    assertSame(t.ref("y"), t.ref("y"));
+    assertEquals(t.size(), 3);
+    assertNotSame(t.str(new String("full")), t.str(new String("full")));
+    assertEquals(t.size(), 3);
+
+    // kinds are separate even with same chars
+    HInternTable k = new HInternTable();
+    assertEquals(k.str("a"), "a");
+    assertEquals(k.hstr("a"), HStr.make("a"));
+    assertEquals(k.ref("a"), HRef.make("a"));
+  }
+
+  @Test
+  public void testConcurrent() throws Exception
+  {
+    final HInternTable t = new HInternTable();
+    final Object[][] results = new Object[4][2000];
+    Thread[] threads = new Thread[results.length];
+    for (int i=0; i<threads.length; ++i)
+    {
+      final int index = i;
+      threads[i] = new Thread()
+      {
+        public void run()
+        {
+          for (int j=0; j<2000; ++j) results[index][j] = t.hstr("v" + j);
+        }
+      };
+      threads[i].start();
+    }
+    for (int i=0; i<threads.length; ++i) threads[i].join();
+    for (int j=0; j<2000; ++j)
+      for (int i=1; i<results.length; ++i)
+        assertSame(results[i][j], results[0][j]);
+    assertEquals(t.size(), 2000);
+  }
+}
@@ -8,6 +8,8 @@
 package org.projecthaystack.io;
 
 import static org.testng.Assert.*;
+
+import java.io.*;
 import org.projecthaystack.*;
 import org.testng.annotations.Test;
 
@@ -56,4 +58,160 @@ public class JsonTest
     assertEquals(lines[18], "]");
     assertEquals(lines[19], "}");
   }
+
+  @Test
+  public void testReader()
+  {
+    HGridBuilder nb = new HGridBuilder();
+    nb.meta().add("nested");
+    nb.addCol("x").add("dis", "X");
+    nb.addRow(new HVal[] { HNum.make(1) });
+    HGrid nested = nb.toGrid();
+
+    HGridBuilder gb = new HGridBuilder();
+    gb.meta().add("dis", "Everything").add("site", HRef.make("s"));
+    gb.addCol("a").add("unit", "kW");
+    gb.addCol("b");
+    gb.addRow(new HVal[] { null, HBool.TRUE });
+    gb.addRow(new HVal[] { HMarker.VAL, HBool.FALSE });
+    gb.addRow(new HVal[] { HRemove.VAL, HNA.VAL });
+    gb.addRow(new HVal[] { HStr.make("test"), HStr.make("with:colon") });
+    gb.addRow(new HVal[] { HStr.make("esc \"q\" \\ \n\t \u00e9"), HStr.make("") });
+    gb.addRow(new HVal[] { HNum.make(12), HNum.make(72.3, "\u00b0F") });
+    gb.addRow(new HVal[] { HNum.make(Double.NEGATIVE_INFINITY), HNum.make(Double.NaN) });
+    gb.addRow(new HVal[] { HNum.make(-0.5, "%"), HNum.make(Double.POSITIVE_INFINITY) });
+    gb.addRow(new HVal[] { HDate.make(2015, 6, 9), HTime.make(1, 2, 3, 456) });
+    gb.addRow(new HVal[] { HDateTime.make(1307377618069L, HTimeZone.make("New_York")), HUri.make("foo.txt") });
+    gb.addRow(new HVal[] { HDateTime.make(1307377618000L, HTimeZone.UTC), HDateTime.make(2015, 6, 9, 1, 2, 3, HTimeZone.make("GMT-5"), 5 * 3600) });
+    gb.addRow(new HVal[] { HRef.make("abc"), HRef.make("abc", "A B C") });
+    gb.addRow(new HVal[] { HBin.make("text/plain"), HCoord.make(90, -123) });
+    gb.addRow(new HVal[] { HSymbol.make("foo"), HSymbol.make("a-b") });
+    gb.addRow(new HVal[] { HList.make(new HVal[] { HNum.make(1), HStr.make("two"), HMarker.VAL }), HList.EMPTY });
+    gb.addRow(new HVal[] { new HDictBuilder().add("x").add("y", 2).toDict(), HDict.EMPTY });
+    gb.addRow(new HVal[] { nested, null });
+    HGrid grid = gb.toGrid();
+
+    String json = HJsonWriter.gridToString(grid);
+    assertEquals(new HJsonReader(json).readGrid(), grid);
+
+    // stream rows one at a time from a byte stream
+    HGridCursor c = HGridFormat.find("application/json", true).makeReader(
+      new java.io.ByteArrayInputStream(json.getBytes(java.nio.charset.StandardCharsets.UTF_8))).readCursor();
+    assertEquals(c.meta(), grid.meta());
+    assertEquals(c.numCols(), 2);
+    assertEquals(c.col(0).meta().getStr("unit"), "kW");
+    for (int i=0; i<grid.numRows(); ++i)
+    {
+      HRow r = c.next();
+      assertEquals(r.get("a", false), grid.row(i).get("a", false));
+      assertEquals(r.get("b", false), grid.row(i).get("b", false));
+    }
+    assertNull(c.next());
+  }
+
+  @Test
+  public void testReaderForms()
+  {
+    // rows before cols, JSON numbers, nulls, "-:" remove, and xstr
+    HGrid g = new HJsonReader(
+      "{\"rows\":[{\"a\":1.5, \"b\":null}, {\"a\":\"-:\", \"b\":\"x:Foo:bar\"}]," +
+      " \"meta\":{\"ver\":\"3.0\"}, \"cols\":[{\"name\":\"a\"},{\"name\":\"b\"}]}").readGrid();
+    assertEquals(g.numRows(), 2);
+    assertEquals(g.meta(), HDict.EMPTY);
+    assertEquals(g.row(0).get("a"), HNum.make(1.5));
+    assertFalse(g.row(0).has("b"));
+    assertEquals(g.row(1).get("a"), HRemove.VAL);
+    assertEquals(g.row(1).get("b").toZinc(), "Foo(\"bar\")");
+
+    // empty grid
+    g = new HJsonReader("{\"meta\":{\"ver\":\"3.0\"},\"cols\":[{\"name\":\"empty\"}],\"rows\":[]}").readGrid();
+    assertEquals(g.numCols(), 1);
+    assertEquals(g.numRows(), 0);
+
+    // single grid formats read one grid through readGrids
+    HGridReader r = new HJsonReader("{\"meta\":{\"ver\":\"3.0\"},\"cols\":[{\"name\":\"empty\"}],\"rows\":[]}");
+    HGrid[] grids = r.readGrids();
+    r.close();
+    assertEquals(grids.length, 1);
+    assertEquals(grids[0], g);
+  }
+
+  @Test
+  public void testReaderBadRow()
+  {
+    // row tags must be in cols whether rows are streamed or buffered
+    try
+    {
+      new HJsonReader("{\"meta\":{\"ver\":\"3.0\"},\"cols\":[{\"name\":\"a\"}],\"rows\":[{\"b\":\"m:\"}]}").readGrid();
+      fail();
+    }
+    catch (ParseException e) {}
+    try
+    {
+      new HJsonReader("{\"rows\":[{\"b\":\"m:\"}],\"meta\":{\"ver\":\"3.0\"},\"cols\":[{\"name\":\"a\"}]}").readGrid();
+      fail();
+    }
+    catch (ParseException e) {}
+  }
+
+  @Test
+  public void testReaderTrailingMeta()
+  {
+    // meta after rows must not be lost
+    HGrid g = new HJsonReader(
+      "{\"cols\":[{\"name\":\"a\"}],\"rows\":[{\"a\":\"n:1\"}]," +
+      " \"meta\":{\"ver\":\"3.0\", \"err\":\"m:\", \"dis\":\"boom\"}}").readGrid();
+    assertTrue(g.isErr());
+    assertEquals(g.meta().getStr("dis"), "boom");
+    assertEquals(g.row(0).get("a"), HNum.make(1));
+  }
+
+  @Test
+  public void testWriterMatchesToJson() throws IOException
+  {
+    HVal[] vals = {
+      HStr.make("plain"), HStr.make("with:colon"), HStr.make("q\"b\\n\nr\rt\tc\u0001"),
+      HStr.make("\u00b0\u20ac\ud83d\ude00"), HStr.make(""),
+      HNum.make(72.5, "\u00b0F"), HNum.make(-3), HNum.make(Double.NaN), HNum.make(Double.POSITIVE_INFINITY, "kW"),
+      HRef.make("abc"), HRef.make("abc", "Dis \"q\" \u00e9"),
+      HMarker.VAL, HRemove.VAL, HNA.VAL,
+      HDate.make(2015, 6, 9), HTime.make(1, 2, 3, 45), HTime.make(23, 59, 0),
+      HDateTime.make(1307377618069L, HTimeZone.make("New_York")),
+      HDateTime.make(1307377618000L, HTimeZone.make("UTC")),
+      HUri.make("http://x/\u00e9?a=\"b\""), HBin.make("text/plain"), HCoord.make(37.55, -77.45),
+      HSymbol.make("foo"),
+    };
+    for (int i=0; i<vals.length; ++i)
+    {
+      HGridBuilder b = new HGridBuilder();
+      b.addCol("v");
+      b.addRow(new HVal[] { vals[i] });
+      String s = HJsonWriter.gridToString(b.toGrid());
+      assertTrue(s.indexOf("{\"v\":" + HStr.toCode(vals[i].toJson()) + "}") > 0, s);
+    }
+
+    // nested values and a lone surrogate
+    HGridBuilder nb = new HGridBuilder();
+    nb.meta().add("inner");
+    nb.addCol("a").add("dis", "A\u00e9");
+    nb.addRow(new HVal[] { HList.make(new HVal[] { HNum.make(2), HStr.make("x"), null }) });
+    HGridBuilder b = new HGridBuilder();
+    b.meta().add("m", HStr.make("bad\ud800"));
+    b.addCol("dict");
+    b.addCol("grid");
+    b.addRow(new HVal[] { new HDictBuilder().add("k", "v").add("b", true).toDict(), nb.toGrid() });
+    b.addRow(new HVal[] { null, null });
+    HGrid grid = b.toGrid();
+    String s = HJsonWriter.gridToString(grid);
+    assertTrue(s.indexOf("\"m\":\"bad\ud800\"") > 0, s);
+    assertTrue(s.indexOf("\"rows\":[\n{\"a\":[\"n:2\",\"x\",null]}\n]") > 0, s);
+    assertTrue(s.endsWith("},\n{}\n]\n}\n"), s);
+
+    // stream encodes the lone surrogate as '?' like OutputStreamWriter
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HJsonWriter w = new HJsonWriter(out);
+    w.writeGrid(grid);
+    assertEquals(out.toByteArray(), s.replace('\ud800', '?').getBytes("UTF-8"));
+    assertEquals(new HJsonReader(s).readGrid().numRows(), 2);
+  }
 }
@@ -0,0 +1,133 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import java.util.Iterator;
+import java.util.Map;
+import org.projecthaystack.*;
+import org.testng.annotations.Test;
+
+public class LazyZincTest
+{
+  @Test
+  public void testReadGrid()
+  {
+    HGrid grid = ZincFixture.makeGrid(100);
+    String zinc = HZincWriter.gridToString(grid);
+    verifyEq(new HZincLazyReader(zinc).readGrid(), grid);
+    verifyEq(new HZincLazyReader(zinc.replace("\n", "\r\n")).readGrid(), grid);
+    verifyEq(new HZincLazyReader(zinc.substring(0, zinc.length()-1)).readGrid(), grid);
+    verifyEq(new HZincLazyReader(zinc + "\n").readGrid(), grid);
+
+    HGrid empty = ZincFixture.makeGrid(0);
+    verifyEq(new HZincLazyReader(HZincWriter.gridToString(empty)).readGrid(), empty);
+
+    // comments fall back to eager parse
+    HGrid g = new HZincLazyReader("ver:\"3.0\"\na,b\n1,2 // two\n3,4\n").readGrid();
+    assertEquals(g.row(0).get("b"), HNum.make(2));
+    assertEquals(g.numRows(), 2);
+  }
+
+  @Test
+  public void testLazy()
+  {
+    HGrid grid = ZincFixture.makeGrid(20);
+    HGrid lazy = new HZincLazyReader(HZincWriter.gridToString(grid)).readGrid();
+
+    // cells are decoded once and cached
+    HRow row = lazy.row(3);
+    assertSame(row.get("misc"), row.get("misc"));
+    assertEquals(row.get("misc"), grid.row(3).get("misc"));
+    assertNull(lazy.row(7).get("dis", false));
+    assertEquals(lazy.row(7).id(), HRef.make("r7"));
+    assertEquals(lazy.row(7).dis(), "Row 7");
+    assertEquals(lazy.col("dis").meta(), grid.col("dis").meta());
+    assertEquals(lazy.meta(), grid.meta());
+    assertEquals(lazy.hashCode(), grid.hashCode());
+    assertEquals(lazy.toZinc(), grid.toZinc());
+
+    // iterator skips null cells
+    int n = 0;
+    for (Iterator it = lazy.row(7).iterator(); it.hasNext(); ++n)
+      assertNotEquals(((Map.Entry)it.next()).getKey(), "dis");
+    assertEquals(n, 3);
+  }
+
+  @Test
+  public void testConcurrent() throws Exception
+  {
+    // threads racing on first access must never see a missing cell
+    final HGrid grid = ZincFixture.makeGrid(200);
+    final String zinc = HZincWriter.gridToString(grid);
+    for (int round=0; round<20; ++round)
+    {
+      final HGrid lazy = new HZincLazyReader(zinc).readGrid();
+      final Throwable[] errs = new Throwable[4];
+      Thread[] threads = new Thread[errs.length];
+      for (int t=0; t<threads.length; ++t)
+      {
+        final int id = t;
+        threads[t] = new Thread()
+        {
+          public void run()
+          {
+            try
+            {
+              for (int i=0; i<lazy.numRows(); ++i)
+                assertEquals(lazy.row(i).get("val"), grid.row(i).get("val"));
+            }
+            catch (Throwable e) { errs[id] = e; }
+          }
+        };
+        threads[t].start();
+      }
+      for (int t=0; t<threads.length; ++t)
+      {
+        threads[t].join();
+        if (errs[t] != null) throw new AssertionError(errs[t]);
+      }
+    }
+  }
+
+  @Test
+  public void testBadCell()
+  {
+    HGrid g = new HZincLazyReader("ver:\"3.0\"\na,b\n1,2\n3,foo\n").readGrid();
+    assertEquals(g.numRows(), 2);
+    assertEquals(g.row(1).get("a"), HNum.make(3));
+    try
+    {
+      g.row(1).get("b");
+      fail();
+    }
+    catch (ParseException e)
+    {
+      assertTrue(e.getMessage().indexOf("line 4") > 0, e.getMessage());
+    }
+
+    // wrong number of cells is reported from readGrid
+    try
+    {
+      new HZincLazyReader("ver:\"3.0\"\na,b\n1,2,3\n").readGrid();
+      fail();
+    }
+    catch (ParseException e) {}
+  }
+
+  private void verifyEq(HGrid a, HGrid b)
+  {
+    assertEquals(a, b);
+    assertEquals(b, a);
+    assertEquals(a.numRows(), b.numRows());
+    for (int i=0; i<a.numRows(); ++i)
+      for (int c=0; c<b.numCols(); ++c)
+        assertEquals(a.row(i).get(b.col(c), false), b.row(i).get(b.col(c), false));
+  }
+}
@@ -0,0 +1,111 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import java.util.Random;
+import org.projecthaystack.*;
+import org.testng.annotations.Test;
+
+public class LiteralDecoderTest
+{
+  @Test
+  public void testDoubles()
+  {
+    String[] strs = {
+      "0", "-0", "1", "-1", "0.1", "0.3", "-0.0", "72.3", "123456789012345", "1234567890123456",
+      "9007199254740993", "3.14159265358979", "0.000000000000000000001", "1.0000000000000000000001",
+      "5.", ".5", "-", "1e10", "1.5E-3", "12.5.6", "abc", "" };
+    LiteralDecoder d = new LiteralDecoder();
+    for (int i=0; i<strs.length; ++i) verifyDouble(d, strs[i]);
+
+    Random r = new Random(0x4a17);
+    for (int i=0; i<20000; ++i)
+    {
+      double v = r.nextInt(4) == 0 ? r.nextInt(100000) : (r.nextDouble() - 0.5) * Math.pow(10, r.nextInt(16) - 4);
+      verifyDouble(d, String.valueOf(v));
+      verifyDouble(d, new java.text.DecimalFormat("#0.####").format(v));
+    }
+  }
+
+  private void verifyDouble(LiteralDecoder d, String s)
+  {
+    String x = "[" + s + "]";
+    Object expected, actual;
+    try { expected = Double.valueOf(Double.parseDouble(s)); } catch (Exception e) { expected = e.getClass(); }
+    try { actual = Double.valueOf(d.toDouble(x, 1, x.length()-1)); } catch (Exception e) { actual = e.getClass(); }
+    assertEquals(actual, expected, s);
+  }
+
+  @Test
+  public void testDateTimes()
+  {
+    String[] dates = { "2026-10-17", "1999-01-31", "2026-1-17", "2026-13-01", "1800-01-01", "2026-10-1x", "2026/10/17" };
+    String[] times = { "00:00:00", "23:59:59", "08:30:00.5", "08:30:00.12", "08:30:00.123", "08:30:00.123456",
+                       "08:30:00.", "24:00:00", "08:60:00", "8:30:00", "08:30:00.x", "08:30" };
+    String[] tss = {
+      "2026-10-17T08:30:00Z", "2026-10-17T08:30:00.5Z", "2026-10-17T08:30:00Z UTC",
+      "2026-10-17T08:30:00-04:00 New_York", "2026-10-17T08:30:00.123+05:30 Kolkata",
+      "2026-03-08T02:30:00-05:00 New_York", "2026-10-17T08:30:00Z London",
+      "2026-10-17T08:30:00-03:30 St_Johns", "2026-10-17T08:30:00+00:00 UTC",
+      "2026-10-17T08:30:00-05:00 GMT+5", "2026-10-17T08:30:00-04:00 Bogus",
+      "2026-10-17T08:30:00-4:00 New_York", "2026-10-17T08:30-04:00 New_York",
+      "2026-10-17T25:30:00-04:00 New_York", "2026-13-17T08:30:00-04:00 New_York",
+      "2026-10-17T08:30:00", "2026-10-17 08:30:00Z", "2026-10-17T08:30:00-04:00",
+      "2026-10-17T08:30:00-04:00 ", "2026-10-17T08:30:00.1234-04:00 New_York" };
+
+    LiteralDecoder d = new LiteralDecoder();
+    for (int pass=0; pass<2; ++pass)
+    {
+      for (int i=0; i<dates.length; ++i)
+      {
+        String s = dates[i];
+        Object expected, actual;
+        try { expected = HDate.make(s); } catch (Exception e) { expected = err(e); }
+        try { actual = d.date("xx" + s, 2, s.length()+2); } catch (Exception e) { actual = err(e); }
+        assertEquals(actual, expected, s);
+      }
+      for (int i=0; i<times.length; ++i)
+      {
+        String s = times[i];
+        Object expected, actual;
+        try { expected = HTime.make(s); } catch (Exception e) { expected = err(e); }
+        try { actual = d.time(s, 0, s.length()); } catch (Exception e) { actual = err(e); }
+        assertEquals(actual, expected, s);
+      }
+      for (int i=0; i<tss.length; ++i)
+      {
+        String s = tss[i];
+        Object expected, actual;
+        try { expected = HDateTime.make(s); } catch (Exception e) { expected = err(e); }
+        try { actual = d.dateTime(s, 0, s.length()); } catch (Exception e) { actual = err(e); }
+        assertEquals(actual, expected, s);
+        if (actual instanceof HDateTime)
+          assertEquals(((HDateTime)actual).millis(), ((HDateTime)expected).millis(), s);
+      }
+    }
+  }
+
+  private static String err(Exception e) { return e.getClass().getName() + ": " + e.getMessage(); }
+
+  @Test
+  public void testZincHisRoundTrip()
+  {
+    HTimeZone tz = HTimeZone.make("New_York");
+    HGridBuilder b = new HGridBuilder();
+    b.addCol("ts");
+    b.addCol("val");
+    long start = HDateTime.make(2026, 3, 7, 0, 0, 0, tz, -5*3600).millis();
+    for (int i=0; i<3*24*60; ++i)
+      b.addRow(new HVal[] { HDateTime.make(start + i * 60000L, tz), HNum.make(i * 0.25 - 100, "kW") });
+    HGrid g = b.toGrid();
+    assertEquals(new HZincReader(HZincWriter.gridToString(g)).readGrid(), g);
+    assertEquals(new HJsonReader(HJsonWriter.gridToString(g)).readGrid(), g);
+  }
+}
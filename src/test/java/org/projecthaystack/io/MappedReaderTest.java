@@ -0,0 +1,93 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import java.io.*;
+import org.projecthaystack.*;
+import org.testng.annotations.Test;
+
+public class MappedReaderTest
+{
+  private File write(byte[] bytes) throws IOException
+  {
+    File f = File.createTempFile("haystack", ".zinc");
+    f.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(f);
+    try { out.write(bytes); } finally { out.close(); }
+    return f;
+  }
+
+  private String readAll(Reader r, int chunk) throws IOException
+  {
+    StringBuffer s = new StringBuffer();
+    char[] buf = new char[chunk];
+    while (true)
+    {
+      int n = r.read(buf, 0, buf.length);
+      if (n < 0) break;
+      s.append(buf, 0, n);
+    }
+    r.close();
+    return s.toString();
+  }
+
+  @Test
+  public void testDecode() throws IOException
+  {
+    // mix of 1, 2, 3, and 4 byte chars to straddle small windows
+    StringBuffer s = new StringBuffer();
+    for (int i=0; i<3000; ++i)
+    {
+      s.append("ab");
+      s.append('\u00b0');
+      s.append('\u20ac');
+      s.appendCodePoint(0x1f600);
+      s.append(i);
+    }
+    String str = s.toString();
+    File f = write(str.getBytes("UTF-8"));
+    for (int window = 5; window < 40; window += 7)
+    {
+      assertEquals(readAll(new MappedUtf8Reader(f, window), 8192), str);
+      assertEquals(readAll(new MappedUtf8Reader(f, window), 1), str);
+    }
+    assertEquals(readAll(new MappedUtf8Reader(f), 3), str);
+
+    // malformed bytes
+    f = write(new byte[] { 'a', (byte)0xff, 'b', (byte)0xe2, (byte)0x82 });
+    assertEquals(readAll(new MappedUtf8Reader(f), 100), "a\ufffdb\ufffd\ufffd");
+
+    // empty file
+    f = write(new byte[0]);
+    assertEquals(readAll(new MappedUtf8Reader(f), 100), "");
+  }
+
+  @Test
+  public void testZinc() throws IOException
+  {
+    HGridBuilder b = new HGridBuilder();
+    b.addCol("id");
+    b.addCol("dis");
+    b.addCol("val");
+    for (int i=0; i<1000; ++i)
+      b.addRow(new HVal[] { HRef.make("r" + i), HStr.make("Point \u00b0 " + i), HNum.make(i, "\u00b0F") });
+    HGrid grid = b.toGrid();
+    File f = write(HZincWriter.gridToString(grid).getBytes("UTF-8"));
+
+    assertEquals(new HZincReader(f).readGrid(), grid);
+    assertEquals(new HZincParallelReader(f).readGrid(), grid);
+
+    HGridCursor c = new HZincReader(f).readCursor();
+    int n = 0;
+    for (HRow r = c.next(); r != null; r = c.next())
+      assertEquals(r.get("dis"), grid.row(n++).get("dis"));
+    assertEquals(n, 1000);
+  }
+}
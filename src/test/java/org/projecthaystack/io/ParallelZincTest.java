@@ -0,0 +1,91 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+import org.projecthaystack.*;
+import org.testng.annotations.Test;
+
+public class ParallelZincTest
+{
+  private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+  private HZincParallelReader reader(String zinc)
+  {
+    HZincParallelReader r = new HZincParallelReader(zinc);
+    r.pool = pool;
+    r.threshold = 64;
+    r.chunkSize = 200;
+    return r;
+  }
+
+  @Test
+  public void testReadGrid()
+  {
+    HGrid grid = ZincFixture.makeGrid(500);
+    String zinc = HZincWriter.gridToString(grid);
+    assertEquals(reader(zinc).readGrid(), grid);
+    assertEquals(reader(zinc + "\n").readGrid(), grid);
+    assertEquals(reader(zinc.replace("\n", "\r\n")).readGrid(), grid);
+
+    // last row without trailing newline
+    assertEquals(reader(zinc.substring(0, zinc.length()-1)).readGrid(), grid);
+
+    // empty grid
+    HGrid empty = ZincFixture.makeGrid(0);
+    assertEquals(reader(HZincWriter.gridToString(empty)).readGrid(), empty);
+
+    // below threshold
+    HZincParallelReader r = new HZincParallelReader(zinc);
+    assertEquals(r.readGrid(), grid);
+  }
+
+  @Test
+  public void testReadGrids()
+  {
+    HGrid[] grids = {
+      ZincFixture.makeGrid(50), ZincFixture.makeGrid(0),
+      ZincFixture.makeGrid(300), ZincFixture.makeGrid(3) };
+    StringBuffer s = new StringBuffer();
+    for (int i=0; i<grids.length; ++i)
+    {
+      if (i > 0) s.append('\n');
+      s.append(HZincWriter.gridToString(grids[i]));
+    }
+    HGrid[] actual = reader(s.toString()).readGrids();
+    assertEquals(actual.length, grids.length);
+    for (int i=0; i<grids.length; ++i) assertEquals(actual[i], grids[i]);
+  }
+
+  @Test
+  public void testErrors()
+  {
+    String zinc = HZincWriter.gridToString(ZincFixture.makeGrid(400));
+    String[] bad = {
+      // bad row deep in the grid
+      zinc.replace("@r350 ", "@r350 ,,,,, "),
+      // garbage after the end of grid
+      zinc + "\nfoo",
+      // unterminated string
+      zinc + "@x,\"oops",
+      // comment in the middle of rows
+      zinc.replace("@r200 ", "/* hi */@r200 "),
+    };
+    for (int i=0; i<bad.length; ++i)
+    {
+      assertNotEquals(bad[i], zinc);
+      String expected = null;
+      String actual = null;
+      try { new HZincReader(bad[i]).readGrid(); } catch (Exception e) { expected = e.toString(); }
+      try { reader(bad[i]).readGrid(); } catch (Exception e) { actual = e.toString(); }
+      assertEquals(actual, expected);
+    }
+  }
+}
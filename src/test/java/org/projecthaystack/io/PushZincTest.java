@@ -0,0 +1,134 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import static org.testng.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import org.projecthaystack.*;
+import org.testng.annotations.Test;
+
+public class PushZincTest
+{
+  /** Collects grids and a log of events */
+  static class Collector extends HGridListener
+  {
+    public void onHeader(HGrid header)
+    {
+      builder = new HGridBuilder();
+      builder.meta().add(header.meta());
+      for (int i=0; i<header.numCols(); ++i)
+        builder.addCol(header.col(i).name()).add(header.col(i).meta());
+      cells = new HVal[header.numCols()];
+      events.add("header");
+    }
+
+    public void onRow(HRow row)
+    {
+      for (int i=0; i<cells.length; ++i)
+        cells[i] = row.get(row.grid().col(i), false);
+      builder.addRow(cells);
+      events.add("row");
+    }
+
+    public void onGridEnd(HGrid header)
+    {
+      grids.add(builder.toGrid());
+      events.add("end");
+    }
+
+    HGridBuilder builder;
+    HVal[] cells;
+    ArrayList grids = new ArrayList();
+    ArrayList events = new ArrayList();
+  }
+
+  private Collector push(byte[] bytes, int chunk)
+  {
+    Collector c = new Collector();
+    HZincPushParser p = new HZincPushParser(c);
+    for (int i=0; i<bytes.length; i += chunk)
+      p.feed(ByteBuffer.wrap(bytes, i, Math.min(chunk, bytes.length - i)));
+    p.end();
+    return c;
+  }
+
+  @Test
+  public void testChunks() throws Exception
+  {
+    HGrid grid = ZincFixture.makeGrid(30);
+    byte[] bytes = HZincWriter.gridToString(grid).getBytes("UTF-8");
+    for (int chunk=1; chunk<40; ++chunk)
+    {
+      Collector c = push(bytes, chunk);
+      assertEquals(c.grids.size(), 1);
+      assertEquals(c.grids.get(0), grid);
+    }
+    Collector c = push(bytes, bytes.length);
+    assertEquals(c.grids.get(0), grid);
+
+    // no trailing newline and CRLF
+    String zinc = HZincWriter.gridToString(grid);
+    assertEquals(push(zinc.substring(0, zinc.length()-1).getBytes("UTF-8"), 7).grids.get(0), grid);
+    assertEquals(push(zinc.replace("\n", "\r\n").getBytes("UTF-8"), 5).grids.get(0), grid);
+  }
+
+  @Test
+  public void testGrids() throws Exception
+  {
+    HGrid a = ZincFixture.makeGrid(3);
+    HGrid b = ZincFixture.makeGrid(0);
+    String zinc =
+      "// leading comment\n" +
+      HZincWriter.gridToString(a) + "\n" +
+      "/* block\n comment */\n" +
+      HZincWriter.gridToString(b) + "\n" +
+      HZincWriter.gridToString(a);
+    Collector c = push(zinc.getBytes("UTF-8"), 3);
+    assertEquals(c.grids.size(), 3);
+    assertEquals(c.grids.get(0), a);
+    assertEquals(c.grids.get(1), b);
+    assertEquals(c.grids.get(2), a);
+  }
+
+  @Test
+  public void testIncremental() throws Exception
+  {
+    Collector c = new Collector();
+    HZincPushParser p = new HZincPushParser(c);
+    p.feed(ByteBuffer.wrap("ver:\"3.0\"\na,b\n1,\"x".getBytes("UTF-8")));
+    assertEquals(c.events.toString(), "[header]");
+    p.feed(ByteBuffer.wrap("y\"\n2,".getBytes("UTF-8")));
+    assertEquals(c.events.toString(), "[header, row]");
+    p.feed(ByteBuffer.wrap("3\n\n".getBytes("UTF-8")));
+    assertEquals(c.events.toString(), "[header, row, row, end]");
+    p.end();
+    assertEquals(c.events.size(), 4);
+    assertEquals(((HGrid)c.grids.get(0)).row(0).get("b"), HStr.make("xy"));
+  }
+
+  @Test
+  public void testErrors() throws Exception
+  {
+    HZincPushParser p = new HZincPushParser(new Collector());
+    try
+    {
+      p.feed(ByteBuffer.wrap("ver:\"3.0\"\na,b\n1,2\n3,foo\n".getBytes("UTF-8")));
+      fail();
+    }
+    catch (ParseException e)
+    {
+      assertTrue(e.getMessage().endsWith("[line 5]"), e.getMessage());
+    }
+
+    p = new HZincPushParser(new Collector());
+    p.feed(ByteBuffer.wrap("ver:\"3.0\"\na\n\"open".getBytes("UTF-8")));
+    try { p.end(); fail(); } catch (ParseException e) {}
+  }
+}
@@ -155,6 +155,40 @@ public class TokenizerTest
       });
   }
 
+  @Test
+  public void testBlockBoundaries()
+  {
+    // tokens straddling the 8K read buffer must tokenize the same as
+    // from an in-memory string; use a reader which returns tiny chunks
+    StringBuffer s = new StringBuffer();
+    for (int i=0; i<2000; ++i)
+      s.append("@r").append(i).append(" \"s\\u00e9").append(i).append("\" 12.5kW 2026-10-17T08:30:00Z UTC\n");
+    s.append("\"").append(new String(new char[20000]).replace('\0', 'x')).append("\"");
+    String zinc = s.toString();
+
+    HaystackTokenizer a = new HaystackTokenizer(zinc);
+    HaystackTokenizer b = new HaystackTokenizer(new StringReader(zinc)
+    {
+      public int read(char[] cbuf, int off, int len) throws java.io.IOException
+      {
+        return super.read(cbuf, off, Math.min(len, 7));
+      }
+    });
+    HaystackTokenizer c = new HaystackTokenizer(new StringReader(zinc));
+    int n = 0;
+    while (true)
+    {
+      HaystackToken x = a.next();
+      assertEquals(b.next(), x);
+      assertEquals(c.next(), x);
+      assertEquals(b.val, a.val);
+      assertEquals(c.val, a.val);
+      if (x == HaystackToken.eof) break;
+      ++n;
+    }
+    assertEquals(n, 2000 * 5 + 1);
+  }
+
   private HNum n(long val) { return HNum.make(val); }
   private HNum n(double val) { return HNum.make(val); }
   private HNum n(double val, String unit) { return HNum.make(val, unit); }
@@ -0,0 +1,66 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.io;
+
+import org.projecthaystack.*;
+
+/**
+ * ZincFixture builds grids full of the values which trip up Zinc
+ * readers that split or scan the text: nested grids, commas, quotes,
+ * escaped newlines, comment markers, brackets, and non-ASCII chars.
+ */
+final class ZincFixture
+{
+  /**
+   * Make a grid with columns id, dis, val, and misc.  The dis cell is
+   * null in every 7th row and the misc cell in rows where i % 8 == 5.
+   */
+  static HGrid makeGrid(int numRows)
+  {
+    HGrid nested = makeNested();
+
+    HGridBuilder b = new HGridBuilder();
+    b.meta().add("dis", "Caf\u00e9\n\u20ac grid").add("inner", nested);
+    b.addCol("id");
+    b.addCol("dis").add("dis", "Display");
+    b.addCol("val").add("unit", "kW");
+    b.addCol("misc");
+    HTimeZone tz = HTimeZone.make("New_York");
+    for (int i=0; i<numRows; ++i)
+    {
+      HVal misc;
+      switch (i % 8)
+      {
+        case 0:  misc = nested; break;
+        case 1:  misc = HUri.make("http://x/`q`\u00b0?a=\"b\",c=1"); break;
+        case 2:  misc = HList.make(new HVal[] { HNum.make(i), HStr.make("]\"") }); break;
+        case 3:  misc = new HDictBuilder().add("a", i).add("b", "},").toDict(); break;
+        case 4:  misc = HCoord.make(37.5, -77.4); break;
+        case 5:  misc = null; break;
+        case 6:  misc = HDateTime.make(1700000000000L + i * 60000L, tz); break;
+        default: misc = HNum.make(i, "\u00b0F");
+      }
+      b.addRow(new HVal[] {
+        HRef.make("r" + i, "Row " + i),
+        i % 7 == 0 ? null : HStr.make("row, " + i + " \"q\" \n // not /* a comment */ \ud83d\ude00"),
+        HNum.make(i * 1.5, "kW"),
+        misc });
+    }
+    return b.toGrid();
+  }
+
+  private static HGrid makeNested()
+  {
+    HGridBuilder b = new HGridBuilder();
+    b.meta().add("nested");
+    b.addCol("x");
+    b.addRow(new HVal[] { HStr.make("a,b\nc") });
+    b.addRow(new HVal[] { HStr.make(">> << \"\n//") });
+    return b.toGrid();
+  }
+}
@@ -366,6 +366,44 @@ public class ZincGridTest extends HValTest
     }
   }
 
+  @Test
+  public void testWriterMatchesToZinc() throws Exception
+  {
+    HTimeZone ny = HTimeZone.make("New_York");
+    HVal[] vals = {
+      HStr.make("plain"), HStr.make("esc \" \\ \n \r \t \u0001 \u001f"),
+      HStr.make("caf\u00e9 \u20ac \ud83d\ude00 \ud800x"),
+      HNum.make(0), HNum.make(1), HNum.make(-1), HNum.make(2), HNum.make(-123456789),
+      HNum.make(1e14), HNum.make(1e15), HNum.make(1e20), HNum.make(1.5), HNum.make(0.5),
+      HNum.make(1.23456789), HNum.make(-2.00005), HNum.make(1e-7), HNum.make(-0.0),
+      HNum.make(72.5, "\u00b0F"), HNum.make(3, "kW"), HNum.POS_INF, HNum.NEG_INF, HNum.NaN,
+      HRef.make("a.b-c"), HRef.make("x", "Dis \"q\""),
+      HDate.make(2026, 1, 2), HTime.make(1, 2, 3), HTime.make(23, 59, 59, 7), HTime.make(0, 0, 0, 450),
+      HDateTime.make(HDate.make(2026, 10, 17), HTime.make(8, 5), ny),
+      HDateTime.make(HDate.make(2026, 10, 17), HTime.make(8, 5, 30, 12), HTimeZone.UTC),
+      HDateTime.make(HDate.make(2026, 1, 1), HTime.make(0, 0), HTimeZone.make("Kolkata")),
+      HDateTime.make(2026, 3, 1, 0, 0, 0, HTimeZone.make("St_Johns"), -12600),
+      HUri.make("http://x/`q`/\u00b0"), HBool.TRUE, HBool.FALSE, HMarker.VAL, HNA.VAL, HRemove.VAL,
+      HCoord.make(37.55, -77.45),
+    };
+    for (int i=0; i<vals.length; ++i)
+      assertEquals(HZincWriter.valToString(vals[i]), vals[i].toZinc());
+
+    // via stream as UTF-8 bytes
+    HGridBuilder b = new HGridBuilder();
+    b.addCol("v");
+    for (int i=0; i<vals.length; ++i) b.addRow(new HVal[] { vals[i] });
+    HGrid grid = b.toGrid();
+    java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+    HZincWriter w = new HZincWriter(out);
+    for (int i=0; i<100; ++i) w.writeGrid(grid);
+    w.flush();
+    StringBuffer expected = new StringBuffer();
+    for (int i=0; i<100; ++i) expected.append(HZincWriter.gridToString(grid));
+    assertEquals(out.toByteArray(), expected.toString().getBytes("UTF-8"));
+    assertEquals(new HZincReader(HZincWriter.gridToString(grid)).readGrid().row(2).get("v"), vals[2]);
+  }
+
   void verifyNestedGridEq(String str, HGrid grid)
   {
     String result = grid.toZinc();
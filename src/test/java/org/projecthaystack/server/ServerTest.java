@@ -0,0 +1,157 @@
+//
+// Copyright (c) 2026, Brian Frank
+// Licensed under the Academic Free License version 3.0
+//
+// History:
+//   17 Oct 2026  Brian Frank  Creation
+//
+package org.projecthaystack.server;
+
+import static org.testng.Assert.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.HashMap;
+import java.util.zip.GZIPInputStream;
+import jakarta.servlet.*;
+import jakarta.servlet.http.*;
+import org.projecthaystack.*;
+import org.projecthaystack.io.*;
+import org.testng.annotations.Test;
+
+public class ServerTest
+{
+  private HGrid readBack(ByteArrayOutputStream out) throws IOException
+  {
+    return new HZincReader(out.toString("UTF-8")).readGrid();
+  }
+
+  @Test
+  public void testReadAllStream() throws IOException
+  {
+    TestDatabase db = new TestDatabase();
+    String[] filters = { "point", "site", "equip and siteRef==@A", "notThere" };
+    for (int i=0; i<filters.length; ++i)
+    {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      HZincWriter w = new HZincWriter(out);
+      db.readAll(filters[i], Integer.MAX_VALUE, w);
+      w.flush();
+      assertEquals(readBack(out), db.readAll(filters[i]));
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HZincWriter w = new HZincWriter(out);
+    db.readAll("point", 3, w);
+    w.flush();
+    assertEquals(readBack(out).numRows(), 3);
+  }
+
+  @Test
+  public void testGzipErrorMidStream() throws Exception
+  {
+    // op which fails after the compressed response has started
+    HOp op = new HOp()
+    {
+      public String name() { return "failing"; }
+      public String summary() { return "Fails mid-stream"; }
+      public void onService(HServer db, HGridCursor req, HGridWriter res)
+      {
+        HGridBuilder b = new HGridBuilder();
+        b.addCol("n");
+        res.writeGridHeader(b.toGrid());
+        for (int i=0; i<1000; ++i)
+          res.writeRow(new HDictBuilder().add("n", "row " + i).toDict());
+        throw new RuntimeException("boom");
+      }
+    };
+
+    final HashMap headers = new HashMap();
+    headers.put("Accept-Encoding", "gzip");
+    HttpServletRequest req = (HttpServletRequest)mock(HttpServletRequest.class, new InvocationHandler()
+    {
+      public Object invoke(Object proxy, Method m, Object[] args)
+      {
+        if (m.getName().equals("getMethod")) return "GET";
+        if (m.getName().equals("getParameterMap")) return new HashMap();
+        if (m.getName().equals("getHeader")) return headers.get(args[0]);
+        return null;
+      }
+    });
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final ServletOutputStream body = new ServletOutputStream()
+    {
+      public void write(int b) { bytes.write(b); }
+      public boolean isReady() { return true; }
+      public void setWriteListener(WriteListener l) {}
+    };
+    HttpServletResponse res = (HttpServletResponse)mock(HttpServletResponse.class, new InvocationHandler()
+    {
+      public Object invoke(Object proxy, Method m, Object[] args)
+      {
+        if (m.getName().equals("getOutputStream")) return body;
+        if (m.getName().equals("setHeader")) headers.put("res:" + args[0], args[1]);
+        return null;
+      }
+    });
+
+    try { op.onService(new TestDatabase(), req, res); fail(); }
+    catch (RuntimeException e) { assertEquals(e.getMessage(), "boom"); }
+
+    // the body was compressed but never finished, so it is not a valid gzip
+    assertEquals(headers.get("res:Content-Encoding"), "gzip");
+    assertTrue(bytes.size() > 0);
+    InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    try
+    {
+      byte[] buf = new byte[4096];
+      while (in.read(buf) >= 0) {}
+      fail();
+    }
+    catch (EOFException e) {}
+  }
+
+  private static Object mock(Class type, InvocationHandler handler)
+  {
+    return Proxy.newProxyInstance(type.getClassLoader(), new Class[] { type }, handler);
+  }
+
+  @Test
+  public void testNavColumns()
+  {
+    // nav columns keep the tag order of HDictBuilder on the wire
+    HGrid grid = new TestDatabase().nav(null);
+    StringBuffer s = new StringBuffer();
+    for (int i=0; i<grid.numCols(); ++i)
+    {
+      if (i > 0) s.append(',');
+      s.append(grid.col(i).name());
+    }
+    assertEquals(s.toString(), "tz,dis,geoAddr,id,geoState,area,navId,geoCity,site");
+  }
+
+  @Test
+  public void testHisReadStream() throws IOException
+  {
+    TestDatabase db = new TestDatabase();
+    String[] ids = { "A-AHU1-DTemp", "B-AHU2-Fan" };
+    for (int i=0; i<ids.length; ++i)
+    {
+      HRef id = HRef.make(ids[i]);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      HZincWriter w = new HZincWriter(out);
+      db.hisRead(id, "2012-10-01", w);
+      w.flush();
+      HGrid grid = readBack(out);
+      assertEquals(grid, db.hisRead(id, "2012-10-01"));
+      assertEquals(grid.numRows(), 96);
+    }
+
+    // record is checked before anything is written
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HZincWriter w = new HZincWriter(out);
+    try { db.hisRead(HRef.make("A"), "2012-10-01", w); fail(); } catch (UnknownNameException e) {}
+    w.flush();
+    assertEquals(out.size(), 0);
+  }
+}
@@ -29,6 +29,46 @@ public class UtilTest
     assertEquals(WebUtil.isToken("base64+/"), false);
   }
 
+  @Test
+  public void testDoubleFormat()
+  {
+    java.text.DecimalFormat df = new java.text.DecimalFormat("#0.####", new java.text.DecimalFormatSymbols(java.util.Locale.ENGLISH));
+    double[] special = {
+      0, -0.0, 1, -1, 1.00005, 1.00015, 1.03125, -1.03125, 2.5, 1.99995, 9.99995, 1.000049999,
+      1234.56785, 0.1, 1e-5, 1.0000000001, 9007199254740991.0, 9007199254740991.5 - 1, 9007199254740992.0,
+      1e16, 1e20, 1e23, Double.MAX_VALUE, Double.MIN_VALUE, 4503599627370495.5, 123456789.00005,
+    };
+    for (int i=0; i<special.length; ++i) verifyDoubleFormat(df, special[i]);
+
+    Random r = new Random(7);
+    for (int i=0; i<200000; ++i)
+    {
+      double d;
+      switch (i % 6)
+      {
+        case 0:  d = r.nextDouble() * 100; break;
+        case 1:  d = r.nextDouble(); break;
+        case 2:  d = (r.nextInt(2000000) - 1000000) / 32768.0; break;
+        case 3:  d = Math.round(r.nextDouble() * 1e9) / 1e5 + 0.00005; break;
+        case 4:  d = Double.longBitsToDouble(r.nextLong() & 0x7fffffffffffffffL); break;
+        default: d = -r.nextDouble() * Math.pow(10, r.nextInt(18));
+      }
+      if (Double.isNaN(d) || Double.isInfinite(d)) continue;
+      verifyDoubleFormat(df, d);
+    }
+
+    assertEquals(DoubleFormat.append(new StringBuilder(), Double.NaN, "kW", false).toString(), "NaN");
+    assertEquals(DoubleFormat.append(new StringBuilder(), Double.NEGATIVE_INFINITY, "kW", false).toString(), "-INF");
+    assertEquals(DoubleFormat.append(new StringBuilder(), 72.25, "kW", true).toString(), "72.25 kW");
+    assertEquals(DoubleFormat.append(new StringBuilder(), 72.25, "kW", false).toString(), "72.25kW");
+  }
+
+  private void verifyDoubleFormat(java.text.DecimalFormat df, double d)
+  {
+    String expected = Math.abs(d) > 1.0 ? df.format(d) : String.valueOf(d);
+    assertEquals(DoubleFormat.append(new StringBuilder(), d).toString(), expected, "bits " + Double.doubleToLongBits(d));
+  }
+
   @Test
   public void testBase64()
   {